@@ -0,0 +1,78 @@
+package jarinker.bench;
+
+import com.sun.tools.jdeps.JdepsFilter;
+import jarinker.core.AnalyzerEngine;
+import jarinker.core.AnalyzerType;
+import jarinker.core.DependencyGraph;
+import jarinker.core.JdepsAnalyzer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link JdepsAnalyzer#analyze()} over a {@link SyntheticCorpus}, without analysis cache.
+ *
+ * @author Freeman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AnalyzeBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int classes;
+
+    @Param({"CLASS", "PACKAGE", "MODULE"})
+    AnalyzerType type;
+
+    @Param({"JDEPS", "CLASSFILE"})
+    AnalyzerEngine engine;
+
+    SyntheticCorpus corpus;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        corpus = SyntheticCorpus.get(classes);
+    }
+
+    @Benchmark
+    public DependencyGraph analyze() {
+        return analyze(corpus, type, engine);
+    }
+
+    /**
+     * Analyze a corpus the way the {@code analyze} command does, with {@code app.jar} as the only source.
+     *
+     * @param corpus corpus
+     * @param type   analysis type
+     * @param engine analysis engine
+     * @return dependency graph
+     */
+    static DependencyGraph analyze(SyntheticCorpus corpus, AnalyzerType type, AnalyzerEngine engine) {
+        var filterBuilder = new JdepsFilter.Builder();
+        filterBuilder.filter(false, false);
+        filterBuilder.findJDKInternals(false);
+        filterBuilder.findMissingDeps(false);
+
+        try (var configuration = JdepsAnalyzer.buildJdepsConfiguration(
+                List.of(corpus.appJar()), List.of(corpus.libDir()), Runtime.version())) {
+            return JdepsAnalyzer.builder()
+                    .jdepsFilter(filterBuilder.build())
+                    .jdepsConfiguration(configuration)
+                    .engine(engine)
+                    .type(type)
+                    .build()
+                    .analyze();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to analyze " + corpus.appJar(), e);
+        }
+    }
+}
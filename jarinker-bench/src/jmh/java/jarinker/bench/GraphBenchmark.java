@@ -0,0 +1,96 @@
+package jarinker.bench;
+
+import com.sun.tools.jdeps.Archive;
+import jarinker.core.AnalyzerEngine;
+import jarinker.core.AnalyzerType;
+import jarinker.core.DependencyGraph;
+import jarinker.core.IndexedGraph;
+import jarinker.core.ReachableClasses;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link DependencyGraph} construction and reachable-set computation, on the class-level graph of a
+ * {@link SyntheticCorpus}.
+ *
+ * <p> The corpus is analyzed once per trial, each invocation then only pays for the part being measured.
+ *
+ * @author Freeman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int classes;
+
+    IndexedGraph indexedGraph;
+    Set<Archive> archives;
+    List<Archive> rootArchives;
+
+    // Node and edge lists of the analyzed graph, replayed by buildGraph
+    String[] nodeArchives;
+    String[] nodeNames;
+    int[] edgeSources;
+    int[] edgeTargets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var graph =
+                AnalyzeBenchmark.analyze(SyntheticCorpus.get(classes), AnalyzerType.CLASS, AnalyzerEngine.CLASSFILE);
+        indexedGraph = graph.getIndexedGraph();
+        archives = graph.getArchives();
+        rootArchives = graph.getRootArchives();
+
+        int nodes = indexedGraph.nodeCount();
+        nodeArchives = new String[nodes];
+        nodeNames = new String[nodes];
+        edgeSources = new int[indexedGraph.edgeCount()];
+        edgeTargets = new int[indexedGraph.edgeCount()];
+        int edge = 0;
+        for (int node = 0; node < nodes; node++) {
+            nodeArchives[node] = indexedGraph.archive(node);
+            nodeNames[node] = indexedGraph.name(node);
+            for (int i = 0; i < indexedGraph.outDegree(node); i++) {
+                edgeSources[edge] = node;
+                edgeTargets[edge] = indexedGraph.successor(node, i);
+                edge++;
+            }
+        }
+    }
+
+    /**
+     * Intern nodes and edges into a new graph, as the analyzers do while walking the class files.
+     */
+    @Benchmark
+    public DependencyGraph buildGraph() {
+        var builder = new IndexedGraph.Builder();
+        var ids = new int[nodeNames.length];
+        for (int node = 0; node < ids.length; node++) {
+            ids[node] = builder.node(nodeArchives[node], nodeNames[node]);
+        }
+        for (int edge = 0; edge < edgeSources.length; edge++) {
+            builder.edge(ids[edgeSources[edge]], ids[edgeTargets[edge]]);
+        }
+        return new DependencyGraph(builder.build(), archives, rootArchives, AnalyzerType.CLASS);
+    }
+
+    /**
+     * Resolve the root nodes and traverse the graph, a fresh {@link DependencyGraph} has nothing cached yet.
+     */
+    @Benchmark
+    public ReachableClasses reachableClasses() {
+        return new DependencyGraph(indexedGraph, archives, rootArchives, AnalyzerType.CLASS).getReachableClasses();
+    }
+}
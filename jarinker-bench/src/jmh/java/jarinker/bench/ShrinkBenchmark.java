@@ -0,0 +1,110 @@
+package jarinker.bench;
+
+import com.sun.tools.jdeps.Archive;
+import jarinker.core.AnalyzerEngine;
+import jarinker.core.AnalyzerType;
+import jarinker.core.DependencyGraph;
+import jarinker.core.JarShrinker;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * {@link JarShrinker} rewriting the library jars of a {@link SyntheticCorpus}.
+ *
+ * <p> Besides operations per second, the {@code megabytes} counter reports input throughput in MB/s.
+ *
+ * @author Freeman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ShrinkBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int classes;
+
+    /**
+     * Deflate level used to recompress retained entries, -1 copies them as raw compressed bytes.
+     */
+    @Param({"-1", "6"})
+    int compressionLevel;
+
+    DependencyGraph graph;
+    List<Archive> libArchives;
+    double inputMegabytes;
+    Path outputDir;
+    JarShrinker shrinker;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var corpus = SyntheticCorpus.get(classes);
+        graph = AnalyzeBenchmark.analyze(corpus, AnalyzerType.CLASS, AnalyzerEngine.CLASSFILE);
+        // Computed once here, so only the rewriting is measured
+        graph.getReachableClasses();
+
+        libArchives = new ArrayList<>(graph.getArchives());
+        libArchives.removeAll(graph.getRootArchives());
+
+        long inputBytes = 0;
+        for (var jar : corpus.libJars()) {
+            inputBytes += Files.size(jar);
+        }
+        inputMegabytes = inputBytes / (1024.0 * 1024.0);
+
+        outputDir = Files.createTempDirectory("jarinker-bench-shrink-");
+        shrinker = JarShrinker.builder()
+                .outputDir(outputDir)
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .compressionLevel(compressionLevel < 0 ? null : compressionLevel)
+                .parallelism(1)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var stream = Files.list(outputDir)) {
+            for (var file : stream.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(outputDir);
+    }
+
+    /**
+     * Input megabytes processed, reported by JMH as MB/s.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+
+        public double megabytes;
+    }
+
+    @Benchmark
+    public JarShrinker.ShrinkResult shrink(Throughput throughput) {
+        var result = shrinker.shrink(libArchives, graph);
+        if (!result.failures().isEmpty()) {
+            var failure = result.failures().get(0);
+            throw new UncheckedIOException(new IOException("Failed to shrink " + failure.jar(), failure.cause()));
+        }
+        throughput.megabytes += inputMegabytes;
+        return result;
+    }
+}
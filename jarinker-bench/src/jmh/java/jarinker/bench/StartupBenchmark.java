@@ -0,0 +1,165 @@
+package jarinker.bench;
+
+import com.sun.tools.jdeps.Archive;
+import jarinker.core.AnalyzerEngine;
+import jarinker.core.AnalyzerType;
+import jarinker.core.ClassLoadOrder;
+import jarinker.core.DependencyGraph;
+import jarinker.core.JarShrinker;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import org.jspecify.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class loading from shrunk jars laid out for startup, compared to the archive order.
+ *
+ * <p> The library jars of a {@link SyntheticCorpus} are shrunk with the given layout, then every operation reads the
+ * classes of a recorded load order through a fresh {@link URLClassLoader}, the way the application class loader
+ * fetches class bytes during startup. The trace holds a fixed share of the retained classes in a random order.
+ *
+ * @author Freeman
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StartupBenchmark {
+
+    /**
+     * Share of the retained classes loaded at startup.
+     */
+    private static final double LOADED_SHARE = 0.3;
+
+    @Param({"10000", "100000"})
+    int classes;
+
+    /**
+     * {@code archive} keeps the archive order, {@code load-order} moves the traced classes to the front and
+     * {@code load-order-stored} also writes them uncompressed.
+     */
+    @Param({"archive", "load-order", "load-order-stored"})
+    String layout;
+
+    Path workDir;
+    URL[] jars;
+    List<String> loaded;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var corpus = SyntheticCorpus.get(classes);
+        DependencyGraph graph = AnalyzeBenchmark.analyze(corpus, AnalyzerType.CLASS, AnalyzerEngine.CLASSFILE);
+        var libArchives = new ArrayList<Archive>(graph.getArchives());
+        libArchives.removeAll(graph.getRootArchives());
+
+        workDir = Files.createTempDirectory("jarinker-bench-startup-");
+        var archiveDir = workDir.resolve("archive");
+        shrink(archiveDir, null, false, libArchives, graph);
+
+        loaded = trace(archiveDir);
+        var tracePath = workDir.resolve("class-load.txt");
+        Files.write(
+                tracePath,
+                loaded.stream()
+                        .map(e -> e.substring(0, e.length() - ".class".length()))
+                        .toList());
+
+        var outputDir = archiveDir;
+        if (!layout.equals("archive")) {
+            outputDir = workDir.resolve(layout);
+            shrink(outputDir, ClassLoadOrder.read(tracePath), layout.equals("load-order-stored"), libArchives, graph);
+        }
+
+        try (var stream = Files.list(outputDir)) {
+            var urls = new ArrayList<URL>();
+            for (var jar : stream.sorted().toList()) {
+                urls.add(jar.toUri().toURL());
+            }
+            jars = urls.toArray(URL[]::new);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var stream = Files.walk(workDir)) {
+            for (var path : stream.sorted(Collections.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long loadClasses() throws IOException {
+        long bytes = 0;
+        try (var loader = new URLClassLoader(jars, null)) {
+            for (var entry : loaded) {
+                try (var in = loader.getResourceAsStream(entry)) {
+                    if (in == null) {
+                        throw new IllegalStateException("Class not found: " + entry);
+                    }
+                    bytes += in.readAllBytes().length;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static void shrink(
+            Path outputDir,
+            @Nullable ClassLoadOrder loadOrder,
+            boolean storeLoadedClasses,
+            List<Archive> archives,
+            DependencyGraph graph) {
+        var result = JarShrinker.builder()
+                .outputDir(outputDir)
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .loadOrder(loadOrder)
+                .storeLoadedClasses(storeLoadedClasses)
+                .parallelism(1)
+                .build()
+                .shrink(archives, graph);
+        if (!result.failures().isEmpty()) {
+            var failure = result.failures().get(0);
+            throw new UncheckedIOException(new IOException("Failed to shrink " + failure.jar(), failure.cause()));
+        }
+    }
+
+    /**
+     * @return class entries of the shrunk jars loaded at startup, in load order
+     */
+    private static List<String> trace(Path dir) throws IOException {
+        var classes = new ArrayList<String>();
+        try (var stream = Files.list(dir)) {
+            for (var jar : stream.sorted().toList()) {
+                try (var jarFile = new JarFile(jar.toFile())) {
+                    jarFile.stream()
+                            .map(ZipEntry::getName)
+                            .filter(name -> name.endsWith(".class"))
+                            .forEach(classes::add);
+                }
+            }
+        }
+        Collections.shuffle(classes, new Random(SyntheticCorpus.SEED));
+        return List.copyOf(classes.subList(0, (int) (classes.size() * LOADED_SHARE)));
+    }
+}
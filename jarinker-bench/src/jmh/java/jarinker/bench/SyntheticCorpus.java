@@ -0,0 +1,278 @@
+package jarinker.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic corpus of generated class files, so benchmarks run offline and are comparable between runs.
+ *
+ * <p> One class in ten goes into {@code app.jar}, the analysis root. The others are split into library jars of at most
+ * {@value #CLASSES_PER_LIB_JAR} classes. Library classes are grouped into clusters of {@value #CLUSTER_SIZE}.
+ * A library class references classes of its own cluster and, rarely, of another cluster. App classes only reference
+ * every third cluster, so a good part of the library classes is unreachable and gets removed by shrinking.
+ *
+ * <p> References are expressed as field types and abstract method descriptors, which is all jdeps needs,
+ * so no bytecode has to be generated.
+ *
+ * @param appJar    root archive
+ * @param libDir    directory containing the library jars
+ * @param libJars   library jars
+ * @param classes   total number of classes
+ * @author Freeman
+ */
+public record SyntheticCorpus(Path appJar, Path libDir, List<Path> libJars, int classes) {
+
+    /**
+     * Seed of every generated corpus, changing it invalidates previously generated corpora.
+     */
+    public static final long SEED = 20250906L;
+
+    static final int CLASSES_PER_LIB_JAR = 10_000;
+    static final int CLUSTER_SIZE = 100;
+
+    private static final int PACKAGE_SIZE = 50;
+    private static final int REFERENCES_PER_CLASS = 4;
+    private static final double CROSS_CLUSTER_PROBABILITY = 0.002;
+    private static final String COMPLETE_MARKER = ".complete";
+
+    /**
+     * Get the corpus with the given number of classes, generating it on first use.
+     *
+     * <p> Corpora are kept in {@code jarinker.bench.corpusDir}, by default a directory in {@code java.io.tmpdir},
+     * and reused by later forks and runs.
+     *
+     * @param classes number of classes, at least 10
+     * @return corpus
+     */
+    public static SyntheticCorpus get(int classes) {
+        if (classes < 10) {
+            throw new IllegalArgumentException("Corpus needs at least 10 classes: " + classes);
+        }
+        var base = Path.of(System.getProperty(
+                "jarinker.bench.corpusDir",
+                Path.of(System.getProperty("java.io.tmpdir"), "jarinker-bench").toString()));
+        var dir = base.resolve("corpus-" + classes + "-" + SEED);
+        try {
+            if (!Files.exists(dir.resolve(COMPLETE_MARKER))) {
+                Files.createDirectories(base);
+                var tmp = Files.createTempDirectory(base, "corpus-");
+                generate(tmp, classes, SEED);
+                Files.createFile(tmp.resolve(COMPLETE_MARKER));
+                try {
+                    Files.move(tmp, dir, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+                    // Another fork won the race, or the file system can't rename directories atomically
+                    deleteRecursively(tmp);
+                    if (!Files.exists(dir.resolve(COMPLETE_MARKER))) {
+                        generate(dir, classes, SEED);
+                        Files.createFile(dir.resolve(COMPLETE_MARKER));
+                    }
+                }
+            }
+            return open(dir, classes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generate a corpus into an empty directory.
+     *
+     * @param dir     target directory
+     * @param classes number of classes
+     * @param seed    random seed
+     */
+    static void generate(Path dir, int classes, long seed) throws IOException {
+        var random = new Random(seed);
+        int appClasses = Math.max(1, classes / 10);
+        int libClasses = classes - appClasses;
+        int clusters = Math.max(1, (libClasses + CLUSTER_SIZE - 1) / CLUSTER_SIZE);
+
+        // Library classes are numbered [0, libClasses), app classes [libClasses, classes)
+        var app = new LinkedHashMap<String, byte[]>();
+        for (int i = libClasses; i < classes; i++) {
+            var references = new ArrayList<String>(REFERENCES_PER_CLASS);
+            for (int r = 0; r < REFERENCES_PER_CLASS && libClasses > 0; r++) {
+                int cluster = random.nextInt((clusters + 2) / 3) * 3;
+                int target = Math.min(libClasses - 1, cluster * CLUSTER_SIZE + random.nextInt(CLUSTER_SIZE));
+                references.add(className(target));
+            }
+            app.put(className(i), classFile(className(i), references));
+        }
+        writeJar(dir.resolve("app.jar"), app);
+
+        var libDir = Files.createDirectories(dir.resolve("libs"));
+        for (int start = 0, jar = 0; start < libClasses; start += CLASSES_PER_LIB_JAR, jar++) {
+            int end = Math.min(libClasses, start + CLASSES_PER_LIB_JAR);
+            var lib = new LinkedHashMap<String, byte[]>();
+            for (int i = start; i < end; i++) {
+                int clusterStart = i / CLUSTER_SIZE * CLUSTER_SIZE;
+                int clusterSize = Math.min(CLUSTER_SIZE, libClasses - clusterStart);
+                var references = new ArrayList<String>(REFERENCES_PER_CLASS);
+                for (int r = 0; r < REFERENCES_PER_CLASS; r++) {
+                    int target = random.nextDouble() < CROSS_CLUSTER_PROBABILITY
+                            ? random.nextInt(libClasses)
+                            : clusterStart + random.nextInt(clusterSize);
+                    if (target != i) {
+                        references.add(className(target));
+                    }
+                }
+                lib.put(className(i), classFile(className(i), references));
+            }
+            writeJar(libDir.resolve(String.format("lib-%03d.jar", jar)), lib);
+        }
+    }
+
+    private static SyntheticCorpus open(Path dir, int classes) throws IOException {
+        var libDir = dir.resolve("libs");
+        List<Path> libJars;
+        try (var stream = Files.list(libDir)) {
+            libJars = stream.filter(p -> p.toString().endsWith(".jar")).sorted().toList();
+        }
+        return new SyntheticCorpus(dir.resolve("app.jar"), libDir, libJars, classes);
+    }
+
+    /**
+     * @param index class number
+     * @return internal name, classes are spread over packages of {@value #PACKAGE_SIZE}
+     */
+    static String className(int index) {
+        return "synth/p" + (index / PACKAGE_SIZE) + "/C" + index;
+    }
+
+    /**
+     * Write an abstract class that references the given classes through fields and method descriptors.
+     *
+     * @param name       internal name of the class
+     * @param references internal names of the referenced classes
+     * @return class file bytes
+     */
+    static byte[] classFile(String name, List<String> references) {
+        var pool = new ConstantPool();
+        int thisClass = pool.classRef(name);
+        int superClass = pool.classRef("java/lang/Object");
+
+        var fields = new ArrayList<int[]>();
+        var methods = new ArrayList<int[]>();
+        for (int i = 0; i < references.size(); i++) {
+            var descriptor = "L" + references.get(i) + ";";
+            fields.add(new int[] {pool.utf8("f" + i), pool.utf8(descriptor)});
+            methods.add(new int[] {pool.utf8("m" + i), pool.utf8("(" + descriptor + "I)" + descriptor)});
+        }
+
+        var bytes = new ByteArrayOutputStream(256 + references.size() * 64);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0); // minor
+            out.writeShort(61); // Java 17
+            pool.writeTo(out);
+            out.writeShort(0x0001 | 0x0020 | 0x0400); // ACC_PUBLIC | ACC_SUPER | ACC_ABSTRACT
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(fields.size());
+            for (var field : fields) {
+                out.writeShort(0x0002); // ACC_PRIVATE
+                out.writeShort(field[0]);
+                out.writeShort(field[1]);
+                out.writeShort(0);
+            }
+            out.writeShort(methods.size());
+            for (var method : methods) {
+                out.writeShort(0x0001 | 0x0400); // ACC_PUBLIC | ACC_ABSTRACT
+                out.writeShort(method[0]);
+                out.writeShort(method[1]);
+                out.writeShort(0);
+            }
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeJar(Path jar, Map<String, byte[]> classes) throws IOException {
+        try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (var entry : classes.entrySet()) {
+                var jarEntry = new JarEntry(entry.getKey() + ".class");
+                // Fixed timestamp, the same seed always gives the same bytes
+                jarEntry.setTime(0);
+                out.putNextEntry(jarEntry);
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            for (var path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Constant pool with only {@code CONSTANT_Utf8} and {@code CONSTANT_Class} entries, deduplicated.
+     */
+    private static final class ConstantPool {
+
+        private final Map<String, Integer> utf8 = new LinkedHashMap<>();
+        private final Map<Integer, Integer> classes = new LinkedHashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count = 1;
+
+        int utf8(String value) {
+            var index = utf8.get(value);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(1);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            utf8.put(value, count);
+            return count++;
+        }
+
+        int classRef(String internalName) {
+            int nameIndex = utf8(internalName);
+            var index = classes.get(nameIndex);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(7);
+                out.writeShort(nameIndex);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            classes.put(nameIndex, count);
+            return count++;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * JMH benchmarks for analysis, graph building and JAR rewriting, run with {@code ./gradlew :jarinker-bench:jmh}.
+ *
+ * <p>Inputs come from {@link jarinker.bench.SyntheticCorpus}, generated from a fixed seed.
+ *
+ * @author Freeman
+ */
+package jarinker.bench;
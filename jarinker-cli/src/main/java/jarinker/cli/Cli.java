@@ -5,14 +5,26 @@ import static io.goodforgod.graalvm.hint.annotation.ReflectionHint.AccessType.AL
 
 import io.goodforgod.graalvm.hint.annotation.ReflectionHint;
 import jarinker.cli.cmd.AnalyzeCommand;
+import jarinker.cli.cmd.BatchCommand;
+import jarinker.cli.cmd.DaemonCommand;
 import jarinker.cli.cmd.RootCommand;
 import jarinker.cli.cmd.ShrinkCommand;
+import jarinker.cli.cmd.WhyCommand;
+import jarinker.cli.daemon.DaemonClient;
+import jarinker.cli.daemon.DaemonProtocol;
+import jarinker.core.InMemoryAnalysisCache;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
 import picocli.AutoComplete;
 import picocli.CommandLine;
 
 /**
  * Main entry point for Jarinker CLI.
- * Delegates to RootCommand for actual command processing.
+ * Delegates to RootCommand for actual command processing, analyze, shrink and batch are forwarded to a running daemon.
  *
  * @author Freeman
  */
@@ -23,17 +35,43 @@ import picocli.CommandLine;
 public class Cli {
 
     public static void main(String[] args) {
+        var root = newCommandLine(null);
+
+        if (DaemonClient.isForwardable(args)) {
+            var client = new DaemonClient(
+                    DaemonProtocol.defaultSocket(), root.getCommandSpec().version()[0]);
+            var exitCode = client.run(Path.of(""), List.of(args), System.out, System.err);
+            if (exitCode.isPresent()) {
+                System.exit(exitCode.getAsInt());
+            }
+        }
+
+        root.setOut(new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true));
+
+        int exitCode = root.execute(args);
+
+        System.exit(exitCode);
+    }
+
+    /**
+     * Create the command line with all commands.
+     *
+     * @param memoryCache in-memory cache used by analyze, shrink, batch and why, null disables it
+     * @return command line
+     */
+    public static CommandLine newCommandLine(@Nullable InMemoryAnalysisCache memoryCache) {
         var root = new CommandLine(new RootCommand());
 
         root.addSubcommand(new AutoComplete.GenerateCompletion());
-        root.addSubcommand("analyze", new AnalyzeCommand());
-        root.addSubcommand("shrink", new ShrinkCommand());
+        root.addSubcommand("analyze", new AnalyzeCommand(memoryCache));
+        root.addSubcommand("shrink", new ShrinkCommand(memoryCache));
+        root.addSubcommand("batch", new BatchCommand(memoryCache));
+        root.addSubcommand("why", new WhyCommand(memoryCache));
+        root.addSubcommand("daemon", new DaemonCommand(Cli::newCommandLine));
 
         // Allow case-insensitive enum values
         root.setCaseInsensitiveEnumValuesAllowed(true);
 
-        int exitCode = root.execute(args);
-
-        System.exit(exitCode);
+        return root;
     }
 }
@@ -0,0 +1,119 @@
+package jarinker.cli.cmd;
+
+import jarinker.core.AnalysisCache;
+import jarinker.core.AnalyzerEngine;
+import jarinker.core.ClasspathResolver;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * Analysis options shared by the commands that analyze dependencies.
+ *
+ * @author Freeman
+ */
+public class AnalysisOptions {
+
+    @Spec(Spec.Target.MIXEE)
+    CommandSpec spec;
+
+    @Option(
+            names = {"--engine"},
+            defaultValue = "jdeps",
+            description =
+                    "Dependency analysis engine (jdeps, classfile), classfile reads class files directly and scans jars in parallel, see jarinker.core.AnalyzerEngine")
+    private AnalyzerEngine engine;
+
+    @Option(
+            names = {"--cache-dir"},
+            description =
+                    "Directory to cache the dependencies extracted from each jar, only new or changed jars are parsed again. Caching is disabled by default.")
+    private @Nullable Path cacheDir;
+
+    @Option(
+            names = {"--cache-max-size"},
+            defaultValue = "1024",
+            description = "Maximum size of the cache directory in MB, least recently used entries are evicted first")
+    private long cacheMaxSize;
+
+    @Option(
+            names = {"--memory-budget"},
+            description =
+                    "Maximum size in MB of the per-jar dependencies kept in memory during the analysis, the least recently used jars are spilled to temporary files and read back when needed. Unlimited by default.")
+    private @Nullable Long memoryBudget;
+
+    @Option(
+            names = {"--max-open-archives"},
+            description =
+                    "Maximum number of classpath jars kept open during the analysis, the least recently used jars are closed and reopened when needed. Requires --engine classfile. Unlimited by default.")
+    private @Nullable Integer maxOpenArchives;
+
+    public AnalyzerEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return memory budget of the analysis in bytes, or null if it is unlimited
+     */
+    public @Nullable Long getMemoryBudget() {
+        if (memoryBudget == null) {
+            return null;
+        }
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative: " + memoryBudget);
+        }
+        return memoryBudget * 1024 * 1024;
+    }
+
+    /**
+     * @return maximum number of classpath jars kept open, or null if it is unlimited
+     */
+    public @Nullable Integer getMaxOpenArchives() {
+        if (maxOpenArchives != null && engine != AnalyzerEngine.CLASSFILE) {
+            throw new IllegalArgumentException("--max-open-archives requires --engine classfile");
+        }
+        return maxOpenArchives;
+    }
+
+    /**
+     * Create the analysis cache.
+     *
+     * @return analysis cache, or null if caching is disabled
+     */
+    public @Nullable AnalysisCache createCache() {
+        if (cacheDir == null) {
+            return null;
+        }
+        if (cacheMaxSize < 0) {
+            throw new IllegalArgumentException("Cache max size must not be negative: " + cacheMaxSize);
+        }
+        return new AnalysisCache(
+                cacheDir, cacheMaxSize * 1024 * 1024, spec.root().version()[0]);
+    }
+
+    /**
+     * Resolve the classpath, duplicated jars are reported on the error stream.
+     *
+     * @param sources   source artifacts
+     * @param classpath classpath entries
+     * @return resolved classpath
+     */
+    public ClasspathResolver.Result resolveClasspath(List<Path> sources, List<Path> classpath) throws IOException {
+        var result = ClasspathResolver.resolve(sources, classpath);
+        var err = spec.commandLine().getErr();
+        for (var duplicate : result.duplicates()) {
+            var reason =
+                    switch (duplicate.reason()) {
+                        case SAME_FILE -> "same file as ";
+                        case SAME_CONTENT -> "same content as ";
+                    };
+            err.printf("⚠️ Duplicate jar skipped: %s (%s%s)%n", duplicate.path(), reason, duplicate.original());
+        }
+        err.flush();
+        return result;
+    }
+}
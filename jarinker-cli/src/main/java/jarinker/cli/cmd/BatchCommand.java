@@ -0,0 +1,233 @@
+package jarinker.cli.cmd;
+
+import com.sun.tools.jdeps.JdepsConfiguration;
+import jarinker.core.AnalyzerType;
+import jarinker.core.ClasspathResolver;
+import jarinker.core.DebugAttribute;
+import jarinker.core.DependencyGraph;
+import jarinker.core.InMemoryAnalysisCache;
+import jarinker.core.JarShrinker;
+import jarinker.core.JdepsAnalyzer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+/**
+ * Batch command, shrinks several applications that share dependency jars.
+ *
+ * <p> The applications are analyzed one after the other against a shared {@link InMemoryAnalysisCache}, so each
+ * distinct jar is parsed once and the cost grows with the number of unique jars rather than applications × jars.
+ * Every application gets its own reachable set and output directory.
+ *
+ * @author Freeman
+ */
+@Command(
+        description = "Shrink several applications listed in a manifest, jars shared between them are analyzed once",
+        mixinStandardHelpOptions = true)
+public class BatchCommand implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    @Parameters(
+            description =
+                    "Manifest of the applications, a properties file with <app>.sources, <app>.classpath, <app>.output and optional <app>.jar, <app>.load-order, <app>.entry-point and <app>.keep-rules entries",
+            arity = "1")
+    private Path manifest;
+
+    @Option(
+            names = {"--entry-points"},
+            description =
+                    "Only keep what the entry points of each application's sources reach: the Main-Class of their manifests, the providers of their META-INF/services files and the classes matching the application's entry-point patterns. Implied for applications with entry-point patterns.")
+    private boolean entryPoints;
+
+    @Option(
+            names = {"--depth"},
+            description =
+                    "Number of libraries outside an application's jar patterns a dependency path may pass through on its way to a shrunk jar, unlimited by default. Libraries beyond it are not analyzed, so classes only reached through them are removed.")
+    private @Nullable Integer depth;
+
+    @Option(
+            names = {"--compression-level"},
+            description =
+                    "Recompress retained entries with the given deflate level (0-9, 0 stores them uncompressed). By default entries are copied as-is without recompression.")
+    private @Nullable Integer compressionLevel;
+
+    @Option(
+            names = {"--strip-debug"},
+            split = ",",
+            paramLabel = "<attribute>",
+            description =
+                    "Strip debug attributes from retained classes: lines (LineNumberTable), vars (LocalVariableTable, LocalVariableTypeTable), source (SourceFile, SourceDebugExtension). Supports comma-separated multiple attributes, stripped classes are recompressed.")
+    private @Nullable List<DebugAttribute> stripDebug;
+
+    @Option(
+            names = {"--shrink-members"},
+            description =
+                    "Also remove the unused fields and methods of retained classes, and the classes only they use. Members used through reflection the analysis can not see must be kept with --keep-members.")
+    private boolean shrinkMembers;
+
+    @Option(
+            names = {"--keep-members"},
+            split = ",",
+            paramLabel = "<pattern>",
+            description =
+                    "Keep all fields and methods of the classes whose binary name matches the given pattern, with --shrink-members. Supports comma-separated multiple patterns.")
+    private @Nullable List<Pattern> keepMembers;
+
+    @Option(
+            names = {"--store-loaded"},
+            description =
+                    "Write the classes of each application's load-order trace uncompressed, so loading them needs no inflation. Applications without a trace are not affected.")
+    private boolean storeLoaded;
+
+    @Option(
+            names = {"--dedupe"},
+            description =
+                    "Remove a class from a jar when a jar before it on the application's classpath contains it with the same size and CRC-32, classes with the same name and different content are reported. The shrunk jars must then stay on the classpath together.")
+    private boolean dedupe;
+
+    @Option(
+            names = {"--parallelism"},
+            description = "Number of jars to shrink concurrently, defaults to the number of available processors")
+    private @Nullable Integer parallelism;
+
+    @Mixin
+    private AnalysisOptions analysisOptions;
+
+    @Mixin
+    private OutputStoreOptions outputStoreOptions;
+
+    @Mixin
+    private ProfileOptions profileOptions;
+
+    private final @Nullable InMemoryAnalysisCache memoryCache;
+
+    public BatchCommand() {
+        this(null);
+    }
+
+    /**
+     * @param memoryCache in-memory cache shared with other commands of the process, null creates one for the batch
+     */
+    public BatchCommand(@Nullable InMemoryAnalysisCache memoryCache) {
+        this.memoryCache = memoryCache;
+    }
+
+    @Override
+    @SneakyThrows
+    public Integer call() {
+        var out = spec.commandLine().getOut();
+        var batch = BatchManifest.read(manifest);
+
+        // Lives as long as the batch unless a daemon provides one
+        var cache = memoryCache != null
+                ? memoryCache
+                : new InMemoryAnalysisCache(Runtime.getRuntime().maxMemory() / 4);
+        var statsBefore = cache.stats();
+        var persistentCache = analysisOptions.createCache();
+        var outputStore = outputStoreOptions.createStore();
+        var profiler = profileOptions.createProfiler();
+
+        int failedApps = 0;
+        long totalBefore = 0;
+        long totalAfter = 0;
+        for (var app : batch.apps()) {
+            ShrinkCommand.printHeader(out, app.name());
+
+            DependencyGraph graph;
+            var keepRules = ShrinkCommand.readKeepRules(app.keepRules());
+            ClasspathResolver.Result resolved;
+            JdepsConfiguration jdepsConfiguration;
+            try (var phase = profiler.start("classpath")) {
+                resolved = analysisOptions.resolveClasspath(app.sources(), app.classpath());
+                jdepsConfiguration = JdepsAnalyzer.buildJdepsConfiguration(
+                        app.sources(), resolved, Runtime.version(), analysisOptions.getMaxOpenArchives());
+                phase.addEntries(jdepsConfiguration.initialArchives().size()
+                        + resolved.classpath().size());
+            }
+
+            try (jdepsConfiguration) {
+                var analyzer = JdepsAnalyzer.builder()
+                        .jdepsFilter(ShrinkCommand.buildJdepsFilter())
+                        .jdepsConfiguration(jdepsConfiguration)
+                        .cache(persistentCache)
+                        .memoryCache(cache)
+                        .engine(analysisOptions.getEngine())
+                        .memoryBudget(analysisOptions.getMemoryBudget())
+                        .maxOpenArchives(analysisOptions.getMaxOpenArchives())
+                        .classpath(resolved)
+                        .profiler(profiler)
+                        .type(AnalyzerType.CLASS)
+                        .jarPatterns(app.jarPatterns())
+                        .depth(depth)
+                        .entryPoints(ShrinkCommand.entryPoints(entryPoints, app.entryPoints()))
+                        .keepRules(keepRules)
+                        .build();
+
+                graph = analyzer.analyze();
+            }
+
+            var shrinker = JarShrinker.builder()
+                    .outputDir(app.output())
+                    .jarPatterns(app.jarPatterns())
+                    .compressionLevel(compressionLevel)
+                    .parallelism(parallelism)
+                    .profiler(profiler)
+                    .outputStore(outputStore)
+                    .loadOrder(ShrinkCommand.readLoadOrder(app.loadOrder(), false))
+                    .storeLoadedClasses(storeLoaded)
+                    .removeDuplicateClasses(dedupe)
+                    .stripDebugAttributes(stripDebug != null ? Set.copyOf(stripDebug) : null)
+                    .removeUnusedMembers(shrinkMembers)
+                    .keepMembers(keepMembers)
+                    .keepRules(keepRules)
+                    .build();
+
+            var depJars = ShrinkCommand.inClasspathOrder(ShrinkCommand.getDepJars(graph), resolved);
+            var result = shrinker.shrink(depJars, graph);
+            ShrinkCommand.printShrinkResult(out, result);
+            out.println();
+
+            if (!result.failures().isEmpty()) {
+                failedApps++;
+            }
+            for (var jar : result.jars()) {
+                totalBefore += jar.beforeSize();
+                totalAfter += jar.afterSize();
+            }
+        }
+
+        var stats = cache.stats();
+        long parsed = stats.misses() - statsBefore.misses();
+        long reused = stats.hits() - statsBefore.hits();
+        long saved = totalBefore - totalAfter;
+        out.println("📊 Batch summary:");
+        out.println("   • Applications:   " + batch.apps().size());
+        if (failedApps > 0) {
+            out.println("   • Failed:         " + failedApps);
+        }
+        // Only jars go through the cache, class directories and root modules do not
+        if (parsed + reused > 0) {
+            out.println("   • Jars analyzed:  " + parsed + " (" + reused + " reused)");
+        }
+        out.printf(
+                "   • Total saved:    %s (%.2f%%)%n",
+                ShrinkCommand.formatBytes(saved), totalBefore > 0 ? (double) saved / totalBefore * 100.0 : 0.0);
+        out.flush();
+
+        profileOptions.report(profiler);
+
+        return failedApps == 0 ? 0 : 1;
+    }
+}
@@ -0,0 +1,152 @@
+package jarinker.cli.cmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Applications of a batch shrink, read from a properties file.
+ *
+ * <pre>
+ * service-a.sources   = service-a/build/classes/java/main
+ * service-a.classpath = service-a/build/deps:shared/libs
+ * service-a.output    = shrunk/service-a
+ * service-a.jar       = spring-.*\\.jar,netty-.*\\.jar
+ * service-a.load-order = service-a/build/class-load.log
+ * service-a.entry-point = com\\.example\\.a\\.Main,com\\.example\\.a\\.jobs\\..*
+ * service-a.keep-rules = service-a/keep.rules
+ * </pre>
+ *
+ * <p> Path lists are separated by the platform path separator, relative paths are resolved against the directory of
+ * the manifest. {@code jar} is optional and defaults to all jars, the optional {@code load-order} is a class-load trace
+ * the shrunk jars are laid out for and the optional {@code entry-point} patterns of the classes reachability starts
+ * from, see {@link jarinker.core.EntryPoints}. The optional {@code keep-rules} is a file of the classes kept whether
+ * reachable or not, see {@link jarinker.core.KeepRules}. Applications are processed in name order.
+ *
+ * @param apps applications of the batch
+ * @author Freeman
+ */
+record BatchManifest(List<App> apps) {
+
+    private static final String SOURCES = "sources";
+    private static final String CLASSPATH = "classpath";
+    private static final String OUTPUT = "output";
+    private static final String JAR = "jar";
+    private static final String LOAD_ORDER = "load-order";
+    private static final String ENTRY_POINT = "entry-point";
+    private static final String KEEP_RULES = "keep-rules";
+
+    /**
+     * An application of the batch.
+     *
+     * @param name        application name
+     * @param sources     source artifacts
+     * @param classpath   classpath entries
+     * @param output      output directory for the shrunk jars
+     * @param jarPatterns jars to shrink
+     * @param loadOrder   class-load trace, null keeps the archive order
+     * @param entryPoints patterns of the entry-point classes of the sources, empty if none are given
+     * @param keepRules   keep rules file, null keeps only the reachable classes
+     */
+    record App(
+            String name,
+            List<Path> sources,
+            List<Path> classpath,
+            Path output,
+            List<Pattern> jarPatterns,
+            @Nullable Path loadOrder,
+            List<Pattern> entryPoints,
+            @Nullable Path keepRules) {}
+
+    static BatchManifest read(Path manifest) throws IOException {
+        var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        var base = manifest.toAbsolutePath().getParent();
+
+        var byApp = new TreeMap<String, Map<String, String>>();
+        for (var key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            if (dot <= 0) {
+                throw new IllegalArgumentException("Invalid manifest key, expected <app>.<property>: " + key);
+            }
+            var property = key.substring(dot + 1);
+            if (!List.of(SOURCES, CLASSPATH, OUTPUT, JAR, LOAD_ORDER, ENTRY_POINT, KEEP_RULES)
+                    .contains(property)) {
+                throw new IllegalArgumentException("Unknown manifest property: " + key);
+            }
+            byApp.computeIfAbsent(key.substring(0, dot), k -> new HashMap<>())
+                    .put(property, properties.getProperty(key).trim());
+        }
+        if (byApp.isEmpty()) {
+            throw new IllegalArgumentException("Manifest lists no applications: " + manifest);
+        }
+
+        var apps = new ArrayList<App>(byApp.size());
+        var outputs = new HashSet<Path>();
+        for (var entry : byApp.entrySet()) {
+            var name = entry.getKey();
+            var values = entry.getValue();
+            var output = base.resolve(required(values, name, OUTPUT)).normalize();
+            if (!outputs.add(output)) {
+                // Shared jars of two applications would overwrite each other
+                throw new IllegalArgumentException(
+                        "Output directory of " + name + " is used by another application: " + output);
+            }
+            var jar = values.getOrDefault(JAR, ".*");
+            var loadOrder = values.getOrDefault(LOAD_ORDER, "");
+            var keepRules = values.getOrDefault(KEEP_RULES, "");
+            apps.add(new App(
+                    name,
+                    paths(base, required(values, name, SOURCES)),
+                    paths(base, required(values, name, CLASSPATH)),
+                    output,
+                    jar.isEmpty() ? List.of(Pattern.compile(".*")) : patterns(jar),
+                    loadOrder.isEmpty() ? null : base.resolve(loadOrder),
+                    patterns(values.getOrDefault(ENTRY_POINT, "")),
+                    keepRules.isEmpty() ? null : base.resolve(keepRules)));
+        }
+        return new BatchManifest(List.copyOf(apps));
+    }
+
+    private static String required(Map<String, String> values, String app, String property) {
+        var value = values.get(property);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing manifest property: " + app + "." + property);
+        }
+        return value;
+    }
+
+    private static List<Path> paths(Path base, String value) {
+        var result = new ArrayList<Path>();
+        for (var path : value.split(Pattern.quote(File.pathSeparator))) {
+            if (!path.isBlank()) {
+                result.add(base.resolve(path.trim()));
+            }
+        }
+        return result;
+    }
+
+    private static List<Pattern> patterns(String value) {
+        var result = new ArrayList<Pattern>();
+        for (var pattern : value.split(",")) {
+            if (!pattern.isBlank()) {
+                result.add(Pattern.compile(pattern.trim()));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package jarinker.cli.cmd;
+
+import jarinker.core.AppCds;
+import jarinker.core.DependencyGraph;
+import jarinker.core.Profiler;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * AppCDS options of the shrink command, see {@link AppCds}.
+ *
+ * @author Freeman
+ */
+public class CdsOptions {
+
+    @Spec(Spec.Target.MIXEE)
+    CommandSpec spec;
+
+    @Option(
+            names = {"--cds-class-list"},
+            description =
+                    "Write a -XX:SharedClassListFile class list of the reachable classes, ordered by dependency depth from the sources")
+    private @Nullable Path classList;
+
+    @Option(
+            names = {"--cds-archive"},
+            description =
+                    "Dump a CDS archive for the reachable classes against the shrunk jars, the class list is written next to it unless --cds-class-list is given")
+    private @Nullable Path archive;
+
+    @Option(
+            names = {"--cds-java"},
+            description =
+                    "Java launcher that dumps the CDS archive, must be the JDK the application runs on. Defaults to the java of the running JDK, or java on the PATH.")
+    private @Nullable Path java;
+
+    public boolean isEnabled() {
+        return classList != null || archive != null;
+    }
+
+    /**
+     * Write the class list and dump the archive if requested.
+     *
+     * @param graph     class-level dependency graph
+     * @param classpath application classpath with the shrunk jars, in classpath order
+     * @param profiler  profiler, records the {@code cds} phase
+     */
+    @SneakyThrows
+    public void apply(DependencyGraph graph, List<Path> classpath, Profiler profiler) {
+        if (!isEnabled()) {
+            return;
+        }
+        var out = spec.commandLine().getOut();
+        var jars = classpath.stream().filter(path -> !Files.isDirectory(path)).toList();
+        boolean hasDirectories = classpath.stream().anyMatch(Files::isDirectory);
+
+        try (var phase = profiler.start("cds")) {
+            var classes = AppCds.classList(graph);
+            var listFile = classList != null ? classList : Path.of(archive + ".classlist");
+            AppCds.writeClassList(classes, listFile);
+            phase.addEntries(classes.size());
+
+            out.println();
+            out.println("🚀 CDS:");
+            out.println("   • Class list:  " + listFile + " (" + classes.size() + " classes)");
+            if (archive != null) {
+                AppCds.dumpArchive(java != null ? java : defaultJava(), jars, listFile, archive);
+                long size = Files.size(archive);
+                phase.addBytesWritten(size);
+                out.println("   • Archive:     " + archive + " (" + ShrinkCommand.formatBytes(size) + ")");
+                out.println("   • Run with:    -XX:SharedArchiveFile=" + archive + " -cp "
+                        + classpath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+                if (hasDirectories) {
+                    // The archive is dumped with the jars only, the JVM only maps it when they prefix the classpath
+                    out.println("   • Note:        classes of directories are not archived, keep them after the jars");
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static Path defaultJava() {
+        // java.home is not set in a native image, the launcher is then looked up on the PATH
+        var javaHome = System.getProperty("java.home");
+        if (javaHome == null || javaHome.isBlank()) {
+            return Path.of("java");
+        }
+        var bin = Path.of(javaHome, "bin");
+        return File.separatorChar == '\\' ? bin.resolve("java.exe") : bin.resolve("java");
+    }
+}
@@ -0,0 +1,135 @@
+package jarinker.cli.cmd;
+
+import jarinker.cli.daemon.DaemonClient;
+import jarinker.cli.daemon.DaemonProtocol;
+import jarinker.cli.daemon.DaemonServer;
+import jarinker.core.InMemoryAnalysisCache;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * Daemon command, keeps a warm JVM and analysis state that analyze, shrink and batch forward to while it is running.
+ *
+ * @author Freeman
+ */
+@Command(
+        description =
+                "Run a daemon that keeps the JVM and analyzed jars warm, analyze, shrink and batch are forwarded to it while it is running. Set JARINKER_NO_DAEMON to run commands in-process.",
+        mixinStandardHelpOptions = true)
+public class DaemonCommand implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    @Option(
+            names = {"--socket"},
+            description =
+                    "Unix domain socket path, defaults to $JARINKER_DAEMON_SOCKET, or daemon.sock in $XDG_RUNTIME_DIR/jarinker or in a per-user directory under the temporary directory. The directory must only be accessible by the current user.")
+    private @Nullable Path socket;
+
+    @Option(
+            names = {"--idle-timeout"},
+            defaultValue = "30",
+            description = "Stop after no request was served for the given number of minutes")
+    private long idleTimeout;
+
+    @Option(
+            names = {"--max-memory"},
+            description =
+                    "Maximum memory in MB for cached archives, least recently used archives are evicted first. Defaults to a quarter of the maximum heap.")
+    private @Nullable Long maxMemory;
+
+    @Option(
+            names = {"--status"},
+            defaultValue = "false",
+            description = "Print the state of the running daemon and exit")
+    private boolean status;
+
+    @Option(
+            names = {"--stop"},
+            defaultValue = "false",
+            description = "Stop the running daemon and exit")
+    private boolean stop;
+
+    private final Function<InMemoryAnalysisCache, CommandLine> commandLineFactory;
+
+    /**
+     * @param commandLineFactory creates the command line a request runs on, the commands use the given cache
+     */
+    public DaemonCommand(Function<InMemoryAnalysisCache, CommandLine> commandLineFactory) {
+        this.commandLineFactory = commandLineFactory;
+    }
+
+    @Override
+    @SneakyThrows
+    public Integer call() {
+        var out = spec.commandLine().getOut();
+        var socketPath = socket != null ? socket : DaemonProtocol.defaultSocket();
+        var toolVersion = spec.root().version()[0];
+
+        if (status || stop) {
+            var type = stop ? DaemonProtocol.RequestType.STOP : DaemonProtocol.RequestType.STATUS;
+            var response = new ByteArrayOutputStream();
+            var exitCode = new DaemonClient(socketPath, toolVersion).control(type, response, response);
+            if (exitCode.isEmpty()) {
+                out.println("💤 No daemon running on " + socketPath);
+                return 1;
+            }
+            out.print(response.toString(StandardCharsets.UTF_8));
+            if (stop) {
+                out.println("🛑 Daemon on " + socketPath + " stopped");
+            }
+            return exitCode.getAsInt();
+        }
+
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeout);
+        }
+        long maxMemoryBytes = maxMemory != null
+                ? maxMemory * 1024 * 1024
+                : Runtime.getRuntime().maxMemory() / 4;
+        var memoryCache = new InMemoryAnalysisCache(maxMemoryBytes);
+
+        var server = new DaemonServer(
+                socketPath,
+                Duration.ofMinutes(idleTimeout),
+                toolVersion,
+                memoryCache,
+                commandRunner(commandLineFactory, memoryCache));
+
+        out.println("🚀 Daemon listening on " + socketPath.toAbsolutePath());
+        out.flush();
+        server.run();
+        return 0;
+    }
+
+    /**
+     * Create the runner of the daemon's requests, every request runs on a fresh command line.
+     *
+     * @param commandLineFactory creates the command line a request runs on
+     * @param memoryCache        cache shared by the requests
+     * @return command runner
+     */
+    static DaemonServer.CommandRunner commandRunner(
+            Function<InMemoryAnalysisCache, CommandLine> commandLineFactory, InMemoryAnalysisCache memoryCache) {
+        return (cwd, args, stdout, stderr) -> {
+            var commandLine = commandLineFactory.apply(memoryCache);
+            commandLine.setOut(stdout);
+            commandLine.setErr(stderr);
+            // Relative paths are relative to the client, not to the daemon
+            commandLine.registerConverter(Path.class, cwd::resolve);
+            return commandLine.execute(args);
+        };
+    }
+}
@@ -0,0 +1,290 @@
+package jarinker.cli.cmd;
+
+import jarinker.core.AnalyzerType;
+import jarinker.core.DependencyGraph;
+import jarinker.core.IndexedGraph;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Writes the result of an analysis by walking the {@link IndexedGraph} once.
+ *
+ * <p> The dependencies of each node are filtered once, the same pass feeds the summary statistics.
+ * {@link OutputFormat#JSON} and {@link OutputFormat#NDJSON} are written in graph order while walking,
+ * so extra memory does not grow with the graph. {@link OutputFormat#TEXT} sorts the nodes by label first.
+ *
+ * @author Freeman
+ */
+final class DependencyReportWriter {
+
+    private final BufferedWriter out;
+    private final AnalyzerType type;
+    private final boolean showJdkDeps;
+
+    /**
+     * archive name -> whether it is a JDK archive, the JDK check only depends on the archive part of a label.
+     */
+    private final Map<String, Boolean> jdkArchives = new HashMap<>();
+
+    /**
+     * Reused for the filtered dependencies of the current node.
+     */
+    private int[] dependencies = new int[16];
+
+    private int usedNodes;
+
+    DependencyReportWriter(BufferedWriter out, AnalyzerType type, boolean showJdkDeps) {
+        this.out = out;
+        this.type = type;
+        this.showJdkDeps = showJdkDeps;
+    }
+
+    /**
+     * Write the report, the writer is flushed but not closed.
+     *
+     * @param graph  analysis result
+     * @param format output format
+     * @return number of nodes written with their dependencies
+     */
+    int write(DependencyGraph graph, OutputFormat format) throws IOException {
+        usedNodes = 0;
+        switch (format) {
+            case TEXT -> writeText(graph.getIndexedGraph());
+            case JSON -> writeJson(graph.getIndexedGraph());
+            case NDJSON -> writeNdjson(graph.getIndexedGraph());
+        }
+        out.flush();
+        return usedNodes;
+    }
+
+    // === text ===
+
+    private void writeText(IndexedGraph graph) throws IOException {
+        writeHeader(
+                switch (type) {
+                    case CLASS -> "Class Dependency Analysis";
+                    case PACKAGE -> "Package Dependency Analysis";
+                    case MODULE -> "Module Dependency Analysis";
+                });
+
+        if (graph.edgeCount() == 0) {
+            writeLine("🔍 No dependencies found.");
+        } else {
+            writeLine("🌳 Dependencies:");
+            out.newLine();
+
+            var labels = new String[graph.nodeCount()];
+            for (int node = 0; node < labels.length; node++) {
+                labels[node] = graph.label(node);
+            }
+            int[] order = IntStream.range(0, labels.length)
+                    .boxed()
+                    .sorted(Comparator.comparing(node -> labels[node]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            for (int node : order) {
+                int count = filterDependencies(graph, node);
+                if (count == 0) {
+                    continue;
+                }
+                usedNodes++;
+
+                var dependencyLabels = new String[count];
+                for (int i = 0; i < count; i++) {
+                    dependencyLabels[i] = labels[dependencies[i]];
+                }
+                Arrays.sort(dependencyLabels);
+
+                writeLine("📦 " + labels[node]);
+                for (int i = 0; i < count; i++) {
+                    String prefix = i == count - 1 ? "   └─ " : "   ├─ ";
+                    writeLine(prefix + formatDependencyName(dependencyLabels[i]));
+                }
+                out.newLine();
+            }
+        }
+
+        out.newLine();
+        writeStats(graph.nodeCount());
+    }
+
+    private void writeHeader(String title) throws IOException {
+        writeLine("╭─" + "─".repeat(title.length()) + "─╮");
+        writeLine("│ " + title + " │");
+        writeLine("╰─" + "─".repeat(title.length()) + "─╯");
+        out.newLine();
+    }
+
+    private void writeStats(int totalNodes) throws IOException {
+        String nodeTypePlural =
+                switch (type) {
+                    case PACKAGE -> "packages";
+                    case MODULE -> "modules";
+                    case CLASS -> "classes";
+                };
+        int unusedNodes = totalNodes - usedNodes;
+        double usageRate = totalNodes > 0 ? (double) usedNodes / totalNodes * 100 : 0.0;
+        double unusedRate = totalNodes > 0 ? (double) unusedNodes / totalNodes * 100 : 0.0;
+
+        writeLine("📊 Statistics:");
+        writeLine("   • Total " + nodeTypePlural + ": " + totalNodes);
+        writeLine(String.format("   • Used %s: %d (%.2f%%)", nodeTypePlural, usedNodes, usageRate));
+        writeLine(String.format("   • Unused %s: %d (%.2f%%)", nodeTypePlural, unusedNodes, unusedRate));
+    }
+
+    private void writeLine(String line) throws IOException {
+        out.write(line);
+        out.newLine();
+    }
+
+    private static String formatDependencyName(String label) {
+        // Show only the name part (after the last "/"),
+        // this removes jar prefixes like "guava-33.4.8-jre.jar/" or "not found/"
+        return label.substring(label.lastIndexOf('/') + 1);
+    }
+
+    // === json ===
+
+    private void writeJson(IndexedGraph graph) throws IOException {
+        out.write("{\"type\":");
+        writeString(typeName());
+        out.write(",\"nodes\":[");
+        boolean first = true;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            int count = filterDependencies(graph, node);
+            if (count == 0) {
+                continue;
+            }
+            usedNodes++;
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write('\n');
+            writeNode(graph, node, count);
+        }
+        out.write("\n],\"summary\":");
+        writeSummary(graph.nodeCount());
+        out.write("}\n");
+    }
+
+    private void writeNdjson(IndexedGraph graph) throws IOException {
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            int count = filterDependencies(graph, node);
+            if (count == 0) {
+                continue;
+            }
+            usedNodes++;
+            out.write("{\"kind\":\"node\",");
+            writeNodeFields(graph, node, count);
+            out.write("}\n");
+        }
+        out.write("{\"kind\":\"summary\",\"type\":");
+        writeString(typeName());
+        out.write(',');
+        writeSummaryFields(graph.nodeCount());
+        out.write("}\n");
+    }
+
+    private void writeNode(IndexedGraph graph, int node, int count) throws IOException {
+        out.write('{');
+        writeNodeFields(graph, node, count);
+        out.write('}');
+    }
+
+    private void writeNodeFields(IndexedGraph graph, int node, int count) throws IOException {
+        out.write("\"name\":");
+        writeString(graph.name(node));
+        out.write(",\"archive\":");
+        writeString(graph.archive(node));
+        out.write(",\"dependencies\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            int dependency = dependencies[i];
+            out.write("{\"name\":");
+            writeString(graph.name(dependency));
+            out.write(",\"archive\":");
+            writeString(graph.archive(dependency));
+            out.write('}');
+        }
+        out.write(']');
+    }
+
+    private void writeSummary(int totalNodes) throws IOException {
+        out.write('{');
+        writeSummaryFields(totalNodes);
+        out.write('}');
+    }
+
+    private void writeSummaryFields(int totalNodes) throws IOException {
+        out.write("\"total\":" + totalNodes + ",\"used\":" + usedNodes + ",\"unused\":" + (totalNodes - usedNodes));
+    }
+
+    private void writeString(String value) throws IOException {
+        Json.writeString(out, value);
+    }
+
+    private String typeName() {
+        return type.name().toLowerCase(Locale.ROOT);
+    }
+
+    // === filtering ===
+
+    /**
+     * Collect the dependencies of a node that pass the filters into {@link #dependencies}.
+     *
+     * @param graph graph
+     * @param node  node id
+     * @return number of collected dependencies
+     */
+    private int filterDependencies(IndexedGraph graph, int node) {
+        int degree = graph.outDegree(node);
+        if (dependencies.length < degree) {
+            dependencies = new int[Math.max(degree, dependencies.length * 2)];
+        }
+        int count = 0;
+        for (int i = 0; i < degree; i++) {
+            int dependency = graph.successor(node, i);
+            if ((showJdkDeps || !isJdkArchive(graph.archive(dependency)))
+                    && !isSameScopeAsSelf(graph, node, dependency)) {
+                dependencies[count++] = dependency;
+            }
+        }
+        return count;
+    }
+
+    private boolean isSameScopeAsSelf(IndexedGraph graph, int source, int dependency) {
+        // For package and module analysis, filter dependencies within the same package or module,
+        // for class analysis, don't filter same scope dependencies
+        return switch (type) {
+            case PACKAGE, MODULE -> graph.nameId(source) == graph.nameId(dependency);
+            case CLASS -> false;
+        };
+    }
+
+    /**
+     * Check if an archive is a JDK module or the jdeps placeholder for removed JDK internals.
+     *
+     * @param archive archive name
+     * @return true if dependencies on this archive are JDK dependencies
+     */
+    private boolean isJdkArchive(String archive) {
+        return jdkArchives.computeIfAbsent(
+                archive,
+                name -> name.startsWith("java.")
+                        || name.startsWith("javax.")
+                        || name.startsWith("jdk.")
+                        || name.startsWith("sun.")
+                        || name.startsWith("com.sun.")
+                        || name.contains("JDK removed internal API"));
+    }
+}
@@ -0,0 +1,42 @@
+package jarinker.cli.cmd;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal JSON encoding helpers for the reports written by the commands.
+ *
+ * @author Freeman
+ */
+final class Json {
+
+    private Json() {}
+
+    /**
+     * Write a JSON string literal.
+     *
+     * @param out   target
+     * @param value string value
+     */
+    static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,21 @@
+package jarinker.cli.cmd;
+
+/**
+ * Output format of the analyze report.
+ *
+ * @author Freeman
+ */
+public enum OutputFormat {
+    /**
+     * Human readable dependency tree, sorted by node.
+     */
+    TEXT,
+    /**
+     * A single JSON document, nodes are written in graph order as they are walked.
+     */
+    JSON,
+    /**
+     * One JSON object per line: a record per node with dependencies, followed by a summary record.
+     */
+    NDJSON
+}
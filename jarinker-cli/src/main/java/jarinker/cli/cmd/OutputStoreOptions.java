@@ -0,0 +1,46 @@
+package jarinker.cli.cmd;
+
+import jarinker.core.OutputStore;
+import java.nio.file.Path;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * Output store options shared by the commands that shrink jars.
+ *
+ * @author Freeman
+ */
+public class OutputStoreOptions {
+
+    @Spec(Spec.Target.MIXEE)
+    CommandSpec spec;
+
+    @Option(
+            names = {"--store-dir"},
+            description =
+                    "Directory to keep shrunk jars in, a jar shrunk to the same entry set before is hard-linked or copied from it instead of rewritten. Disabled by default.")
+    private @Nullable Path storeDir;
+
+    @Option(
+            names = {"--store-max-size"},
+            defaultValue = "4096",
+            description = "Maximum size of the store directory in MB, least recently used jars are evicted first")
+    private long storeMaxSize;
+
+    /**
+     * Create the output store.
+     *
+     * @return output store, or null if disabled
+     */
+    public @Nullable OutputStore createStore() {
+        if (storeDir == null) {
+            return null;
+        }
+        if (storeMaxSize < 0) {
+            throw new IllegalArgumentException("Store max size must not be negative: " + storeMaxSize);
+        }
+        return new OutputStore(storeDir, storeMaxSize * 1024 * 1024, spec.root().version()[0]);
+    }
+}
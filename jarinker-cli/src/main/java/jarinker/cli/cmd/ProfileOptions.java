@@ -0,0 +1,142 @@
+package jarinker.cli.cmd;
+
+import jarinker.core.Profiler;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * Profiling options shared by the commands, see {@link Profiler}.
+ *
+ * @author Freeman
+ */
+public class ProfileOptions {
+
+    @Spec(Spec.Target.MIXEE)
+    CommandSpec spec;
+
+    @Option(
+            names = {"--profile"},
+            defaultValue = "false",
+            description =
+                    "Record wall time, CPU time, bytes read and written, entries and peak heap of each phase, and print a summary to stderr. Phases are also emitted as JFR events (jarinker.Phase, jarinker.Jar).")
+    private boolean profile;
+
+    @Option(
+            names = {"--profile-output"},
+            description = "Write the profile as JSON to the given file, implies --profile")
+    private @Nullable Path profileOutput;
+
+    /**
+     * Create the profiler.
+     *
+     * @return profiler, {@link Profiler#disabled()} unless profiling is requested
+     */
+    public Profiler createProfiler() {
+        return profile || profileOutput != null ? new Profiler() : Profiler.disabled();
+    }
+
+    /**
+     * Print the summary table to stderr and write the JSON report if requested.
+     *
+     * @param profiler profiler created by {@link #createProfiler()}
+     */
+    public void report(Profiler profiler) throws IOException {
+        if (!profiler.isEnabled()) {
+            return;
+        }
+        var err = spec.commandLine().getErr();
+        printSummary(profiler, err);
+        err.flush();
+        if (profileOutput != null) {
+            try (var out = Files.newBufferedWriter(profileOutput, StandardCharsets.UTF_8)) {
+                writeJson(profiler, out);
+            }
+        }
+    }
+
+    private static void printSummary(Profiler profiler, PrintWriter out) {
+        out.println();
+        out.println("⏱️ Profile:");
+        out.printf(
+                "   %-14s %10s %10s %10s %10s %9s %10s%n",
+                "Phase", "Wall", "CPU", "Read", "Written", "Entries", "Peak heap");
+        for (var phase : profiler.phases()) {
+            out.printf(
+                    "   %-14s %10s %10s %10s %10s %9d %10s%n",
+                    phase.name(),
+                    formatNanos(phase.wallNanos()),
+                    formatNanos(phase.cpuNanos()),
+                    formatBytes(phase.bytesRead()),
+                    formatBytes(phase.bytesWritten()),
+                    phase.entries(),
+                    formatBytes(phase.peakHeapBytes()));
+            for (var jar : phase.jars()) {
+                out.printf(
+                        "     └─ %-38s %10s %10s %9d %7.1f MB/s%n",
+                        jar.jar().getFileName(),
+                        formatNanos(jar.wallNanos()),
+                        formatBytes(jar.bytesRead()),
+                        jar.entries(),
+                        jar.throughput());
+            }
+        }
+    }
+
+    private static void writeJson(Profiler profiler, BufferedWriter out) throws IOException {
+        out.write("{\"phases\":[");
+        boolean firstPhase = true;
+        for (var phase : profiler.phases()) {
+            if (!firstPhase) {
+                out.write(',');
+            }
+            firstPhase = false;
+            out.write("\n{\"name\":");
+            Json.writeString(out, phase.name());
+            out.write(",\"wallNanos\":" + phase.wallNanos()
+                    + ",\"cpuNanos\":" + phase.cpuNanos()
+                    + ",\"bytesRead\":" + phase.bytesRead()
+                    + ",\"bytesWritten\":" + phase.bytesWritten()
+                    + ",\"entries\":" + phase.entries()
+                    + ",\"peakHeapBytes\":" + phase.peakHeapBytes()
+                    + ",\"jars\":[");
+            boolean firstJar = true;
+            for (var jar : phase.jars()) {
+                if (!firstJar) {
+                    out.write(',');
+                }
+                firstJar = false;
+                out.write("{\"jar\":");
+                Json.writeString(out, jar.jar().toString());
+                out.write(",\"wallNanos\":" + jar.wallNanos()
+                        + ",\"bytesRead\":" + jar.bytesRead()
+                        + ",\"bytesWritten\":" + jar.bytesWritten()
+                        + ",\"entries\":" + jar.entries()
+                        + ",\"throughputMBps\":" + String.format(Locale.ROOT, "%.3f", jar.throughput())
+                        + "}");
+            }
+            out.write("]}");
+        }
+        out.write("\n]}\n");
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000_000_000L) return String.format("%.1f ms", nanos / 1e6);
+        return String.format("%.2f s", nanos / 1e9);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
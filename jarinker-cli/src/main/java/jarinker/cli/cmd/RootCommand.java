@@ -22,6 +22,6 @@ public class RootCommand implements Runnable {
     @Override
     public void run() {
         // Show help when no subcommand is specified
-        spec.commandLine().usage(System.out);
+        spec.commandLine().usage(spec.commandLine().getOut());
     }
 }
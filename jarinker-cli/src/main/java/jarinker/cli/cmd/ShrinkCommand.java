@@ -1,20 +1,37 @@
 package jarinker.cli.cmd;
 
 import com.sun.tools.jdeps.Archive;
+import com.sun.tools.jdeps.JdepsConfiguration;
 import com.sun.tools.jdeps.JdepsFilter;
 import jarinker.core.AnalyzerType;
+import jarinker.core.ClassLoadOrder;
+import jarinker.core.ClasspathResolver;
+import jarinker.core.DebugAttribute;
 import jarinker.core.DependencyGraph;
+import jarinker.core.EntryPoints;
+import jarinker.core.InMemoryAnalysisCache;
 import jarinker.core.JarShrinker;
 import jarinker.core.JdepsAnalyzer;
+import jarinker.core.KeepRules;
+import java.io.PrintWriter;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 import lombok.SneakyThrows;
 import org.jspecify.annotations.Nullable;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
 /**
  * Shrink command for artifact shrinking.
@@ -22,7 +39,13 @@ import picocli.CommandLine.Parameters;
  * @author Freeman
  */
 @Command(description = "Shrink jars by removing unused classes", mixinStandardHelpOptions = true)
-public class ShrinkCommand implements Runnable {
+public class ShrinkCommand implements Callable<Integer> {
+
+    private static final int MAX_CONFLICTS_SHOWN = 20;
+    private static final int MAX_PACKAGES_SHOWN = 5;
+
+    @Spec
+    CommandSpec spec;
 
     @Parameters(description = "Source artifacts to shrink (JAR files or class directories)", arity = "1..*")
     private List<Path> sources;
@@ -48,17 +71,164 @@ public class ShrinkCommand implements Runnable {
                     "Shrink JAR files matching the given pattern, shrink all jars by default. Supports comma-separated multiple patterns.")
     private List<Pattern> jarPatterns;
 
+    @Option(
+            names = {"--entry-points"},
+            description =
+                    "Only keep what the entry points of the sources reach: the Main-Class of their manifests, the providers of their META-INF/services files and the classes matching --entry-point. By default every class of the sources is a root.")
+    private boolean entryPoints;
+
+    @Option(
+            names = {"--entry-point"},
+            split = ",",
+            paramLabel = "<pattern>",
+            description =
+                    "Classes of the sources whose binary name matches the given pattern are entry points, implies --entry-points. Supports comma-separated multiple patterns.")
+    private @Nullable List<Pattern> entryPointPatterns;
+
+    @Option(
+            names = {"--depth"},
+            description =
+                    "Number of libraries outside --jar a dependency path may pass through on its way to a shrunk jar, unlimited by default. Libraries beyond it are not analyzed, so classes only reached through them are removed.")
+    private @Nullable Integer depth;
+
+    @Option(
+            names = {"--compression-level"},
+            description =
+                    "Recompress retained entries with the given deflate level (0-9, 0 stores them uncompressed). By default entries are copied as-is without recompression.")
+    private @Nullable Integer compressionLevel;
+
+    @Option(
+            names = {"--strip-debug"},
+            split = ",",
+            paramLabel = "<attribute>",
+            description =
+                    "Strip debug attributes from retained classes: lines (LineNumberTable), vars (LocalVariableTable, LocalVariableTypeTable), source (SourceFile, SourceDebugExtension). Supports comma-separated multiple attributes, stripped classes are recompressed.")
+    private @Nullable List<DebugAttribute> stripDebug;
+
+    @Option(
+            names = {"--shrink-members"},
+            description =
+                    "Also remove the unused fields and methods of retained classes, and the classes only they use. Members used through reflection the analysis can not see must be kept with --keep-members.")
+    private boolean shrinkMembers;
+
+    @Option(
+            names = {"--keep-members"},
+            split = ",",
+            paramLabel = "<pattern>",
+            description =
+                    "Keep all fields and methods of the classes whose binary name matches the given pattern, with --shrink-members. Supports comma-separated multiple patterns.")
+    private @Nullable List<Pattern> keepMembers;
+
+    @Option(
+            names = {"--keep-rules"},
+            paramLabel = "<file>",
+            description =
+                    "Keep rules file, classes kept whether reachable or not along with what they depend on, for classes loaded by reflection. One rule per line: a class (com.example.Plugin), the classes of a package (com.example.model.*), of a package and its subpackages (com.example.api.**), or the classes annotated with a type (@com.example.Component).")
+    private @Nullable Path keepRules;
+
+    @Option(
+            names = {"--load-order"},
+            description =
+                    "Class-load trace of a training run (-Xlog:class+load output or a class list), loaded classes are moved to the front of their jar in load order")
+    private @Nullable Path loadOrder;
+
+    @Option(
+            names = {"--dedupe"},
+            description =
+                    "Remove a class from a jar when a jar before it on the classpath contains it with the same size and CRC-32, classes with the same name and different content are reported. The shrunk jars must then stay on the classpath together.")
+    private boolean dedupe;
+
+    @Option(
+            names = {"--merge"},
+            paramLabel = "<jar>",
+            description =
+                    "Merge the retained entries of all shrunk jars into the given jar instead of shrinking them one by one. Identical entries are written once, META-INF/services files are merged and conflicting entries are reported, the first jar on the classpath wins.")
+    private @Nullable Path mergeJar;
+
+    @Option(
+            names = {"--store-loaded"},
+            description =
+                    "Write the classes of the --load-order trace uncompressed, so loading them needs no inflation")
+    private boolean storeLoaded;
+
+    @Option(
+            names = {"--dry-run"},
+            description =
+                    "Estimate the savings from the central directory of each jar without writing anything, and list the largest removed packages")
+    private boolean dryRun;
+
+    @Option(
+            names = {"--parallelism"},
+            description = "Number of jars to shrink concurrently, defaults to the number of available processors")
+    private @Nullable Integer parallelism;
+
+    @Mixin
+    private AnalysisOptions analysisOptions;
+
+    @Mixin
+    private OutputStoreOptions outputStoreOptions;
+
+    @Mixin
+    private CdsOptions cdsOptions;
+
+    @Mixin
+    private ProfileOptions profileOptions;
+
+    private final @Nullable InMemoryAnalysisCache memoryCache;
+
+    public ShrinkCommand() {
+        this(null);
+    }
+
+    /**
+     * @param memoryCache in-memory cache shared with other commands of the process, null disables it
+     */
+    public ShrinkCommand(@Nullable InMemoryAnalysisCache memoryCache) {
+        this.memoryCache = memoryCache;
+    }
+
     @Override
     @SneakyThrows
-    public void run() {
+    public Integer call() {
+        if (mergeJar != null && outputDir != null) {
+            throw new IllegalArgumentException("--merge and --output are mutually exclusive");
+        }
+        if (dryRun && (mergeJar != null || cdsOptions.isEnabled())) {
+            throw new IllegalArgumentException("--dry-run writes nothing, it can not be combined with --merge or CDS");
+        }
 
         DependencyGraph graph;
 
-        try (var jdepsConfiguration = JdepsAnalyzer.buildJdepsConfiguration(sources, classpath, Runtime.version())) {
+        var profiler = profileOptions.createProfiler();
+        // Read before the configuration opens the archives, so that a bad rules file does not leak them
+        var rules = readKeepRules(keepRules);
+
+        ClasspathResolver.Result resolved;
+        JdepsConfiguration jdepsConfiguration;
+        try (var phase = profiler.start("classpath")) {
+            resolved = analysisOptions.resolveClasspath(sources, classpath);
+            jdepsConfiguration = JdepsAnalyzer.buildJdepsConfiguration(
+                    sources, resolved, Runtime.version(), analysisOptions.getMaxOpenArchives());
+            phase.addEntries(jdepsConfiguration.initialArchives().size()
+                    + resolved.classpath().size());
+        }
+
+        try (jdepsConfiguration) {
             var analyzer = JdepsAnalyzer.builder()
                     .jdepsFilter(buildJdepsFilter())
                     .jdepsConfiguration(jdepsConfiguration)
+                    .cache(analysisOptions.createCache())
+                    .memoryCache(memoryCache)
+                    .engine(analysisOptions.getEngine())
+                    .memoryBudget(analysisOptions.getMemoryBudget())
+                    .maxOpenArchives(analysisOptions.getMaxOpenArchives())
+                    .classpath(resolved)
+                    .profiler(profiler)
                     .type(AnalyzerType.CLASS)
+                    .jarPatterns(jarPatterns)
+                    .depth(depth)
+                    .entryPoints(entryPoints(entryPoints, entryPointPatterns))
+                    .keepRules(rules)
                     .build();
 
             graph = analyzer.analyze();
@@ -67,15 +237,136 @@ public class ShrinkCommand implements Runnable {
         var shrinker = JarShrinker.builder()
                 .outputDir(outputDir)
                 .jarPatterns(jarPatterns)
+                .compressionLevel(compressionLevel)
+                .parallelism(parallelism)
+                .profiler(profiler)
+                .outputStore(dryRun ? null : outputStoreOptions.createStore())
+                .loadOrder(readLoadOrder(loadOrder, storeLoaded))
+                .storeLoadedClasses(storeLoaded)
+                .removeDuplicateClasses(dedupe)
+                .stripDebugAttributes(stripDebug != null ? Set.copyOf(stripDebug) : null)
+                .removeUnusedMembers(shrinkMembers)
+                .keepMembers(keepMembers)
+                .keepRules(rules)
                 .build();
 
-        var result = shrinker.shrink(getDepJars(graph), graph);
+        var out = spec.commandLine().getOut();
+
+        if (dryRun) {
+            var estimate = shrinker.estimate(inClasspathOrder(getDepJars(graph), resolved), graph);
+            printEstimateResult(out, estimate);
+            out.flush();
+            profileOptions.report(profiler);
+            return estimate.failures().isEmpty() ? 0 : 1;
+        }
+
+        if (mergeJar != null) {
+            var merged = shrinker.merge(inClasspathOrder(getDepJars(graph), resolved), graph, mergeJar);
+            printMergeResult(out, merged);
+            out.flush();
+            cdsOptions.apply(graph, mergedClasspath(sources, resolved, merged), profiler);
+            profileOptions.report(profiler);
+            return 0;
+        }
+
+        var result = shrinker.shrink(inClasspathOrder(getDepJars(graph), resolved), graph);
+
+        printShrinkResult(out, result);
+        out.flush();
+
+        if (result.failures().isEmpty()) {
+            cdsOptions.apply(graph, shrunkClasspath(sources, resolved, result), profiler);
+        }
+
+        profileOptions.report(profiler);
+
+        return result.failures().isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * @return entry points of the sources, null if every class of the sources is a root
+     */
+    static @Nullable EntryPoints entryPoints(boolean enabled, @Nullable List<Pattern> patterns) {
+        if (!enabled && (patterns == null || patterns.isEmpty())) {
+            return null;
+        }
+        return new EntryPoints(patterns != null ? patterns : List.of());
+    }
 
-        printShrinkResult(result);
+    @SneakyThrows
+    static @Nullable KeepRules readKeepRules(@Nullable Path file) {
+        return file != null ? KeepRules.read(file) : null;
     }
 
     @SneakyThrows
-    private static List<Archive> getDepJars(DependencyGraph graph) {
+    static @Nullable ClassLoadOrder readLoadOrder(@Nullable Path trace, boolean storeLoaded) {
+        if (trace == null) {
+            if (storeLoaded) {
+                throw new IllegalArgumentException("--store-loaded requires --load-order");
+            }
+            return null;
+        }
+        return ClassLoadOrder.read(trace);
+    }
+
+    /**
+     * @return classpath of the application after shrinking, the sources followed by the classpath with every shrunk
+     *         jar replaced by its output
+     */
+    static List<Path> shrunkClasspath(
+            List<Path> sources, ClasspathResolver.Result resolved, JarShrinker.ShrinkResult result) {
+        var outputs = new HashMap<Path, Path>();
+        for (var jar : result.jars()) {
+            outputs.put(jar.before(), jar.after());
+        }
+        var classpath = new ArrayList<Path>();
+        for (var source : sources) {
+            classpath.add(source.toAbsolutePath().normalize());
+        }
+        for (var path : resolved.classpath()) {
+            var normalized = path.toAbsolutePath().normalize();
+            classpath.add(outputs.getOrDefault(normalized, normalized));
+        }
+        return classpath;
+    }
+
+    /**
+     * @return classpath of the application after merging, the sources followed by the classpath with the merged jars
+     *         replaced by the merged jar at the position of the first one
+     */
+    static List<Path> mergedClasspath(
+            List<Path> sources, ClasspathResolver.Result resolved, JarShrinker.MergeResult result) {
+        var merged = new HashSet<>(result.jars());
+        var classpath = new LinkedHashSet<Path>();
+        for (var source : sources) {
+            classpath.add(source.toAbsolutePath().normalize());
+        }
+        for (var path : resolved.classpath()) {
+            var normalized = path.toAbsolutePath().normalize();
+            classpath.add(merged.contains(normalized) ? result.output() : normalized);
+        }
+        return List.copyOf(classpath);
+    }
+
+    /**
+     * @return archives sorted by their position on the resolved classpath, which decides the jar that wins a
+     *         conflicting entry
+     */
+    static List<Archive> inClasspathOrder(List<Archive> archives, ClasspathResolver.Result resolved) {
+        var positions = new HashMap<Path, Integer>();
+        for (var path : resolved.classpath()) {
+            positions.putIfAbsent(path.toAbsolutePath().normalize(), positions.size());
+        }
+        return archives.stream()
+                .sorted(Comparator.comparingInt(archive -> archive.path()
+                        .map(path ->
+                                positions.getOrDefault(path.toAbsolutePath().normalize(), Integer.MAX_VALUE))
+                        .orElse(Integer.MAX_VALUE)))
+                .toList();
+    }
+
+    @SneakyThrows
+    static List<Archive> getDepJars(DependencyGraph graph) {
         var classpath = new HashSet<>(graph.getArchives());
         for (var archive : graph.getRootArchives()) {
             classpath.remove(archive);
@@ -83,49 +374,188 @@ public class ShrinkCommand implements Runnable {
         return List.copyOf(classpath);
     }
 
-    private void printShrinkResult(JarShrinker.ShrinkResult result) {
-        if (result.jars().isEmpty()) {
-            System.out.println("🔍 No JAR files were processed.");
+    static void printShrinkResult(PrintWriter out, JarShrinker.ShrinkResult result) {
+        if (result.jars().isEmpty() && result.failures().isEmpty()) {
+            out.println("🔍 No JAR files were processed.");
             return;
         }
 
-        printHeader("JAR Shrinking Results");
+        printHeader(out, "JAR Shrinking Results");
 
         // Print individual JAR results
         for (var jar : result.jars()) {
-            printJarResult(jar);
+            printJarResult(out, jar);
         }
 
+        for (var failure : result.failures()) {
+            printFailure(out, failure);
+        }
+
+        printConflicts(out, result.conflicts());
+
         // Print summary statistics
-        printSummaryStats(result);
+        printSummaryStats(out, result);
     }
 
-    private void printHeader(String title) {
-        System.out.println("╭─" + "─".repeat(title.length()) + "─╮");
-        System.out.println("│ " + title + " │");
-        System.out.println("╰─" + "─".repeat(title.length()) + "─╯");
-        System.out.println();
+    static void printEstimateResult(PrintWriter out, JarShrinker.EstimateResult result) {
+        if (result.jars().isEmpty() && result.failures().isEmpty()) {
+            out.println("🔍 No JAR files were processed.");
+            return;
+        }
+
+        printHeader(out, "JAR Shrinking Estimate (dry run)");
+
+        for (var jar : result.jars()) {
+            out.println("📦 " + jar.jar().toFile().getName());
+            out.println("   • Original size:   " + formatBytes(jar.beforeSize()));
+            out.println("   • Estimated size:  " + formatBytes(jar.afterSize()));
+            out.printf(
+                    "   • Saved:           %s (%.2f%%)%n",
+                    formatBytes(jar.getSavedBytes()), jar.getReductionPercentage());
+            out.println("   • Removed classes: " + jar.removedClasses() + " of " + jar.entries() + " entries");
+            if (jar.duplicates() > 0) {
+                out.println("   • Duplicates:      " + jar.duplicates() + " classes kept in an earlier jar");
+            }
+            if (jar.loadOrdered() > 0) {
+                out.println("   • Load ordered:    " + jar.loadOrdered() + " classes moved to the front");
+            }
+            if (!jar.removedPackages().isEmpty()) {
+                out.println("   • Largest removed packages:");
+                for (var removed : jar.removedPackages()
+                        .subList(
+                                0,
+                                Math.min(
+                                        MAX_PACKAGES_SHOWN,
+                                        jar.removedPackages().size()))) {
+                    out.printf(
+                            "       %-10s %s (%d classes)%n",
+                            formatBytes(removed.bytes()), removed.name(), removed.classes());
+                }
+            }
+            out.println();
+        }
+
+        for (var failure : result.failures()) {
+            printFailure(out, failure);
+        }
+
+        printConflicts(out, result.conflicts());
+
+        long saved = result.beforeSize() - result.afterSize();
+        double reductionPercentage = result.beforeSize() > 0 ? ((double) saved / result.beforeSize()) * 100.0 : 0.0;
+        out.println("📊 Summary:");
+        out.println("   • Estimated JARs: " + result.jars().size());
+        if (!result.failures().isEmpty()) {
+            out.println("   • Failed JARs:    " + result.failures().size());
+        }
+        out.println("   • Total original size:  " + formatBytes(result.beforeSize()));
+        out.println("   • Total estimated size: " + formatBytes(result.afterSize()));
+        out.printf("   • Total saved:          %s (%.2f%%)%n", formatBytes(saved), reductionPercentage);
+        out.println("   • Nothing was written, sizes assume entries are copied without recompression or stripping");
+    }
+
+    static void printMergeResult(PrintWriter out, JarShrinker.MergeResult result) {
+        printHeader(out, "JAR Merging Results");
+
+        long saved = result.beforeSize() - result.afterSize();
+        double reductionPercentage = result.beforeSize() > 0 ? ((double) saved / result.beforeSize()) * 100.0 : 0.0;
+
+        out.println("📦 " + result.output().toFile().getName());
+        out.println("   • Merged JARs:     " + result.jars().size());
+        out.println("   • Original size:   " + formatBytes(result.beforeSize()));
+        out.println("   • Merged size:     " + formatBytes(result.afterSize()));
+        out.printf("   • Saved:           %s (%.2f%%)%n", formatBytes(saved), reductionPercentage);
+        out.println("   • Output:          " + result.output());
+        out.println("   • Entries:         " + result.entries());
+        if (result.duplicates() > 0) {
+            out.println("   • Duplicates:      " + result.duplicates() + " identical entries written once");
+        }
+        if (result.mergedServices() > 0) {
+            out.println("   • Services merged: " + result.mergedServices());
+        }
+
+        if (!result.conflicts().isEmpty()) {
+            out.println();
+            out.println("⚠️ Conflicting entries, the first jar wins:");
+            int shown = Math.min(MAX_CONFLICTS_SHOWN, result.conflicts().size());
+            for (var conflict : result.conflicts().subList(0, shown)) {
+                out.println("   • " + conflict.entry() + ": "
+                        + conflict.kept().toFile().getName() + " over "
+                        + conflict.ignored().toFile().getName());
+            }
+            if (result.conflicts().size() > shown) {
+                out.println("   ... and " + (result.conflicts().size() - shown) + " more");
+            }
+        }
+    }
+
+    static void printHeader(PrintWriter out, String title) {
+        out.println("╭─" + "─".repeat(title.length()) + "─╮");
+        out.println("│ " + title + " │");
+        out.println("╰─" + "─".repeat(title.length()) + "─╯");
+        out.println();
     }
 
-    private void printJarResult(JarShrinker.ShrinkResult.Item jar) {
+    private static void printJarResult(PrintWriter out, JarShrinker.ShrinkResult.Item jar) {
         String fileName = jar.before().toFile().getName();
         String beforeSize = formatBytes(jar.beforeSize());
         String afterSize = formatBytes(jar.afterSize());
         String savedSize = formatBytes(jar.getSavedBytes());
         double reductionPercentage = jar.getReductionPercentage();
 
-        System.out.println("📦 " + fileName);
-        System.out.println("   • Original size: " + beforeSize);
-        System.out.println("   • Shrunk size:   " + afterSize);
-        System.out.printf("   • Saved:         %s (%.2f%%)%n", savedSize, reductionPercentage);
+        out.println("📦 " + fileName);
+        out.println("   • Original size: " + beforeSize);
+        out.println("   • Shrunk size:   " + afterSize);
+        out.printf("   • Saved:         %s (%.2f%%)%n", savedSize, reductionPercentage);
 
         if (!jar.before().equals(jar.after())) {
-            System.out.println("   • Output:        " + jar.after());
+            out.println("   • Output:        " + jar.after());
+        }
+        switch (jar.status()) {
+            case REUSED -> out.println("   • Reused:        shrunk to the same classes before, taken from the store");
+            case UNCHANGED -> out.println("   • Unchanged:     no unused classes");
+            case SHRUNK -> {}
         }
-        System.out.println();
+        if (jar.loadOrdered() > 0) {
+            out.println("   • Load ordered:  " + jar.loadOrdered() + " classes moved to the front");
+        }
+        if (jar.duplicates() > 0) {
+            out.println("   • Duplicates:    " + jar.duplicates() + " classes kept in an earlier jar");
+        }
+        if (jar.strippedBytes() > 0) {
+            out.printf(
+                    "   • Stripped:      %s from retained classes, uncompressed%n", formatBytes(jar.strippedBytes()));
+        }
+        if (jar.removedMembers() > 0) {
+            out.println("   • Members:       " + jar.removedMembers() + " unused fields and methods removed");
+        }
+        out.println();
+    }
+
+    private static void printConflicts(PrintWriter out, List<JarShrinker.ShrinkResult.Conflict> conflicts) {
+        if (conflicts.isEmpty()) {
+            return;
+        }
+        out.println("⚠️ Classes with different content in several jars, the first jar on the classpath wins:");
+        int shown = Math.min(MAX_CONFLICTS_SHOWN, conflicts.size());
+        for (var conflict : conflicts.subList(0, shown)) {
+            out.println("   • " + conflict.entry() + ": "
+                    + conflict.loaded().toFile().getName() + " over "
+                    + conflict.shadowed().toFile().getName());
+        }
+        if (conflicts.size() > shown) {
+            out.println("   ... and " + (conflicts.size() - shown) + " more");
+        }
+        out.println();
+    }
+
+    private static void printFailure(PrintWriter out, JarShrinker.ShrinkResult.Failure failure) {
+        out.println("❌ " + failure.jar().toFile().getName());
+        out.println("   • Error: " + failure.cause());
+        out.println();
     }
 
-    private void printSummaryStats(JarShrinker.ShrinkResult result) {
+    private static void printSummaryStats(PrintWriter out, JarShrinker.ShrinkResult result) {
         long totalOriginalSize = result.jars().stream()
                 .mapToLong(JarShrinker.ShrinkResult.Item::beforeSize)
                 .sum();
@@ -138,14 +568,35 @@ public class ShrinkCommand implements Runnable {
         double totalReductionPercentage =
                 totalOriginalSize > 0 ? ((double) totalSaved / totalOriginalSize) * 100.0 : 0.0;
 
-        System.out.println("📊 Summary:");
-        System.out.println("   • Processed JARs: " + result.jars().size());
-        System.out.println("   • Total original size: " + formatBytes(totalOriginalSize));
-        System.out.println("   • Total shrunk size:   " + formatBytes(totalShrunkSize));
-        System.out.printf("   • Total saved:         %s (%.2f%%)%n", formatBytes(totalSaved), totalReductionPercentage);
+        out.println("📊 Summary:");
+        out.println("   • Processed JARs: " + result.jars().size());
+        long reused = result.jars().stream()
+                .filter(jar -> jar.status() == JarShrinker.ShrinkResult.Status.REUSED)
+                .count();
+        if (reused > 0) {
+            out.println("   • Reused JARs:    " + reused);
+        }
+        if (!result.failures().isEmpty()) {
+            out.println("   • Failed JARs:    " + result.failures().size());
+        }
+        long stripped = result.jars().stream()
+                .mapToLong(JarShrinker.ShrinkResult.Item::strippedBytes)
+                .sum();
+        if (stripped > 0) {
+            out.println("   • Stripped:       " + formatBytes(stripped) + " from retained classes");
+        }
+        int removedMembers = result.jars().stream()
+                .mapToInt(JarShrinker.ShrinkResult.Item::removedMembers)
+                .sum();
+        if (removedMembers > 0) {
+            out.println("   • Members:        " + removedMembers + " unused fields and methods removed");
+        }
+        out.println("   • Total original size: " + formatBytes(totalOriginalSize));
+        out.println("   • Total shrunk size:   " + formatBytes(totalShrunkSize));
+        out.printf("   • Total saved:         %s (%.2f%%)%n", formatBytes(totalSaved), totalReductionPercentage);
     }
 
-    private String formatBytes(long bytes) {
+    static String formatBytes(long bytes) {
         if (bytes < 1024) return bytes + " B";
         if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
         if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
@@ -157,7 +608,7 @@ public class ShrinkCommand implements Runnable {
      *
      * @return configured JdepsFilterBuilder
      */
-    private JdepsFilter buildJdepsFilter() {
+    static JdepsFilter buildJdepsFilter() {
         var filterBuilder = new JdepsFilter.Builder();
 
         filterBuilder.filter(false, false);
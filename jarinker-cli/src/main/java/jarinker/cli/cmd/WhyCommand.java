@@ -0,0 +1,215 @@
+package jarinker.cli.cmd;
+
+import com.sun.tools.jdeps.JdepsConfiguration;
+import jarinker.core.AnalyzerType;
+import jarinker.core.ClasspathResolver;
+import jarinker.core.DependencyGraph;
+import jarinker.core.DependencyPaths;
+import jarinker.core.InMemoryAnalysisCache;
+import jarinker.core.JdepsAnalyzer;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+/**
+ * Why command, explains why classes are kept with the shortest dependency path from a root to each of them.
+ *
+ * <p> The graph is analyzed and indexed once, every class is then answered from the {@link DependencyPaths} index, so
+ * reading class names from standard input answers any number of them in one session.
+ *
+ * @author Freeman
+ */
+@Command(
+        description = "Explain why classes are kept, with the shortest dependency path from a root to each of them",
+        mixinStandardHelpOptions = true)
+public class WhyCommand implements Callable<Integer> {
+
+    private static final String STDIN = "-";
+
+    @Spec
+    CommandSpec spec;
+
+    @Parameters(
+            index = "0",
+            paramLabel = "<class>",
+            description =
+                    "Binary names of the classes to explain, comma-separated, or - to read class names from standard input, one per line, each answered as it is read")
+    private String classNames;
+
+    @Parameters(
+            index = "1..*",
+            arity = "1..*",
+            paramLabel = "<sources>",
+            description = "Source artifacts (JAR files or class directories)")
+    private List<Path> sources;
+
+    @Option(
+            names = {"-cp", "-classpath", "--class-path"},
+            description = "Classpath entries (can be specified multiple times)",
+            required = true)
+    private List<Path> classpath;
+
+    @Option(
+            names = {"--entry-points"},
+            description =
+                    "Paths start at the entry points of the sources, like shrink --entry-points. By default every class of the sources is a root.")
+    private boolean entryPoints;
+
+    @Option(
+            names = {"--entry-point"},
+            split = ",",
+            paramLabel = "<pattern>",
+            description =
+                    "Classes of the sources whose binary name matches the given pattern are entry points, implies --entry-points. Supports comma-separated multiple patterns.")
+    private @Nullable List<Pattern> entryPointPatterns;
+
+    @Option(
+            names = {"--keep-rules"},
+            paramLabel = "<file>",
+            description = "Keep rules file, the classes it keeps are roots as well, like shrink --keep-rules")
+    private @Nullable Path keepRules;
+
+    @Mixin
+    private AnalysisOptions analysisOptions;
+
+    @Mixin
+    private ProfileOptions profileOptions;
+
+    private final @Nullable InMemoryAnalysisCache memoryCache;
+
+    public WhyCommand() {
+        this(null);
+    }
+
+    /**
+     * @param memoryCache in-memory cache shared with other commands of the process, null disables it
+     */
+    public WhyCommand(@Nullable InMemoryAnalysisCache memoryCache) {
+        this.memoryCache = memoryCache;
+    }
+
+    @Override
+    @SneakyThrows
+    public Integer call() {
+        var profiler = profileOptions.createProfiler();
+
+        ClasspathResolver.Result resolved;
+        JdepsConfiguration jdepsConfiguration;
+        try (var phase = profiler.start("classpath")) {
+            resolved = analysisOptions.resolveClasspath(sources, classpath);
+            jdepsConfiguration = JdepsAnalyzer.buildJdepsConfiguration(
+                    sources, resolved, Runtime.version(), analysisOptions.getMaxOpenArchives());
+            phase.addEntries(jdepsConfiguration.initialArchives().size()
+                    + resolved.classpath().size());
+        }
+
+        DependencyGraph graph;
+        try (jdepsConfiguration) {
+            var analyzer = JdepsAnalyzer.builder()
+                    .jdepsFilter(ShrinkCommand.buildJdepsFilter())
+                    .jdepsConfiguration(jdepsConfiguration)
+                    .cache(analysisOptions.createCache())
+                    .memoryCache(memoryCache)
+                    .engine(analysisOptions.getEngine())
+                    .memoryBudget(analysisOptions.getMemoryBudget())
+                    .maxOpenArchives(analysisOptions.getMaxOpenArchives())
+                    .classpath(resolved)
+                    .profiler(profiler)
+                    .type(AnalyzerType.CLASS)
+                    .entryPoints(ShrinkCommand.entryPoints(entryPoints, entryPointPatterns))
+                    .keepRules(ShrinkCommand.readKeepRules(keepRules))
+                    .build();
+
+            graph = analyzer.analyze();
+        }
+
+        DependencyPaths paths;
+        try (var phase = profiler.start("index")) {
+            paths = new DependencyPaths(graph);
+            phase.addEntries(graph.getNodeCount());
+        }
+
+        var out = spec.commandLine().getOut();
+        int unexplained = 0;
+        try (var phase = profiler.start("why")) {
+            if (STDIN.equals(classNames)) {
+                var in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        unexplained += explain(out, paths, graph, line.strip()) ? 0 : 1;
+                        phase.addEntries(1);
+                        out.flush();
+                    }
+                }
+            } else {
+                for (var className : classNames.split(",")) {
+                    if (!className.isBlank()) {
+                        unexplained += explain(out, paths, graph, className.strip()) ? 0 : 1;
+                        phase.addEntries(1);
+                    }
+                }
+            }
+        }
+        out.flush();
+
+        profileOptions.report(profiler);
+
+        return unexplained == 0 ? 0 : 1;
+    }
+
+    /**
+     * Print the shortest path from a root to every node of a class.
+     *
+     * @return whether a root reaches the class
+     */
+    static boolean explain(PrintWriter out, DependencyPaths paths, DependencyGraph graph, String className) {
+        var indexedGraph = graph.getIndexedGraph();
+        var nodes = paths.nodes(className);
+        if (nodes.length == 0) {
+            out.println("❓ " + className + " is not in the dependency graph, no root reaches it");
+            out.println();
+            return false;
+        }
+        boolean reachable = false;
+        for (int node : nodes) {
+            var title = className + " (" + indexedGraph.archive(node) + ")";
+            var path = paths.shortestPath(node);
+            if (path == null) {
+                out.println("❌ " + title + " is not reachable from any root");
+                out.println();
+                continue;
+            }
+            reachable = true;
+            out.println("🔍 " + title);
+            for (int i = 0; i < path.length; i++) {
+                int step = path[i];
+                var prefix = i == 0 ? "   " : "   → ";
+                out.println(prefix + indexedGraph.name(step) + " (" + indexedGraph.archive(step) + ")");
+            }
+            if (path.length == 1) {
+                out.println("   • A root itself");
+            }
+            int reachableUsers = 0;
+            for (int i = 0; i < paths.inDegree(node); i++) {
+                reachableUsers += paths.isReachable(paths.predecessor(node, i)) ? 1 : 0;
+            }
+            out.printf("   • Used by %d classes, %d of them reachable%n", paths.inDegree(node), reachableUsers);
+            out.println();
+        }
+        return reachable;
+    }
+}
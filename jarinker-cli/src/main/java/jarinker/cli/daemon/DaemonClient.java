@@ -0,0 +1,157 @@
+package jarinker.cli.daemon;
+
+import jarinker.cli.daemon.DaemonProtocol.Request;
+import jarinker.cli.daemon.DaemonProtocol.RequestType;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * Sends requests to a running {@link DaemonServer}.
+ *
+ * <p> Requests are only sent when the socket directory is private to the current user, like the server checks when
+ * it starts, so a socket planted by another user never receives the commands.
+ *
+ * @author Freeman
+ */
+public final class DaemonClient {
+
+    private final Path socket;
+    private final String toolVersion;
+
+    /**
+     * @param socket      socket path
+     * @param toolVersion jarinker version of the client
+     */
+    public DaemonClient(Path socket, String toolVersion) {
+        this.socket = socket;
+        this.toolVersion = toolVersion;
+    }
+
+    /**
+     * Whether a command line is eligible for forwarding, it must start with a command served by the daemon and
+     * forwarding must not be disabled with {@value DaemonProtocol#NO_DAEMON_ENV}.
+     *
+     * @param args command line arguments
+     * @return true if the command line may be forwarded
+     */
+    public static boolean isForwardable(String[] args) {
+        return args.length > 0
+                && DaemonProtocol.FORWARDED_COMMANDS.contains(args[0])
+                && System.getenv(DaemonProtocol.NO_DAEMON_ENV) == null;
+    }
+
+    /**
+     * Run a command on the daemon, relaying its output.
+     *
+     * @param cwd  working directory relative paths are resolved against
+     * @param args command line arguments
+     * @param out  receives the standard output of the command
+     * @param err  receives the standard error of the command
+     * @return exit code, empty if no daemon is running or the daemon declined the request, the caller should then run
+     * the command itself
+     */
+    public OptionalInt run(Path cwd, List<String> args, OutputStream out, OutputStream err) {
+        return send(new Request(toolVersion, RequestType.RUN, cwd.toAbsolutePath(), args), out, err);
+    }
+
+    /**
+     * Send a control request.
+     *
+     * @param type {@link RequestType#STATUS} or {@link RequestType#STOP}
+     * @param out  receives the output of the request
+     * @param err  receives the error output of the request
+     * @return exit code, empty if no daemon is running
+     */
+    public OptionalInt control(RequestType type, OutputStream out, OutputStream err) {
+        if (type == RequestType.RUN) {
+            throw new IllegalArgumentException("Use run() to run commands");
+        }
+        return send(new Request(toolVersion, type, Path.of("").toAbsolutePath(), List.of()), out, err);
+    }
+
+    private OptionalInt send(Request request, OutputStream out, OutputStream err) {
+        if (!Files.exists(socket)) {
+            return OptionalInt.empty();
+        }
+        var directory = socket.toAbsolutePath().getParent();
+        if (directory != null) {
+            try {
+                DaemonProtocol.checkPrivate(directory);
+            } catch (IOException e) {
+                warn(err, "Not using the jarinker daemon: " + e.getMessage());
+                return OptionalInt.empty();
+            }
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            // Stale socket of a daemon that is gone
+            return OptionalInt.empty();
+        }
+
+        boolean received = false;
+        try (channel;
+                var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                var requestOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            DaemonProtocol.writeRequest(requestOut, request);
+            while (true) {
+                int frame = in.readUnsignedByte();
+                switch (frame) {
+                    case DaemonProtocol.FRAME_OUT -> {
+                        out.write(DaemonProtocol.readBytes(in));
+                        received = true;
+                    }
+                    case DaemonProtocol.FRAME_ERR -> {
+                        err.write(DaemonProtocol.readBytes(in));
+                        received = true;
+                    }
+                    case DaemonProtocol.FRAME_EXIT -> {
+                        int exitCode = in.readInt();
+                        out.flush();
+                        err.flush();
+                        return OptionalInt.of(exitCode);
+                    }
+                    case DaemonProtocol.FRAME_REJECT -> {
+                        DaemonProtocol.readString(in);
+                        return OptionalInt.empty();
+                    }
+                    default -> throw new IOException("Unknown daemon frame: " + frame);
+                }
+            }
+        } catch (IOException e) {
+            if (!received) {
+                // Nothing was printed yet, running the command locally does not duplicate any output
+                return OptionalInt.empty();
+            }
+            try {
+                out.flush();
+            } catch (IOException ignored) {
+                // Nowhere left to report to
+            }
+            warn(err, "Lost connection to the jarinker daemon: " + e);
+            return OptionalInt.of(1);
+        }
+    }
+
+    private static void warn(OutputStream err, String message) {
+        try {
+            err.write((message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            err.flush();
+        } catch (IOException ignored) {
+            // Nowhere left to report to
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package jarinker.cli.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Wire format between {@link DaemonClient} and {@link DaemonServer}.
+ *
+ * <p> A connection carries one request. The client sends the magic, the protocol version, its tool version and the
+ * request type, followed for {@link RequestType#RUN} by the working directory and the arguments. The server answers
+ * with a stream of frames: {@link #FRAME_OUT} and {@link #FRAME_ERR} carry UTF-8 output, {@link #FRAME_EXIT} ends a
+ * request with its exit code, {@link #FRAME_REJECT} tells the client to run the request itself.
+ *
+ * <p> Strings are written as a length-prefixed UTF-8 byte array, so arguments are not limited to 64K like
+ * {@link DataOutputStream#writeUTF(String)}.
+ *
+ * @author Freeman
+ */
+public final class DaemonProtocol {
+
+    /**
+     * Environment variable overriding the socket path.
+     */
+    public static final String SOCKET_ENV = "JARINKER_DAEMON_SOCKET";
+
+    /**
+     * Environment variable that, when set, keeps commands from being forwarded to the daemon.
+     */
+    public static final String NO_DAEMON_ENV = "JARINKER_NO_DAEMON";
+
+    /**
+     * Commands the daemon runs, everything else runs in the calling process.
+     */
+    public static final List<String> FORWARDED_COMMANDS = List.of("analyze", "shrink", "batch");
+
+    static final int MAGIC = 0x4A4B444D; // "JKDM"
+    static final int VERSION = 1;
+
+    static final byte FRAME_OUT = 1;
+    static final byte FRAME_ERR = 2;
+    static final byte FRAME_EXIT = 3;
+    static final byte FRAME_REJECT = 4;
+
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+    private static final int MAX_ARGS = 64 * 1024;
+
+    private static final Set<PosixFilePermission> SHARED_PERMISSIONS = EnumSet.of(
+            PosixFilePermission.GROUP_READ,
+            PosixFilePermission.GROUP_WRITE,
+            PosixFilePermission.GROUP_EXECUTE,
+            PosixFilePermission.OTHERS_READ,
+            PosixFilePermission.OTHERS_WRITE,
+            PosixFilePermission.OTHERS_EXECUTE);
+
+    private DaemonProtocol() {}
+
+    /**
+     * Resolve the socket path, {@value #SOCKET_ENV} if set, otherwise {@code daemon.sock} in a {@code jarinker}
+     * directory under {@code $XDG_RUNTIME_DIR}, or in a per-user directory under the temporary directory when that is
+     * not set.
+     *
+     * @return socket path
+     */
+    public static Path defaultSocket() {
+        var override = System.getenv(SOCKET_ENV);
+        if (override != null && !override.isBlank()) {
+            return Path.of(override);
+        }
+        var runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDir != null && !runtimeDir.isBlank()) {
+            return Path.of(runtimeDir, "jarinker", "daemon.sock");
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), "jarinker-" + System.getProperty("user.name"))
+                .resolve("daemon.sock");
+    }
+
+    /**
+     * Check that a socket directory is private to the current user. Another user who can write to it could replace
+     * the socket and receive the commands of the client, or reach the daemon and run commands as its owner.
+     *
+     * <p> File systems without POSIX attributes are not checked.
+     *
+     * @param directory socket directory
+     * @throws IOException if the directory is a symbolic link, is owned by another user or is accessible by group or
+     *                     others
+     */
+    static void checkPrivate(Path directory) throws IOException {
+        var view = Files.getFileAttributeView(directory, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        if (view == null) {
+            return;
+        }
+        var attributes = view.readAttributes();
+        if (!attributes.isDirectory()) {
+            throw new IOException("Socket directory " + directory + " is not a directory");
+        }
+        var user = directory
+                .getFileSystem()
+                .getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!attributes.owner().equals(user)) {
+            throw new IOException("Socket directory " + directory + " is owned by "
+                    + attributes.owner().getName() + ", not by " + user.getName());
+        }
+        if (!Collections.disjoint(attributes.permissions(), SHARED_PERMISSIONS)) {
+            throw new IOException("Socket directory " + directory + " is accessible by other users ("
+                    + PosixFilePermissions.toString(attributes.permissions()) + ")");
+        }
+    }
+
+    /**
+     * Request types.
+     */
+    public enum RequestType {
+        /**
+         * Run a command.
+         */
+        RUN,
+        /**
+         * Report the state of the daemon.
+         */
+        STATUS,
+        /**
+         * Shut the daemon down.
+         */
+        STOP
+    }
+
+    /**
+     * A request sent to the daemon.
+     *
+     * @param toolVersion jarinker version of the client
+     * @param type        request type
+     * @param cwd         working directory of the client, relative paths are resolved against it
+     * @param args        command line arguments
+     */
+    record Request(String toolVersion, RequestType type, Path cwd, List<String> args) {}
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, request.toolVersion());
+        out.writeByte(request.type().ordinal());
+        writeString(out, request.cwd().toString());
+        out.writeInt(request.args().size());
+        for (var arg : request.args()) {
+            writeString(out, arg);
+        }
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a jarinker daemon request");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported daemon protocol version: " + version);
+        }
+        var toolVersion = readString(in);
+        int type = in.readUnsignedByte();
+        if (type >= RequestType.values().length) {
+            throw new IOException("Unknown request type: " + type);
+        }
+        var cwd = Path.of(readString(in));
+        int argc = in.readInt();
+        if (argc < 0 || argc > MAX_ARGS) {
+            throw new IOException("Invalid argument count: " + argc);
+        }
+        var args = new ArrayList<String>(argc);
+        for (int i = 0; i < argc; i++) {
+            args.add(readString(in));
+        }
+        return new Request(toolVersion, RequestType.values()[type], cwd, args);
+    }
+
+    static void writeExit(DataOutputStream out, int exitCode) throws IOException {
+        out.writeByte(FRAME_EXIT);
+        out.writeInt(exitCode);
+        out.flush();
+    }
+
+    static void writeReject(DataOutputStream out, String reason) throws IOException {
+        out.writeByte(FRAME_REJECT);
+        writeString(out, reason);
+        out.flush();
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Output stream writing {@link #FRAME_OUT} or {@link #FRAME_ERR} frames, frames of both streams may be interleaved
+     * on the same connection.
+     */
+    static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte frame;
+        private @Nullable IOException failure;
+
+        FrameOutputStream(DataOutputStream out, byte frame) {
+            this.out = out;
+            this.frame = frame;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (out) {
+                if (failure != null) {
+                    // The client is gone, keep the command running instead of failing it on every write
+                    return;
+                }
+                try {
+                    out.writeByte(frame);
+                    out.writeInt(len);
+                    out.write(b, off, len);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                if (failure == null) {
+                    try {
+                        out.flush();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package jarinker.cli.daemon;
+
+import jarinker.cli.daemon.DaemonProtocol.FrameOutputStream;
+import jarinker.cli.daemon.DaemonProtocol.Request;
+import jarinker.cli.daemon.DaemonProtocol.RequestType;
+import jarinker.core.InMemoryAnalysisCache;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Serves {@link DaemonProtocol} requests on a Unix domain socket.
+ *
+ * <p> Every request runs on its own thread with its own working directory and output streams, so builds of separate
+ * projects are served at the same time. Requests share the {@link InMemoryAnalysisCache}, the loaded jdeps classes
+ * and the JIT-compiled code of the process. The server stops after being idle for the idle timeout, or on a
+ * {@link RequestType#STOP} request, and removes its socket file.
+ *
+ * <p> A missing socket directory is created owner-only, so other users cannot reach the daemon. The server refuses
+ * to start in an existing directory that is owned by another user or accessible by group or others.
+ *
+ * @author Freeman
+ */
+public final class DaemonServer {
+
+    private final Path socket;
+    private final Duration idleTimeout;
+    private final String toolVersion;
+    private final InMemoryAnalysisCache memoryCache;
+    private final CommandRunner runner;
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicLong totalRequests = new AtomicLong();
+    private final AtomicLong lastActivity = new AtomicLong(System.nanoTime());
+    private final long startNanos = System.nanoTime();
+
+    private volatile @Nullable ServerSocketChannel server;
+
+    /**
+     * Runs a command line of a request.
+     */
+    @FunctionalInterface
+    public interface CommandRunner {
+        /**
+         * @param cwd  working directory of the client
+         * @param args command line arguments
+         * @param out  standard output of the request
+         * @param err  standard error of the request
+         * @return exit code
+         */
+        int run(Path cwd, String[] args, PrintWriter out, PrintWriter err);
+    }
+
+    /**
+     * @param socket      socket path
+     * @param idleTimeout stop after no request was active for this long
+     * @param toolVersion jarinker version, clients with another version run their commands themselves
+     * @param memoryCache cache shared by the requests
+     * @param runner      runs the commands
+     */
+    public DaemonServer(
+            Path socket,
+            Duration idleTimeout,
+            String toolVersion,
+            InMemoryAnalysisCache memoryCache,
+            CommandRunner runner) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeout);
+        }
+        this.socket = socket.toAbsolutePath();
+        this.idleTimeout = idleTimeout;
+        this.toolVersion = toolVersion;
+        this.memoryCache = memoryCache;
+        this.runner = runner;
+    }
+
+    /**
+     * Bind the socket and serve requests until stopped or idle.
+     */
+    public void run() throws IOException {
+        var channel = bind();
+        server = channel;
+        ExecutorService workers = Executors.newCachedThreadPool(threadFactory("jarinker-daemon"));
+        ScheduledExecutorService idleChecker =
+                Executors.newSingleThreadScheduledExecutor(threadFactory("jarinker-daemon-idle"));
+        long checkMillis = Math.max(100, Math.min(idleTimeout.toMillis() / 4, 10_000));
+        idleChecker.scheduleWithFixedDelay(this::stopIfIdle, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        try {
+            while (channel.isOpen()) {
+                SocketChannel client;
+                try {
+                    client = channel.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                activeRequests.incrementAndGet();
+                lastActivity.set(System.nanoTime());
+                workers.execute(() -> {
+                    try {
+                        handle(client);
+                    } finally {
+                        lastActivity.set(System.nanoTime());
+                        activeRequests.decrementAndGet();
+                    }
+                });
+            }
+        } finally {
+            idleChecker.shutdownNow();
+            workers.shutdown();
+            channel.close();
+            Files.deleteIfExists(socket);
+            try {
+                // Let running requests finish and report their exit code
+                workers.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stop accepting requests, running requests are completed.
+     */
+    public void stop() {
+        var current = server;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            // Closing a server socket does not fail in practice, the accept loop ends either way
+        }
+    }
+
+    private ServerSocketChannel bind() throws IOException {
+        var directory = socket.getParent();
+        if (directory != null) {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory);
+                var posix = Files.getFileAttributeView(directory, PosixFileAttributeView.class);
+                if (posix != null) {
+                    posix.setPermissions(PosixFilePermissions.fromString("rwx------"));
+                }
+            }
+            try {
+                DaemonProtocol.checkPrivate(directory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Refusing to start the daemon: " + e.getMessage(), e);
+            }
+        }
+        if (Files.exists(socket)) {
+            if (isAlive(socket)) {
+                throw new IllegalStateException("A daemon is already running on " + socket);
+            }
+            // Left behind by a daemon that was killed
+            Files.delete(socket);
+        }
+        var channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.bind(UnixDomainSocketAddress.of(socket));
+        return channel;
+    }
+
+    private void stopIfIdle() {
+        long idleNanos = System.nanoTime() - lastActivity.get();
+        if (activeRequests.get() == 0 && idleNanos >= idleTimeout.toNanos()) {
+            stop();
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel;
+                var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            var request = DaemonProtocol.readRequest(in);
+            switch (request.type()) {
+                case STOP -> {
+                    DaemonProtocol.writeExit(out, 0);
+                    stop();
+                }
+                case STATUS -> {
+                    try (var status = new FrameOutputStream(out, DaemonProtocol.FRAME_OUT)) {
+                        status.write(status().getBytes(StandardCharsets.UTF_8));
+                    }
+                    DaemonProtocol.writeExit(out, 0);
+                }
+                case RUN -> run(request, out);
+            }
+        } catch (IOException e) {
+            // The client went away or spoke another protocol, nothing to report to
+        }
+    }
+
+    private void run(Request request, DataOutputStream out) throws IOException {
+        if (!request.toolVersion().equals(toolVersion)) {
+            DaemonProtocol.writeReject(out, "daemon runs jarinker " + toolVersion);
+            return;
+        }
+        var args = request.args();
+        if (args.isEmpty() || !DaemonProtocol.FORWARDED_COMMANDS.contains(args.get(0))) {
+            DaemonProtocol.writeReject(out, "command is not served by the daemon");
+            return;
+        }
+        totalRequests.incrementAndGet();
+
+        var stdout = new PrintWriter(
+                new OutputStreamWriter(new FrameOutputStream(out, DaemonProtocol.FRAME_OUT), StandardCharsets.UTF_8),
+                true);
+        var stderr = new PrintWriter(
+                new OutputStreamWriter(new FrameOutputStream(out, DaemonProtocol.FRAME_ERR), StandardCharsets.UTF_8),
+                true);
+        int exitCode;
+        try {
+            exitCode = runner.run(request.cwd(), args.toArray(String[]::new), stdout, stderr);
+        } catch (RuntimeException | Error e) {
+            // The daemon outlives a failed request
+            e.printStackTrace(stderr);
+            exitCode = 1;
+        }
+        stdout.flush();
+        stderr.flush();
+        DaemonProtocol.writeExit(out, exitCode);
+    }
+
+    private String status() {
+        var stats = memoryCache.stats();
+        var heap = Runtime.getRuntime();
+        long usedHeap = heap.totalMemory() - heap.freeMemory();
+        return String.format(
+                Locale.ROOT,
+                "socket:          %s%n"
+                        + "version:         %s%n"
+                        + "uptime:          %d s%n"
+                        + "requests:        %d (%d active)%n"
+                        + "idle timeout:    %d min%n"
+                        + "cached archives: %d (%.1f of %.1f MB, %d hits, %d misses, %d evictions)%n"
+                        + "heap:            %.1f of %.1f MB%n",
+                socket,
+                toolVersion,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos),
+                totalRequests.get(),
+                // The status request itself is active
+                activeRequests.get() - 1,
+                idleTimeout.toMinutes(),
+                stats.entries(),
+                stats.size() / (1024.0 * 1024.0),
+                stats.maxSize() / (1024.0 * 1024.0),
+                stats.hits(),
+                stats.misses(),
+                stats.evictions(),
+                usedHeap / (1024.0 * 1024.0),
+                heap.maxMemory() / (1024.0 * 1024.0));
+    }
+
+    private static boolean isAlive(Path socket) {
+        try (var channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            return channel.isConnected();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        var counter = new AtomicInteger();
+        return r -> {
+            var thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
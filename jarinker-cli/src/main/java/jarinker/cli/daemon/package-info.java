@@ -0,0 +1,10 @@
+/**
+ * Daemon that keeps a warm JVM and analysis state across jarinker invocations, and the client that forwards commands
+ * to it over a Unix domain socket.
+ *
+ * @author Freeman
+ */
+@NullMarked
+package jarinker.cli.daemon;
+
+import org.jspecify.annotations.NullMarked;
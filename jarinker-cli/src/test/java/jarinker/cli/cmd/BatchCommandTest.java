@@ -0,0 +1,115 @@
+package jarinker.cli.cmd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jarinker.cli.Cli;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Batches of the quick-start example, run with the default engine.
+ *
+ * @author Freeman
+ */
+class BatchCommandTest {
+
+    private static final Pattern JARS_ANALYZED = Pattern.compile("Jars analyzed: +(\\d+) \\((\\d+) reused\\)");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sharedJarsAreAnalyzedOnceAndShrunkLikeShrink() throws IOException {
+        var classes = Path.of(System.getProperty("jarinker.quickStart.classes"));
+        var libs = Path.of(System.getProperty("jarinker.quickStart.libs"));
+        var manifest = Files.write(
+                tempDir.resolve("batch.properties"),
+                List.of(
+                        "a.sources = " + escape(classes),
+                        "a.classpath = " + escape(libs),
+                        "a.output = out/a",
+                        "b.sources = " + escape(classes),
+                        "b.classpath = " + escape(libs),
+                        "b.output = out/b"));
+
+        var batch = execute("batch", manifest.toString());
+        // Without a cache shrink runs jdeps' DepsAnalyzer on the whole classpath
+        var shrink = execute(
+                "shrink",
+                classes.toString(),
+                "-cp",
+                libs.toString(),
+                "-o",
+                tempDir.resolve("plain").toString());
+
+        var matcher = JARS_ANALYZED.matcher(batch);
+        assertThat(matcher.find()).as(batch).isTrue();
+        assertThat(Long.parseLong(matcher.group(1))).isPositive();
+        assertThat(matcher.group(2)).isEqualTo(matcher.group(1));
+        assertThat(shrink).doesNotContain("Jars analyzed");
+        var expected = entries(tempDir.resolve("plain"));
+        assertThat(expected).isNotEmpty();
+        assertThat(entries(tempDir.resolve("out/a"))).isEqualTo(expected);
+        assertThat(entries(tempDir.resolve("out/b"))).isEqualTo(expected);
+    }
+
+    @Test
+    void summaryOmitsJarsWhenNoneWasAnalyzed() throws IOException {
+        var classes = Path.of(System.getProperty("jarinker.quickStart.classes"));
+        Files.createDirectories(tempDir.resolve("empty"));
+        var manifest = Files.write(
+                tempDir.resolve("batch.properties"),
+                List.of("a.sources = " + escape(classes), "a.classpath = empty", "a.output = out/a"));
+
+        var batch = execute("batch", manifest.toString());
+
+        assertThat(batch).contains("Batch summary:").doesNotContain("Jars analyzed");
+    }
+
+    private static String execute(String... args) {
+        var commandLine = Cli.newCommandLine(null);
+        var out = new StringWriter();
+        var err = new StringWriter();
+        commandLine.setOut(new PrintWriter(out, true));
+        commandLine.setErr(new PrintWriter(err, true));
+
+        assertThat(commandLine.execute(args)).as(err.toString()).isZero();
+        return out.toString();
+    }
+
+    /**
+     * @return entry names of every jar in {@code dir}, by file name
+     */
+    private static Map<String, List<String>> entries(Path dir) throws IOException {
+        var result = new TreeMap<String, List<String>>();
+        try (Stream<Path> jars = Files.list(dir)) {
+            for (var jar : jars.filter(p -> p.toString().endsWith(".jar")).toList()) {
+                try (var zip = new ZipFile(jar.toFile())) {
+                    var names = Collections.list(zip.entries()).stream()
+                            .map(ZipEntry::getName)
+                            .sorted()
+                            .toList();
+                    result.put(jar.getFileName().toString(), names);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String escape(Path path) {
+        return path.toString().replace("\\", "\\\\");
+    }
+}
@@ -0,0 +1,119 @@
+package jarinker.cli.cmd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Freeman
+ */
+class BatchManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsAppsInNameOrderWithPathsRelativeToManifest() throws IOException {
+        var manifest = write(
+                "service-b.sources = b/classes",
+                "service-b.classpath = b/deps",
+                "service-b.output = out/b",
+                "service-a.sources = a/classes" + File.pathSeparator + " a/more ",
+                "service-a.classpath = a/deps" + File.pathSeparator + File.pathSeparator + "shared/libs",
+                "service-a.output = out/../out/a",
+                "service-a.jar = spring-.*\\\\.jar, netty-.*\\\\.jar",
+                "service-a.load-order = a/class-load.log",
+                "service-a.entry-point = com\\\\.example\\\\.Main",
+                "service-a.keep-rules = a/keep.rules");
+        var base = tempDir.toAbsolutePath();
+
+        var apps = BatchManifest.read(manifest).apps();
+
+        assertThat(apps).extracting(BatchManifest.App::name).containsExactly("service-a", "service-b");
+        var a = apps.get(0);
+        assertThat(a.sources()).containsExactly(base.resolve("a/classes"), base.resolve("a/more"));
+        assertThat(a.classpath()).containsExactly(base.resolve("a/deps"), base.resolve("shared/libs"));
+        assertThat(a.output()).isEqualTo(base.resolve("out/a"));
+        assertThat(a.jarPatterns()).extracting(Pattern::pattern).containsExactly("spring-.*\\.jar", "netty-.*\\.jar");
+        assertThat(a.loadOrder()).isEqualTo(base.resolve("a/class-load.log"));
+        assertThat(a.entryPoints()).extracting(Pattern::pattern).containsExactly("com\\.example\\.Main");
+        assertThat(a.keepRules()).isEqualTo(base.resolve("a/keep.rules"));
+
+        var b = apps.get(1);
+        assertThat(b.jarPatterns()).extracting(Pattern::pattern).containsExactly(".*");
+        assertThat(b.loadOrder()).isNull();
+        assertThat(b.entryPoints()).isEmpty();
+        assertThat(b.keepRules()).isNull();
+    }
+
+    @Test
+    void absolutePathsAreKept() throws IOException {
+        var classes = tempDir.resolve("elsewhere/classes").toAbsolutePath();
+        var manifest = write(
+                "app.sources = " + classes.toString().replace("\\", "\\\\"),
+                "app.classpath = libs",
+                "app.output = out");
+
+        var app = BatchManifest.read(manifest).apps().get(0);
+
+        assertThat(app.sources()).containsExactly(classes);
+    }
+
+    @Test
+    void rejectsMissingRequiredProperty() throws IOException {
+        var manifest = write("app.sources = classes", "app.output = out");
+
+        assertThatThrownBy(() -> BatchManifest.read(manifest))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Missing manifest property: app.classpath");
+    }
+
+    @Test
+    void rejectsUnknownPropertyAndKeyWithoutApp() throws IOException {
+        var unknown = write("app.source = classes");
+        assertThatThrownBy(() -> BatchManifest.read(unknown))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown manifest property: app.source");
+
+        var noApp = write("sources = classes");
+        assertThatThrownBy(() -> BatchManifest.read(noApp))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("expected <app>.<property>");
+    }
+
+    @Test
+    void rejectsSharedOutputDirectory() throws IOException {
+        var manifest = write(
+                "a.sources = a",
+                "a.classpath = libs",
+                "a.output = out",
+                "b.sources = b",
+                "b.classpath = libs",
+                "b.output = ./out");
+
+        assertThatThrownBy(() -> BatchManifest.read(manifest))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Output directory of b is used by another application");
+    }
+
+    @Test
+    void rejectsEmptyManifest() throws IOException {
+        var manifest = write("# nothing to shrink");
+
+        assertThatThrownBy(() -> BatchManifest.read(manifest))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("lists no applications");
+    }
+
+    private Path write(String... lines) throws IOException {
+        return Files.write(Files.createTempFile(tempDir, "batch", ".properties"), List.of(lines));
+    }
+}
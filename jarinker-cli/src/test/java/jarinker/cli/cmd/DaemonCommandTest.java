@@ -0,0 +1,128 @@
+package jarinker.cli.cmd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jarinker.cli.Cli;
+import jarinker.cli.daemon.DaemonClient;
+import jarinker.cli.daemon.DaemonServer;
+import jarinker.core.InMemoryAnalysisCache;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+/**
+ * @author Freeman
+ */
+class DaemonCommandTest {
+
+    private static final String VERSION = "1.0.0";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvesRelativePathsAgainstClientDirectory() {
+        var cache = new InMemoryAnalysisCache(1024);
+        var runner = DaemonCommand.commandRunner(
+                memoryCache -> {
+                    assertThat(memoryCache).isSameAs(cache);
+                    return new CommandLine(new Root()).addSubcommand("analyze", new PathsCommand());
+                },
+                cache);
+        var cwd = tempDir.resolve("project");
+        var absolute = tempDir.resolve("elsewhere/lib.jar").toAbsolutePath();
+
+        var out = new StringWriter();
+        int exitCode = runner.run(
+                cwd,
+                new String[] {"analyze", "build/classes", "-cp", absolute.toString()},
+                new PrintWriter(out, true),
+                new PrintWriter(new StringWriter(), true));
+
+        assertThat(exitCode).isZero();
+        assertThat(out.toString().lines())
+                .containsExactly(cwd.resolve("build/classes").toString(), absolute.toString());
+    }
+
+    @Test
+    void secondForwardedShrinkIsServedFromCache() throws Exception {
+        var classes = Path.of(System.getProperty("jarinker.quickStart.classes"));
+        var libs = Path.of(System.getProperty("jarinker.quickStart.libs"));
+        var cache = new InMemoryAnalysisCache(Runtime.getRuntime().maxMemory() / 4);
+        var socket = tempDir.resolve("run").resolve("daemon.sock");
+        var server = new DaemonServer(
+                socket, Duration.ofMinutes(1), VERSION, cache, DaemonCommand.commandRunner(Cli::newCommandLine, cache));
+        var running = CompletableFuture.runAsync(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!Files.exists(socket) && !running.isDone() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            var client = new DaemonClient(socket, VERSION);
+
+            // Default engine, relative output directories are resolved against the client directory
+            var args = List.of("shrink", classes.toString(), "-cp", libs.toString(), "-o", "out1");
+            assertThat(client.run(tempDir, args, new ByteArrayOutputStream(), new ByteArrayOutputStream()))
+                    .hasValue(0);
+            var first = cache.stats();
+            args = List.of("shrink", classes.toString(), "-cp", libs.toString(), "-o", "out2");
+            assertThat(client.run(tempDir, args, new ByteArrayOutputStream(), new ByteArrayOutputStream()))
+                    .hasValue(0);
+            var second = cache.stats();
+
+            assertThat(first.misses()).isPositive();
+            assertThat(first.hits()).isZero();
+            assertThat(second.misses()).isEqualTo(first.misses());
+            assertThat(second.hits()).isEqualTo(first.misses());
+            assertThat(tempDir.resolve("out2")).isDirectoryContaining("glob:**.jar");
+        } finally {
+            server.stop();
+            running.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Command
+    static class Root {}
+
+    @Command
+    static class PathsCommand implements Callable<Integer> {
+
+        @Spec
+        CommandLine.Model.CommandSpec spec;
+
+        @Parameters
+        List<Path> sources = List.of();
+
+        @Option(names = "-cp")
+        List<Path> classpath = List.of();
+
+        @Override
+        public Integer call() {
+            sources.forEach(spec.commandLine().getOut()::println);
+            classpath.forEach(spec.commandLine().getOut()::println);
+            return 0;
+        }
+    }
+}
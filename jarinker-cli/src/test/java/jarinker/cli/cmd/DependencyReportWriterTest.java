@@ -0,0 +1,238 @@
+package jarinker.cli.cmd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jarinker.core.AnalyzerType;
+import jarinker.core.DependencyGraph;
+import jarinker.core.IndexedGraph;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Reports of {@link DependencyReportWriter}, JSON output is parsed back with Jackson.
+ *
+ * @author Freeman
+ */
+class DependencyReportWriterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void jsonEscapesQuotesBackslashesAndControlCharacters() throws IOException {
+        var names = List.of("quote\"d", "back\\slash", "new\nline", "tab\tbed", "bell\u0007", "nul\u0000", "é€");
+        var builder = new IndexedGraph.Builder();
+        int main = builder.node("app", "app.Main");
+        for (var name : names) {
+            builder.edge(main, builder.node("lib \"1\".jar", name));
+        }
+        var graph = graph(builder, AnalyzerType.CLASS);
+
+        var json = MAPPER.readTree(write(graph, AnalyzerType.CLASS, OutputFormat.JSON, false));
+
+        assertThat(json.get("type").asText()).isEqualTo("class");
+        var node = json.get("nodes").get(0);
+        assertThat(node.get("name").asText()).isEqualTo("app.Main");
+        var dependencies = new ArrayList<String>();
+        for (var dependency : node.get("dependencies")) {
+            assertThat(dependency.get("archive").asText()).isEqualTo("lib \"1\".jar");
+            dependencies.add(dependency.get("name").asText());
+        }
+        assertThat(dependencies).containsExactlyInAnyOrderElementsOf(names);
+        assertThat(json.get("summary").get("used").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void ndjsonWritesOneRecordPerLine() throws IOException {
+        var builder = new IndexedGraph.Builder();
+        int main = builder.node("app", "app.Main");
+        int api = builder.node("lib.jar", "lib.Api\nwith a newline");
+        int impl = builder.node("lib.jar", "lib.Impl");
+        builder.node("lib.jar", "lib.Unused");
+        builder.edge(main, api);
+        builder.edge(api, impl);
+        var graph = graph(builder, AnalyzerType.CLASS);
+
+        var lines = write(graph, AnalyzerType.CLASS, OutputFormat.NDJSON, false)
+                .lines()
+                .toList();
+
+        assertThat(lines).hasSize(3);
+        var records = new ArrayList<JsonNode>();
+        for (var line : lines) {
+            records.add(MAPPER.readTree(line));
+        }
+        assertThat(records.subList(0, 2))
+                .allSatisfy(record -> assertThat(record.get("kind").asText()).isEqualTo("node"));
+        assertThat(records.get(1).get("name").asText()).isEqualTo("lib.Api\nwith a newline");
+        var summary = records.get(2);
+        assertThat(summary.get("kind").asText()).isEqualTo("summary");
+        assertThat(summary.get("type").asText()).isEqualTo("class");
+        assertThat(summary.get("total").asInt()).isEqualTo(4);
+        assertThat(summary.get("used").asInt()).isEqualTo(2);
+        assertThat(summary.get("unused").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void jdkDependenciesAreShownOnlyWhenRequested() throws IOException {
+        var graph = jdkGraph();
+
+        var filtered = MAPPER.readTree(write(graph, AnalyzerType.CLASS, OutputFormat.JSON, false));
+        var shown = MAPPER.readTree(write(graph, AnalyzerType.CLASS, OutputFormat.JSON, true));
+
+        assertThat(dependencies(filtered)).containsExactly(Map.entry("app.Main", Set.of("lib.Api")));
+        assertThat(filtered.get("summary").get("used").asInt()).isEqualTo(1);
+        assertThat(dependencies(shown))
+                .containsOnly(
+                        Map.entry("app.Main", Set.of("lib.Api", "java.lang.Object")),
+                        Map.entry("lib.Api", Set.of("java.lang.String", "sun.misc.Unsafe")));
+        assertThat(shown.get("summary").get("used").asInt()).isEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @EnumSource(
+            value = AnalyzerType.class,
+            names = {"CLASS", "PACKAGE"})
+    void textIsTheReportAnalyzeUsedToPrint(AnalyzerType type) throws IOException {
+        var builder = new IndexedGraph.Builder();
+        int main = builder.node("app", type == AnalyzerType.CLASS ? "app.Main" : "app");
+        int helper = builder.node("app", type == AnalyzerType.CLASS ? "app.Helper" : "app.util");
+        int api = builder.node("lib.jar", type == AnalyzerType.CLASS ? "lib.Api" : "lib");
+        int object = builder.node("java.base", type == AnalyzerType.CLASS ? "java.lang.Object" : "java.lang");
+        builder.node("lib.jar", type == AnalyzerType.CLASS ? "lib.Unused" : "lib.unused");
+        builder.edge(main, helper);
+        builder.edge(main, api);
+        builder.edge(main, object);
+        builder.edge(helper, object);
+        builder.edge(helper, helper);
+        builder.edge(api, api);
+        var graph = graph(builder, type);
+
+        for (boolean showJdkDeps : new boolean[] {false, true}) {
+            assertThat(write(graph, type, OutputFormat.TEXT, showJdkDeps))
+                    .isEqualTo(previousText(graph, type, showJdkDeps));
+        }
+
+        var empty = graph(new IndexedGraph.Builder(), type);
+        assertThat(write(empty, type, OutputFormat.TEXT, false)).isEqualTo(previousText(empty, type, false));
+    }
+
+    private static DependencyGraph jdkGraph() {
+        var builder = new IndexedGraph.Builder();
+        int main = builder.node("app", "app.Main");
+        int api = builder.node("lib.jar", "lib.Api");
+        builder.edge(main, api);
+        builder.edge(main, builder.node("java.base", "java.lang.Object"));
+        builder.edge(api, builder.node("java.base", "java.lang.String"));
+        builder.edge(api, builder.node("JDK removed internal API", "sun.misc.Unsafe"));
+        return graph(builder, AnalyzerType.CLASS);
+    }
+
+    private static DependencyGraph graph(IndexedGraph.Builder builder, AnalyzerType type) {
+        return new DependencyGraph(builder.build(), Set.of(), List.of(), type);
+    }
+
+    private static String write(DependencyGraph graph, AnalyzerType type, OutputFormat format, boolean showJdkDeps)
+            throws IOException {
+        var out = new StringWriter();
+        new DependencyReportWriter(new BufferedWriter(out), type, showJdkDeps).write(graph, format);
+        return out.toString();
+    }
+
+    /**
+     * @return dependency names by node name of a JSON report
+     */
+    private static Map<String, Set<String>> dependencies(JsonNode report) {
+        var result = new HashMap<String, Set<String>>();
+        for (var node : report.get("nodes")) {
+            var names = new HashSet<String>();
+            node.get("dependencies")
+                    .forEach(dependency -> names.add(dependency.get("name").asText()));
+            result.put(node.get("name").asText(), names);
+        }
+        return result;
+    }
+
+    /**
+     * The text report as analyze printed it from {@link DependencyGraph#getDependenciesMap()} before the report was
+     * written by walking the indexed graph.
+     */
+    private static String previousText(DependencyGraph graph, AnalyzerType type, boolean showJdkDeps) {
+        var out = new StringBuilder();
+        var title =
+                switch (type) {
+                    case CLASS -> "Class Dependency Analysis";
+                    case PACKAGE -> "Package Dependency Analysis";
+                    case MODULE -> "Module Dependency Analysis";
+                };
+        out.append("╭─").append("─".repeat(title.length())).append("─╮\n");
+        out.append("│ ").append(title).append(" │\n");
+        out.append("╰─").append("─".repeat(title.length())).append("─╯\n\n");
+
+        var dependenciesMap = graph.getDependenciesMap();
+        int usedNodes = 0;
+        if (dependenciesMap.isEmpty()) {
+            out.append("🔍 No dependencies found.\n");
+        } else {
+            out.append("🌳 Dependencies:\n\n");
+            var sources = dependenciesMap.keySet().stream().sorted().toList();
+            for (var source : sources) {
+                var filtered = dependenciesMap.get(source).stream()
+                        .filter(dep -> showJdkDeps || !isJdkDependency(dep))
+                        .filter(dep -> type == AnalyzerType.CLASS
+                                || !afterSlash(source).equals(afterSlash(dep)))
+                        .sorted()
+                        .collect(Collectors.toList());
+                if (filtered.isEmpty()) {
+                    continue;
+                }
+                usedNodes++;
+                out.append("📦 ").append(source).append('\n');
+                for (int i = 0; i < filtered.size(); i++) {
+                    var dep = filtered.get(i);
+                    out.append(i == filtered.size() - 1 ? "   └─ " : "   ├─ ")
+                            .append(dep.substring(dep.lastIndexOf('/') + 1))
+                            .append('\n');
+                }
+                out.append('\n');
+            }
+        }
+        out.append('\n');
+
+        var plural = type == AnalyzerType.CLASS ? "classes" : "packages";
+        int total = graph.getNodeCount();
+        int unused = total - usedNodes;
+        out.append("📊 Statistics:\n");
+        out.append("   • Total ").append(plural).append(": ").append(total).append('\n');
+        out.append(String.format(
+                "   • Used %s: %d (%.2f%%)\n", plural, usedNodes, total > 0 ? (double) usedNodes / total * 100 : 0.0));
+        out.append(String.format(
+                "   • Unused %s: %d (%.2f%%)\n", plural, unused, total > 0 ? (double) unused / total * 100 : 0.0));
+        return out.toString().replace("\n", System.lineSeparator());
+    }
+
+    private static String afterSlash(String label) {
+        return label.substring(label.indexOf('/') + 1);
+    }
+
+    private static boolean isJdkDependency(String dependency) {
+        return dependency.startsWith("java.")
+                || dependency.startsWith("javax.")
+                || dependency.startsWith("jdk.")
+                || dependency.startsWith("sun.")
+                || dependency.startsWith("com.sun.")
+                || dependency.contains("JDK removed internal API");
+    }
+}
@@ -0,0 +1,174 @@
+package jarinker.cli.daemon;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import jarinker.cli.daemon.DaemonProtocol.RequestType;
+import jarinker.core.InMemoryAnalysisCache;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Round trips between {@link DaemonClient} and an in-process {@link DaemonServer}.
+ *
+ * @author Freeman
+ */
+class DaemonServerTest {
+
+    private static final String VERSION = "1.0.0";
+
+    @TempDir
+    Path tempDir;
+
+    private DaemonServer server;
+    private CompletableFuture<Void> running;
+
+    @AfterEach
+    void stopServer() throws Exception {
+        if (server != null) {
+            server.stop();
+            running.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void relaysOutputAndExitCode() throws Exception {
+        var socket = start(Duration.ofMinutes(1), (cwd, args, out, err) -> {
+            out.println("cwd=" + cwd);
+            out.println("args=" + String.join(" ", args));
+            err.println("warning");
+            return 3;
+        });
+
+        var out = new ByteArrayOutputStream();
+        var err = new ByteArrayOutputStream();
+        var exitCode =
+                new DaemonClient(socket, VERSION).run(tempDir, List.of("analyze", "a b", "-cp", "lib"), out, err);
+
+        assertThat(exitCode).hasValue(3);
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("cwd=" + tempDir.toAbsolutePath() + System.lineSeparator() + "args=analyze a b -cp lib"
+                        + System.lineSeparator());
+        assertThat(err.toString(StandardCharsets.UTF_8)).isEqualTo("warning" + System.lineSeparator());
+    }
+
+    @Test
+    void failedRequestDoesNotStopDaemon() throws Exception {
+        var socket = start(Duration.ofMinutes(1), (cwd, args, out, err) -> {
+            throw new IllegalStateException("boom");
+        });
+        var client = new DaemonClient(socket, VERSION);
+
+        var err = new ByteArrayOutputStream();
+        assertThat(client.run(tempDir, List.of("shrink"), new ByteArrayOutputStream(), err))
+                .hasValue(1);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("boom");
+
+        assertThat(client.control(RequestType.STATUS, new ByteArrayOutputStream(), new ByteArrayOutputStream()))
+                .hasValue(0);
+    }
+
+    @Test
+    void rejectsOtherVersionsAndCommands() throws Exception {
+        var socket = start(Duration.ofMinutes(1), (cwd, args, out, err) -> 0);
+
+        assertThat(new DaemonClient(socket, "0.9.0")
+                        .run(tempDir, List.of("analyze"), new ByteArrayOutputStream(), new ByteArrayOutputStream()))
+                .isEmpty();
+        assertThat(new DaemonClient(socket, VERSION)
+                        .run(tempDir, List.of("daemon"), new ByteArrayOutputStream(), new ByteArrayOutputStream()))
+                .isEmpty();
+    }
+
+    @Test
+    void reportsStatusAndStops() throws Exception {
+        var socket = start(Duration.ofMinutes(1), (cwd, args, out, err) -> 0);
+        var client = new DaemonClient(socket, VERSION);
+        client.run(tempDir, List.of("batch"), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+
+        var status = new ByteArrayOutputStream();
+        assertThat(client.control(RequestType.STATUS, status, status)).hasValue(0);
+        assertThat(status.toString(StandardCharsets.UTF_8))
+                .contains("version:         " + VERSION)
+                .contains("requests:        1 (0 active)");
+
+        assertThat(client.control(RequestType.STOP, new ByteArrayOutputStream(), new ByteArrayOutputStream()))
+                .hasValue(0);
+        running.get(10, TimeUnit.SECONDS);
+        assertThat(socket).doesNotExist();
+        assertThat(client.control(RequestType.STATUS, new ByteArrayOutputStream(), new ByteArrayOutputStream()))
+                .isEmpty();
+    }
+
+    @Test
+    void stopsWhenIdle() throws Exception {
+        var socket = start(Duration.ofMillis(200), (cwd, args, out, err) -> 0);
+
+        running.get(10, TimeUnit.SECONDS);
+
+        assertThat(socket).doesNotExist();
+    }
+
+    @Test
+    void createsPrivateSocketDirectory() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+
+        var socket = start(Duration.ofMinutes(1), (cwd, args, out, err) -> 0);
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(socket.getParent())))
+                .isEqualTo("rwx------");
+    }
+
+    @Test
+    void refusesSharedSocketDirectory() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        var directory = Files.createDirectory(tempDir.resolve("shared"));
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+        var socket = directory.resolve("daemon.sock");
+
+        var shared = new DaemonServer(
+                socket, Duration.ofMinutes(1), VERSION, new InMemoryAnalysisCache(0), (cwd, args, out, err) -> 0);
+        assertThatThrownBy(shared::run)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("accessible by other users");
+
+        // A socket planted by another user must not receive the command
+        Files.createFile(socket);
+        var err = new ByteArrayOutputStream();
+        assertThat(new DaemonClient(socket, VERSION).run(tempDir, List.of("analyze"), new ByteArrayOutputStream(), err))
+                .isEmpty();
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("Not using the jarinker daemon");
+    }
+
+    private Path start(Duration idleTimeout, DaemonServer.CommandRunner runner) throws InterruptedException {
+        var socket = tempDir.resolve("run").resolve("daemon.sock");
+        server = new DaemonServer(socket, idleTimeout, VERSION, new InMemoryAnalysisCache(1024 * 1024), runner);
+        running = CompletableFuture.runAsync(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!Files.exists(socket) && !running.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(socket).exists();
+        return socket;
+    }
+}
@@ -0,0 +1,120 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Objects;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Persistent cache of {@link ArchiveDependencies}, one file per archive.
+ *
+ * <p> Entries are keyed by the SHA-256 of the JAR content together with the tool version, the multi-release version
+ * and the scanner, so a changed jar or a new jarinker release never reuses stale data. Entries are written to a
+ * temporary file and atomically moved into place, concurrent processes may share a directory. Reading an entry
+ * refreshes its modification time, {@link #evict()} removes the least recently used entries once the directory grows
+ * beyond the size limit, and temporary files of writes that never completed.
+ *
+ * <p> Unreadable or corrupted entries are treated as misses and rewritten.
+ *
+ * @author Freeman
+ */
+public final class AnalysisCache {
+
+    private static final String SUFFIX = ".jkdc";
+
+    private final Path directory;
+    private final long maxSize;
+    private final String toolVersion;
+
+    /**
+     * @param directory   cache directory, created if absent
+     * @param maxSize     maximum total size of the cache entries in bytes
+     * @param toolVersion jarinker version, part of every key
+     */
+    public AnalysisCache(Path directory, long maxSize, String toolVersion) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxSize);
+        }
+        this.directory = directory.toAbsolutePath();
+        this.maxSize = maxSize;
+        this.toolVersion = toolVersion;
+    }
+
+    /**
+     * Get the dependencies of a JAR from the cache, scanning and storing them on a miss.
+     *
+     * @param archive             archive of the JAR
+     * @param jar                 JAR file
+     * @param multiReleaseVersion multi-release version the archive is read with
+     * @param scanner             scanner used on a miss
+     * @return dependencies of the JAR
+     */
+    ArchiveDependencies get(Archive archive, Path jar, Runtime.Version multiReleaseVersion, ArchiveScanner scanner)
+            throws IOException {
+        var entry = entryPath(key(jar, multiReleaseVersion, scanner));
+
+        var cached = read(entry);
+        if (cached != null) {
+            return cached;
+        }
+
+        var deps = scanner.scan(archive);
+        write(entry, deps);
+        return deps;
+    }
+
+    /**
+     * Remove least recently used entries until the cache fits into its size limit.
+     */
+    public void evict() throws IOException {
+        CacheFiles.evict(directory, SUFFIX, maxSize);
+    }
+
+    private @Nullable ArchiveDependencies read(Path entry) {
+        try (var in = new BufferedInputStream(Files.newInputStream(entry))) {
+            var deps = ArchiveDependencies.readFrom(in);
+            CacheFiles.touch(entry);
+            return deps;
+        } catch (IOException | RuntimeException e) {
+            // Missing, corrupted or concurrently evicted, scan again
+            return null;
+        }
+    }
+
+    private void write(Path entry, ArchiveDependencies deps) throws IOException {
+        var parent = Objects.requireNonNull(entry.getParent());
+        Files.createDirectories(parent);
+        var temp = Files.createTempFile(parent, String.valueOf(entry.getFileName()), ".tmp");
+        try {
+            try (var out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                deps.writeTo(out);
+            }
+            CacheFiles.moveReplacing(temp, entry);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private String key(Path jar, Runtime.Version multiReleaseVersion, ArchiveScanner scanner) throws IOException {
+        var digest = CacheFiles.sha256();
+        CacheFiles.digest(digest, jar);
+        var salt = String.join(
+                "\0",
+                toolVersion,
+                String.valueOf(multiReleaseVersion.feature()),
+                scanner.id(),
+                String.valueOf(ArchiveDependencies.FORMAT_VERSION));
+        digest.update(salt.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Path entryPath(String key) {
+        return CacheFiles.entryPath(directory, key, SUFFIX);
+    }
+}
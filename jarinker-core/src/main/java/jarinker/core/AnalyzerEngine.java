@@ -0,0 +1,25 @@
+package jarinker.core;
+
+/**
+ * Engine that extracts class dependencies from archives.
+ *
+ * @author Freeman
+ */
+public enum AnalyzerEngine {
+    /**
+     * jdeps {@code DepsAnalyzer}, the reference implementation.
+     */
+    JDEPS,
+    /**
+     * Reads the constant pool, descriptors and signatures of class files directly, archives are scanned in parallel.
+     * Produces the same graph as {@link #JDEPS}.
+     */
+    CLASSFILE;
+
+    ArchiveScanner scanner(Runtime.Version version) {
+        return switch (this) {
+            case JDEPS -> new JdepsArchiveScanner();
+            case CLASSFILE -> new ClassFileScanner(version);
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Application class-data sharing (AppCDS) for the classes reachable in a {@link DependencyGraph}.
+ *
+ * <p> {@link #classList(DependencyGraph)} turns the reachable set of a class-level analysis into a
+ * {@code -XX:SharedClassListFile} class list, {@link #dumpArchive(Path, List, Path, Path)} runs a JDK to dump the
+ * shared archive for it. The application then starts with {@code -XX:SharedArchiveFile} and the same classpath, or one
+ * that starts with it.
+ *
+ * <p> CDS only archives classes loaded from jars, classes of directories are left out of the list and directories must
+ * not be on the dump classpath.
+ *
+ * @author Freeman
+ */
+public final class AppCds {
+
+    private AppCds() {}
+
+    /**
+     * Build the class list of the reachable classes, ordered by dependency depth from the roots so the classes needed
+     * first come first. A class present in several archives is listed once.
+     *
+     * @param graph class-level dependency graph
+     * @return internal class names, e.g. {@code com/example/Foo}
+     * @throws IllegalArgumentException if the graph is not a class-level graph
+     */
+    public static List<String> classList(DependencyGraph graph) {
+        if (graph.getAnalysisType() != AnalyzerType.CLASS) {
+            throw new IllegalArgumentException(
+                    "A class list needs a class-level analysis, got " + graph.getAnalysisType());
+        }
+        var directories = graph.getArchives().stream()
+                .filter(archive -> archive.path().map(Files::isDirectory).orElse(false))
+                .map(Archive::getName)
+                .collect(Collectors.toSet());
+
+        var indexedGraph = graph.getIndexedGraph();
+        var listed = new BitSet(indexedGraph.nameCount());
+        var result = new ArrayList<String>();
+        for (int node : indexedGraph.breadthFirstOrder(graph.getRootNodes())) {
+            if (directories.contains(indexedGraph.archive(node)) || listed.get(indexedGraph.nameId(node))) {
+                continue;
+            }
+            listed.set(indexedGraph.nameId(node));
+            result.add(ReachableClasses.className(indexedGraph.name(node)).replace('.', '/'));
+        }
+        return result;
+    }
+
+    /**
+     * Write a class list, one internal class name per line.
+     *
+     * @param classes internal class names
+     * @param file    class list file
+     */
+    public static void writeClassList(List<String> classes, Path file) throws IOException {
+        var parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(file, classes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Dump a shared archive with a JDK, {@code java -Xshare:dump}.
+     *
+     * <p> The archive is only usable by the same JDK build, pass the java launcher the application runs with.
+     *
+     * @param java      java launcher
+     * @param classpath jars of the application, in classpath order, directories are not allowed
+     * @param classList class list from {@link #writeClassList(List, Path)}
+     * @param archive   archive file to write
+     * @return output of the dump
+     * @throws IllegalArgumentException if the classpath contains a directory
+     * @throws IllegalStateException    if the dump fails
+     */
+    public static String dumpArchive(Path java, List<Path> classpath, Path classList, Path archive)
+            throws IOException, InterruptedException {
+        var seen = new HashSet<Path>();
+        var entries = new ArrayList<String>(classpath.size());
+        for (var path : classpath) {
+            if (Files.isDirectory(path)) {
+                throw new IllegalArgumentException("CDS can not archive classes of a directory: " + path);
+            }
+            if (seen.add(path.toAbsolutePath())) {
+                entries.add(path.toAbsolutePath().toString());
+            }
+        }
+        var parent = archive.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        var command = new ArrayList<String>();
+        command.add(java.toString());
+        command.add("-Xshare:dump");
+        command.add("-XX:SharedClassListFile=" + classList.toAbsolutePath());
+        command.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+        if (!entries.isEmpty()) {
+            command.add("-cp");
+            command.add(String.join(File.pathSeparator, entries));
+        }
+
+        var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("CDS dump failed with exit code " + exitCode + ":\n" + output);
+        }
+        return output;
+    }
+}
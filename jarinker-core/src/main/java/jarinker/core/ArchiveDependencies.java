@@ -0,0 +1,346 @@
+package jarinker.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Class-level dependency edges of a single archive, independent of any classpath.
+ *
+ * <p> Symbols are binary class names ({@code com.example.Foo$Bar}). The first {@link #classCount()} symbols are the
+ * classes defined in the archive, the remaining symbols are referenced classes defined elsewhere. Edges are stored
+ * in CSR form, indexed by defined class.
+ *
+ * <p> A class of a multi-release jar read from a versioned entry records the version of that entry, jdeps names its
+ * node {@code <version>/<class name>}.
+ *
+ * @author Freeman
+ */
+final class ArchiveDependencies {
+
+    private static final int MAGIC = 0x4A4B4443; // "JKDC"
+    static final int FORMAT_VERSION = 2;
+
+    private final String[] symbols;
+    private final int classCount;
+    private final int[] offsets;
+    private final int[] targets;
+    /**
+     * Version of the entry each defined class was read from, 0 for a base entry.
+     */
+    private final int[] versions;
+
+    private ArchiveDependencies(String[] symbols, int classCount, int[] offsets, int[] targets, int[] versions) {
+        this.symbols = symbols;
+        this.classCount = classCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.versions = versions;
+    }
+
+    /**
+     * @return number of classes defined in the archive
+     */
+    int classCount() {
+        return classCount;
+    }
+
+    /**
+     * @return names of the classes defined in the archive
+     */
+    List<String> classes() {
+        return Arrays.asList(symbols).subList(0, classCount);
+    }
+
+    int symbolCount() {
+        return symbols.length;
+    }
+
+    int edgeCount() {
+        return targets.length;
+    }
+
+    String symbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * @param className binary class name
+     * @return index of the class if it is defined in the archive, otherwise a negative value
+     */
+    int indexOf(String className) {
+        return Arrays.binarySearch(symbols, 0, classCount, className);
+    }
+
+    /**
+     * @param clazz index of a defined class, in {@code [0, classCount())}
+     * @return number of classes it depends on
+     */
+    int dependencyCount(int clazz) {
+        return offsets[clazz + 1] - offsets[clazz];
+    }
+
+    /**
+     * @param clazz index of a defined class
+     * @param index index of the dependency, in {@code [0, dependencyCount(clazz))}
+     * @return symbol index of the dependency
+     */
+    int dependency(int clazz, int index) {
+        return targets[offsets[clazz] + index];
+    }
+
+    /**
+     * @param clazz index of a defined class
+     * @return version of the multi-release entry the class was read from, 0 if it was read from a base entry
+     */
+    int version(int clazz) {
+        return versions[clazz];
+    }
+
+    /**
+     * Approximate heap footprint, used to budget in-memory copies.
+     *
+     * @return estimated size in bytes
+     */
+    long estimatedSize() {
+        long size = 64L + 4L * (offsets.length + targets.length + versions.length);
+        for (var symbol : symbols) {
+            size += 48L + symbol.length();
+        }
+        return size;
+    }
+
+    /**
+     * Write in the compact binary format: symbols are front-coded against the previous symbol,
+     * edges are delta-encoded varints, and a CRC-32 trailer guards against truncated files.
+     *
+     * @param out target stream, not closed
+     */
+    void writeTo(OutputStream out) throws IOException {
+        var checked = new CheckedOutputStream(out, new CRC32());
+        var data = new DataOutputStream(checked);
+        data.writeInt(MAGIC);
+        data.writeByte(FORMAT_VERSION);
+        writeVarInt(data, symbols.length);
+        writeVarInt(data, classCount);
+
+        byte[] previous = new byte[0];
+        for (var symbol : symbols) {
+            var bytes = symbol.getBytes(StandardCharsets.UTF_8);
+            int common = 0;
+            int max = Math.min(previous.length, bytes.length);
+            while (common < max && previous[common] == bytes[common]) {
+                common++;
+            }
+            writeVarInt(data, common);
+            writeVarInt(data, bytes.length - common);
+            data.write(bytes, common, bytes.length - common);
+            previous = bytes;
+        }
+
+        for (int c = 0; c < classCount; c++) {
+            writeVarInt(data, dependencyCount(c));
+            int last = 0;
+            for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+                writeVarInt(data, targets[e] - last);
+                last = targets[e];
+            }
+        }
+        for (int c = 0; c < classCount; c++) {
+            writeVarInt(data, versions[c]);
+        }
+        data.flush();
+        data.writeInt((int) checked.getChecksum().getValue());
+        data.flush();
+    }
+
+    /**
+     * Read data written by {@link #writeTo(OutputStream)}.
+     *
+     * @param in source stream, not closed
+     * @return archive dependencies
+     * @throws IOException if the data is truncated, corrupted or of another format version
+     */
+    static ArchiveDependencies readFrom(InputStream in) throws IOException {
+        var checked = new CheckedInputStream(in, new CRC32());
+        var data = new DataInputStream(checked);
+        if (data.readInt() != MAGIC || data.readUnsignedByte() != FORMAT_VERSION) {
+            throw new IOException("Unsupported archive dependencies format");
+        }
+        int symbolCount = readVarInt(data);
+        int classCount = readVarInt(data);
+        if (classCount > symbolCount) {
+            throw new IOException("Corrupted archive dependencies");
+        }
+
+        var symbols = new String[symbolCount];
+        byte[] previous = new byte[0];
+        for (int i = 0; i < symbolCount; i++) {
+            int common = readVarInt(data);
+            int suffix = readVarInt(data);
+            if (common > previous.length) {
+                throw new IOException("Corrupted archive dependencies");
+            }
+            var bytes = Arrays.copyOf(previous, common + suffix);
+            data.readFully(bytes, common, suffix);
+            symbols[i] = new String(bytes, StandardCharsets.UTF_8);
+            previous = bytes;
+        }
+
+        var offsets = new int[classCount + 1];
+        var targets = new int[Math.max(16, classCount * 4)];
+        int edgeCount = 0;
+        for (int c = 0; c < classCount; c++) {
+            int degree = readVarInt(data);
+            if (edgeCount + degree > targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(edgeCount + degree, targets.length * 2));
+            }
+            int last = 0;
+            for (int i = 0; i < degree; i++) {
+                last += readVarInt(data);
+                if (last >= symbolCount) {
+                    throw new IOException("Corrupted archive dependencies");
+                }
+                targets[edgeCount++] = last;
+            }
+            offsets[c + 1] = edgeCount;
+        }
+        var versions = new int[classCount];
+        for (int c = 0; c < classCount; c++) {
+            versions[c] = readVarInt(data);
+        }
+
+        int expected = (int) checked.getChecksum().getValue();
+        if (data.readInt() != expected) {
+            throw new IOException("Archive dependencies checksum mismatch");
+        }
+        return new ArchiveDependencies(symbols, classCount, offsets, Arrays.copyOf(targets, edgeCount), versions);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Collects classes and their dependencies while an archive is scanned.
+     *
+     * <p> Not thread-safe.
+     */
+    static final class Builder {
+
+        private final Map<String, Set<String>> dependencies = new HashMap<>();
+        private final Map<String, Integer> versions = new HashMap<>();
+
+        /**
+         * Record a class defined in the archive.
+         *
+         * @param className binary class name
+         */
+        Builder addClass(String className) {
+            return addClass(className, 0);
+        }
+
+        /**
+         * Record a class defined in the archive, read from a multi-release entry.
+         *
+         * @param className binary class name
+         * @param version   version of the entry, 0 for a base entry
+         */
+        Builder addClass(String className, int version) {
+            dependencies.computeIfAbsent(className, k -> new LinkedHashSet<>());
+            if (version > 0) {
+                versions.put(className, version);
+            }
+            return this;
+        }
+
+        /**
+         * Record a dependency of a class defined in the archive, self references are ignored.
+         *
+         * @param origin binary name of the defined class
+         * @param target binary name of the referenced class
+         */
+        Builder addDependency(String origin, String target) {
+            var targets = dependencies.computeIfAbsent(origin, k -> new LinkedHashSet<>());
+            if (!origin.equals(target)) {
+                targets.add(target);
+            }
+            return this;
+        }
+
+        ArchiveDependencies build() {
+            // Defined classes first, then referenced classes, each sorted so that front coding works well
+            var defined = new TreeSet<>(dependencies.keySet());
+            var referenced = new TreeSet<String>();
+            for (var targets : dependencies.values()) {
+                for (var target : targets) {
+                    if (!dependencies.containsKey(target)) {
+                        referenced.add(target);
+                    }
+                }
+            }
+
+            var symbols = new ArrayList<String>(defined.size() + referenced.size());
+            symbols.addAll(defined);
+            symbols.addAll(referenced);
+            var index = new HashMap<String, Integer>(symbols.size() * 2);
+            for (int i = 0; i < symbols.size(); i++) {
+                index.put(symbols.get(i), i);
+            }
+
+            var offsets = new int[defined.size() + 1];
+            var classVersions = new int[defined.size()];
+            var targets =
+                    new int[dependencies.values().stream().mapToInt(Set::size).sum()];
+            int c = 0;
+            int edgeCount = 0;
+            for (var className : defined) {
+                int start = edgeCount;
+                for (var target : dependencies.getOrDefault(className, Set.of())) {
+                    targets[edgeCount++] = Objects.requireNonNull(index.get(target));
+                }
+                Arrays.sort(targets, start, edgeCount);
+                classVersions[c] = versions.getOrDefault(className, 0);
+                offsets[++c] = edgeCount;
+            }
+
+            return new ArchiveDependencies(
+                    symbols.toArray(String[]::new), defined.size(), offsets, targets, classVersions);
+        }
+    }
+}
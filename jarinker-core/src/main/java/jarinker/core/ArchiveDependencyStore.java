@@ -0,0 +1,146 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Dependencies of the archives of one analysis, kept in memory up to a budget and spilled to temporary files beyond
+ * it.
+ *
+ * <p> Memory is bounded by {@link ArchiveDependencies#estimatedSize()}, the least recently used archives are written
+ * to a temporary directory in the {@link ArchiveDependencies#writeTo compact format} and read back when they are
+ * needed again. The archive in use is always kept, so the budget is exceeded by at most one archive. A spilled archive
+ * is written once, its file is reused when it is evicted again.
+ *
+ * <p> The store is thread-safe. The temporary directory is deleted on {@link #close()}.
+ *
+ * @author Freeman
+ */
+final class ArchiveDependencyStore implements Closeable {
+
+    private final long maxSize;
+    private final LinkedHashMap<Archive, ArchiveDependencies> inMemory = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Archive, Path> spilled = new HashMap<>();
+    private @Nullable Path directory;
+    private long size;
+    private long bytesSpilled;
+    private long bytesReloaded;
+
+    /**
+     * @param maxSize maximum estimated size of the dependencies kept in memory, in bytes
+     */
+    ArchiveDependencyStore(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    synchronized boolean contains(Archive archive) {
+        return inMemory.containsKey(archive) || spilled.containsKey(archive);
+    }
+
+    /**
+     * Add the dependencies of an archive, evicting others beyond the budget.
+     */
+    synchronized void put(Archive archive, ArchiveDependencies deps) throws IOException {
+        var previous = inMemory.put(archive, deps);
+        if (previous != null) {
+            size -= previous.estimatedSize();
+        }
+        size += deps.estimatedSize();
+        evict(archive);
+    }
+
+    /**
+     * Get the dependencies of an archive, reading them back if they were spilled.
+     *
+     * @return dependencies, null if the archive was never added
+     */
+    synchronized @Nullable ArchiveDependencies get(Archive archive) throws IOException {
+        var deps = inMemory.get(archive);
+        if (deps != null) {
+            return deps;
+        }
+        var file = spilled.get(archive);
+        if (file == null) {
+            return null;
+        }
+        try (var in = new BufferedInputStream(Files.newInputStream(file))) {
+            deps = ArchiveDependencies.readFrom(in);
+        }
+        bytesReloaded += Files.size(file);
+        inMemory.put(archive, deps);
+        size += deps.estimatedSize();
+        evict(archive);
+        return deps;
+    }
+
+    /**
+     * @return bytes written to spill files
+     */
+    synchronized long bytesSpilled() {
+        return bytesSpilled;
+    }
+
+    /**
+     * @return bytes read back from spill files
+     */
+    synchronized long bytesReloaded() {
+        return bytesReloaded;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        inMemory.clear();
+        spilled.clear();
+        var dir = directory;
+        directory = null;
+        if (dir != null) {
+            try (var files = Files.list(dir)) {
+                for (var file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private void evict(Archive keep) throws IOException {
+        var iterator = inMemory.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            var entry = iterator.next();
+            if (entry.getKey() == keep) {
+                continue;
+            }
+            if (!spilled.containsKey(entry.getKey())) {
+                spilled.put(entry.getKey(), spill(entry.getValue()));
+            }
+            size -= entry.getValue().estimatedSize();
+            iterator.remove();
+        }
+    }
+
+    private Path spill(ArchiveDependencies deps) throws IOException {
+        var dir = directory;
+        if (dir == null) {
+            dir = Files.createTempDirectory("jarinker-spill-");
+            directory = dir;
+        }
+        var file = Files.createTempFile(dir, "archive-", ".jkdc");
+        try (var out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            deps.writeTo(out);
+        }
+        bytesSpilled += Files.size(file);
+        return file;
+    }
+}
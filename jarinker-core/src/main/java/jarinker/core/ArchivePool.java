@@ -0,0 +1,264 @@
+package jarinker.core;
+
+import com.sun.tools.classfile.ClassFile;
+import com.sun.tools.jdeps.Archive;
+import com.sun.tools.jdeps.ClassFileReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Bounds the number of jars jdeps keeps open.
+ *
+ * <p> A jdeps {@link Archive} opens its jar when it is created and keeps it open until the configuration is closed, one
+ * file descriptor per jar on the classpath. Archives created by {@link #archive(Path)} open their jar on demand
+ * instead, at most {@code maxOpen} jars stay open and the least recently used one is closed first. A jar that is being
+ * read, e.g. while its class files are iterated, is pinned and never closed, the limit is exceeded rather than waiting.
+ *
+ * <p> The entry list of a jar is read once, with a jar that is closed right away, and kept by the archive.
+ *
+ * <p> The archives are not part of a {@link com.sun.tools.jdeps.JdepsConfiguration}, which opens its classpath jars
+ * itself, only the {@link GraphAssembler} reads them. Closing the pool closes every jar still open, the archives can
+ * not be read afterwards.
+ *
+ * @author Freeman
+ */
+final class ArchivePool implements Closeable {
+
+    private final int maxOpen;
+    private final Runtime.Version version;
+    private final LinkedHashMap<Path, Slot> open = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Archive> others = new ArrayList<>();
+    private long opened;
+    private boolean closed;
+
+    /**
+     * @param maxOpen maximum number of jars kept open, at least 1
+     * @param version version multi-release jars are read with
+     */
+    ArchivePool(int maxOpen, Runtime.Version version) {
+        if (maxOpen < 1) {
+            throw new IllegalArgumentException("Maximum number of open archives must be at least 1: " + maxOpen);
+        }
+        this.maxOpen = maxOpen;
+        this.version = version;
+    }
+
+    /**
+     * Create an archive of a jar whose file is opened through this pool.
+     *
+     * @param jar jar file
+     * @return archive
+     */
+    Archive archive(Path jar) {
+        return new PooledArchive(jar, new Reader(jar));
+    }
+
+    /**
+     * Create the archives of a classpath the way {@link com.sun.tools.jdeps.JdepsConfiguration} does, missing entries
+     * are skipped. Jars are opened through this pool, other entries such as class directories the way jdeps opens them,
+     * they are closed with the pool.
+     *
+     * @param classpath classpath entries, in classpath order
+     * @return archives, in classpath order
+     */
+    List<Archive> archives(List<Path> classpath) {
+        var archives = new ArrayList<Archive>(classpath.size());
+        for (var entry : classpath) {
+            var path = entry.toAbsolutePath();
+            if (!Files.exists(path)) {
+                continue;
+            }
+            if (Files.isRegularFile(path) && String.valueOf(path.getFileName()).endsWith(".jar")) {
+                archives.add(archive(path));
+            } else {
+                var archive = Archive.getInstance(path, version);
+                synchronized (this) {
+                    others.add(archive);
+                }
+                archives.add(archive);
+            }
+        }
+        return archives;
+    }
+
+    /**
+     * @return number of times a jar was opened, more than the number of jars if jars were closed and reopened
+     */
+    synchronized long opened() {
+        return opened;
+    }
+
+    /**
+     * Close the jars that are still open.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        for (var iterator = open.values().iterator(); iterator.hasNext(); ) {
+            var slot = iterator.next();
+            iterator.remove();
+            slot.reader.close();
+        }
+        for (var archive : others) {
+            archive.close();
+        }
+        others.clear();
+    }
+
+    private synchronized ClassFileReader acquire(Path jar) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Archive pool is closed, can not read " + jar);
+        }
+        var slot = open.get(jar);
+        if (slot == null) {
+            slot = new Slot(ClassFileReader.newInstance(jar, version));
+            open.put(jar, slot);
+            opened++;
+        }
+        slot.pins++;
+        evict();
+        return slot.reader;
+    }
+
+    private synchronized void release(Path jar) throws IOException {
+        var slot = open.get(jar);
+        if (slot != null) {
+            slot.pins--;
+        }
+        evict();
+    }
+
+    private synchronized void close(Path jar) throws IOException {
+        var slot = open.remove(jar);
+        if (slot != null) {
+            slot.reader.close();
+        }
+    }
+
+    private void evict() throws IOException {
+        var iterator = open.values().iterator();
+        while (open.size() > maxOpen && iterator.hasNext()) {
+            var slot = iterator.next();
+            if (slot.pins == 0) {
+                iterator.remove();
+                slot.reader.close();
+            }
+        }
+    }
+
+    private static final class Slot {
+        private final ClassFileReader reader;
+        private int pins;
+
+        private Slot(ClassFileReader reader) {
+            this.reader = reader;
+        }
+    }
+
+    private static final class PooledArchive extends Archive {
+        private PooledArchive(Path jar, ClassFileReader reader) {
+            super(jar, reader);
+        }
+    }
+
+    /**
+     * Reads a jar through the pool, each call opens the jar if it is not open and pins it while it is read.
+     */
+    private final class Reader extends ClassFileReader {
+
+        private Reader(Path jar) {
+            super(jar);
+        }
+
+        @Override
+        protected Set<String> scan() {
+            try (var jarFile = new JarFile(path.toFile(), false, ZipFile.OPEN_READ, version)) {
+                return jarFile.versionedStream()
+                        .map(JarEntry::getName)
+                        .filter(name -> name.endsWith(".class"))
+                        .collect(Collectors.toSet());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public @Nullable ClassFile getClassFile(String name) throws IOException {
+            var reader = acquire(path);
+            try {
+                return reader.getClassFile(name);
+            } finally {
+                release(path);
+            }
+        }
+
+        @Override
+        public Iterable<ClassFile> getClassFiles() {
+            return () -> new PinnedIterator(path);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ArchivePool.this.close(path);
+        }
+    }
+
+    /**
+     * Iterates the class files of a jar, the jar is pinned from the first call until the iteration is exhausted.
+     */
+    private final class PinnedIterator implements Iterator<ClassFile> {
+
+        private final Path jar;
+        private @Nullable Iterator<ClassFile> delegate;
+        private boolean done;
+
+        private PinnedIterator(Path jar) {
+            this.jar = jar;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (done) {
+                return false;
+            }
+            try {
+                var iterator = delegate;
+                if (iterator == null) {
+                    iterator = acquire(jar).getClassFiles().iterator();
+                    delegate = iterator;
+                }
+                if (iterator.hasNext()) {
+                    return true;
+                }
+                done = true;
+                release(jar);
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public ClassFile next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return Objects.requireNonNull(delegate).next();
+        }
+    }
+}
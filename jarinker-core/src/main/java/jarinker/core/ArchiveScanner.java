@@ -0,0 +1,29 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.IOException;
+
+/**
+ * Extracts the class-level dependency edges of a single archive.
+ *
+ * <p> Implementations must be thread-safe, archives may be scanned concurrently.
+ *
+ * @author Freeman
+ */
+interface ArchiveScanner {
+
+    /**
+     * Identifies the scanner in cache keys, results of different scanners are never mixed.
+     *
+     * @return scanner id
+     */
+    String id();
+
+    /**
+     * Scan all classes of an archive.
+     *
+     * @param archive archive to scan
+     * @return class-level dependencies of the archive
+     */
+    ArchiveDependencies scan(Archive archive) throws IOException;
+}
@@ -0,0 +1,163 @@
+package jarinker.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * File helpers shared by the on-disk caches, {@link AnalysisCache} and {@link OutputStore}, and by {@link JarShrinker}.
+ *
+ * <p> Cache entries live two levels deep ({@code <dir>/<first two key chars>/<key><suffix>}), their modification time
+ * is the last use. Entries are written to {@code .tmp} files next to them first, a process killed while writing leaves
+ * its temporary file behind until the next eviction.
+ *
+ * @author Freeman
+ */
+final class CacheFiles {
+
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * Age after which a temporary file is no longer being written by any process.
+     */
+    private static final Duration STALE_TEMP_AGE = Duration.ofHours(1);
+
+    private CacheFiles() {}
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Feed the content of a file into a digest.
+     */
+    static void digest(MessageDigest digest, Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+    }
+
+    static Path entryPath(Path directory, String key, String suffix) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + suffix);
+    }
+
+    /**
+     * Mark an entry as used.
+     */
+    static void touch(Path entry) throws IOException {
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    /**
+     * Move a file into place, atomically where the file system supports it.
+     */
+    static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Copy a file with {@link FileChannel#transferTo}, the kernel moves the bytes where it can.
+     *
+     * @return bytes copied
+     */
+    static long copy(Path source, Path target) throws IOException {
+        try (var in = FileChannel.open(source, StandardOpenOption.READ);
+                var out = FileChannel.open(
+                        target,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Remove least recently used entries until the directory fits into its size limit, and temporary files left by
+     * interrupted writes.
+     *
+     * @param directory cache directory
+     * @param suffix    file name suffix of the entries
+     * @param maxSize   maximum total size of the entries in bytes
+     */
+    static void evict(Path directory, String suffix, long maxSize) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        var entries = new ArrayList<CachedFile>();
+        long total = 0;
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_AGE.toMillis();
+        try (var stream = Files.walk(directory, 2)) {
+            for (var path : (Iterable<Path>) stream::iterator) {
+                var fileName = String.valueOf(path.getFileName());
+                boolean temp = fileName.endsWith(TEMP_SUFFIX);
+                if (!temp && !fileName.endsWith(suffix)) {
+                    continue;
+                }
+                try {
+                    var attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (!attrs.isRegularFile()) {
+                        continue;
+                    }
+                    if (temp) {
+                        if (attrs.lastModifiedTime().toMillis() < staleBefore) {
+                            Files.deleteIfExists(path);
+                        }
+                        continue;
+                    }
+                    entries.add(new CachedFile(path, attrs.size(), attrs.lastModifiedTime()));
+                    total += attrs.size();
+                } catch (NoSuchFileException e) {
+                    // Evicted by another process
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (total <= maxSize) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(CachedFile::lastModified));
+        for (var entry : entries) {
+            if (total <= maxSize) {
+                break;
+            }
+            Files.deleteIfExists(entry.path());
+            total -= entry.size();
+        }
+    }
+
+    private record CachedFile(Path path, long size, FileTime lastModified) {}
+}
@@ -0,0 +1,303 @@
+package jarinker.core;
+
+import static jarinker.core.ConstantPool.CONSTANT_CLASS;
+import static jarinker.core.ConstantPool.CONSTANT_NAME_AND_TYPE;
+
+import java.util.function.Consumer;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Extracts the classes referenced by a class file, without building a class file model.
+ *
+ * <p> Follows the rules of the jdeps class dependency finder, so both engines produce the same edges:
+ * <ul>
+ *   <li>every {@code CONSTANT_Class} entry and the descriptor of every {@code CONSTANT_NameAndType} entry</li>
+ *   <li>field and method descriptors</li>
+ *   <li>{@code Signature}, {@code RuntimeVisibleAnnotations} and {@code RuntimeVisibleParameterAnnotations} of the
+ *   class, its fields and methods, and {@code Exceptions} of methods</li>
+ * </ul>
+ * Type parameters of a class signature are ignored, those of a method signature are not, same as jdeps.
+ *
+ * @author Freeman
+ */
+final class ClassFileReferences {
+
+    private static final int ACC_MODULE = 0x8000;
+
+    private final byte[] b;
+    private final ConstantPool pool;
+    private final Consumer<String> sink;
+    private int pos;
+
+    private ClassFileReferences(byte[] b, Consumer<String> sink) {
+        this.b = b;
+        this.pool = ConstantPool.read(b);
+        this.sink = sink;
+        this.pos = pool.end();
+    }
+
+    /**
+     * Parse a class file and report the internal names of the classes it references, the class itself may be
+     * reported as well.
+     *
+     * @param classFile class file bytes
+     * @param sink      receives internal class names, e.g. {@code java/util/Map$Entry}
+     * @return internal name of the class, or null for {@code module-info}
+     * @throws IllegalArgumentException if the class file is malformed
+     */
+    static @Nullable String scan(byte[] classFile, Consumer<String> sink) {
+        try {
+            return new ClassFileReferences(classFile, sink).scan();
+        } catch (IndexOutOfBoundsException | IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed class file", e);
+        }
+    }
+
+    private @Nullable String scan() {
+        int accessFlags = readUnsignedShort(pos);
+        if ((accessFlags & ACC_MODULE) != 0) {
+            return null;
+        }
+        String className = classInfo(readUnsignedShort(pos + 2));
+        pos += 6; // access_flags, this_class, super_class
+        int interfaceCount = readUnsignedShort(pos);
+        pos += 2 + interfaceCount * 2;
+
+        for (int i = 1; i < pool.count(); i++) {
+            switch (pool.tag(i)) {
+                case CONSTANT_CLASS -> {
+                    var name = pool.className(i);
+                    if (name.startsWith("[")) {
+                        signature(name);
+                    } else {
+                        sink.accept(name);
+                    }
+                }
+                case CONSTANT_NAME_AND_TYPE -> signature(pool.utf8(readUnsignedShort(pool.offset(i) + 2)));
+                default -> {}
+            }
+        }
+
+        scanMembers(false);
+        scanMembers(true);
+        scanAttributes(false);
+        return className;
+    }
+
+    private void scanMembers(boolean methods) {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int m = 0; m < count; m++) {
+            signature(pool.utf8(readUnsignedShort(pos + 4)));
+            pos += 6;
+            scanAttributes(methods);
+        }
+    }
+
+    private void scanAttributes(boolean method) {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int a = 0; a < count; a++) {
+            var name = pool.utf8(readUnsignedShort(pos));
+            int length = readInt(pos + 2);
+            int start = pos + 6;
+            switch (name) {
+                case "Signature" -> signature(pool.utf8(readUnsignedShort(start)));
+                case "RuntimeVisibleAnnotations" -> {
+                    pos = start;
+                    annotations();
+                }
+                case "RuntimeVisibleParameterAnnotations" -> {
+                    int parameters = b[start] & 0xFF;
+                    pos = start + 1;
+                    for (int p = 0; p < parameters; p++) {
+                        annotations();
+                    }
+                }
+                case "Exceptions" -> {
+                    if (method) {
+                        int exceptions = readUnsignedShort(start);
+                        for (int e = 0; e < exceptions; e++) {
+                            sink.accept(classInfo(readUnsignedShort(start + 2 + e * 2)));
+                        }
+                    }
+                }
+                default -> {}
+            }
+            pos = start + length;
+        }
+    }
+
+    private void annotations() {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int i = 0; i < count; i++) {
+            annotation();
+        }
+    }
+
+    private void annotation() {
+        signature(pool.utf8(readUnsignedShort(pos)));
+        int pairs = readUnsignedShort(pos + 2);
+        pos += 4;
+        for (int i = 0; i < pairs; i++) {
+            pos += 2;
+            skipElementValue();
+        }
+    }
+
+    private void skipElementValue() {
+        int tag = b[pos++];
+        switch (tag) {
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's', 'c' -> pos += 2;
+            case 'e' -> pos += 4;
+            case '@' -> {
+                // Nested annotation types are not dependencies for jdeps, only skip them
+                int pairs = readUnsignedShort(pos + 2);
+                pos += 4;
+                for (int i = 0; i < pairs; i++) {
+                    pos += 2;
+                    skipElementValue();
+                }
+            }
+            case '[' -> {
+                int count = readUnsignedShort(pos);
+                pos += 2;
+                for (int i = 0; i < count; i++) {
+                    skipElementValue();
+                }
+            }
+            default -> throw new IllegalStateException("Unknown element value tag " + (char) tag);
+        }
+    }
+
+    private String classInfo(int index) {
+        var name = pool.className(index);
+        return name.startsWith("[") ? arrayElementName(name) : name;
+    }
+
+    private void signature(String signature) {
+        new SignatureParser(signature, sink).parse();
+    }
+
+    private int readUnsignedShort(int offset) {
+        return ConstantPool.readUnsignedShort(b, offset);
+    }
+
+    private int readInt(int offset) {
+        return ConstantPool.readInt(b, offset);
+    }
+
+    /**
+     * @return internal name of the array element class, or the descriptor itself for primitive arrays
+     */
+    private static String arrayElementName(String descriptor) {
+        int i = 0;
+        while (descriptor.charAt(i) == '[') {
+            i++;
+        }
+        return descriptor.charAt(i) == 'L' ? descriptor.substring(i + 1, descriptor.length() - 1) : descriptor;
+    }
+
+    /**
+     * Walks a descriptor or generic signature and reports every class type in it.
+     */
+    static final class SignatureParser {
+
+        private final String sig;
+        private final Consumer<String> sink;
+        private int p;
+
+        SignatureParser(String sig, Consumer<String> sink) {
+            this.sig = sig;
+            this.sink = sink;
+        }
+
+        void parse() {
+            int typeParamsStart = -1;
+            if (sig.charAt(p) == '<') {
+                typeParamsStart = p;
+                typeParameters(false);
+            }
+            if (sig.charAt(p) == '(') {
+                if (typeParamsStart >= 0) {
+                    // Method signature, the bounds of its type parameters count
+                    int end = p;
+                    p = typeParamsStart;
+                    typeParameters(true);
+                    p = end;
+                }
+                p++;
+                while (sig.charAt(p) != ')') {
+                    type(true);
+                }
+                p++;
+                type(true);
+                while (p < sig.length() && sig.charAt(p) == '^') {
+                    p++;
+                    type(true);
+                }
+            } else {
+                while (p < sig.length()) {
+                    type(true);
+                }
+            }
+        }
+
+        private void typeParameters(boolean report) {
+            p++;
+            while (sig.charAt(p) != '>') {
+                p = sig.indexOf(':', p) + 1;
+                if (sig.charAt(p) != ':') {
+                    type(report);
+                }
+                while (sig.charAt(p) == ':') {
+                    p++;
+                    type(report);
+                }
+            }
+            p++;
+        }
+
+        private void type(boolean report) {
+            char c = sig.charAt(p);
+            switch (c) {
+                case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'V', 'Z', '*' -> p++;
+                case '[', '+', '-' -> {
+                    p++;
+                    type(report);
+                }
+                case 'T' -> p = sig.indexOf(';', p) + 1;
+                case 'L' -> classType(report);
+                default -> throw new IllegalStateException("Invalid signature: " + sig);
+            }
+        }
+
+        private void classType(boolean report) {
+            p++;
+            var name = new StringBuilder();
+            while (true) {
+                char c = sig.charAt(p);
+                if (c == '<') {
+                    p++;
+                    while (sig.charAt(p) != '>') {
+                        type(report);
+                    }
+                    p++;
+                } else if (c == '.' || c == ';') {
+                    p++;
+                    if (report) {
+                        sink.accept(name.toString());
+                    }
+                    if (c == ';') {
+                        return;
+                    }
+                    name.append('$');
+                } else {
+                    name.append(c);
+                    p++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+/**
+ * Scans an archive by reading class files directly with {@link ClassFileReferences}, entries are read through
+ * {@link JarIndex} and no class file model is built.
+ *
+ * <p> Multi-release jars are resolved like {@link JarFile#versionedStream()}: the highest versioned entry not newer
+ * than the requested version replaces the base entry, and the class records the version it was read from. Class
+ * files that cannot be parsed are skipped, as jdeps does.
+ *
+ * @author Freeman
+ */
+final class ClassFileScanner implements ArchiveScanner {
+
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    private final Runtime.Version version;
+
+    ClassFileScanner(Runtime.Version version) {
+        this.version = version;
+    }
+
+    @Override
+    public String id() {
+        return "classfile";
+    }
+
+    @Override
+    public ArchiveDependencies scan(Archive archive) throws IOException {
+        var path = archive.path().orElse(null);
+        if (path == null) {
+            throw new IOException("Archive " + archive.getName() + " has no path");
+        }
+        var builder = new ArchiveDependencies.Builder();
+        if (Files.isDirectory(path)) {
+            scanDirectory(path, builder);
+        } else {
+            scanJar(path, builder);
+        }
+        return builder.build();
+    }
+
+    private void scanJar(Path jar, ArchiveDependencies.Builder builder) throws IOException {
+        try (var index = JarIndex.open(jar)) {
+            for (var entry : classEntries(index)) {
+                scanClass(index.read(entry.getValue()), entry.getKey(), builder);
+            }
+        }
+    }
+
+    private static void scanDirectory(Path dir, ArchiveDependencies.Builder builder) throws IOException {
+        List<Path> classFiles;
+        try (var stream = Files.walk(dir)) {
+            classFiles = stream.filter(p -> p.toString().endsWith(".class") && Files.isRegularFile(p))
+                    .sorted()
+                    .toList();
+        }
+        for (var classFile : classFiles) {
+            scanClass(Files.readAllBytes(classFile), 0, builder);
+        }
+    }
+
+    /**
+     * @return class entries to scan with the version they are read as, 0 for base entries
+     */
+    private List<Map.Entry<Integer, RawJarEntry>> classEntries(JarIndex index) throws IOException {
+        var entries = index.entries();
+        if (!isMultiRelease(index)) {
+            return entries.stream()
+                    .filter(RawJarEntry::isClass)
+                    .map(entry -> Map.entry(0, entry))
+                    .toList();
+        }
+
+        // base name -> (selected version, entry)
+        var selected = new LinkedHashMap<String, Map.Entry<Integer, RawJarEntry>>();
+        for (var entry : entries) {
+            if (!entry.isClass()) {
+                continue;
+            }
+            var name = entry.name();
+            int entryVersion = 0;
+            if (name.startsWith(VERSIONS_PREFIX)) {
+                int slash = name.indexOf('/', VERSIONS_PREFIX.length());
+                if (slash < 0) {
+                    continue;
+                }
+                try {
+                    entryVersion = Integer.parseInt(name.substring(VERSIONS_PREFIX.length(), slash));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (entryVersion < 9 || entryVersion > version.feature()) {
+                    continue;
+                }
+                name = name.substring(slash + 1);
+            }
+            var current = selected.get(name);
+            if (current == null || current.getKey() < entryVersion) {
+                selected.put(name, Map.entry(entryVersion, entry));
+            }
+        }
+        return List.copyOf(selected.values());
+    }
+
+    private static boolean isMultiRelease(JarIndex index) throws IOException {
+        var manifest = index.manifest();
+        return manifest != null
+                && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue(Attributes.Name.MULTI_RELEASE));
+    }
+
+    private static void scanClass(byte[] bytes, int version, ArchiveDependencies.Builder builder) {
+        var targets = new ArrayList<String>();
+        String className;
+        try {
+            className = ClassFileReferences.scan(bytes, targets::add);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (className == null) {
+            return;
+        }
+        var origin = className.replace('/', '.');
+        builder.addClass(origin, version);
+        for (var target : targets) {
+            builder.addDependency(origin, target.replace('/', '.'));
+        }
+    }
+}
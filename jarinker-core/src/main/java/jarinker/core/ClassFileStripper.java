@@ -0,0 +1,220 @@
+package jarinker.core;
+
+import java.util.Arrays;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Removes attributes, fields and methods from a class file, without building a class file model.
+ *
+ * <p> Attributes are removed from the class, its fields and methods and from the {@code Code} attribute of each
+ * method, whose length is adjusted. Fields and methods are removed whole. Everything else is copied byte for byte: the
+ * constant pool is not compacted, the names and values only the removed parts referred to stay in it. Removing an
+ * attribute or a member never moves the bytecode of another method, so offsets in the code, the exception table and
+ * {@code StackMapTable} stay valid.
+ *
+ * @author Freeman
+ */
+final class ClassFileStripper {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte STRIP = 1;
+    private static final byte KEEP = 2;
+
+    private final byte[] b;
+    private final Set<String> attributes;
+    private final @Nullable Set<String> liveMembers;
+    private final ConstantPool pool;
+    private final byte[] decisions;
+    private final byte[] out;
+    private int pos;
+    private int n;
+    private int removedMembers;
+
+    private ClassFileStripper(byte[] b, Set<String> attributes, @Nullable Set<String> liveMembers) {
+        this.b = b;
+        this.attributes = attributes;
+        this.liveMembers = liveMembers;
+        this.pool = ConstantPool.read(b);
+        this.decisions = new byte[pool.count()];
+        this.out = new byte[b.length];
+        this.pos = pool.end();
+    }
+
+    /**
+     * Remove the given attributes from a class file.
+     *
+     * @param classFile  class file bytes, not modified
+     * @param attributes names of the attributes to remove
+     * @return class file without the attributes, {@code classFile} itself if it has none of them
+     * @throws IllegalArgumentException if the class file is malformed
+     */
+    static byte[] strip(byte[] classFile, Set<String> attributes) {
+        return strip(classFile, attributes, null).classFile();
+    }
+
+    /**
+     * Remove the given attributes and the fields and methods that are not live from a class file.
+     *
+     * @param classFile   class file bytes, not modified
+     * @param attributes  names of the attributes to remove
+     * @param liveMembers keys of the fields and methods to keep, see {@link MemberReferences#key}, null to keep all
+     * @return class file without the attributes and members, {@code classFile} itself if nothing was removed
+     * @throws IllegalArgumentException if the class file is malformed
+     */
+    static Stripped strip(byte[] classFile, Set<String> attributes, @Nullable Set<String> liveMembers) {
+        if (attributes.isEmpty() && liveMembers == null) {
+            return new Stripped(classFile, 0);
+        }
+        try {
+            var stripper = new ClassFileStripper(classFile, attributes, liveMembers);
+            return new Stripped(stripper.strip(), stripper.removedMembers);
+        } catch (IndexOutOfBoundsException | IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed class file", e);
+        }
+    }
+
+    private byte[] strip() {
+        int interfaceCount = readUnsignedShort(pos + 6);
+        int header = pos + 8 + interfaceCount * 2;
+        pos = 0;
+        copy(header); // magic, version, constant pool, access_flags, this_class, super_class, interfaces
+
+        copyMembers();
+        copyMembers();
+        copyAttributes();
+        if (pos != b.length) {
+            throw new IllegalStateException("Trailing bytes after class file");
+        }
+        return n == b.length ? b : Arrays.copyOf(out, n);
+    }
+
+    private void copyMembers() {
+        int count = readUnsignedShort(pos);
+        int countAt = n;
+        copy(pos + 2);
+        int kept = 0;
+        for (int m = 0; m < count; m++) {
+            if (liveMembers != null && !liveMembers.contains(memberKey())) {
+                skipMember();
+                removedMembers++;
+                continue;
+            }
+            kept++;
+            copy(pos + 6); // access_flags, name_index, descriptor_index
+            copyAttributes();
+        }
+        writeUnsignedShort(countAt, kept);
+    }
+
+    private String memberKey() {
+        return MemberReferences.key(pool.utf8(readUnsignedShort(pos + 2)), pool.utf8(readUnsignedShort(pos + 4)));
+    }
+
+    private void skipMember() {
+        int count = readUnsignedShort(pos + 6);
+        pos += 8;
+        for (int a = 0; a < count; a++) {
+            pos += 6 + readInt(pos + 2);
+        }
+        if (pos > b.length) {
+            throw new IllegalStateException("Unexpected end of class file");
+        }
+    }
+
+    /**
+     * Copy an attribute table, leaving out the stripped attributes and stripping the attributes nested in
+     * {@code Code}.
+     */
+    private void copyAttributes() {
+        int count = readUnsignedShort(pos);
+        int countAt = n;
+        copy(pos + 2);
+        int kept = 0;
+        for (int a = 0; a < count; a++) {
+            int nameIndex = readUnsignedShort(pos);
+            int length = readInt(pos + 2);
+            int end = pos + 6 + length;
+            if (strip(nameIndex)) {
+                pos = end;
+                continue;
+            }
+            kept++;
+            if (isCode(nameIndex)) {
+                copyCode(end);
+            } else {
+                copy(end);
+            }
+        }
+        writeUnsignedShort(countAt, kept);
+    }
+
+    private void copyCode(int end) {
+        int lengthAt = n + 2;
+        copy(pos + 6);
+        int start = n;
+        int codeLength = readInt(pos + 4);
+        copy(pos + 8 + codeLength); // max_stack, max_locals, code_length, code
+        int exceptions = readUnsignedShort(pos);
+        copy(pos + 2 + exceptions * 8);
+        copyAttributes();
+        if (pos != end) {
+            throw new IllegalStateException("Invalid Code attribute length");
+        }
+        writeInt(lengthAt, n - start);
+    }
+
+    private boolean strip(int nameIndex) {
+        byte decision = decisions[nameIndex];
+        if (decision == UNKNOWN) {
+            decision = attributes.contains(pool.utf8(nameIndex)) ? STRIP : KEEP;
+            decisions[nameIndex] = decision;
+        }
+        return decision == STRIP;
+    }
+
+    private boolean isCode(int nameIndex) {
+        return pool.utf8Equals(nameIndex, "Code");
+    }
+
+    /**
+     * Copy the input from the current position up to {@code end}.
+     */
+    private void copy(int end) {
+        int length = end - pos;
+        if (length < 0 || end > b.length) {
+            throw new IllegalStateException("Unexpected end of class file");
+        }
+        System.arraycopy(b, pos, out, n, length);
+        pos = end;
+        n += length;
+    }
+
+    private void writeUnsignedShort(int offset, int value) {
+        out[offset] = (byte) (value >>> 8);
+        out[offset + 1] = (byte) value;
+    }
+
+    private void writeInt(int offset, int value) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    private int readUnsignedShort(int offset) {
+        return ConstantPool.readUnsignedShort(b, offset);
+    }
+
+    private int readInt(int offset) {
+        return ConstantPool.readInt(b, offset);
+    }
+
+    /**
+     * A stripped class file.
+     *
+     * @param classFile      class file bytes
+     * @param removedMembers number of fields and methods removed
+     */
+    record Stripped(byte[] classFile, int removedMembers) {}
+}
@@ -0,0 +1,149 @@
+package jarinker.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Order in which an application loaded its classes, recorded by a training run.
+ *
+ * <p> Accepted trace formats, one class per line:
+ * <ul>
+ *   <li>{@code -Xlog:class+load} output, e.g. {@code [0.015s][info][class,load] com.example.Foo source: ...}</li>
+ *   <li>{@code -verbose:class} output of Java 8, e.g. {@code [Loaded com.example.Foo from file:...]}</li>
+ *   <li>a plain list of binary or internal class names, such as {@code -XX:DumpLoadedClassList} output</li>
+ * </ul>
+ *
+ * <p> Hidden classes and lambda proxies are ignored, a class loaded more than once keeps its first position. Once a
+ * line of a log format is found, the trace is read as a log and all other lines, e.g. application output, are
+ * ignored.
+ *
+ * @author Freeman
+ */
+public final class ClassLoadOrder {
+
+    private static final String UNIFIED_LOG_TAG = "[class,load]";
+    private static final String VERBOSE_PREFIX = "[Loaded ";
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+    private static final Pattern CLASS_NAME = Pattern.compile("[\\p{L}\\p{N}_$]+([./][\\p{L}\\p{N}_$]+)*");
+
+    private final List<String> entries;
+    private final Map<String, Integer> ranks;
+
+    private ClassLoadOrder(List<String> entries) {
+        this.entries = entries;
+        this.ranks = new HashMap<>(Math.max(16, (int) (entries.size() / 0.75f) + 1));
+        for (int i = 0; i < entries.size(); i++) {
+            ranks.put(entries.get(i), i);
+        }
+    }
+
+    /**
+     * Read a class-load trace.
+     *
+     * @param trace trace file
+     * @return load order
+     * @throws IllegalArgumentException if the trace contains no class
+     */
+    public static ClassLoadOrder read(Path trace) throws IOException {
+        var logged = new LinkedHashSet<String>();
+        var listed = new LinkedHashSet<String>();
+        try (BufferedReader reader = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                var name = loggedClassName(line);
+                if (name != null) {
+                    logged.add(toEntryName(name));
+                } else if (logged.isEmpty() && (name = listedClassName(line)) != null) {
+                    listed.add(toEntryName(name));
+                }
+            }
+        }
+        var entries = logged.isEmpty() ? listed : logged;
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("No loaded classes found in trace: " + trace);
+        }
+        return new ClassLoadOrder(List.copyOf(entries));
+    }
+
+    /**
+     * @return class entry names in load order, e.g. {@code com/example/Foo.class}
+     */
+    public List<String> entries() {
+        return entries;
+    }
+
+    /**
+     * @return number of classes in the trace
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the load position of a class entry, versioned entries of multi-release jars share the position of their
+     * base entry.
+     *
+     * @param entryName entry name, e.g. {@code com/example/Foo.class}
+     * @return position in the trace, -1 if the class was not loaded
+     */
+    int rank(String entryName) {
+        if (entryName.startsWith(VERSIONS_PREFIX)) {
+            int slash = entryName.indexOf('/', VERSIONS_PREFIX.length());
+            if (slash > 0) {
+                entryName = entryName.substring(slash + 1);
+            }
+        }
+        return ranks.getOrDefault(entryName, -1);
+    }
+
+    /**
+     * @return class name of a {@code -Xlog:class+load} or {@code -verbose:class} line, null for other lines
+     */
+    private static @Nullable String loggedClassName(String line) {
+        String token;
+        int tag = line.indexOf(UNIFIED_LOG_TAG);
+        if (tag >= 0) {
+            token = firstToken(line.substring(tag + UNIFIED_LOG_TAG.length()));
+        } else if (line.startsWith(VERBOSE_PREFIX)) {
+            token = firstToken(line.substring(VERBOSE_PREFIX.length()));
+        } else {
+            return null;
+        }
+        // Hidden classes are named like com.example.Foo$$Lambda/0x0000000800c03000
+        return token.indexOf('/') < 0 && CLASS_NAME.matcher(token).matches() ? token : null;
+    }
+
+    /**
+     * @return class name of a class list line, null for comments and directives
+     */
+    private static @Nullable String listedClassName(String line) {
+        var trimmed = line.strip();
+        if (trimmed.startsWith("#") || trimmed.startsWith("@")) {
+            return null;
+        }
+        var token = firstToken(trimmed);
+        return !token.contains("/0x") && CLASS_NAME.matcher(token).matches() ? token : null;
+    }
+
+    private static String toEntryName(String className) {
+        return className.replace('.', '/') + ".class";
+    }
+
+    private static String firstToken(String s) {
+        var stripped = s.strip();
+        int end = 0;
+        while (end < stripped.length() && !Character.isWhitespace(stripped.charAt(end))) {
+            end++;
+        }
+        return stripped.substring(0, end);
+    }
+}
@@ -0,0 +1,330 @@
+package jarinker.core;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.jar.Attributes;
+import java.util.stream.Collectors;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Resolves the classpath of an analysis into the list of archives to analyze.
+ *
+ * <p> Resolution runs in four steps:
+ * <ol>
+ *   <li>Directories are walked in parallel for {@code .jar} files, a trailing {@code /*} is accepted like on the java
+ *   command line. Symbolic links to jars are followed, links to directories are not.</li>
+ *   <li>Paths are canonicalized, an archive reached through several paths (a symbolic link, an overlapping directory,
+ *   a source also listed on the classpath) is kept once.</li>
+ *   <li>{@code Class-Path} manifest attributes of the sources and jars are followed, referenced archives are placed
+ *   right after the jar referencing them, which is where the class loader looks them up.</li>
+ *   <li>Byte-identical jars are kept once, only jars of equal size are hashed.</li>
+ * </ol>
+ *
+ * <p> The first occurrence of an archive wins, later ones are reported as {@link Duplicate}s. Entries that do not
+ * exist are skipped.
+ *
+ * @author Freeman
+ */
+public final class ClasspathResolver {
+
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String WILDCARD = "/*";
+
+    private ClasspathResolver() {}
+
+    /**
+     * Result of a resolution.
+     *
+     * @param classpath  archives to analyze in lookup order, jars and class directories
+     * @param duplicates classpath entries left out because another entry is the same archive
+     */
+    public record Result(List<Path> classpath, List<Duplicate> duplicates) {}
+
+    /**
+     * A classpath entry left out of the analysis.
+     *
+     * @param path     entry left out
+     * @param original entry kept instead, a source or an earlier classpath entry
+     * @param reason   why both are the same archive
+     */
+    public record Duplicate(Path path, Path original, Reason reason) {}
+
+    public enum Reason {
+        /**
+         * Both paths resolve to the same file.
+         */
+        SAME_FILE,
+        /**
+         * Different files with the same content.
+         */
+        SAME_CONTENT
+    }
+
+    /**
+     * Resolve a classpath.
+     *
+     * @param sources   source artifacts, they take precedence over classpath entries of the same archive
+     * @param classpath classpath entries, jars, class directories or directories of jars
+     * @return resolved classpath
+     */
+    public static Result resolve(List<Path> sources, List<Path> classpath) throws IOException {
+        var duplicates = new ArrayList<Duplicate>();
+
+        // Real path -> first path it was reached through
+        var seen = new HashMap<Path, Path>();
+        var existingSources = sources.stream().filter(Files::exists).toList();
+        var sourceRealPaths = realPaths(existingSources);
+        for (int i = 0; i < existingSources.size(); i++) {
+            seen.putIfAbsent(sourceRealPaths.get(i), existingSources.get(i).toAbsolutePath());
+        }
+
+        var expanded = expand(classpath);
+        var realPaths = realPaths(expanded);
+        var unique = new ArrayList<Path>(expanded.size());
+        for (int i = 0; i < expanded.size(); i++) {
+            var path = expanded.get(i);
+            var original = seen.putIfAbsent(realPaths.get(i), path);
+            if (original == null) {
+                unique.add(path);
+            } else if (!original.equals(path)) {
+                // The same path listed twice, e.g. by overlapping directories, is dropped silently
+                duplicates.add(new Duplicate(path, original, Reason.SAME_FILE));
+            }
+        }
+
+        var resolved = new ArrayList<Path>(unique.size());
+        for (var source : existingSources) {
+            followClassPath(source, seen, resolved);
+        }
+        for (var path : unique) {
+            resolved.add(path);
+            followClassPath(path, seen, resolved);
+        }
+
+        return new Result(dedupeContent(existingSources, resolved, duplicates), List.copyOf(duplicates));
+    }
+
+    /**
+     * Expand wildcards and directories of jars, in classpath order.
+     */
+    private static List<Path> expand(List<Path> classpath) throws IOException {
+        var result = new ArrayList<Path>();
+        for (var entry : classpath) {
+            var path = entry.toAbsolutePath();
+            if (path.toString().endsWith(WILDCARD)) {
+                path = path.getParent();
+            }
+            if (path == null || !Files.exists(path)) {
+                continue;
+            }
+            if (Files.isDirectory(path)) {
+                try {
+                    result.addAll(ForkJoinPool.commonPool().invoke(new JarWalker(path)));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            } else {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private static List<Path> realPaths(List<Path> paths) throws IOException {
+        try {
+            return paths.parallelStream().map(ClasspathResolver::realPath).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Path realPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Append the archives referenced by the {@code Class-Path} attribute of a jar, depth first.
+     */
+    private static void followClassPath(Path jar, Map<Path, Path> seen, List<Path> resolved) throws IOException {
+        for (var referenced : manifestClassPath(jar)) {
+            // A reference to an archive already on the classpath is expected, not a duplicate to report
+            if (seen.putIfAbsent(referenced.toRealPath(), referenced) == null) {
+                resolved.add(referenced);
+                followClassPath(referenced, seen, resolved);
+            }
+        }
+    }
+
+    /**
+     * @return existing archives listed in the {@code Class-Path} attribute, empty for directories and unreadable jars
+     */
+    private static List<Path> manifestClassPath(Path jar) {
+        if (!Files.isRegularFile(jar)) {
+            return List.of();
+        }
+        @Nullable String value;
+        try (var index = JarIndex.open(jar)) {
+            var manifest = index.manifest();
+            value = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) : null;
+        } catch (IOException | RuntimeException e) {
+            // Not an archive, the analysis reports it
+            return List.of();
+        }
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+
+        var base = Objects.requireNonNull(jar.toAbsolutePath().getParent()).toUri();
+        var result = new ArrayList<Path>();
+        for (var url : value.trim().split("\\s+")) {
+            var path = resolveUrl(base, url);
+            if (path != null && Files.exists(path)) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolve a {@code Class-Path} URL like the application class loader, only local files are supported.
+     */
+    private static @Nullable Path resolveUrl(URI base, String url) {
+        try {
+            var uri = base.resolve(url);
+            return "file".equalsIgnoreCase(uri.getScheme()) ? Path.of(uri) : null;
+        } catch (IllegalArgumentException e) {
+            // Malformed URL, the class loader ignores it as well
+            return null;
+        }
+    }
+
+    /**
+     * Remove jars whose content equals a source or an earlier jar.
+     */
+    private static List<Path> dedupeContent(List<Path> sources, List<Path> classpath, List<Duplicate> duplicates)
+            throws IOException {
+        var candidates = new ArrayList<Path>(sources.size() + classpath.size());
+        for (var path : sources) {
+            if (Files.isRegularFile(path)) {
+                candidates.add(path.toAbsolutePath());
+            }
+        }
+        for (var path : classpath) {
+            if (Files.isRegularFile(path)) {
+                candidates.add(path);
+            }
+        }
+
+        var bySize = new LinkedHashMap<Long, List<Path>>();
+        for (var path : candidates) {
+            bySize.computeIfAbsent(Files.size(path), k -> new ArrayList<>()).add(path);
+        }
+        var toHash = bySize.values().stream()
+                .filter(group -> group.size() > 1)
+                .flatMap(List::stream)
+                .toList();
+        if (toHash.isEmpty()) {
+            return List.copyOf(classpath);
+        }
+
+        Map<Path, String> hashes;
+        try {
+            hashes = toHash.parallelStream().collect(Collectors.toMap(p -> p, ClasspathResolver::contentHash));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // Content hash -> first path with that content, sources come first
+        var firstByHash = new HashMap<String, Path>();
+        var removed = new HashSet<Path>();
+        for (var path : candidates) {
+            var hash = hashes.get(path);
+            if (hash == null) {
+                continue;
+            }
+            var original = firstByHash.putIfAbsent(hash, path);
+            if (original != null) {
+                removed.add(path);
+                duplicates.add(new Duplicate(path, original, Reason.SAME_CONTENT));
+            }
+        }
+        return classpath.stream().filter(p -> !removed.contains(p)).toList();
+    }
+
+    private static String contentHash(Path path) {
+        try {
+            var digest = CacheFiles.sha256();
+            CacheFiles.digest(digest, path);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Collects the jars below a directory, subdirectories are walked as separate tasks. Results are in name order so
+     * the classpath does not depend on the file system listing order.
+     */
+    private static final class JarWalker extends RecursiveTask<List<Path>> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+
+        JarWalker(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            var children = new ArrayList<Path>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                stream.forEach(children::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            children.sort(null);
+
+            // Fork subdirectories first, then collect in name order
+            var parts = new ArrayList<Object>(children.size());
+            for (var child : children) {
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    parts.add(new JarWalker(child).fork());
+                } else if (Files.isRegularFile(child)
+                        && String.valueOf(child.getFileName()).endsWith(JAR_SUFFIX)) {
+                    parts.add(child);
+                }
+            }
+            var result = new ArrayList<Path>();
+            for (var part : parts) {
+                if (part instanceof JarWalker walker) {
+                    result.addAll(walker.join());
+                } else {
+                    result.add((Path) part);
+                }
+            }
+            return result;
+        }
+    }
+}
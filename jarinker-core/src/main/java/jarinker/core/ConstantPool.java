@@ -0,0 +1,208 @@
+package jarinker.core;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The constant pool of a class file, read in place from the class file bytes.
+ *
+ * <p> Reading only records the tag and offset of each entry; {@code CONSTANT_Utf8} entries are decoded on first use
+ * and cached. Shared by {@link ClassFileReferences}, {@link ClassFileStripper} and {@link MemberReferences}, which
+ * walk the rest of the class file themselves.
+ *
+ * @author Freeman
+ */
+final class ConstantPool {
+
+    static final int CONSTANT_UTF8 = 1;
+    static final int CONSTANT_INTEGER = 3;
+    static final int CONSTANT_FLOAT = 4;
+    static final int CONSTANT_LONG = 5;
+    static final int CONSTANT_DOUBLE = 6;
+    static final int CONSTANT_CLASS = 7;
+    static final int CONSTANT_STRING = 8;
+    static final int CONSTANT_FIELDREF = 9;
+    static final int CONSTANT_METHODREF = 10;
+    static final int CONSTANT_INTERFACE_METHODREF = 11;
+    static final int CONSTANT_NAME_AND_TYPE = 12;
+    static final int CONSTANT_METHOD_HANDLE = 15;
+    static final int CONSTANT_METHOD_TYPE = 16;
+    static final int CONSTANT_DYNAMIC = 17;
+    static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    static final int CONSTANT_MODULE = 19;
+    static final int CONSTANT_PACKAGE = 20;
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final byte[] b;
+    private final int[] offsets;
+    private final byte[] tags;
+    private final @Nullable String[] strings;
+    private final int end;
+
+    private ConstantPool(byte[] b) {
+        this.b = b;
+        if (b.length < 10 || readInt(b, 0) != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        int count = readUnsignedShort(b, 8);
+        this.offsets = new int[count];
+        this.tags = new byte[count];
+        this.strings = new String[count];
+        this.end = read();
+    }
+
+    /**
+     * Read the constant pool of a class file.
+     *
+     * @param classFile class file bytes
+     * @return the constant pool
+     * @throws IllegalArgumentException if the bytes are not a class file
+     * @throws IllegalStateException if the constant pool holds an unknown tag
+     * @throws IndexOutOfBoundsException if the constant pool is truncated
+     */
+    static ConstantPool read(byte[] classFile) {
+        return new ConstantPool(classFile);
+    }
+
+    private int read() {
+        int pos = 10;
+        for (int i = 1; i < offsets.length; i++) {
+            int tag = b[pos] & 0xFF;
+            tags[i] = (byte) tag;
+            offsets[i] = pos + 1;
+            int size =
+                    switch (tag) {
+                        case CONSTANT_UTF8 -> 2 + readUnsignedShort(b, pos + 1);
+                        case CONSTANT_CLASS,
+                                CONSTANT_STRING,
+                                CONSTANT_METHOD_TYPE,
+                                CONSTANT_MODULE,
+                                CONSTANT_PACKAGE -> 2;
+                        case CONSTANT_METHOD_HANDLE -> 3;
+                        case CONSTANT_INTEGER,
+                                CONSTANT_FLOAT,
+                                CONSTANT_FIELDREF,
+                                CONSTANT_METHODREF,
+                                CONSTANT_INTERFACE_METHODREF,
+                                CONSTANT_NAME_AND_TYPE,
+                                CONSTANT_DYNAMIC,
+                                CONSTANT_INVOKE_DYNAMIC -> 4;
+                        case CONSTANT_LONG, CONSTANT_DOUBLE -> 8;
+                        default -> throw new IllegalStateException("Unknown constant pool tag " + tag);
+                    };
+            pos += 1 + size;
+            if (tag == CONSTANT_LONG || tag == CONSTANT_DOUBLE) {
+                i++;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * @return offset of {@code access_flags}, right after the constant pool
+     */
+    int end() {
+        return end;
+    }
+
+    /**
+     * @return {@code constant_pool_count}, one more than the highest index
+     */
+    int count() {
+        return offsets.length;
+    }
+
+    /**
+     * @return tag of an entry, 0 for the unusable entry after a long or double
+     */
+    int tag(int index) {
+        return tags[index];
+    }
+
+    /**
+     * @return offset of the first byte after the tag of an entry
+     */
+    int offset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @return the decoded {@code CONSTANT_Utf8} entry
+     */
+    String utf8(int index) {
+        var s = strings[index];
+        if (s == null) {
+            checkTag(index, CONSTANT_UTF8, "utf8");
+            s = decodeUtf8(b, offsets[index] + 2, readUnsignedShort(b, offsets[index]));
+            strings[index] = s;
+        }
+        return s;
+    }
+
+    /**
+     * @return whether the {@code CONSTANT_Utf8} entry equals an ASCII string, without decoding it
+     */
+    boolean utf8Equals(int index, String ascii) {
+        checkTag(index, CONSTANT_UTF8, "utf8");
+        int offset = offsets[index];
+        int length = readUnsignedShort(b, offset);
+        if (length != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (b[offset + 2 + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return name of the {@code CONSTANT_Class} entry, an internal name or an array descriptor
+     */
+    String className(int index) {
+        checkTag(index, CONSTANT_CLASS, "class");
+        return utf8(readUnsignedShort(b, offsets[index]));
+    }
+
+    private void checkTag(int index, int tag, String kind) {
+        if (tags[index] != tag) {
+            throw new IllegalStateException("Not a " + kind + " constant: " + index);
+        }
+    }
+
+    /**
+     * Decode a modified UTF-8 constant of a class file.
+     */
+    static String decodeUtf8(byte[] b, int start, int length) {
+        var chars = new char[length];
+        int n = 0;
+        int i = start;
+        int end = start + length;
+        while (i < end) {
+            int c = b[i] & 0xFF;
+            if (c < 0x80) {
+                chars[n++] = (char) c;
+                i++;
+            } else if ((c & 0xE0) == 0xC0) {
+                chars[n++] = (char) (((c & 0x1F) << 6) | (b[i + 1] & 0x3F));
+                i += 2;
+            } else {
+                chars[n++] = (char) (((c & 0x0F) << 12) | ((b[i + 1] & 0x3F) << 6) | (b[i + 2] & 0x3F));
+                i += 3;
+            }
+        }
+        return new String(chars, 0, n);
+    }
+
+    static int readUnsignedShort(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+    }
+
+    static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 24)
+                | ((b[offset + 1] & 0xFF) << 16)
+                | ((b[offset + 2] & 0xFF) << 8)
+                | (b[offset + 3] & 0xFF);
+    }
+}
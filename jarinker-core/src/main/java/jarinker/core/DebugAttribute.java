@@ -0,0 +1,40 @@
+package jarinker.core;
+
+import java.util.Set;
+
+/**
+ * Debug attributes that can be stripped from retained classes, see {@link JarShrinker}'s {@code stripDebugAttributes}.
+ *
+ * <p> None of them is needed to load, verify or run a class, only stack traces, debuggers and tools that read them
+ * lose information.
+ *
+ * @author Freeman
+ */
+public enum DebugAttribute {
+    /**
+     * {@code LineNumberTable} of method code, stack traces then show no line numbers.
+     */
+    LINES(Set.of("LineNumberTable")),
+    /**
+     * {@code LocalVariableTable} and {@code LocalVariableTypeTable} of method code, debuggers then show no local
+     * variable names.
+     */
+    VARS(Set.of("LocalVariableTable", "LocalVariableTypeTable")),
+    /**
+     * {@code SourceFile} and {@code SourceDebugExtension} of the class, stack traces then show no file name.
+     */
+    SOURCE(Set.of("SourceFile", "SourceDebugExtension"));
+
+    private final Set<String> attributeNames;
+
+    DebugAttribute(Set<String> attributeNames) {
+        this.attributeNames = attributeNames;
+    }
+
+    /**
+     * @return class file attribute names
+     */
+    public Set<String> attributeNames() {
+        return attributeNames;
+    }
+}
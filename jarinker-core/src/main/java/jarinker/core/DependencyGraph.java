@@ -3,23 +3,28 @@ package jarinker.core;
 import com.sun.tools.jdeps.Archive;
 import com.sun.tools.jdeps.DepsAnalyzer;
 import com.sun.tools.jdeps.Graph;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import lombok.Data;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.jspecify.annotations.Nullable;
 
 /**
- * Simple wrapper around jdeps Graph to hide internal implementation.
+ * Dependency graph produced by an analysis, backed by a compact {@link IndexedGraph}.
+ *
+ * <p> The jdeps graph is only used to build the indexed graph and is not retained.
  *
  * @author Freeman
  */
-@Data
+@Getter
 public class DependencyGraph {
 
-    private final Graph<DepsAnalyzer.Node> graph;
+    private final IndexedGraph indexedGraph;
     /**
      * jar, path. All processed archives, including root archives.
      */
@@ -28,20 +33,43 @@ public class DependencyGraph {
      * source archives.
      */
     private final List<Archive> rootArchives;
+    /**
+     * nodes of other archives that are roots as well, see {@link KeepRules}.
+     */
+    @Getter(AccessLevel.NONE)
+    private final BitSet keptNodes;
 
     private final AnalyzerType analysisType;
-    private final Map<String, Set<String>> dependenciesMap;
+
+    private volatile @Nullable ReachableClasses reachableClasses;
 
     public DependencyGraph(
             Graph<DepsAnalyzer.Node> graph,
             Set<Archive> archives,
             List<Archive> rootArchives,
             AnalyzerType analysisType) {
-        this.graph = graph;
+        this(IndexedGraph.of(graph), archives, rootArchives, analysisType);
+    }
+
+    public DependencyGraph(
+            IndexedGraph indexedGraph, Set<Archive> archives, List<Archive> rootArchives, AnalyzerType analysisType) {
+        this(indexedGraph, archives, rootArchives, new BitSet(), analysisType);
+    }
+
+    /**
+     * @param keptNodes ids of the nodes of other archives that are roots as well
+     */
+    public DependencyGraph(
+            IndexedGraph indexedGraph,
+            Set<Archive> archives,
+            List<Archive> rootArchives,
+            BitSet keptNodes,
+            AnalyzerType analysisType) {
+        this.indexedGraph = indexedGraph;
         this.archives = archives;
         this.rootArchives = rootArchives;
+        this.keptNodes = (BitSet) keptNodes.clone();
         this.analysisType = analysisType;
-        this.dependenciesMap = buildDependenciesMap(graph);
     }
 
     /**
@@ -50,21 +78,63 @@ public class DependencyGraph {
      * @return node count
      */
     public int getNodeCount() {
-        return graph.nodes().size();
+        return indexedGraph.nodeCount();
+    }
+
+    /**
+     * Get the nodes reachable from the root nodes, computed once with a breadth-first traversal and shared by all
+     * callers.
+     *
+     * @return reachable classes
+     */
+    public ReachableClasses getReachableClasses() {
+        var result = reachableClasses;
+        if (result == null) {
+            synchronized (this) {
+                result = reachableClasses;
+                if (result == null) {
+                    result = new ReachableClasses(indexedGraph, indexedGraph.reachableFrom(getRootNodes()));
+                    reachableClasses = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the nodes that belong to a root archive, and the nodes of other archives kept by {@link KeepRules}.
+     *
+     * @return root node ids
+     */
+    public BitSet getRootNodes() {
+        var rootNames = rootArchives.stream().map(Archive::getName).collect(Collectors.toSet());
+        var roots = new BitSet(indexedGraph.nodeCount());
+        for (int n = 0; n < indexedGraph.nodeCount(); n++) {
+            if (rootNames.contains(indexedGraph.archive(n))) {
+                roots.set(n);
+            }
+        }
+        roots.or(keptNodes);
+        return roots;
     }
 
     /**
      * Get dependencies grouped by their source for better visualization.
      *
-     * @return map of node name to its dependencies
+     * <p> Built on demand from the indexed graph, prefer walking {@link #getIndexedGraph()} for large graphs.
+     *
+     * @return map of node label to the labels of its dependencies
      */
-    private static Map<String, Set<String>> buildDependenciesMap(Graph<DepsAnalyzer.Node> graph) {
+    public Map<String, Set<String>> getDependenciesMap() {
         var result = new HashMap<String, Set<String>>();
-        for (var node : graph.nodes()) {
-            var dependencies =
-                    graph.adjacentNodes(node).stream().map(Object::toString).collect(Collectors.toSet());
-            if (!dependencies.isEmpty()) {
-                result.computeIfAbsent(node.toString(), k -> new HashSet<>()).addAll(dependencies);
+        for (int node = 0; node < indexedGraph.nodeCount(); node++) {
+            int degree = indexedGraph.outDegree(node);
+            if (degree > 0) {
+                var dependencies = new HashSet<String>(degree * 2);
+                for (int i = 0; i < degree; i++) {
+                    dependencies.add(indexedGraph.label(indexedGraph.successor(node, i)));
+                }
+                result.put(indexedGraph.label(node), dependencies);
             }
         }
         return result;
@@ -0,0 +1,169 @@
+package jarinker.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reverse-edge index of a dependency graph, answers why a node is reachable with a shortest path from a root and which
+ * nodes depend on it.
+ *
+ * <p> The predecessors of every node are stored in CSR form like the successors of {@link IndexedGraph}, and the nodes
+ * are indexed by name. A breadth-first traversal from all roots records the node every node was first reached from,
+ * so following those links back from a node walks a shortest path to its nearest root. All of it is built once in
+ * time linear in the size of the graph, a query then only costs the length of its path, and an instance answers any
+ * number of queries without rebuilding anything.
+ *
+ * @author Freeman
+ */
+public final class DependencyPaths {
+
+    private static final int ROOT = -1;
+    private static final int UNREACHABLE = -2;
+
+    private final IndexedGraph graph;
+    private final BitSet roots;
+    private final int[] offsets;
+    private final int[] sources;
+    private final int[] nameOffsets;
+    private final int[] nameNodes;
+
+    /**
+     * per node, the node it was first reached from, {@link #ROOT} for roots and {@link #UNREACHABLE} for nodes no root
+     * reaches
+     */
+    private final int[] parent;
+
+    /**
+     * Index a dependency graph, its {@link DependencyGraph#getRootNodes() root nodes} are the roots.
+     *
+     * @param graph dependency graph
+     */
+    public DependencyPaths(DependencyGraph graph) {
+        this(graph.getIndexedGraph(), graph.getRootNodes());
+    }
+
+    /**
+     * @param graph indexed graph
+     * @param roots root node ids
+     */
+    public DependencyPaths(IndexedGraph graph, BitSet roots) {
+        this.graph = graph;
+        this.roots = (BitSet) roots.clone();
+        int nodeCount = graph.nodeCount();
+
+        // Counting sort edges by target node, like IndexedGraph.Builder does by source
+        offsets = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int i = 0, n = graph.outDegree(node); i < n; i++) {
+                offsets[graph.successor(node, i) + 1]++;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        var cursor = Arrays.copyOf(offsets, nodeCount);
+        sources = new int[graph.edgeCount()];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int i = 0, n = graph.outDegree(node); i < n; i++) {
+                sources[cursor[graph.successor(node, i)]++] = node;
+            }
+        }
+
+        nameOffsets = new int[graph.nameCount() + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            nameOffsets[graph.nameId(node) + 1]++;
+        }
+        for (int name = 0; name < graph.nameCount(); name++) {
+            nameOffsets[name + 1] += nameOffsets[name];
+        }
+        var nameCursor = Arrays.copyOf(nameOffsets, graph.nameCount());
+        nameNodes = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            nameNodes[nameCursor[graph.nameId(node)]++] = node;
+        }
+
+        parent = new int[nodeCount];
+        Arrays.fill(parent, UNREACHABLE);
+        var queue = new int[Math.max(1, nodeCount)];
+        int head = 0;
+        int tail = 0;
+        for (int n = roots.nextSetBit(0); n >= 0; n = roots.nextSetBit(n + 1)) {
+            parent[n] = ROOT;
+            queue[tail++] = n;
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = 0, n = graph.outDegree(node); i < n; i++) {
+                int target = graph.successor(node, i);
+                if (parent[target] == UNREACHABLE) {
+                    parent[target] = node;
+                    queue[tail++] = target;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param node node id
+     * @return whether the node is a root
+     */
+    public boolean isRoot(int node) {
+        return roots.get(node);
+    }
+
+    /**
+     * @param node node id
+     * @return whether a root reaches the node
+     */
+    public boolean isReachable(int node) {
+        return parent[node] != UNREACHABLE;
+    }
+
+    /**
+     * @param name class, package or module name
+     * @return ids of the nodes with this name, one per archive it was found in, in id order
+     */
+    public int[] nodes(String name) {
+        int id = graph.findName(name);
+        if (id < 0) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(nameNodes, nameOffsets[id], nameOffsets[id + 1]);
+    }
+
+    public int inDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @param node  node id
+     * @param index index of the edge, in {@code [0, inDegree(node))}
+     * @return id of a node that depends on the node
+     */
+    public int predecessor(int node, int index) {
+        return sources[offsets[node] + index];
+    }
+
+    /**
+     * Find a shortest dependency path from a root to a node.
+     *
+     * @param node node id
+     * @return node ids of the path, the root first and the node last, a single node if it is a root itself, null if
+     *         no root reaches the node
+     */
+    public int @Nullable [] shortestPath(int node) {
+        if (parent[node] == UNREACHABLE) {
+            return null;
+        }
+        int length = 0;
+        for (int n = node; n >= 0; n = parent[n]) {
+            length++;
+        }
+        var path = new int[length];
+        for (int n = node, i = length - 1; n >= 0; n = parent[n], i--) {
+            path[i] = n;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,104 @@
+package jarinker.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classes that several jars of a classpath contain, see {@link JarShrinker}'s {@code removeDuplicateClasses}.
+ *
+ * <p> Jars are indexed in classpath order and the first copy of a class is the one the class loader loads. A later
+ * copy with the same size and CRC-32 is identical and can be removed from its jar, a later copy with different content
+ * is shadowed by the first one and reported as a conflict, both copies are kept. Only the central directory of each jar
+ * is read, the CRC-32 of an entry is the content hash.
+ *
+ * @author Freeman
+ */
+final class DuplicateClasses {
+
+    private final Map<Path, Set<String>> duplicates;
+    private final List<JarShrinker.ShrinkResult.Conflict> conflicts;
+
+    private DuplicateClasses(Map<Path, Set<String>> duplicates, List<JarShrinker.ShrinkResult.Conflict> conflicts) {
+        this.duplicates = duplicates;
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * @return no duplicates
+     */
+    static DuplicateClasses none() {
+        return new DuplicateClasses(Map.of(), List.of());
+    }
+
+    /**
+     * Index the retained classes of the jars, a jar that can not be read is skipped and fails when it is shrunk.
+     *
+     * @param jars             jars in classpath order
+     * @param reachableClasses reachable classes
+     * @return duplicates and conflicts
+     */
+    static DuplicateClasses find(List<Path> jars, ReachableClasses reachableClasses) throws IOException {
+        var first = new HashMap<String, Copy>();
+        var duplicates = new HashMap<Path, Set<String>>();
+        var conflicts = new ArrayList<JarShrinker.ShrinkResult.Conflict>();
+        for (var jar : jars) {
+            JarIndex index;
+            try {
+                index = JarIndex.open(jar);
+            } catch (IOException | RuntimeException e) {
+                // Reported as a failure when the jar is shrunk
+                continue;
+            }
+            try (index) {
+                for (var entry : index.entries()) {
+                    var name = entry.name();
+                    if (!entry.isClass()
+                            || name.endsWith("module-info.class")
+                            || !reachableClasses.containsEntry(name)) {
+                        continue;
+                    }
+                    var copy = first.putIfAbsent(name, new Copy(jar, entry.crc(), entry.size()));
+                    if (copy == null || copy.jar().equals(jar)) {
+                        continue;
+                    }
+                    if (copy.crc() == entry.crc() && copy.size() == entry.size()) {
+                        duplicates.computeIfAbsent(jar, k -> new HashSet<>()).add(name);
+                    } else {
+                        conflicts.add(new JarShrinker.ShrinkResult.Conflict(name, copy.jar(), jar));
+                    }
+                }
+            }
+        }
+        return new DuplicateClasses(duplicates, List.copyOf(conflicts));
+    }
+
+    /**
+     * @param jar jar path, as passed to {@link #find}
+     * @return entry names of the classes an earlier jar contains with the same content
+     */
+    Set<String> of(Path jar) {
+        return duplicates.getOrDefault(jar, Set.of());
+    }
+
+    /**
+     * @return number of removable copies over all jars
+     */
+    int count() {
+        return duplicates.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * @return classes that several jars contain with different content, in classpath order
+     */
+    List<JarShrinker.ShrinkResult.Conflict> conflicts() {
+        return conflicts;
+    }
+
+    private record Copy(Path jar, long crc, long size) {}
+}
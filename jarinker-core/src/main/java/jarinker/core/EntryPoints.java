@@ -0,0 +1,121 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Entry points of the sources, the classes reachability starts from instead of every class of the sources.
+ *
+ * <p> The entry points of a source are the {@code Main-Class} of its manifest, the providers listed in its
+ * {@code META-INF/services} files and its classes whose binary name matches one of the patterns. Classes of the
+ * sources that no entry point reaches are not traversed, and neither are the library classes only they use.
+ *
+ * @author Freeman
+ */
+public final class EntryPoints {
+
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+
+    private final List<Pattern> patterns;
+
+    /**
+     * @param patterns patterns of binary class names that are entry points, in addition to the main classes and
+     *                 service providers
+     */
+    public EntryPoints(List<Pattern> patterns) {
+        this.patterns = List.copyOf(patterns);
+    }
+
+    /**
+     * Find the entry points of a source.
+     *
+     * @param source  source archive
+     * @param classes binary names of the classes of the source
+     * @return binary names of the entry points, only names of {@code classes}
+     */
+    Set<String> find(Archive source, Set<String> classes) throws IOException {
+        var result = new HashSet<String>();
+        for (var className : classes) {
+            if (patterns.stream().anyMatch(p -> p.matcher(className).matches())) {
+                result.add(className);
+            }
+        }
+        var path = source.path().orElse(null);
+        if (path != null) {
+            var declared = new HashSet<String>();
+            if (Files.isDirectory(path)) {
+                readDirectory(path, declared);
+            } else if (Files.isRegularFile(path)) {
+                readJar(path, declared);
+            }
+            for (var className : declared) {
+                if (classes.contains(className)) {
+                    result.add(className);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void readDirectory(Path directory, Set<String> declared) throws IOException {
+        var manifest = directory.resolve(JarFile.MANIFEST_NAME);
+        if (Files.isRegularFile(manifest)) {
+            try (InputStream in = Files.newInputStream(manifest)) {
+                addMainClass(new Manifest(in), declared);
+            }
+        }
+        var services = directory.resolve(SERVICES_PREFIX);
+        if (Files.isDirectory(services)) {
+            try (var files = Files.list(services)) {
+                for (var file : files.filter(Files::isRegularFile).toList()) {
+                    addProviders(Files.readAllBytes(file), declared);
+                }
+            }
+        }
+    }
+
+    private static void readJar(Path jar, Set<String> declared) throws IOException {
+        try (var index = JarIndex.open(jar)) {
+            addMainClass(index.manifest(), declared);
+            for (var entry : index.entries()) {
+                if (!entry.isDirectory()
+                        && entry.name().startsWith(SERVICES_PREFIX)
+                        && entry.name().indexOf('/', SERVICES_PREFIX.length()) < 0) {
+                    addProviders(index.read(entry), declared);
+                }
+            }
+        }
+    }
+
+    private static void addMainClass(@Nullable Manifest manifest, Set<String> declared) {
+        if (manifest == null) {
+            return;
+        }
+        var mainClass = manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+        if (mainClass != null && !mainClass.isBlank()) {
+            declared.add(mainClass.strip().replace('/', '.'));
+        }
+    }
+
+    private static void addProviders(byte[] content, Set<String> declared) {
+        for (var line : new String(content, StandardCharsets.UTF_8).split("\\R")) {
+            int comment = line.indexOf('#');
+            var provider = (comment >= 0 ? line.substring(0, comment) : line).strip();
+            if (!provider.isEmpty()) {
+                declared.add(provider);
+            }
+        }
+    }
+}
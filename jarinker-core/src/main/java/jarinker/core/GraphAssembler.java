@@ -0,0 +1,642 @@
+package jarinker.core;
+
+import com.sun.tools.classfile.Attribute;
+import com.sun.tools.classfile.ConstantPoolException;
+import com.sun.tools.classfile.Dependency;
+import com.sun.tools.classfile.RuntimeAnnotations_attribute;
+import com.sun.tools.jdeps.Archive;
+import com.sun.tools.jdeps.JdepsConfiguration;
+import com.sun.tools.jdeps.JdepsFilter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Builds a {@link DependencyGraph} from per-archive dependencies, following the same rules as jdeps' transitive
+ * class analysis.
+ *
+ * <p> Root archives are traversed completely, other archives only from the classes that are reached. With
+ * {@link EntryPoints}, root archives are only traversed from their entry points as well. A dependency is
+ * resolved to the origin archive if it defines the class, then to the archive that first provided the class, then
+ * through {@link JdepsConfiguration#findClass(Dependency.Location)}. Only initial and classpath archives are traversed,
+ * JDK classes are recorded as targets but never parsed, unresolved classes are attributed to the "not found" archive.
+ *
+ * <p> Like jdeps, a class read from a versioned entry of a multi-release jar is named {@code <version>/<class name>}
+ * in a class analysis, wherever it appears in the graph.
+ *
+ * <p> All traversable archives are loaded up front by a pool of {@code parallelism} threads, the traversal itself is
+ * single-threaded.
+ *
+ * <p> With {@link KeepRules}, the classes of any traversable archive the rules keep are roots as well, so the
+ * classes a framework loads by reflection are traversed with what they depend on. Every traversable archive is then
+ * loaded up front, the rules can match a class of any of them. Annotation rules read the class files once more, the
+ * dependencies do not record where an annotation type is used.
+ *
+ * <p> With a target predicate, only the root and target archives are loaded up front. Other archives are loaded when
+ * the traversal reaches them, all archives reached in the same round are loaded in parallel, so archives that are
+ * never reached are never parsed. The depth then bounds the number of other archives a dependency path may pass
+ * through, classes beyond it are recorded as targets of their edges but not traversed. Paths are explored in order of
+ * the archives they pass through, so every class is traversed on its shortest path.
+ *
+ * <p> With an {@link ArchiveDependencyStore}, loaded dependencies are kept in the store instead of in memory, so only
+ * the dependencies within its budget stay on the heap. The traversal then works through one archive at a time: the
+ * classes reached in an archive are queued per archive and all of them are visited before moving to the next archive,
+ * so a spilled archive is read back once per round rather than once per class. Which archive first provides a class
+ * present in several archives may then differ from the default order.
+ *
+ * <p> Classpath archives opened through an {@link ArchivePool} replace the classpath of the configuration, which is
+ * then empty. Classes the configuration does not find are looked up in them, in classpath order.
+ *
+ * @author Freeman
+ */
+final class GraphAssembler {
+
+    static final String NOT_FOUND = "not found";
+
+    private static final List<String> ANNOTATION_ATTRIBUTES =
+            List.of(Attribute.RuntimeVisibleAnnotations, Attribute.RuntimeInvisibleAnnotations);
+
+    private final JdepsConfiguration configuration;
+    private final JdepsFilter filter;
+    private final AnalyzerType type;
+    private final ArchiveLoader loader;
+    private final int parallelism;
+    private final @Nullable Predicate<Archive> target;
+    private final int depth;
+    private final @Nullable ArchiveDependencyStore store;
+    private final @Nullable EntryPoints entryPoints;
+    private final @Nullable KeepRules keepRules;
+    private final List<Archive> classpathArchives;
+    private final @Nullable Map<String, List<Archive>> pooledPackages;
+
+    private final Set<Archive> traversable = new HashSet<>();
+    private final Map<Archive, ArchiveDependencies> loaded = new HashMap<>();
+    private final Map<Archive, Future<@Nullable ArchiveDependencies>> loading = new HashMap<>();
+    private final Map<Archive, BitSet> parsed = new HashMap<>();
+    private final Map<Archive, BitSet> deferred = new HashMap<>();
+    private final Map<Archive, List<Parked>> parked = new LinkedHashMap<>();
+    private final Set<Archive> rootArchives = new LinkedHashSet<>();
+    private final Map<String, @Nullable Archive> resolved = new HashMap<>();
+    private final Set<Archive> archivesWithEdges = new LinkedHashSet<>();
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final ArrayDeque<Pending> next = new ArrayDeque<>();
+    private final Map<Archive, List<Parked>> nextParked = new LinkedHashMap<>();
+    private final IndexedGraph.Builder builder = new IndexedGraph.Builder();
+    private final BitSet keptNodes = new BitSet();
+    private final Set<Archive> versionsRecorded = new HashSet<>();
+    private final Map<String, Integer> classVersions = new HashMap<>();
+
+    GraphAssembler(
+            JdepsConfiguration configuration,
+            JdepsFilter filter,
+            AnalyzerType type,
+            ArchiveLoader loader,
+            int parallelism) {
+        this(configuration, filter, type, loader, parallelism, null, Integer.MAX_VALUE, null, null, null, null);
+    }
+
+    /**
+     * @param target       archives whose reachable classes are needed, null traverses all archives
+     * @param depth        number of archives that are neither roots nor targets a dependency path may pass through,
+     *                     {@link Integer#MAX_VALUE} for no limit
+     * @param store        store of the loaded dependencies, null keeps them in memory
+     * @param entryPoints  entry points the root archives are traversed from, null traverses every class of them
+     * @param keepRules    rules of the classes that are roots whatever archive they belong to, null for none
+     * @param pooledArchives classpath archives opened through an {@link ArchivePool}, the configuration must then have
+     *                     no classpath, null uses the classpath of the configuration
+     */
+    GraphAssembler(
+            JdepsConfiguration configuration,
+            JdepsFilter filter,
+            AnalyzerType type,
+            ArchiveLoader loader,
+            int parallelism,
+            @Nullable Predicate<Archive> target,
+            int depth,
+            @Nullable ArchiveDependencyStore store,
+            @Nullable EntryPoints entryPoints,
+            @Nullable KeepRules keepRules,
+            @Nullable List<Archive> pooledArchives) {
+        this.configuration = configuration;
+        this.filter = filter;
+        this.type = type;
+        this.loader = loader;
+        this.parallelism = parallelism;
+        this.target = target;
+        this.depth = target != null ? depth : Integer.MAX_VALUE;
+        this.store = store;
+        this.entryPoints = entryPoints;
+        this.keepRules = keepRules;
+        this.classpathArchives = pooledArchives != null ? pooledArchives : configuration.classPathArchives();
+        this.pooledPackages = pooledArchives != null ? packages(pooledArchives) : null;
+    }
+
+    @SneakyThrows
+    DependencyGraph assemble() {
+        traversable.addAll(configuration.initialArchives());
+        traversable.addAll(classpathArchives);
+
+        rootArchives.addAll(configuration.initialArchives());
+        // Same as jdeps: with -include or a target filter, matching classpath archives are analyzed as well
+        if (filter.hasIncludePattern() || filter.hasTargetFilter()) {
+            classpathArchives.stream().filter(filter::matches).forEach(rootArchives::add);
+        }
+
+        var executor = parallelism > 1
+                ? Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("jarinker-scan"))
+                : null;
+        try {
+            if (executor != null) {
+                var eager = traversable.stream()
+                        .filter(archive -> target == null || keepRules != null || isFree(archive))
+                        .toList();
+                if (eager.size() > 1) {
+                    eager.forEach(archive -> startLoading(executor, archive));
+                    if (store == null) {
+                        eager.forEach(this::load);
+                    }
+                }
+            }
+
+            int roots = 0;
+            for (var archive : rootArchives) {
+                var deps = load(archive);
+                var entries = entryPoints != null ? entryPoints(archive, deps) : null;
+                for (int c = 0; c < deps.classCount(); c++) {
+                    if (entries != null && !entries.get(c) && !isKept(archive, deps, c)) {
+                        // Claimed all the same, a class of a root archive shadows the later ones
+                        resolved.putIfAbsent(deps.symbol(c), archive);
+                        continue;
+                    }
+                    roots++;
+                    if (store != null) {
+                        // Claimed like enqueue() does, visited one archive at a time, see drain()
+                        resolved.putIfAbsent(deps.symbol(c), archive);
+                        park(archive, deps.symbol(c), 0);
+                    } else {
+                        enqueue(archive, deps, c, 0);
+                    }
+                }
+            }
+            if (entryPoints != null && roots == 0) {
+                throw new IllegalArgumentException("No entry points found, the sources have no Main-Class, "
+                        + "service provider or class matching an entry-point pattern");
+            }
+            if (keepRules != null) {
+                addKeptClasses();
+            }
+
+            for (int hops = 0; ; ) {
+                drain(hops, executor);
+                if (!parked.isEmpty()) {
+                    unpark();
+                } else if (!next.isEmpty() || !nextParked.isEmpty()) {
+                    advance();
+                    hops++;
+                } else {
+                    break;
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        return new DependencyGraph(
+                versioned(builder.build()), archivesWithEdges, List.copyOf(rootArchives), keptNodes, type);
+    }
+
+    /**
+     * Make the classes of the other traversable archives the keep rules match roots, each class is only kept in the
+     * archive it resolves to. They are recorded as kept nodes, nodes of root archives are roots anyway.
+     */
+    private void addKeptClasses() throws IOException {
+        for (var archive : classpathArchives) {
+            if (!traversable.contains(archive) || rootArchives.contains(archive)) {
+                continue;
+            }
+            var deps = load(archive);
+            for (int c = 0; c < deps.classCount(); c++) {
+                var className = deps.symbol(c);
+                if (!isKept(archive, deps, c) || resolve(className) != archive) {
+                    continue;
+                }
+                keptNodes.set(builder.node(archive.getName(), nodeName(className)));
+                if (store != null) {
+                    park(archive, className, 0);
+                } else {
+                    enqueue(archive, deps, c, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the keep rules keep a class, by name or by the annotations of the class itself
+     */
+    private boolean isKept(Archive archive, ArchiveDependencies deps, int clazz) throws IOException {
+        var rules = keepRules;
+        if (rules == null) {
+            return false;
+        }
+        var className = deps.symbol(clazz);
+        return rules.keepsClass(className) || (rules.hasAnnotations() && isAnnotated(archive, className, rules));
+    }
+
+    /**
+     * Reads the class file again, the dependencies do not tell a class annotation from any other use of the type, and
+     * annotations retained only in the class file are no dependency at all.
+     *
+     * @return whether the {@code RuntimeVisibleAnnotations} or {@code RuntimeInvisibleAnnotations} of the class name
+     * an annotation type the rules keep
+     */
+    private static boolean isAnnotated(Archive archive, String className, KeepRules rules) throws IOException {
+        var cf = archive.reader().getClassFile(className.replace('.', '/'));
+        if (cf == null) {
+            return false;
+        }
+        try {
+            for (var name : ANNOTATION_ATTRIBUTES) {
+                if (!(cf.attributes.get(name) instanceof RuntimeAnnotations_attribute attribute)) {
+                    continue;
+                }
+                for (var annotation : attribute.annotations) {
+                    var descriptor = cf.constant_pool.getUTF8Value(annotation.type_index);
+                    if (descriptor.length() > 2
+                            && descriptor.charAt(0) == 'L'
+                            && rules.keepsAnnotated(descriptor
+                                    .substring(1, descriptor.length() - 1)
+                                    .replace('/', '.'))) {
+                        return true;
+                    }
+                }
+            }
+        } catch (ConstantPoolException e) {
+            // A constant pool that can not be read names no annotation
+        }
+        return false;
+    }
+
+    /**
+     * Visit the classes queued on the current level. With a store, the classes parked for other archives are visited
+     * one archive at a time, classes of the same archive go through the queue.
+     */
+    private void drain(int hops, @Nullable ExecutorService executor) {
+        while (true) {
+            Pending pending;
+            while ((pending = queue.poll()) != null) {
+                visit(pending, hops, executor);
+            }
+            if (store == null || parked.isEmpty()) {
+                return;
+            }
+            var iterator = parked.entrySet().iterator();
+            var entry = iterator.next();
+            iterator.remove();
+            var deps = load(entry.getKey());
+            for (var waiting : entry.getValue()) {
+                int index = deps.indexOf(waiting.className());
+                if (index >= 0) {
+                    enqueue(entry.getKey(), deps, index, waiting.cost());
+                }
+            }
+        }
+    }
+
+    private void visit(Pending pending, int hops, @Nullable ExecutorService executor) {
+        var archive = pending.archive();
+        var deps = pending.deps();
+        var origin = deps.symbol(pending.clazz());
+        int from = -1;
+        for (int i = 0, n = deps.dependencyCount(pending.clazz()); i < n; i++) {
+            var targetClass = deps.symbol(deps.dependency(pending.clazz(), i));
+            if (!filter.accepts(new ClassDependency(new ClassLocation(origin), new ClassLocation(targetClass)))) {
+                continue;
+            }
+
+            var targetArchive = deps.indexOf(targetClass) >= 0 ? archive : resolve(targetClass);
+            if (from < 0) {
+                from = builder.node(archive.getName(), nodeName(origin));
+            }
+            var targetArchiveName = targetArchive != null ? targetArchive.getName() : NOT_FOUND;
+            builder.edge(from, builder.node(targetArchiveName, nodeName(targetClass)));
+            archivesWithEdges.add(archive);
+
+            if (targetArchive == null || !traversable.contains(targetArchive)) {
+                continue;
+            }
+            int cost = depth != Integer.MAX_VALUE && targetArchive != archive && !isFree(targetArchive) ? 1 : 0;
+            if (hops + cost > depth) {
+                continue;
+            }
+            if (store != null && targetArchive != archive) {
+                // Visited when the traversal gets to the archive, see drain()
+                if (executor != null) {
+                    startLoading(executor, targetArchive);
+                }
+                park(targetArchive, targetClass, cost);
+                continue;
+            }
+            var targetDeps = targetArchive == archive ? deps : loaded.get(targetArchive);
+            if (targetDeps == null && target != null && executor != null) {
+                // Load in parallel with the other archives reached in this round, see unpark()
+                startLoading(executor, targetArchive);
+                park(targetArchive, targetClass, cost);
+                continue;
+            }
+            if (targetDeps == null) {
+                targetDeps = load(targetArchive);
+            }
+            int index = targetDeps.indexOf(targetClass);
+            if (index >= 0) {
+                enqueue(targetArchive, targetDeps, index, cost);
+            }
+        }
+    }
+
+    /**
+     * Queue a class for traversal, on the current level or, with a cost of 1, on the next one.
+     */
+    private void enqueue(Archive archive, ArchiveDependencies deps, int clazz, int cost) {
+        var done = parsed.computeIfAbsent(archive, k -> new BitSet(deps.classCount()));
+        if (done.get(clazz)) {
+            return;
+        }
+        if (cost > 0) {
+            var waiting = deferred.computeIfAbsent(archive, k -> new BitSet(deps.classCount()));
+            if (waiting.get(clazz)) {
+                return;
+            }
+            waiting.set(clazz);
+        } else {
+            done.set(clazz);
+        }
+        var className = deps.symbol(clazz);
+        resolved.putIfAbsent(className, archive);
+        if (!filter.matches(className)) {
+            return;
+        }
+        if (cost > 0 && store != null) {
+            // Not holding on to the dependencies until the next level
+            nextParked.computeIfAbsent(archive, k -> new ArrayList<>()).add(new Parked(className, 0));
+        } else {
+            (cost > 0 ? next : queue).add(new Pending(archive, deps, clazz));
+        }
+    }
+
+    /**
+     * Move to the next level, classes that were reached on the current level in the meantime are skipped.
+     */
+    private void advance() {
+        Pending pending;
+        while ((pending = next.poll()) != null) {
+            var done = parsed.computeIfAbsent(pending.archive(), k -> new BitSet());
+            if (!done.get(pending.clazz())) {
+                done.set(pending.clazz());
+                queue.add(pending);
+            }
+        }
+        nextParked.forEach((archive, classes) ->
+                parked.computeIfAbsent(archive, k -> new ArrayList<>()).addAll(classes));
+        nextParked.clear();
+        deferred.clear();
+    }
+
+    /**
+     * Queue the classes of the archives reached in the last round, in the order the archives were reached.
+     */
+    private void unpark() {
+        var reached = new ArrayList<>(parked.entrySet());
+        parked.clear();
+        for (var entry : reached) {
+            var deps = load(entry.getKey());
+            for (var pending : entry.getValue()) {
+                int index = deps.indexOf(pending.className());
+                if (index >= 0) {
+                    enqueue(entry.getKey(), deps, index, pending.cost());
+                }
+            }
+        }
+    }
+
+    private void park(Archive archive, String className, int cost) {
+        parked.computeIfAbsent(archive, k -> new ArrayList<>()).add(new Parked(className, cost));
+    }
+
+    /**
+     * @return whether passing through the archive is not limited by the depth
+     */
+    private boolean isFree(Archive archive) {
+        return target == null || rootArchives.contains(archive) || target.test(archive);
+    }
+
+    /**
+     * @return indexes of the entry-point classes of a root archive
+     */
+    private BitSet entryPoints(Archive archive, ArchiveDependencies deps) throws IOException {
+        var classes = new HashSet<String>(deps.classCount() * 2);
+        for (int c = 0; c < deps.classCount(); c++) {
+            classes.add(deps.symbol(c));
+        }
+        var result = new BitSet(deps.classCount());
+        for (var className : Objects.requireNonNull(entryPoints).find(archive, classes)) {
+            result.set(deps.indexOf(className));
+        }
+        return result;
+    }
+
+    private @Nullable Archive resolve(String className) {
+        if (resolved.containsKey(className)) {
+            return resolved.get(className);
+        }
+        var archive = configuration.findClass(new ClassLocation(className)).orElse(null);
+        var packages = pooledPackages;
+        if (archive == null && packages != null) {
+            var name = className.replace('.', '/');
+            int slash = name.lastIndexOf('/');
+            var entryName = name + ".class";
+            archive = packages.getOrDefault(slash > 0 ? name.substring(0, slash) : "", List.of()).stream()
+                    .filter(a -> a.contains(entryName))
+                    .findFirst()
+                    .orElse(null);
+        }
+        resolved.put(className, archive);
+        return archive;
+    }
+
+    /**
+     * Index archives by the packages of their classes, like {@link JdepsConfiguration} does for its classpath.
+     *
+     * @return internal package name to the archives that have classes in it, in classpath order
+     */
+    private static Map<String, List<Archive>> packages(List<Archive> archives) {
+        var packages = new HashMap<String, List<Archive>>();
+        for (var archive : archives) {
+            archive.reader().entries().stream()
+                    .filter(entry -> entry.endsWith(".class") && !entry.equals("module-info.class"))
+                    .map(entry -> entry.lastIndexOf('/') > 0 ? entry.substring(0, entry.lastIndexOf('/')) : "")
+                    .distinct()
+                    .forEach(pn ->
+                            packages.computeIfAbsent(pn, k -> new ArrayList<>()).add(archive));
+        }
+        return packages;
+    }
+
+    private void startLoading(ExecutorService executor, Archive archive) {
+        if (isLoaded(archive) || loading.containsKey(archive)) {
+            return;
+        }
+        var activeStore = store;
+        loading.put(archive, executor.submit(() -> {
+            var deps = loader.load(archive);
+            if (activeStore == null) {
+                return deps;
+            }
+            // Only the store holds on to the dependencies, not the finished task
+            activeStore.put(archive, deps);
+            return null;
+        }));
+    }
+
+    @SneakyThrows
+    private ArchiveDependencies load(Archive archive) {
+        var deps = cached(archive);
+        if (deps != null) {
+            recordVersions(archive, deps);
+            return deps;
+        }
+        var task = loading.remove(archive);
+        if (task != null) {
+            try {
+                deps = task.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+            if (deps == null) {
+                return Objects.requireNonNull(cached(archive));
+            }
+        } else {
+            deps = loader.load(archive);
+        }
+        if (store != null) {
+            store.put(archive, deps);
+        } else {
+            loaded.put(archive, deps);
+        }
+        recordVersions(archive, deps);
+        return deps;
+    }
+
+    private void recordVersions(Archive archive, ArchiveDependencies deps) {
+        if (type != AnalyzerType.CLASS || !versionsRecorded.add(archive)) {
+            return;
+        }
+        for (int c = 0; c < deps.classCount(); c++) {
+            if (deps.version(c) > 0) {
+                classVersions.putIfAbsent(deps.symbol(c), deps.version(c));
+            }
+        }
+    }
+
+    /**
+     * Name the classes read from versioned entries the way jdeps does. Nodes are named once all archives are loaded,
+     * since a class may be referenced before the archive that defines it is loaded. Node ids are unchanged.
+     */
+    private IndexedGraph versioned(IndexedGraph graph) {
+        if (classVersions.isEmpty()) {
+            return graph;
+        }
+        var renamed = new IndexedGraph.Builder();
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            var name = graph.name(node);
+            var version = classVersions.get(name);
+            renamed.node(graph.archive(node), version != null ? version + "/" + name : name);
+        }
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            for (int i = 0, n = graph.outDegree(node); i < n; i++) {
+                renamed.edge(node, graph.successor(node, i));
+            }
+        }
+        return renamed.build();
+    }
+
+    private boolean isLoaded(Archive archive) {
+        return store != null ? store.contains(archive) : loaded.containsKey(archive);
+    }
+
+    private @Nullable ArchiveDependencies cached(Archive archive) throws IOException {
+        return store != null ? store.get(archive) : loaded.get(archive);
+    }
+
+    private String nodeName(String className) {
+        if (type == AnalyzerType.CLASS) {
+            return className;
+        }
+        int i = className.lastIndexOf('.');
+        return i > 0 ? className.substring(0, i) : "<unnamed>";
+    }
+
+    /**
+     * Provides the dependencies of an archive, typically backed by an {@link AnalysisCache}.
+     */
+    @FunctionalInterface
+    interface ArchiveLoader {
+        ArchiveDependencies load(Archive archive) throws IOException;
+    }
+
+    private record Pending(Archive archive, ArchiveDependencies deps, int clazz) {}
+
+    /**
+     * A class of an archive that is still loading or, with a store, that is not traversed yet.
+     */
+    private record Parked(String className, int cost) {}
+
+    private record ClassDependency(Dependency.Location origin, Dependency.Location target) implements Dependency {
+
+        @Override
+        public Dependency.Location getOrigin() {
+            return origin;
+        }
+
+        @Override
+        public Dependency.Location getTarget() {
+            return target;
+        }
+    }
+
+    private record ClassLocation(String className) implements Dependency.Location {
+
+        @Override
+        public String getName() {
+            return className.replace('.', '/');
+        }
+
+        @Override
+        public String getClassName() {
+            return className;
+        }
+
+        @Override
+        public String getPackageName() {
+            int i = className.lastIndexOf('.');
+            return i > 0 ? className.substring(0, i) : "";
+        }
+    }
+}
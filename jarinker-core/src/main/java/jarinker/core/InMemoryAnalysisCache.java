@@ -0,0 +1,141 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * In-memory cache of {@link ArchiveDependencies}, shared by the analyses of a long-running process.
+ *
+ * <p> Entries are keyed by the jar identity (absolute path, size, modification time and file key) together with the
+ * multi-release version and the scanner, a jar rewritten in place is scanned again. Memory is bounded by the estimated
+ * size of the entries, the least recently used entries are evicted first. Misses fall through to the
+ * {@link AnalysisCache} when one is configured.
+ *
+ * <p> The cache is thread-safe, concurrent analyses may share it. Two analyses missing the same jar at the same time
+ * may both scan it, the last result wins.
+ *
+ * @author Freeman
+ */
+public final class InMemoryAnalysisCache {
+
+    private final long maxSize;
+    private final LinkedHashMap<Key, ArchiveDependencies> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxSize maximum estimated size of the cached entries in bytes
+     */
+    public InMemoryAnalysisCache(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the dependencies of a JAR from memory, loading them on a miss.
+     *
+     * @param archive             archive of the JAR
+     * @param jar                 JAR file
+     * @param multiReleaseVersion multi-release version the archive is read with
+     * @param scanner             scanner the entry is keyed by
+     * @param loader              loads the dependencies on a miss
+     * @return dependencies of the JAR
+     */
+    ArchiveDependencies get(
+            Archive archive,
+            Path jar,
+            Runtime.Version multiReleaseVersion,
+            ArchiveScanner scanner,
+            GraphAssembler.ArchiveLoader loader)
+            throws IOException {
+        var key = key(jar, multiReleaseVersion, scanner);
+        synchronized (this) {
+            var cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        var deps = loader.load(archive);
+        put(key, deps);
+        return deps;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * @return current usage of the cache
+     */
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), size, maxSize, hits, misses, evictions);
+    }
+
+    private synchronized void put(Key key, ArchiveDependencies deps) {
+        long entrySize = deps.estimatedSize();
+        if (entrySize > maxSize) {
+            // Would evict everything else and still not fit
+            return;
+        }
+        var previous = entries.put(key, deps);
+        if (previous != null) {
+            size -= previous.estimatedSize();
+        }
+        size += entrySize;
+
+        var iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().estimatedSize();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static Key key(Path jar, Runtime.Version multiReleaseVersion, ArchiveScanner scanner) throws IOException {
+        var attrs = Files.readAttributes(jar, BasicFileAttributes.class);
+        return new Key(
+                jar.toAbsolutePath().normalize(),
+                attrs.size(),
+                attrs.lastModifiedTime().toMillis(),
+                attrs.fileKey(),
+                multiReleaseVersion.feature(),
+                scanner.id());
+    }
+
+    private record Key(
+            Path path,
+            long size,
+            long lastModified,
+            @Nullable Object fileKey,
+            int multiReleaseFeature,
+            String scanner) {}
+
+    /**
+     * Usage of an {@link InMemoryAnalysisCache}.
+     *
+     * @param entries   number of cached archives
+     * @param size      estimated size of the cached archives in bytes
+     * @param maxSize   size limit in bytes
+     * @param hits      lookups served from memory
+     * @param misses    lookups that loaded the archive
+     * @param evictions entries evicted to stay within the size limit
+     */
+    public record Stats(int entries, long size, long maxSize, long hits, long misses, long evictions) {}
+}
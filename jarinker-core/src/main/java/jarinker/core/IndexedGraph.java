@@ -0,0 +1,271 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.DepsAnalyzer;
+import com.sun.tools.jdeps.Graph;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, int-indexed dependency graph.
+ *
+ * <p> Node names and archive names are interned once, adjacency is stored in CSR form
+ * ({@code offsets}/{@code targets} int arrays), so memory grows with the number of edges rather than with the number
+ * of strings. A node is identified by its archive and its name (class, package or module name depending on the
+ * analysis type).
+ *
+ * @author Freeman
+ */
+public final class IndexedGraph {
+
+    private final SymbolTable names;
+    private final String[] archives;
+    private final int[] nodeName;
+    private final int[] nodeArchive;
+    private final int[] offsets;
+    private final int[] targets;
+
+    private IndexedGraph(
+            SymbolTable names, String[] archives, int[] nodeName, int[] nodeArchive, int[] offsets, int[] targets) {
+        this.names = names;
+        this.archives = archives;
+        this.nodeName = nodeName;
+        this.nodeArchive = nodeArchive;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Build from a jdeps graph.
+     *
+     * @param graph jdeps graph
+     * @return indexed graph
+     */
+    public static IndexedGraph of(Graph<DepsAnalyzer.Node> graph) {
+        var builder = new Builder();
+        for (var node : graph.nodes()) {
+            int from = builder.node(node.source, node.name);
+            for (var target : graph.adjacentNodes(node)) {
+                builder.edge(from, builder.node(target.source, target.name));
+            }
+        }
+        return builder.build();
+    }
+
+    public int nodeCount() {
+        return nodeName.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param node node id
+     * @return class, package or module name of the node
+     */
+    public String name(int node) {
+        return names.get(nodeName[node]);
+    }
+
+    /**
+     * @param node node id
+     * @return name of the archive the node belongs to
+     */
+    public String archive(int node) {
+        return archives[nodeArchive[node]];
+    }
+
+    /**
+     * @param node node id
+     * @return "archive/name", same format as jdeps uses to print a node
+     */
+    public String label(int node) {
+        return archive(node) + "/" + name(node);
+    }
+
+    /**
+     * @param node node id
+     * @return id of the node name in the name table, shared by nodes with the same name in different archives
+     */
+    public int nameId(int node) {
+        return nodeName[node];
+    }
+
+    /**
+     * @param name class, package or module name
+     * @return id in the name table, or -1 if no node has this name
+     */
+    public int findName(String name) {
+        return names.find(name);
+    }
+
+    public int nameCount() {
+        return names.size();
+    }
+
+    public int outDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @param node  node id
+     * @param index index of the edge, in {@code [0, outDegree(node))}
+     * @return target node id
+     */
+    public int successor(int node, int index) {
+        return targets[offsets[node] + index];
+    }
+
+    /**
+     * Breadth-first traversal from the given roots.
+     *
+     * @param roots root node ids
+     * @return ids of all nodes reachable from the roots, including the roots
+     */
+    public BitSet reachableFrom(BitSet roots) {
+        var visited = (BitSet) roots.clone();
+        var queue = new int[Math.max(1, roots.cardinality())];
+        int head = 0;
+        int tail = 0;
+        for (int n = roots.nextSetBit(0); n >= 0; n = roots.nextSetBit(n + 1)) {
+            queue[tail++] = n;
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = offsets[node], end = offsets[node + 1]; e < end; e++) {
+                int target = targets[e];
+                if (!visited.get(target)) {
+                    visited.set(target);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, Math.min(nodeCount(), queue.length * 2));
+                    }
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Breadth-first order of the nodes reachable from the given roots, roots first, so nodes appear by increasing
+     * distance from the roots.
+     *
+     * @param roots root node ids
+     * @return ids of all nodes reachable from the roots, in visiting order
+     */
+    public int[] breadthFirstOrder(BitSet roots) {
+        var visited = (BitSet) roots.clone();
+        var queue = new int[Math.max(1, nodeCount())];
+        int head = 0;
+        int tail = 0;
+        for (int n = roots.nextSetBit(0); n >= 0; n = roots.nextSetBit(n + 1)) {
+            queue[tail++] = n;
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = offsets[node], end = offsets[node + 1]; e < end; e++) {
+                int target = targets[e];
+                if (!visited.get(target)) {
+                    visited.set(target);
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    /**
+     * Incrementally assembles an {@link IndexedGraph}, duplicate edges are removed on {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final SymbolTable names = new SymbolTable();
+        private final Map<String, Integer> archiveIds = new HashMap<>();
+        private final Map<Long, Integer> nodeIds = new HashMap<>();
+        private int[] nodeName = new int[1024];
+        private int[] nodeArchive = new int[1024];
+        private int nodeCount;
+        private int[] edgeFrom = new int[4096];
+        private int[] edgeTo = new int[4096];
+        private int edgeCount;
+
+        /**
+         * Get or create a node.
+         *
+         * @param archive archive name
+         * @param name    class, package or module name
+         * @return node id
+         */
+        public int node(String archive, String name) {
+            int archiveId = archiveIds.computeIfAbsent(archive, k -> archiveIds.size());
+            int nameId = names.intern(name);
+            long key = ((long) archiveId << 32) | nameId;
+            var existing = nodeIds.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (nodeCount == nodeName.length) {
+                nodeName = Arrays.copyOf(nodeName, nodeCount * 2);
+                nodeArchive = Arrays.copyOf(nodeArchive, nodeCount * 2);
+            }
+            nodeName[nodeCount] = nameId;
+            nodeArchive[nodeCount] = archiveId;
+            nodeIds.put(key, nodeCount);
+            return nodeCount++;
+        }
+
+        public void edge(int from, int to) {
+            if (edgeCount == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeCount++;
+        }
+
+        public IndexedGraph build() {
+            // Counting sort edges by source node into CSR form
+            var offsets = new int[nodeCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[edgeFrom[i] + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            var cursor = Arrays.copyOf(offsets, nodeCount);
+            var targets = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                targets[cursor[edgeFrom[i]]++] = edgeTo[i];
+            }
+
+            // Sort and dedupe each adjacency range, compacting in place
+            int write = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                int start = offsets[node];
+                int end = offsets[node + 1];
+                Arrays.sort(targets, start, end);
+                offsets[node] = write;
+                for (int e = start; e < end; e++) {
+                    if (e == start || targets[e] != targets[e - 1]) {
+                        targets[write++] = targets[e];
+                    }
+                }
+            }
+            offsets[nodeCount] = write;
+
+            var archives = new String[archiveIds.size()];
+            archiveIds.forEach((name, id) -> archives[id] = name);
+
+            return new IndexedGraph(
+                    names,
+                    archives,
+                    Arrays.copyOf(nodeName, nodeCount),
+                    Arrays.copyOf(nodeArchive, nodeCount),
+                    offsets,
+                    Arrays.copyOf(targets, write));
+        }
+    }
+}
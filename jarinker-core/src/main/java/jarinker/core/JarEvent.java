@@ -0,0 +1,37 @@
+package jarinker.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a jar processed within a {@link Profiler} phase.
+ *
+ * @author Freeman
+ */
+@Name("jarinker.Jar")
+@Label("Jarinker Jar")
+@Category("Jarinker")
+@Description("A jar scanned or rewritten by jarinker")
+class JarEvent extends Event {
+
+    @Label("Phase")
+    String phase = "";
+
+    @Label("Jar")
+    String jar = "";
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    @Label("Entries")
+    long entries;
+}
@@ -0,0 +1,450 @@
+package jarinker.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Index of a JAR built from its central directory, giving direct access to the raw (still compressed) bytes of each
+ * entry.
+ *
+ * <p> Opening an index only parses the central directory at the end of the archive, entries are then looked up by
+ * name in constant time and only the entries actually needed are read. Nothing is inflated unless
+ * {@link #read(RawJarEntry)} is called, so kept entries can be moved to another archive as-is.
+ *
+ * <p> Archives smaller than 2GB are memory-mapped, so reading an entry does not copy it through an intermediate
+ * buffer. Larger archives, and all archives on Windows where a mapped file can not be replaced until the mapping is
+ * garbage collected, are read through the file channel instead.
+ *
+ * @author Freeman
+ */
+final class JarIndex implements Closeable {
+
+    static final int LOC_SIG = 0x04034b50;
+    static final int CEN_SIG = 0x02014b50;
+    static final int END_SIG = 0x06054b50;
+    static final int ZIP64_END_SIG = 0x06064b50;
+    static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+
+    static final int LOC_HEADER_SIZE = 30;
+    static final int CEN_HEADER_SIZE = 46;
+    static final int END_HEADER_SIZE = 22;
+    static final int ZIP64_END_HEADER_SIZE = 56;
+    static final int ZIP64_LOCATOR_SIZE = 20;
+    static final int ZIP64_EXTRA_ID = 0x0001;
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final boolean MAPPING_SUPPORTED =
+            !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final Path path;
+    private final FileChannel channel;
+    private final @Nullable MappedByteBuffer mapped;
+    private final List<RawJarEntry> entries;
+    private final Map<String, RawJarEntry> entriesByName;
+
+    private JarIndex(Path path, FileChannel channel, boolean mapping) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        long size = channel.size();
+        this.mapped = mapping && size <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+        this.entries = readCentralDirectory();
+        this.entriesByName = new HashMap<>(Math.max(16, (int) (entries.size() / 0.75f) + 1));
+        for (var entry : entries) {
+            // Like ZipFile, the first entry wins when a name is duplicated
+            entriesByName.putIfAbsent(entry.name(), entry);
+        }
+    }
+
+    /**
+     * Open a JAR and index its central directory.
+     *
+     * @param path JAR file
+     * @return index, must be closed by the caller
+     * @throws IOException if the file can not be read or is not a valid zip archive
+     */
+    static JarIndex open(Path path) throws IOException {
+        return open(path, MAPPING_SUPPORTED);
+    }
+
+    /**
+     * Open a JAR and index its central directory.
+     *
+     * @param path    JAR file
+     * @param mapping whether the archive may be memory-mapped, it is read through the file channel otherwise
+     * @return index, must be closed by the caller
+     * @throws IOException if the file can not be read or is not a valid zip archive
+     */
+    static JarIndex open(Path path, boolean mapping) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new JarIndex(path, channel, mapping);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return entries in central directory order
+     */
+    List<RawJarEntry> entries() {
+        return entries;
+    }
+
+    /**
+     * Look up an entry by name.
+     *
+     * @param name entry name, e.g. {@code com/example/Foo.class}
+     * @return entry, or null if the archive has no such entry
+     */
+    @Nullable
+    RawJarEntry find(String name) {
+        return entriesByName.get(name);
+    }
+
+    /**
+     * Read the manifest of the archive.
+     *
+     * @return manifest, or null if the archive has none
+     */
+    @Nullable
+    Manifest manifest() throws IOException {
+        var entry = find(JarFile.MANIFEST_NAME);
+        if (entry == null) {
+            // JarFile matches the manifest name case-insensitively, fall back to a scan for odd casings
+            entry = entries.stream()
+                    .filter(e -> e.name().equalsIgnoreCase(JarFile.MANIFEST_NAME))
+                    .findFirst()
+                    .orElse(null);
+            if (entry == null) {
+                return null;
+            }
+        }
+        return new Manifest(new ByteArrayInputStream(read(entry)));
+    }
+
+    /**
+     * Get the offset of the entry data, right after its local file header.
+     *
+     * @param entry entry of this archive
+     * @return absolute data offset
+     */
+    long dataOffset(RawJarEntry entry) throws IOException {
+        var header = readFully(entry.localHeaderOffset(), LOC_HEADER_SIZE);
+        if (header.getInt(0) != LOC_SIG) {
+            throw new ZipException("Invalid local header for entry " + entry.name() + " in " + path);
+        }
+        int nameLength = Short.toUnsignedInt(header.getShort(26));
+        int extraLength = Short.toUnsignedInt(header.getShort(28));
+        return entry.localHeaderOffset() + LOC_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    /**
+     * Transfer the compressed bytes of an entry to the given channel, without decompressing them.
+     *
+     * @param entry  entry of this archive
+     * @param target target channel
+     */
+    void transferRaw(RawJarEntry entry, WritableByteChannel target) throws IOException {
+        long position = dataOffset(entry);
+        if (mapped != null) {
+            var data = readFully(position, Math.toIntExact(entry.compressedSize()));
+            while (data.hasRemaining()) {
+                target.write(data);
+            }
+            return;
+        }
+        long remaining = entry.compressedSize();
+        while (remaining > 0) {
+            long n = channel.transferTo(position, remaining, target);
+            if (n <= 0) {
+                throw new ZipException("Unexpected end of entry " + entry.name() + " in " + path);
+            }
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * Read the compressed bytes of an entry into the given buffer.
+     *
+     * @param entry  entry of this archive, its compressed size must fit into the remaining buffer space
+     * @param target target buffer
+     */
+    void readRaw(RawJarEntry entry, ByteBuffer target) throws IOException {
+        long position = dataOffset(entry);
+        if (mapped != null) {
+            target.put(readFully(position, Math.toIntExact(entry.compressedSize())));
+            return;
+        }
+        int limit = target.limit();
+        target.limit(target.position() + Math.toIntExact(entry.compressedSize()));
+        try {
+            while (target.hasRemaining()) {
+                int n = channel.read(target, position);
+                if (n < 0) {
+                    throw new ZipException("Unexpected end of entry " + entry.name() + " in " + path);
+                }
+                position += n;
+            }
+        } finally {
+            target.limit(limit);
+        }
+    }
+
+    /**
+     * Read and decompress the content of an entry.
+     *
+     * @param entry entry of this archive
+     * @return uncompressed content
+     */
+    byte[] read(RawJarEntry entry) throws IOException {
+        var raw = readFully(dataOffset(entry), Math.toIntExact(entry.compressedSize()));
+        return switch (entry.method()) {
+            case RawJarEntry.STORED -> toArray(raw);
+            case RawJarEntry.DEFLATED -> inflate(entry, raw);
+            default -> throw new ZipException(
+                    "Unsupported compression method " + entry.method() + " for entry " + entry.name() + " in " + path);
+        };
+    }
+
+    private byte[] inflate(RawJarEntry entry, ByteBuffer compressed) throws IOException {
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            var result = new byte[Math.toIntExact(entry.size())];
+            int offset = 0;
+            while (offset < result.length) {
+                int n = inflater.inflate(result, offset, result.length - offset);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += n;
+            }
+            if (offset != result.length) {
+                throw new ZipException("Invalid entry size for " + entry.name() + " in " + path);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new ZipException(
+                    "Invalid compressed data for entry " + entry.name() + " in " + path + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.array().length == buffer.remaining()) {
+            return buffer.array();
+        }
+        var result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<RawJarEntry> readCentralDirectory() throws IOException {
+        long fileSize = channel.size();
+        long endPosition = findEndOfCentralDirectory(fileSize);
+        var end = readFully(endPosition, END_HEADER_SIZE);
+
+        long entryCount = Short.toUnsignedLong(end.getShort(10));
+        long cenSize = Integer.toUnsignedLong(end.getInt(12));
+        long cenOffset = Integer.toUnsignedLong(end.getInt(16));
+        long cenPosition = endPosition - cenSize;
+
+        if (entryCount == 0xFFFF || cenSize == ZIP64_MAGIC || cenOffset == ZIP64_MAGIC) {
+            var zip64End = readZip64End(endPosition);
+            if (zip64End != null) {
+                entryCount = zip64End.getLong(32);
+                cenSize = zip64End.getLong(40);
+                cenOffset = zip64End.getLong(48);
+                cenPosition = endPosition - ZIP64_LOCATOR_SIZE - ZIP64_END_HEADER_SIZE - cenSize;
+            }
+        }
+
+        // Archives can have data prepended (e.g. a launch script), offsets in the central directory
+        // are relative to the start of the zip data, not the start of the file
+        long base = cenPosition - cenOffset;
+        if (base < 0 || cenPosition < 0) {
+            throw new ZipException("Invalid central directory in " + path);
+        }
+
+        var cen = readFully(cenPosition, Math.toIntExact(cenSize));
+        var nameDecoder = StandardCharsets.UTF_8.newDecoder();
+        var result = new ArrayList<RawJarEntry>((int) Math.min(entryCount, Integer.MAX_VALUE));
+        int pos = 0;
+        while (pos + CEN_HEADER_SIZE <= cen.limit()) {
+            if (cen.getInt(pos) != CEN_SIG) {
+                throw new ZipException("Invalid central directory header in " + path);
+            }
+            int nameLength = Short.toUnsignedInt(cen.getShort(pos + 28));
+            int extraLength = Short.toUnsignedInt(cen.getShort(pos + 30));
+            int commentLength = Short.toUnsignedInt(cen.getShort(pos + 32));
+
+            var nameBytes = new byte[nameLength];
+            cen.get(pos + CEN_HEADER_SIZE, nameBytes);
+            var extra = new byte[extraLength];
+            cen.get(pos + CEN_HEADER_SIZE + nameLength, extra);
+            var comment = new byte[commentLength];
+            cen.get(pos + CEN_HEADER_SIZE + nameLength + extraLength, comment);
+
+            long compressedSize = Integer.toUnsignedLong(cen.getInt(pos + 20));
+            long size = Integer.toUnsignedLong(cen.getInt(pos + 24));
+            long localHeaderOffset = Integer.toUnsignedLong(cen.getInt(pos + 42));
+
+            // Resolve zip64 values, they appear in a fixed order and only when the 32-bit field overflowed
+            var zip64 = findExtraBlock(extra, ZIP64_EXTRA_ID);
+            if (zip64 != null) {
+                if (size == ZIP64_MAGIC && zip64.remaining() >= 8) {
+                    size = zip64.getLong();
+                }
+                if (compressedSize == ZIP64_MAGIC && zip64.remaining() >= 8) {
+                    compressedSize = zip64.getLong();
+                }
+                if (localHeaderOffset == ZIP64_MAGIC && zip64.remaining() >= 8) {
+                    localHeaderOffset = zip64.getLong();
+                }
+                extra = removeExtraBlock(extra, ZIP64_EXTRA_ID);
+            }
+
+            result.add(new RawJarEntry(
+                    decodeName(nameDecoder, nameBytes),
+                    Short.toUnsignedInt(cen.getShort(pos + 4)),
+                    Short.toUnsignedInt(cen.getShort(pos + 8)),
+                    Short.toUnsignedInt(cen.getShort(pos + 10)),
+                    cen.getInt(pos + 12),
+                    Integer.toUnsignedLong(cen.getInt(pos + 16)),
+                    compressedSize,
+                    size,
+                    base + localHeaderOffset,
+                    extra,
+                    comment,
+                    Short.toUnsignedInt(cen.getShort(pos + 36)),
+                    Integer.toUnsignedLong(cen.getInt(pos + 38))));
+
+            pos += CEN_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+    private String decodeName(CharsetDecoder decoder, byte[] nameBytes) throws ZipException {
+        // Like ZipFile, names are UTF-8 whether the UTF-8 flag is set or not, and malformed names are rejected
+        // instead of being replaced, a copied entry would otherwise silently get another name
+        try {
+            return decoder.decode(ByteBuffer.wrap(nameBytes)).toString();
+        } catch (CharacterCodingException e) {
+            throw new ZipException("Invalid entry name in " + path + ", entry names must be UTF-8 encoded");
+        }
+    }
+
+    private long findEndOfCentralDirectory(long fileSize) throws IOException {
+        if (fileSize < END_HEADER_SIZE) {
+            throw new ZipException("Not a zip archive: " + path);
+        }
+        int tailSize = (int) Math.min(fileSize, END_HEADER_SIZE + MAX_COMMENT_SIZE);
+        long tailStart = fileSize - tailSize;
+        var tail = readFully(tailStart, tailSize);
+        for (int i = tailSize - END_HEADER_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIG) {
+                return tailStart + i;
+            }
+        }
+        throw new ZipException("End of central directory not found in " + path);
+    }
+
+    private @Nullable ByteBuffer readZip64End(long endPosition) throws IOException {
+        long locatorPosition = endPosition - ZIP64_LOCATOR_SIZE;
+        if (locatorPosition < 0) {
+            return null;
+        }
+        var locator = readFully(locatorPosition, ZIP64_LOCATOR_SIZE);
+        if (locator.getInt(0) != ZIP64_LOCATOR_SIG) {
+            return null;
+        }
+        long zip64EndPosition = locatorPosition - ZIP64_END_HEADER_SIZE;
+        var zip64End = readFully(zip64EndPosition, ZIP64_END_HEADER_SIZE);
+        if (zip64End.getInt(0) != ZIP64_END_SIG) {
+            throw new ZipException("Invalid zip64 end of central directory in " + path);
+        }
+        return zip64End;
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        if (mapped != null) {
+            if (position < 0 || position + length > mapped.capacity()) {
+                throw new ZipException("Unexpected end of file " + path);
+            }
+            return mapped.slice((int) position, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        var buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new ZipException("Unexpected end of file " + path);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static @Nullable ByteBuffer findExtraBlock(byte[] extra, int id) {
+        var buffer = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.remaining() >= 4) {
+            int blockId = Short.toUnsignedInt(buffer.getShort());
+            int blockSize = Short.toUnsignedInt(buffer.getShort());
+            if (blockSize > buffer.remaining()) {
+                return null;
+            }
+            if (blockId == id) {
+                return buffer.slice(buffer.position(), blockSize).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            buffer.position(buffer.position() + blockSize);
+        }
+        return null;
+    }
+
+    static byte[] removeExtraBlock(byte[] extra, int id) {
+        var result = new byte[extra.length];
+        int length = 0;
+        int pos = 0;
+        while (pos + 4 <= extra.length) {
+            int blockId = (extra[pos] & 0xFF) | (extra[pos + 1] & 0xFF) << 8;
+            int blockSize = (extra[pos + 2] & 0xFF) | (extra[pos + 3] & 0xFF) << 8;
+            int end = Math.min(extra.length, pos + 4 + blockSize);
+            if (blockId != id) {
+                System.arraycopy(extra, pos, result, length, end - pos);
+                length += end - pos;
+            }
+            pos = end;
+        }
+        return Arrays.copyOf(result, length);
+    }
+}
@@ -0,0 +1,191 @@
+package jarinker.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.zip.Deflater;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Writes the retained entries of several jars into one, see {@link JarShrinker#merge}.
+ *
+ * <p> Jars are added in classpath order and the first occurrence of an entry wins, like for the class loader. Entries
+ * with the same name, size and CRC-32 are identical and written once, other entries with the same name are
+ * conflicts. {@code META-INF/services} files are merged, providers are kept in first-seen order. Manifests,
+ * signatures, {@code INDEX.LIST} and {@code module-info.class} only describe their own jar and are dropped, the
+ * merged jar gets a manifest of its own.
+ *
+ * @author Freeman
+ */
+final class JarMerger implements Closeable {
+
+    private static final String META_INF = "META-INF/";
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+
+    private final RawJarWriter writer;
+    private final @Nullable Integer compressionLevel;
+    private final int generatedLevel;
+    private final Map<String, WrittenEntry> written = new HashMap<>();
+    private final Map<String, Set<String>> services = new LinkedHashMap<>();
+    private final Map<String, Integer> serviceContributors = new HashMap<>();
+    private final List<JarShrinker.MergeResult.Conflict> conflicts = new ArrayList<>();
+    private int duplicates;
+    private int entries;
+
+    /**
+     * @param output           merged jar
+     * @param multiRelease     whether any input is a multi-release jar
+     * @param compressionLevel deflate level of recompressed entries, null copies entries as raw compressed bytes
+     */
+    JarMerger(Path output, boolean multiRelease, @Nullable Integer compressionLevel) throws IOException {
+        this.writer = new RawJarWriter(output);
+        this.compressionLevel = compressionLevel;
+        this.generatedLevel = compressionLevel != null ? compressionLevel : Deflater.DEFAULT_COMPRESSION;
+        writeManifest(multiRelease);
+    }
+
+    /**
+     * Add the retained entries of a jar.
+     *
+     * @param jar      jar path
+     * @param index    index of the jar
+     * @param retained indexes of the retained entries
+     */
+    void add(Path jar, JarIndex index, BitSet retained) throws IOException {
+        var jarEntries = index.entries();
+        for (int i = retained.nextSetBit(0); i >= 0; i = retained.nextSetBit(i + 1)) {
+            var entry = jarEntries.get(i);
+            var name = entry.name();
+            if (isJarMetadata(name)) {
+                continue;
+            }
+            if (name.startsWith(SERVICES_PREFIX) && !entry.isDirectory()) {
+                addService(name, index.read(entry));
+                continue;
+            }
+
+            var previous = written.get(name);
+            if (previous != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (previous.crc() == entry.crc() && previous.size() == entry.size()) {
+                    duplicates++;
+                } else {
+                    conflicts.add(new JarShrinker.MergeResult.Conflict(name, previous.jar(), jar));
+                }
+                continue;
+            }
+
+            written.put(name, new WrittenEntry(entry.crc(), entry.size(), jar));
+            if (compressionLevel == null || entry.isDirectory()) {
+                writer.copyRaw(index, entry);
+            } else {
+                writer.write(entry, index.read(entry), compressionLevel);
+            }
+            entries++;
+        }
+    }
+
+    int entries() {
+        return entries;
+    }
+
+    int duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return number of service files provided by more than one jar
+     */
+    int mergedServices() {
+        return (int) serviceContributors.values().stream().filter(n -> n > 1).count();
+    }
+
+    List<JarShrinker.MergeResult.Conflict> conflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Write the merged service files and the central directory.
+     */
+    @Override
+    public void close() throws IOException {
+        try (writer) {
+            for (var service : services.entrySet()) {
+                var content = new StringBuilder();
+                for (var provider : service.getValue()) {
+                    content.append(provider).append('\n');
+                }
+                writer.write(
+                        RawJarEntry.generated(service.getKey()),
+                        content.toString().getBytes(StandardCharsets.UTF_8),
+                        generatedLevel);
+                entries++;
+            }
+        }
+    }
+
+    private void writeManifest(boolean multiRelease) throws IOException {
+        var manifest = new StringBuilder();
+        manifest.append("Manifest-Version: 1.0\r\n");
+        manifest.append("Created-By: jarinker\r\n");
+        if (multiRelease) {
+            manifest.append("Multi-Release: true\r\n");
+        }
+        manifest.append("\r\n");
+        writer.write(RawJarEntry.generated(META_INF), new byte[0], 0);
+        writer.write(
+                RawJarEntry.generated(JarFile.MANIFEST_NAME),
+                manifest.toString().getBytes(StandardCharsets.UTF_8),
+                generatedLevel);
+        // Directory entries are never reported, the jar is not used
+        written.put(META_INF, new WrittenEntry(0, 0, Path.of("")));
+        entries += 2;
+    }
+
+    private void addService(String name, byte[] content) {
+        var providers = services.computeIfAbsent(name, k -> new LinkedHashSet<>());
+        serviceContributors.merge(name, 1, Integer::sum);
+        for (var line : new String(content, StandardCharsets.UTF_8).split("\\R")) {
+            int comment = line.indexOf('#');
+            var provider = (comment >= 0 ? line.substring(0, comment) : line).strip();
+            if (!provider.isEmpty()) {
+                providers.add(provider);
+            }
+        }
+    }
+
+    /**
+     * @return whether the entry only describes its own jar
+     */
+    private static boolean isJarMetadata(String name) {
+        if (name.endsWith("module-info.class")) {
+            return true;
+        }
+        if (!name.regionMatches(true, 0, META_INF, 0, META_INF.length()) || name.indexOf('/', META_INF.length()) >= 0) {
+            return false;
+        }
+        var fileName = name.substring(META_INF.length()).toUpperCase(Locale.ROOT);
+        return fileName.equals("MANIFEST.MF")
+                || fileName.equals("INDEX.LIST")
+                || fileName.endsWith(".SF")
+                || fileName.endsWith(".RSA")
+                || fileName.endsWith(".DSA")
+                || fileName.endsWith(".EC")
+                || fileName.startsWith("SIG-");
+    }
+
+    private record WrittenEntry(long crc, long size, Path jar) {}
+}
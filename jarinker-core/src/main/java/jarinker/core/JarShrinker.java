@@ -4,136 +4,980 @@ import com.sun.tools.jdeps.Archive;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
-import java.util.jar.JarOutputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 import lombok.Builder;
 import lombok.SneakyThrows;
 import org.jspecify.annotations.Nullable;
 
 /**
  * Shrinks JAR files by removing unused classes.
- * This is a simplified implementation that will be enhanced with actual JAR processing.
+ *
+ * <p> Retained entries are copied as raw compressed bytes straight from the input archive,
+ * set {@code compressionLevel} to recompress them instead. A jar without anything to remove is copied as-is, or left
+ * alone when shrinking in place, and with an {@link OutputStore} a jar shrunk to the same entry set before is reused.
+ *
+ * <p> With a {@link ClassLoadOrder} the retained classes are laid out for startup: the manifest first, then the
+ * classes of the trace in load order, then everything else in archive order. Class loading then reads the archive front
+ * to back, {@code storeLoadedClasses} additionally saves the inflation of those classes.
+ *
+ * <p> With {@code removeDuplicateClasses}, a class that a jar before it on the classpath contains with the same content
+ * is removed, only the copy the class loader loads is kept, see {@link DuplicateClasses}. The shrunk jars then have to
+ * stay on the classpath together, in the same order.
+ *
+ * <p> With {@code stripDebugAttributes}, retained classes are rewritten without the selected attributes as they are
+ * copied, see {@link ClassFileStripper}. Classes are read, stripped and compressed concurrently a window ahead of
+ * the writer, which still writes the entries in order.
+ *
+ * <p> With {@code removeUnusedMembers}, reachability is refined to fields and methods, see {@link MemberReachability}:
+ * classes only reachable through unused members are removed too, and retained classes of the shrunk jars are
+ * rewritten without their unused members.
  *
  * @author Freeman
  */
 @Builder
 public class JarShrinker {
 
+    /**
+     * Number of entries a jar is stripped ahead of its writer, bounds the stripped classes held in memory.
+     */
+    private static final int STRIP_AHEAD = 64;
+
     private @Nullable Path outputDir;
     private List<Pattern> jarPatterns;
+    /**
+     * Deflate level (0-9) used to recompress retained entries, 0 stores them uncompressed.
+     * By default (null) retained entries are copied as raw compressed bytes, without any codec work.
+     */
+    private @Nullable Integer compressionLevel;
+    /**
+     * Number of jars shrunk concurrently, defaults to the number of available processors.
+     */
+    private @Nullable Integer parallelism;
+    /**
+     * Records the reachability and shrink phases, null disables profiling.
+     */
+    private @Nullable Profiler profiler;
+    /**
+     * Store of earlier shrink results, a jar shrunk to the same entry set before is reused instead of rewritten, null
+     * disables it.
+     */
+    private @Nullable OutputStore outputStore;
+    /**
+     * Class-load trace of a training run, loaded classes are moved to the front of their jar, null keeps the archive
+     * order.
+     */
+    private @Nullable ClassLoadOrder loadOrder;
+    /**
+     * Write the classes of {@link #loadOrder} uncompressed (STORED), so loading them needs no inflation.
+     */
+    private boolean storeLoadedClasses;
+    /**
+     * Remove classes that an earlier jar of {@code depsArchives} contains with identical content, {@code depsArchives}
+     * must then be in classpath order. Classes with the same name and different content are reported in
+     * {@link ShrinkResult#conflicts()}.
+     */
+    private boolean removeDuplicateClasses;
+    /**
+     * Debug attributes removed from retained classes, stripped classes are recompressed with {@code compressionLevel}
+     * or the default deflate level. Null or empty keeps classes as they are.
+     */
+    private @Nullable Set<DebugAttribute> stripDebugAttributes;
+    /**
+     * Remove the fields and methods of retained classes that can not be used, and the classes only they use.
+     */
+    private boolean removeUnusedMembers;
+    /**
+     * Patterns of binary class names whose members are all kept with {@code removeUnusedMembers}, for classes used
+     * through reflection the analysis can not see. Null keeps none beyond the analysis.
+     */
+    private @Nullable List<Pattern> keepMembers;
+    /**
+     * Rules of the classes kept whether reachable or not, for classes loaded by reflection. Give the analysis the same
+     * rules so that the classes the kept ones depend on are reachable. Null keeps only the reachable classes.
+     */
+    private @Nullable KeepRules keepRules;
 
     /**
      * Shrink JAR files based on reachable classes.
      *
-     * @param depsArchives archives to shrink
-     * @return shrink result
+     * <p> Archives are shrunk concurrently by at most {@code parallelism} workers, each worker holds one input and one
+     * output file open at a time. A failure only affects its own archive and is reported in
+     * {@link ShrinkResult#failures()}.
+     *
+     * @param depsArchives archives to shrink, in classpath order with {@code removeDuplicateClasses}
+     * @return shrink result, items are ordered by archive path
      */
     @SneakyThrows
     public ShrinkResult shrink(List<Archive> depsArchives, DependencyGraph graph) {
-        var shrinkItem = new ArrayList<ShrinkResult.Item>();
-
-        for (var archive : depsArchives) {
-            var path = archive.path().orElse(null);
-            if (path == null
-                    || path.getFileName() == null
-                    || !Files.isRegularFile(path)
-                    || !path.toString().endsWith(".jar")
-                    || jarPatterns.stream()
-                            .noneMatch(p ->
-                                    p.matcher(path.getFileName().toString()).matches())) {
-                continue;
-            }
-
-            long jarOriginalSize = Files.size(path);
-
-            Path outputPath;
-            if (outputDir == null) {
-                // no output dir, do it in place
-                Path parent = path.getParent();
-                if (parent == null) {
-                    parent = Path.of(".");
+        if (compressionLevel != null && (compressionLevel < 0 || compressionLevel > 9)) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + compressionLevel);
+        }
+        int workers = workers();
+
+        var jars = targetJars(depsArchives);
+        if (jars.isEmpty()) {
+            return new ShrinkResult(List.of(), List.of(), List.of());
+        }
+
+        if (outputDir != null) {
+            Files.createDirectories(outputDir);
+        }
+
+        var activeProfiler = profiler != null ? profiler : Profiler.disabled();
+
+        // Computed once, shared (read-only) by all workers
+        ReachableClasses reachableClasses;
+        try (var phase = activeProfiler.start("reachability")) {
+            reachableClasses = graph.getReachableClasses();
+            phase.addEntries(reachableClasses.size());
+        }
+        var members = analyzeMembers(jars, graph, reachableClasses, workers, activeProfiler);
+        if (members != null) {
+            reachableClasses = members.reachableClasses();
+        }
+        var duplicates = findDuplicates(jars, reachableClasses, activeProfiler);
+
+        ShrinkResult result;
+        try (var phase = activeProfiler.start("shrink")) {
+            var rewrite = new ClassRewrite(strippedAttributes(), members);
+            result = shrinkAll(sorted(jars), reachableClasses, duplicates, rewrite, workers, phase);
+        }
+        if (outputStore != null) {
+            outputStore.evict();
+        }
+        return result;
+    }
+
+    /**
+     * Estimate what {@link #shrink} would save without writing anything.
+     *
+     * <p> Only the central directory of each jar is read: the size of a shrunk jar follows from the compressed sizes
+     * and headers of its retained entries, as {@link RawJarWriter} writes them. A class-load order with
+     * {@code storeLoadedClasses} is taken into account, {@code compressionLevel} is not, entries are estimated at their
+     * current compressed size, and neither are {@code stripDebugAttributes}. {@code removeUnusedMembers} removes the
+     * classes only unused members use, the members themselves are not estimated. {@code outputDir} and
+     * {@code outputStore} do not apply.
+     *
+     * @param depsArchives archives to shrink, in classpath order with {@code removeDuplicateClasses}
+     * @param graph        dependency graph
+     * @return estimate, items are ordered by archive path
+     */
+    @SneakyThrows
+    public EstimateResult estimate(List<Archive> depsArchives, DependencyGraph graph) {
+        var jars = targetJars(depsArchives);
+
+        var activeProfiler = profiler != null ? profiler : Profiler.disabled();
+
+        ReachableClasses reachableClasses;
+        try (var phase = activeProfiler.start("reachability")) {
+            reachableClasses = graph.getReachableClasses();
+            phase.addEntries(reachableClasses.size());
+        }
+        var members = analyzeMembers(jars, graph, reachableClasses, workers(), activeProfiler);
+        if (members != null) {
+            reachableClasses = members.reachableClasses();
+        }
+        var duplicates = findDuplicates(jars, reachableClasses, activeProfiler);
+
+        var items = new ArrayList<EstimateResult.Item>();
+        var failures = new ArrayList<ShrinkResult.Failure>();
+        try (var phase = activeProfiler.start("estimate")) {
+            for (var jar : sorted(jars)) {
+                var task = phase.startJar(jar);
+                try (var index = JarIndex.open(jar)) {
+                    var item = estimateJar(jar, index, reachableClasses, duplicates.of(jar));
+                    items.add(item);
+                    task.finish(0, 0, index.entries().size());
+                } catch (IOException | RuntimeException e) {
+                    failures.add(new ShrinkResult.Failure(jar, e));
+                }
+            }
+        }
+        return new EstimateResult(items, failures, duplicates.conflicts());
+    }
+
+    private EstimateResult.Item estimateJar(
+            Path jar, JarIndex index, ReachableClasses reachableClasses, Set<String> duplicateClasses)
+            throws IOException {
+        var entries = index.entries();
+        var retained = retainedEntries(index, reachableClasses);
+        int duplicates = removeDuplicates(index, retained, duplicateClasses);
+        var layout = layout(index, retained);
+        long beforeSize = Files.size(jar);
+
+        long afterSize;
+        if (layout.isOriginal(entries.size())) {
+            afterSize = beforeSize;
+        } else {
+            var ordered = new ArrayList<RawJarEntry>(layout.order().length);
+            var stored = new BitSet(layout.order().length);
+            for (int i : layout.order()) {
+                if (layout.stored().get(i)) {
+                    stored.set(ordered.size());
                 }
-                outputPath = parent.resolve(path.getFileName() + ".tmp");
+                ordered.add(entries.get(i));
+            }
+            afterSize = RawJarWriter.sizeOf(ordered, stored);
+        }
+
+        var packages = new HashMap<String, long[]>();
+        int removed = 0;
+        for (int i = retained.nextClearBit(0); i < entries.size(); i = retained.nextClearBit(i + 1)) {
+            var entry = entries.get(i);
+            int slash = entry.name().lastIndexOf('/');
+            var packageName = slash > 0 ? entry.name().substring(0, slash).replace('/', '.') : "<unnamed>";
+            var stats = packages.computeIfAbsent(packageName, k -> new long[2]);
+            stats[0]++;
+            stats[1] += RawJarWriter.sizeOf(entry);
+            removed++;
+        }
+        var removedPackages = packages.entrySet().stream()
+                .map(e -> new EstimateResult.RemovedPackage(e.getKey(), (int) e.getValue()[0], e.getValue()[1]))
+                .sorted(Comparator.comparingLong(EstimateResult.RemovedPackage::bytes)
+                        .reversed()
+                        .thenComparing(EstimateResult.RemovedPackage::name))
+                .toList();
+
+        return new EstimateResult.Item(
+                jar, beforeSize, afterSize, entries.size(), removed, duplicates, layout.loadOrdered(), removedPackages);
+    }
+
+    /**
+     * Merge the retained entries of the jars into a single jar instead of shrinking them one by one, so the class
+     * loader looks classes up in one central directory.
+     *
+     * <p> Jars are merged in the given order, which should be the classpath order: the first jar wins an entry that
+     * several jars contain with different content, such entries are reported in {@link MergeResult#conflicts()}.
+     * Identical entries are written once and {@code META-INF/services} files are merged, so
+     * {@code removeDuplicateClasses} is implied. {@code outputDir}, {@code parallelism} and {@code outputStore} do not
+     * apply, a class-load order, {@code stripDebugAttributes} and {@code removeUnusedMembers} are not supported.
+     *
+     * @param depsArchives archives to merge, in classpath order
+     * @param graph        dependency graph
+     * @param output       merged jar, replaced if it exists
+     * @return merge result
+     */
+    @SneakyThrows
+    public MergeResult merge(List<Archive> depsArchives, DependencyGraph graph, Path output) {
+        if (compressionLevel != null && (compressionLevel < 0 || compressionLevel > 9)) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + compressionLevel);
+        }
+        if (loadOrder != null) {
+            throw new IllegalArgumentException("A class-load order can not be applied to a merged jar");
+        }
+        if (!strippedAttributes().isEmpty()) {
+            throw new IllegalArgumentException("Debug attributes can not be stripped from a merged jar");
+        }
+        if (removeUnusedMembers) {
+            throw new IllegalArgumentException("Unused members can not be removed from a merged jar");
+        }
+
+        var jars = targetJars(depsArchives);
+        var target = output.toAbsolutePath().normalize();
+        if (jars.contains(target)) {
+            throw new IllegalArgumentException("Merged jar must not be one of its inputs: " + output);
+        }
+
+        var activeProfiler = profiler != null ? profiler : Profiler.disabled();
+
+        ReachableClasses reachableClasses;
+        try (var phase = activeProfiler.start("reachability")) {
+            reachableClasses = graph.getReachableClasses();
+            phase.addEntries(reachableClasses.size());
+        }
+
+        // Every jar is opened once, the manifests are read up front as the merged manifest is written first. Each
+        // index is closed as soon as its jar is added, jdeps keeps the whole classpath open during analysis anyway.
+        var indexes = new ArrayList<JarIndex>(jars.size());
+        try (var phase = activeProfiler.start("merge")) {
+            boolean multiRelease = false;
+            for (var jar : jars) {
+                var index = JarIndex.open(jar);
+                indexes.add(index);
+                var manifest = index.manifest();
+                multiRelease |= manifest != null
+                        && "true"
+                                .equalsIgnoreCase(manifest.getMainAttributes().getValue(Attributes.Name.MULTI_RELEASE));
+            }
+
+            var targetDir = target.getParent();
+            if (targetDir != null) {
+                Files.createDirectories(targetDir);
+            }
+            var tmp = Files.createTempFile(
+                    targetDir != null ? targetDir : Path.of("."), String.valueOf(target.getFileName()), ".tmp");
+            long beforeSize = 0;
+            try {
+                JarMerger merger;
+                try (var m = new JarMerger(tmp, multiRelease, compressionLevel)) {
+                    merger = m;
+                    for (int i = 0; i < jars.size(); i++) {
+                        var jar = jars.get(i);
+                        var task = phase.startJar(jar);
+                        long size = Files.size(jar);
+                        try (var index = indexes.get(i)) {
+                            var retained = retainedEntries(index, reachableClasses);
+                            merger.add(jar, index, retained);
+                            task.finish(size, 0, retained.cardinality());
+                        }
+                        beforeSize += size;
+                    }
+                }
+                long afterSize = Files.size(tmp);
+                phase.addBytesWritten(afterSize);
+                CacheFiles.moveReplacing(tmp, target);
+                return new MergeResult(
+                        target,
+                        jars,
+                        beforeSize,
+                        afterSize,
+                        merger.entries(),
+                        merger.duplicates(),
+                        merger.mergedServices(),
+                        List.copyOf(merger.conflicts()));
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } finally {
+            // Left open when the merge failed, closing an index twice is a no-op
+            for (var index : indexes) {
+                index.close();
+            }
+        }
+    }
+
+    private ShrinkResult shrinkAll(
+            List<Path> jars,
+            ReachableClasses reachableClasses,
+            DuplicateClasses duplicates,
+            ClassRewrite rewrite,
+            int workers,
+            Profiler.Phase phase)
+            throws InterruptedException {
+        var executor =
+                Executors.newFixedThreadPool(Math.min(workers, jars.size()), new NamedThreadFactory("jarinker-shrink"));
+        // Shared by the jars, stripping tasks never wait on anything so the shrink workers can wait on them
+        var stripExecutor = rewrite.isEmpty()
+                ? null
+                : Executors.newFixedThreadPool(workers, new NamedThreadFactory("jarinker-strip"));
+        try {
+            var outputs = new HashSet<Path>();
+            var tasks = new ArrayList<Map.Entry<Path, Future<ShrinkResult.Item>>>();
+            for (var jar : jars) {
+                var outputPath = resolveOutputPath(jar);
+                if (!outputs.add(outputPath)) {
+                    var duplicate =
+                            new IllegalStateException("Output " + outputPath + " is already written by another jar");
+                    tasks.add(Map.entry(jar, CompletableFuture.failedFuture(duplicate)));
+                    continue;
+                }
+                var duplicateClasses = duplicates.of(jar);
+                tasks.add(Map.entry(
+                        jar,
+                        executor.submit(() -> shrinkOne(
+                                jar, outputPath, reachableClasses, duplicateClasses, rewrite, stripExecutor, phase))));
+            }
+
+            var items = new ArrayList<ShrinkResult.Item>();
+            var failures = new ArrayList<ShrinkResult.Failure>();
+            for (var task : tasks) {
+                try {
+                    items.add(task.getValue().get());
+                } catch (ExecutionException e) {
+                    var cause = e.getCause() != null ? e.getCause() : e;
+                    failures.add(new ShrinkResult.Failure(task.getKey(), cause));
+                }
+            }
+            return new ShrinkResult(items, failures, duplicates.conflicts());
+        } finally {
+            executor.shutdownNow();
+            if (stripExecutor != null) {
+                stripExecutor.shutdownNow();
+            }
+        }
+    }
+
+    private boolean isTargetJar(Path path) {
+        return isTargetJar(path, jarPatterns);
+    }
+
+    /**
+     * @return jars to shrink, in the order of the archives
+     */
+    private List<Path> targetJars(List<Archive> depsArchives) {
+        return depsArchives.stream()
+                .map(archive -> archive.path().orElse(null))
+                .filter(path -> path != null && isTargetJar(path))
+                .map(path -> path.toAbsolutePath().normalize())
+                .distinct()
+                .toList();
+    }
+
+    private int workers() {
+        int workers = parallelism != null ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (workers < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + workers);
+        }
+        return workers;
+    }
+
+    /**
+     * @return live members, null unless {@code removeUnusedMembers}
+     */
+    private MemberReachability.@Nullable Result analyzeMembers(
+            List<Path> jars, DependencyGraph graph, ReachableClasses reachableClasses, int workers, Profiler profiler) {
+        if (!removeUnusedMembers) {
+            return null;
+        }
+        try (var phase = profiler.start("members")) {
+            var result = MemberReachability.analyze(
+                    graph,
+                    reachableClasses,
+                    Set.copyOf(jars),
+                    keepMembers != null ? keepMembers : List.of(),
+                    keepRules,
+                    workers);
+            phase.addEntries(result.reachableClasses().size());
+            return result;
+        }
+    }
+
+    /**
+     * @return class file attribute names to strip, empty if nothing is stripped
+     */
+    private Set<String> strippedAttributes() {
+        if (stripDebugAttributes == null) {
+            return Set.of();
+        }
+        return stripDebugAttributes.stream()
+                .flatMap(attribute -> attribute.attributeNames().stream())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static List<Path> sorted(List<Path> jars) {
+        return jars.stream().sorted().toList();
+    }
+
+    private DuplicateClasses findDuplicates(List<Path> jars, ReachableClasses reachableClasses, Profiler profiler)
+            throws IOException {
+        if (!removeDuplicateClasses) {
+            return DuplicateClasses.none();
+        }
+        try (var phase = profiler.start("dedupe")) {
+            var duplicates = DuplicateClasses.find(jars, reachableClasses);
+            phase.addEntries(duplicates.count());
+            return duplicates;
+        }
+    }
+
+    /**
+     * @return whether the path is a jar whose file name matches one of the patterns
+     */
+    static boolean isTargetJar(Path path, List<Pattern> jarPatterns) {
+        var fileName = path.getFileName();
+        return fileName != null
+                && Files.isRegularFile(path)
+                && path.toString().endsWith(".jar")
+                && jarPatterns.stream()
+                        .anyMatch(p -> p.matcher(fileName.toString()).matches());
+    }
+
+    private Path resolveOutputPath(Path jar) {
+        if (outputDir == null) {
+            // no output dir, do it in place
+            return jar;
+        }
+        return outputDir.toAbsolutePath().normalize().resolve(Objects.requireNonNull(jar.getFileName()));
+    }
+
+    private ShrinkResult.Item shrinkOne(
+            Path jar,
+            Path outputPath,
+            ReachableClasses reachableClasses,
+            Set<String> duplicateClasses,
+            ClassRewrite rewrite,
+            @Nullable ExecutorService stripExecutor,
+            Profiler.Phase phase)
+            throws IOException {
+        var task = phase.startJar(jar);
+        long jarOriginalSize = Files.size(jar);
+
+        // Always write to a unique temp file next to the target and move it into place,
+        // concurrent workers never see each other's partial output, and a failed jar leaves its target untouched
+        var targetDir = outputPath.toAbsolutePath().getParent();
+        var tmp = Files.createTempFile(
+                targetDir != null ? targetDir : Path.of("."), String.valueOf(outputPath.getFileName()), ".tmp");
+        int entries;
+        ShrinkResult.Status status;
+        int loadOrdered;
+        int duplicates;
+        var rewritten = new RewriteStats();
+        String key = null;
+        Path stored = null;
+        try {
+            try (var index = JarIndex.open(jar)) {
+                entries = index.entries().size();
+                var retained = retainedEntries(index, reachableClasses);
+                duplicates = removeDuplicates(index, retained, duplicateClasses);
+                var layout = layout(index, retained);
+                loadOrdered = layout.loadOrdered();
+                if (layout.isOriginal(entries) && compressionLevel == null && rewrite.isEmpty()) {
+                    // Nothing to remove or move, a rewrite would only reproduce the input
+                    status = ShrinkResult.Status.UNCHANGED;
+                } else {
+                    if (outputStore != null) {
+                        key = outputStore.key(
+                                jar,
+                                index.entries(),
+                                layout.order(),
+                                layout.stored(),
+                                compressionLevel,
+                                rewrite.attributes(),
+                                rewrite.members());
+                        stored = outputStore.find(key);
+                    }
+                    status = stored != null ? ShrinkResult.Status.REUSED : ShrinkResult.Status.SHRUNK;
+                    if (stored == null) {
+                        shrinkJar(index, tmp, layout, rewrite, stripExecutor, rewritten);
+                    }
+                }
+            }
+
+            // The input is closed before the target is replaced, it may be the same file
+            long written;
+            if (stored != null && outputStore != null) {
+                Files.delete(tmp);
+                written = outputStore.materialize(stored, outputPath);
+            } else if (status == ShrinkResult.Status.UNCHANGED && jar.equals(outputPath)) {
+                Files.delete(tmp);
+                written = 0;
             } else {
-                if (!Files.exists(outputDir)) {
-                    Files.createDirectories(outputDir);
+                if (status == ShrinkResult.Status.UNCHANGED) {
+                    // Zero-copy where the platform supports it
+                    CacheFiles.copy(jar, tmp);
+                } else if (outputStore != null && key != null) {
+                    outputStore.put(key, tmp);
                 }
-                outputPath = outputDir.resolve(path.getFileName());
+                written = Files.size(tmp);
+                CacheFiles.moveReplacing(tmp, outputPath);
             }
+            task.finish(jarOriginalSize, written, entries);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
 
-            // Shrink the JAR
-            shrinkJar(path, outputPath, graph);
+        return new ShrinkResult.Item(
+                jar,
+                outputPath,
+                jarOriginalSize,
+                Files.size(outputPath),
+                status,
+                loadOrdered,
+                duplicates,
+                rewritten.strippedBytes,
+                rewritten.removedMembers);
+    }
 
-            // If in-place, replace the original file
-            if (outputDir == null) {
-                Files.move(outputPath, path, StandardCopyOption.REPLACE_EXISTING);
-                outputPath = path;
+    private BitSet retainedEntries(JarIndex index, ReachableClasses reachableClasses) {
+        var rules = keepRules;
+        var entries = index.entries();
+        var retained = new BitSet(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            var entry = entries.get(i);
+            String entryName = entry.name();
+            if (!entry.isClass()
+                    || entryName.endsWith("module-info.class")
+                    || reachableClasses.containsEntry(entryName)
+                    || (rules != null && rules.keepsEntry(entryName))) {
+                retained.set(i);
             }
+        }
+        return retained;
+    }
 
-            long jarShrunkSize = Files.size(outputPath);
+    /**
+     * Clear the retained classes that an earlier jar contains with the same content.
+     *
+     * @return number of removed classes
+     */
+    private static int removeDuplicates(JarIndex index, BitSet retained, Set<String> duplicateClasses) {
+        if (duplicateClasses.isEmpty()) {
+            return 0;
+        }
+        var entries = index.entries();
+        int removed = 0;
+        for (int i = retained.nextSetBit(0); i >= 0; i = retained.nextSetBit(i + 1)) {
+            if (duplicateClasses.contains(entries.get(i).name())) {
+                retained.clear(i);
+                removed++;
+            }
+        }
+        return removed;
+    }
 
-            shrinkItem.add(new ShrinkResult.Item(path, outputPath, jarOriginalSize, jarShrunkSize));
+    /**
+     * Decide the order and compression of the retained entries.
+     */
+    private EntryLayout layout(JarIndex index, BitSet retained) {
+        var entries = index.entries();
+        var stored = new BitSet(entries.size());
+        var trace = loadOrder;
+        if (trace == null) {
+            return new EntryLayout(retained.stream().toArray(), stored, 0);
+        }
+
+        var manifest = new ArrayList<Integer>();
+        var loaded = new ArrayList<Integer>();
+        var rest = new ArrayList<Integer>();
+        for (int i = retained.nextSetBit(0); i >= 0; i = retained.nextSetBit(i + 1)) {
+            var entry = entries.get(i);
+            if (isManifest(entry.name())) {
+                // JarInputStream only finds the manifest among the first entries
+                manifest.add(i);
+            } else if (entry.isClass() && trace.rank(entry.name()) >= 0) {
+                loaded.add(i);
+                if (storeLoadedClasses && entry.method() != RawJarEntry.STORED) {
+                    stored.set(i);
+                }
+            } else {
+                rest.add(i);
+            }
         }
+        // Stable, versioned entries of the same class stay in archive order
+        loaded.sort(Comparator.comparingInt(i -> trace.rank(entries.get(i).name())));
+
+        var order = new int[manifest.size() + loaded.size() + rest.size()];
+        int n = 0;
+        for (var list : List.of(manifest, loaded, rest)) {
+            for (int i : list) {
+                order[n++] = i;
+            }
+        }
+        return new EntryLayout(order, stored, loaded.size());
+    }
+
+    private static boolean isManifest(String name) {
+        return name.equalsIgnoreCase("META-INF/") || name.equalsIgnoreCase(JarFile.MANIFEST_NAME);
+    }
+
+    /**
+     * @param stats receives what was stripped from the classes
+     */
+    private void shrinkJar(
+            JarIndex index,
+            Path outputJar,
+            EntryLayout layout,
+            ClassRewrite rewrite,
+            @Nullable ExecutorService stripExecutor,
+            RewriteStats stats)
+            throws IOException {
+        try (var writer = new RawJarWriter(outputJar)) {
+            var entries = index.entries();
+            if (stripExecutor == null) {
+                for (int i : layout.order()) {
+                    copyEntry(index, writer, entries.get(i), layout.stored().get(i));
+                }
+                return;
+            }
 
-        return new ShrinkResult(shrinkItem);
+            var pending = new ArrayDeque<PendingEntry>(STRIP_AHEAD);
+            try {
+                for (int i : layout.order()) {
+                    var entry = entries.get(i);
+                    boolean store = layout.stored().get(i);
+                    @Nullable
+                    Future<@Nullable StrippedClass> stripped = entry.isClass()
+                            ? stripExecutor.<@Nullable StrippedClass>submit(
+                                    () -> stripClass(index, entry, store, rewrite))
+                            : null;
+                    pending.add(new PendingEntry(entry, store, stripped));
+                    if (pending.size() >= STRIP_AHEAD) {
+                        writePending(index, writer, pending.remove(), stats);
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    writePending(index, writer, pending.remove(), stats);
+                }
+            } finally {
+                for (var entry : pending) {
+                    if (entry.stripped() != null) {
+                        entry.stripped().cancel(false);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a class and strip it, runs on the strip executor.
+     *
+     * @return stripped class, null if the entry is copied as it is
+     */
+    private @Nullable StrippedClass stripClass(JarIndex index, RawJarEntry entry, boolean store, ClassRewrite rewrite)
+            throws IOException {
+        var content = index.read(entry);
+        ClassFileStripper.Stripped stripped;
+        try {
+            stripped = ClassFileStripper.strip(content, rewrite.attributes(), rewrite.liveMembers(entry));
+        } catch (IllegalArgumentException e) {
+            // Not a class file this stripper understands, it is kept rather than failing the jar
+            return null;
+        }
+        if (stripped.classFile() == content) {
+            return null;
+        }
+        int level;
+        if (store) {
+            level = 0;
+        } else if (compressionLevel != null) {
+            level = compressionLevel;
+        } else {
+            level = entry.method() == RawJarEntry.STORED ? 0 : Deflater.DEFAULT_COMPRESSION;
+        }
+        return new StrippedClass(
+                RawJarWriter.compress(stripped.classFile(), level),
+                content.length - stripped.classFile().length,
+                stripped.removedMembers());
     }
 
     @SneakyThrows
-    private static void shrinkJar(Path inputJar, Path outputJar, DependencyGraph graph) {
+    private void writePending(JarIndex index, RawJarWriter writer, PendingEntry pending, RewriteStats stats) {
+        StrippedClass stripped = null;
+        if (pending.stripped() != null) {
+            try {
+                stripped = pending.stripped().get();
+            } catch (ExecutionException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+        }
+        if (stripped == null) {
+            copyEntry(index, writer, pending.entry(), pending.store());
+            return;
+        }
+        writer.write(pending.entry(), stripped.compressed());
+        stats.strippedBytes += stripped.strippedBytes();
+        stats.removedMembers += stripped.removedMembers();
+    }
 
-        var reachableClasses = graph.getDependenciesMap().keySet().stream()
-                .map(s -> s.substring(s.indexOf('/') + 1))
-                .collect(Collectors.toSet());
+    private void copyEntry(JarIndex index, RawJarWriter writer, RawJarEntry entry, boolean store) throws IOException {
+        if (entry.isDirectory() || (compressionLevel == null && !store)) {
+            // Move the compressed bytes as they are, no inflate/deflate round trip
+            writer.copyRaw(index, entry);
+        } else {
+            writer.write(entry, index.read(entry), store ? 0 : Objects.requireNonNull(compressionLevel));
+        }
+    }
 
-        try (var inputStream = Files.newInputStream(inputJar);
-                var jarInput = new JarInputStream(inputStream);
-                var outputStream = Files.newOutputStream(outputJar);
-                var jarOutput = new JarOutputStream(outputStream)) {
+    /**
+     * An entry waiting to be written.
+     *
+     * @param entry    entry of the input jar
+     * @param store    whether the entry is written uncompressed
+     * @param stripped the class being stripped, null for entries that are not classes
+     */
+    private record PendingEntry(RawJarEntry entry, boolean store, @Nullable Future<@Nullable StrippedClass> stripped) {}
 
-            JarEntry entry;
-            while ((entry = jarInput.getNextJarEntry()) != null) {
-                String entryName = entry.getName();
+    /**
+     * @param compressed     stripped class as it is written
+     * @param strippedBytes  bytes removed from the class, uncompressed
+     * @param removedMembers number of fields and methods removed from the class
+     */
+    private record StrippedClass(RawJarWriter.Compressed compressed, long strippedBytes, int removedMembers) {}
 
-                if (entryName.endsWith(".class") && !entryName.endsWith("module-info.class")) {
-                    String className = entryName.replace('/', '.').replaceAll("\\.class$", "");
-                    if (reachableClasses.contains(className)) {
-                        copyEntry(jarInput, jarOutput, entry);
-                    }
-                } else {
-                    copyEntry(jarInput, jarOutput, entry);
+    /**
+     * What was stripped from the classes of a jar, only updated by the thread writing the jar.
+     */
+    private static final class RewriteStats {
+        private long strippedBytes;
+        private int removedMembers;
+    }
+
+    /**
+     * How retained classes are rewritten.
+     *
+     * @param attributes names of the class file attributes to strip, empty for none
+     * @param members    live members, null keeps all members
+     */
+    private record ClassRewrite(Set<String> attributes, MemberReachability.@Nullable Result members) {
+
+        boolean isEmpty() {
+            return attributes.isEmpty() && members == null;
+        }
+
+        /**
+         * @return keys of the members of the class to keep, null to keep all
+         */
+        @Nullable
+        Set<String> liveMembers(RawJarEntry entry) {
+            return members != null ? members.liveMembersOfEntry(entry.name()) : null;
+        }
+    }
+
+    /**
+     * Retained entries of a jar as they are written.
+     *
+     * @param order       indexes of the retained entries in output order
+     * @param stored      indexes of the entries written uncompressed regardless of the compression level
+     * @param loadOrdered number of classes placed by the class-load order
+     */
+    private record EntryLayout(int[] order, BitSet stored, int loadOrdered) {
+
+        /**
+         * @return whether the layout reproduces the input archive
+         */
+        boolean isOriginal(int entries) {
+            if (order.length != entries || !stored.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < order.length; i++) {
+                if (order[i] != i) {
+                    return false;
                 }
             }
+            return true;
         }
     }
 
-    private static void copyEntry(JarInputStream input, JarOutputStream output, JarEntry entry) throws IOException {
-        // Create new entry to avoid issues with compressed entries
-        var newEntry = new JarEntry(entry.getName());
-        newEntry.setTime(entry.getTime());
+    /**
+     * Result of an estimate, see {@link #estimate(List, DependencyGraph)}.
+     *
+     * @param jars      estimated jars
+     * @param failures  jars whose central directory could not be read
+     * @param conflicts classes with different content in several jars, see {@link ShrinkResult#conflicts()}
+     */
+    public record EstimateResult(
+            List<Item> jars, List<ShrinkResult.Failure> failures, List<ShrinkResult.Conflict> conflicts) {
 
-        output.putNextEntry(newEntry);
+        public long beforeSize() {
+            return jars.stream().mapToLong(Item::beforeSize).sum();
+        }
+
+        public long afterSize() {
+            return jars.stream().mapToLong(Item::afterSize).sum();
+        }
+
+        /**
+         * @param jar             input jar
+         * @param beforeSize      size of the jar
+         * @param afterSize       estimated size of the shrunk jar
+         * @param entries         number of entries of the jar
+         * @param removedClasses  number of classes that would be removed
+         * @param duplicates      number of removed classes that an earlier jar contains with the same content
+         * @param loadOrdered     number of classes the class-load order would place
+         * @param removedPackages packages of the removed classes, largest first
+         */
+        public record Item(
+                Path jar,
+                long beforeSize,
+                long afterSize,
+                int entries,
+                int removedClasses,
+                int duplicates,
+                int loadOrdered,
+                List<RemovedPackage> removedPackages) {
+
+            public double getReductionPercentage() {
+                if (beforeSize == 0) return 0.0;
+                return ((double) (beforeSize - afterSize) / beforeSize) * 100.0;
+            }
 
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        while ((bytesRead = input.read(buffer)) != -1) {
-            output.write(buffer, 0, bytesRead);
+            public long getSavedBytes() {
+                return beforeSize - afterSize;
+            }
         }
 
-        output.closeEntry();
+        /**
+         * @param name    package name
+         * @param classes number of removed classes of the package
+         * @param bytes   bytes the removed classes take up in the jar, headers included
+         */
+        public record RemovedPackage(String name, int classes, long bytes) {}
+    }
+
+    /**
+     * Result of a merge.
+     *
+     * @param output         merged jar
+     * @param jars           merged jars, in merge order
+     * @param beforeSize     total size of the merged jars
+     * @param afterSize      size of the merged jar
+     * @param entries        number of entries of the merged jar
+     * @param duplicates     identical entries of several jars, written once
+     * @param mergedServices {@code META-INF/services} files provided by more than one jar
+     * @param conflicts      entries with different content in several jars
+     */
+    public record MergeResult(
+            Path output,
+            List<Path> jars,
+            long beforeSize,
+            long afterSize,
+            int entries,
+            int duplicates,
+            int mergedServices,
+            List<Conflict> conflicts) {
+
+        /**
+         * An entry that several jars contain with different content.
+         *
+         * @param entry   entry name
+         * @param kept    jar the entry was taken from
+         * @param ignored jar whose entry was left out
+         */
+        public record Conflict(String entry, Path kept, Path ignored) {}
     }
 
     /**
      * Result of shrinking operation.
+     *
+     * @param jars      shrunk jars
+     * @param failures  jars that could not be shrunk
+     * @param conflicts classes with different content in several jars, only with {@code removeDuplicateClasses}
      */
-    public record ShrinkResult(List<Item> jars) {
+    public record ShrinkResult(List<Item> jars, List<Failure> failures, List<Conflict> conflicts) {
 
-        public record Item(Path before, Path after, long beforeSize, long afterSize) {
+        /**
+         * @param before         input jar
+         * @param after          output jar
+         * @param beforeSize     size of the input jar
+         * @param afterSize      size of the output jar
+         * @param status         how the output was produced
+         * @param loadOrdered    number of classes moved to the front by the class-load order
+         * @param duplicates     number of classes removed because an earlier jar contains them with the same content
+         * @param strippedBytes  bytes of debug attributes and unused members stripped from the classes, uncompressed, 0
+         *                       if the output was taken from the store
+         * @param removedMembers number of unused fields and methods removed from the classes, 0 if the output was taken
+         *                       from the store
+         */
+        public record Item(
+                Path before,
+                Path after,
+                long beforeSize,
+                long afterSize,
+                Status status,
+                int loadOrdered,
+                int duplicates,
+                long strippedBytes,
+                int removedMembers) {
 
             public double getReductionPercentage() {
                 if (beforeSize == 0) return 0.0;
@@ -144,5 +988,37 @@ public class JarShrinker {
                 return beforeSize - afterSize;
             }
         }
+
+        /**
+         * How the output of a jar was produced.
+         */
+        public enum Status {
+            /**
+             * Written with the unreachable classes removed.
+             */
+            SHRUNK,
+            /**
+             * Taken from the {@link OutputStore}, the jar was shrunk to the same entry set before.
+             */
+            REUSED,
+            /**
+             * Nothing to remove, copied as-is or, in place, left alone.
+             */
+            UNCHANGED
+        }
+
+        /**
+         * A jar that could not be shrunk, its original file is left untouched.
+         */
+        public record Failure(Path jar, Throwable cause) {}
+
+        /**
+         * A class that several jars contain with different content, both copies are kept.
+         *
+         * @param entry    entry name of the class
+         * @param loaded   jar whose copy the class loader loads, the first on the classpath
+         * @param shadowed jar whose copy is never loaded
+         */
+        public record Conflict(String entry, Path loaded, Path shadowed) {}
     }
 }
@@ -8,12 +8,17 @@ import com.sun.tools.jdeps.DepsAnalyzer;
 import com.sun.tools.jdeps.JdepsConfiguration;
 import com.sun.tools.jdeps.JdepsFilter;
 import io.goodforgod.graalvm.hint.annotation.ReflectionHint;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import lombok.Builder;
 import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
 
 /**
  * Wrapper around jdeps DepsAnalyzer for dependency analysis.
@@ -27,9 +32,65 @@ public class JdepsAnalyzer {
     private JdepsFilter jdepsFilter;
     private JdepsConfiguration jdepsConfiguration;
     private AnalyzerType type;
+    /**
+     * Cache of per-archive dependencies, null disables caching. With the {@link AnalyzerEngine#JDEPS} engine the
+     * archives are analyzed one by one by jdeps, then assembled like the {@link AnalyzerEngine#CLASSFILE} engine does.
+     */
+    private @Nullable AnalysisCache cache;
+    /**
+     * In-memory cache of per-archive dependencies, consulted before {@link #cache}, null disables it. Entries are kept
+     * per engine, see {@link ArchiveScanner#id()}.
+     */
+    private @Nullable InMemoryAnalysisCache memoryCache;
+    /**
+     * Engine used to extract dependencies, defaults to {@link AnalyzerEngine#JDEPS}.
+     */
+    private @Nullable AnalyzerEngine engine;
+    /**
+     * Records the analysis phases, null disables profiling.
+     */
+    private @Nullable Profiler profiler;
+    /**
+     * Jars whose reachable classes are needed, matched against the file name like {@link JarShrinker}'s
+     * {@code jarPatterns}. Archives that are neither sources nor matching jars are only analyzed when the traversal
+     * reaches them, null analyzes every archive.
+     */
+    private @Nullable List<Pattern> jarPatterns;
+    /**
+     * Number of archives that are neither sources nor matching jars a dependency path may pass through on its way to
+     * a matching jar, archives beyond it are not analyzed. Only applies with {@link #jarPatterns}, null is unlimited.
+     */
+    private @Nullable Integer depth;
+    /**
+     * Maximum estimated size of the per-archive dependencies kept in memory during the analysis, in bytes. Beyond it
+     * the least recently used archives are spilled to temporary files, see {@link ArchiveDependencyStore}. Does not
+     * bound {@link #memoryCache}, which has a size of its own. Null keeps every archive in memory.
+     */
+    private @Nullable Long memoryBudget;
+    /**
+     * Entry points the sources are traversed from, so classes of the sources that no entry point reaches are not
+     * roots. Not supported with root modules, null makes every class of the sources a root.
+     */
+    private @Nullable EntryPoints entryPoints;
+    /**
+     * Rules of the classes that are roots whatever archive they belong to, for classes loaded by reflection. Not
+     * supported with root modules, null for none.
+     */
+    private @Nullable KeepRules keepRules;
+    /**
+     * Maximum number of classpath jars kept open at a time, null for no limit. With a limit the
+     * {@link AnalyzerEngine#CLASSFILE} engine opens the jars of {@link #classpath} on demand through an
+     * {@link ArchivePool}, the configuration must then be built without them, see
+     * {@link #buildJdepsConfiguration(List, ClasspathResolver.Result, Runtime.Version, Integer)}.
+     */
+    private @Nullable Integer maxOpenArchives;
+    /**
+     * Resolved classpath the analysis opens itself, required with {@link #maxOpenArchives} and only used with it.
+     */
+    private ClasspathResolver.@Nullable Result classpath;
 
     /**
-     * Analyze dependencies using jdeps.
+     * Analyze dependencies with the configured engine.
      *
      * @return dependency graph
      */
@@ -39,15 +100,160 @@ public class JdepsAnalyzer {
 
     @SneakyThrows
     private DependencyGraph doAnalysis() {
-        var depsAnalyzer = new DepsAnalyzer(jdepsConfiguration, jdepsFilter, null, type.toJdepsAnalysisType(), false);
+        if (depth != null && depth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative: " + depth);
+        }
+        if (memoryBudget != null && memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative: " + memoryBudget);
+        }
+        var selectedEngine = engine != null ? engine : AnalyzerEngine.JDEPS;
+        boolean hasRootModules = !jdepsConfiguration.rootModules().isEmpty();
+        if (selectedEngine == AnalyzerEngine.CLASSFILE && hasRootModules) {
+            throw new IllegalArgumentException("The classfile engine does not support root modules");
+        }
+        var target = targetArchives();
+        if (target != null && hasRootModules) {
+            throw new IllegalArgumentException(
+                    "Restricting the analysis to jar patterns does not support root modules");
+        }
+        if (entryPoints != null && hasRootModules) {
+            throw new IllegalArgumentException("Entry points do not support root modules");
+        }
+        if (keepRules != null && hasRootModules) {
+            throw new IllegalArgumentException("Keep rules do not support root modules");
+        }
+        if (maxOpenArchives != null && selectedEngine != AnalyzerEngine.CLASSFILE) {
+            throw new IllegalArgumentException("Limiting the open archives requires the classfile engine");
+        }
+        if (maxOpenArchives != null && classpath == null) {
+            throw new IllegalArgumentException("Limiting the open archives requires the classpath");
+        }
+        if (!hasRootModules
+                && (selectedEngine != AnalyzerEngine.JDEPS
+                        || cache != null
+                        || memoryCache != null
+                        || target != null
+                        || memoryBudget != null
+                        || entryPoints != null
+                        || keepRules != null)) {
+            return analyzeArchives(selectedEngine, target);
+        }
+
+        var activeProfiler = profiler != null ? profiler : Profiler.disabled();
+
+        DepsAnalyzer depsAnalyzer;
+        try (var phase = activeProfiler.start("analysis")) {
+            depsAnalyzer = new DepsAnalyzer(jdepsConfiguration, jdepsFilter, null, type.toJdepsAnalysisType(), false);
+
+            var ok = depsAnalyzer.run(false, Integer.MAX_VALUE);
+            if (!ok) {
+                throw new RuntimeException("Jdeps analysis failed");
+            }
+            if (phase.isEnabled()) {
+                // jdeps analyzes all archives in one go, there are no per-jar timings, only the totals
+                for (var archive : getArchives(depsAnalyzer)) {
+                    phase.addEntries(archive.getClasses().size());
+                    var path = archive.path().orElse(null);
+                    if (path != null && Files.isRegularFile(path)) {
+                        phase.addBytesRead(Files.size(path));
+                    }
+                }
+            }
+        }
 
-        var ok = depsAnalyzer.run(false, Integer.MAX_VALUE);
-        if (!ok) {
-            throw new RuntimeException("Jdeps analysis failed");
+        try (var phase = activeProfiler.start("graph")) {
+            var graph = new DependencyGraph(
+                    depsAnalyzer.dependenceGraph(), getArchives(depsAnalyzer), getRootArchives(depsAnalyzer), type);
+            phase.addEntries(graph.getNodeCount());
+            return graph;
+        }
+    }
+
+    /**
+     * Assemble the graph from per-archive dependencies, archives are scanned in parallel and, with a cache, only
+     * archives that are not cached yet are parsed. The in-memory cache is looked up first, then the persistent one.
+     */
+    private DependencyGraph analyzeArchives(AnalyzerEngine selectedEngine, @Nullable Predicate<Archive> target)
+            throws IOException {
+        var version = jdepsConfiguration.getVersion();
+        var multiReleaseVersion = version != null ? version : Runtime.version();
+        var scanner = selectedEngine.scanner(multiReleaseVersion);
+        var analysisCache = cache;
+        var inMemoryCache = memoryCache;
+        var activeProfiler = profiler != null ? profiler : Profiler.disabled();
+        var budget = memoryBudget;
+        var maxOpen = maxOpenArchives;
+        try (var phase = activeProfiler.start("analysis");
+                var store = budget != null ? new ArchiveDependencyStore(budget) : null;
+                var pool = maxOpen != null ? new ArchivePool(maxOpen, multiReleaseVersion) : null) {
+            var pooledArchives = pool != null
+                    ? pool.archives(Objects.requireNonNull(classpath).classpath())
+                    : null;
+            var assembler = new GraphAssembler(
+                    jdepsConfiguration,
+                    jdepsFilter,
+                    type,
+                    archive -> {
+                        var path = archive.path().orElse(null);
+                        if (path == null) {
+                            return scanner.scan(archive);
+                        }
+                        var task = phase.startJar(path);
+                        boolean isJar = Files.isRegularFile(path);
+                        GraphAssembler.ArchiveLoader loader = analysisCache != null
+                                ? a -> analysisCache.get(a, path, multiReleaseVersion, scanner)
+                                : scanner::scan;
+                        // Class directories change too often to be worth caching
+                        ArchiveDependencies result;
+                        if (!isJar) {
+                            result = scanner.scan(archive);
+                        } else if (inMemoryCache != null) {
+                            result = inMemoryCache.get(archive, path, multiReleaseVersion, scanner, loader);
+                        } else {
+                            result = loader.load(archive);
+                        }
+                        task.finish(isJar && phase.isEnabled() ? Files.size(path) : 0, 0, result.classCount());
+                        return result;
+                    },
+                    Runtime.getRuntime().availableProcessors(),
+                    target,
+                    depth != null ? depth : Integer.MAX_VALUE,
+                    store,
+                    entryPoints,
+                    keepRules,
+                    pooledArchives);
+            var graph = assembler.assemble();
+            if (store != null) {
+                phase.addBytesWritten(store.bytesSpilled());
+                phase.addBytesRead(store.bytesReloaded());
+            }
+            if (analysisCache != null) {
+                analysisCache.evict();
+            }
+            return graph;
         }
+    }
 
-        return new DependencyGraph(
-                depsAnalyzer.dependenceGraph(), getArchives(depsAnalyzer), getRootArchives(depsAnalyzer), type);
+    /**
+     * @return classpath archives matching {@link #jarPatterns}, null if the analysis is not restricted because there
+     *         are no patterns or every classpath archive matches
+     */
+    private @Nullable Predicate<Archive> targetArchives() {
+        var patterns = jarPatterns;
+        if (patterns == null) {
+            return null;
+        }
+        Predicate<Path> isTarget = path -> JarShrinker.isTargetJar(path, patterns);
+        var resolved = classpath;
+        var classpathEntries = maxOpenArchives != null && resolved != null
+                ? resolved.classpath().stream().filter(Files::exists)
+                : jdepsConfiguration.classPathArchives().stream()
+                        .map(archive -> archive.path().orElse(null))
+                        .filter(Objects::nonNull);
+        if (classpathEntries.allMatch(isTarget)) {
+            return null;
+        }
+        return archive -> archive.path().map(isTarget::test).orElse(false);
     }
 
     @SneakyThrows
@@ -66,9 +272,53 @@ public class JdepsAnalyzer {
         return (Set<Archive>) method.invoke(depsAnalyzer);
     }
 
+    /**
+     * Build the jdeps configuration, the classpath is resolved with {@link ClasspathResolver}.
+     *
+     * @param sources             source artifacts
+     * @param classpath           classpath entries
+     * @param multiReleaseVersion version multi-release jars are read with
+     * @return jdeps configuration, must be closed by the caller
+     */
     @SneakyThrows
     public static JdepsConfiguration buildJdepsConfiguration(
             List<Path> sources, List<Path> classpath, Runtime.Version multiReleaseVersion) {
+        return buildJdepsConfiguration(sources, ClasspathResolver.resolve(sources, classpath), multiReleaseVersion);
+    }
+
+    /**
+     * Build the jdeps configuration from an already resolved classpath.
+     *
+     * @param sources             source artifacts
+     * @param classpath           resolved classpath
+     * @param multiReleaseVersion version multi-release jars are read with
+     * @return jdeps configuration, must be closed by the caller
+     */
+    public static JdepsConfiguration buildJdepsConfiguration(
+            List<Path> sources, ClasspathResolver.Result classpath, Runtime.Version multiReleaseVersion) {
+        return buildJdepsConfiguration(sources, classpath, multiReleaseVersion, null);
+    }
+
+    /**
+     * Build the jdeps configuration from an already resolved classpath, for an analysis that keeps at most
+     * {@code maxOpenArchives} classpath jars open at a time.
+     *
+     * <p> jdeps opens every classpath jar up front and keeps it open until the configuration is closed. With a limit,
+     * the classpath is left out of the configuration and the analyzer opens the jars on demand, pass it the same
+     * {@code maxOpenArchives} and classpath. Sources are opened as usual.
+     *
+     * @param sources             source artifacts
+     * @param classpath           resolved classpath
+     * @param multiReleaseVersion version multi-release jars are read with
+     * @param maxOpenArchives     maximum number of classpath jars kept open, null for no limit
+     * @return jdeps configuration, must be closed by the caller
+     */
+    @SneakyThrows
+    public static JdepsConfiguration buildJdepsConfiguration(
+            List<Path> sources,
+            ClasspathResolver.Result classpath,
+            Runtime.Version multiReleaseVersion,
+            @Nullable Integer maxOpenArchives) {
         var builder = new JdepsConfiguration.Builder();
 
         builder.multiRelease(multiReleaseVersion);
@@ -81,24 +331,12 @@ public class JdepsAnalyzer {
             builder.addRoot(source);
         }
 
-        // Add classpath
-        for (Path cp : classpath) {
-            cp = cp.toAbsolutePath().toString().endsWith("/*") ? cp.getParent() : cp;
-            if (cp == null || !Files.exists(cp)) {
-                continue;
-            }
-            if (Files.isDirectory(cp)) {
-                try (var stream = Files.walk(cp)) {
-                    stream.filter(Files::isRegularFile)
-                            .map(e -> e.toAbsolutePath().toString())
-                            .filter(p -> p.endsWith(".jar"))
-                            .forEach(builder::addClassPath);
-                }
-            } else {
+        // Add classpath, unless the analyzer opens it
+        if (maxOpenArchives == null) {
+            for (Path cp : classpath.classpath()) {
                 builder.addClassPath(cp.toAbsolutePath().toString());
             }
         }
-
         return builder.build();
     }
 
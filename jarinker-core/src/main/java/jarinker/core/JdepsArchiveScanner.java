@@ -0,0 +1,54 @@
+package jarinker.core;
+
+import com.sun.tools.classfile.AccessFlags;
+import com.sun.tools.classfile.ClassFile;
+import com.sun.tools.classfile.ConstantPoolException;
+import com.sun.tools.classfile.Dependencies;
+import com.sun.tools.jdeps.Archive;
+import com.sun.tools.jdeps.VersionHelper;
+import java.io.IOException;
+
+/**
+ * Scans an archive with the same class file reader and dependency finder jdeps uses internally,
+ * so the extracted edges match what {@code DepsAnalyzer} sees. The version of a class read from a multi-release entry
+ * is the one jdeps' {@link VersionHelper} recorded for it.
+ *
+ * @author Freeman
+ */
+final class JdepsArchiveScanner implements ArchiveScanner {
+
+    @Override
+    public String id() {
+        return "jdeps";
+    }
+
+    @Override
+    public ArchiveDependencies scan(Archive archive) throws IOException {
+        var builder = new ArchiveDependencies.Builder();
+        var finder = Dependencies.getClassDependencyFinder();
+        for (ClassFile cf : archive.reader().getClassFiles()) {
+            if (cf.access_flags.is(AccessFlags.ACC_MODULE)) {
+                continue;
+            }
+            String className;
+            try {
+                className = cf.getName().replace('/', '.');
+            } catch (ConstantPoolException e) {
+                throw new IOException("Invalid class file in " + archive.getPathName(), e);
+            }
+            builder.addClass(className, version(className));
+            for (var dependency : finder.findDependencies(cf)) {
+                builder.addDependency(
+                        dependency.getOrigin().getClassName(),
+                        dependency.getTarget().getClassName());
+            }
+        }
+        return builder.build();
+    }
+
+    private static int version(String className) {
+        var name = VersionHelper.get(className);
+        int slash = name.indexOf('/');
+        return slash > 0 ? Integer.parseInt(name.substring(0, slash)) : 0;
+    }
+}
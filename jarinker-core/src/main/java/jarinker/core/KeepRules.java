@@ -0,0 +1,275 @@
+package jarinker.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keep rules, classes kept whether the analysis finds them reachable or not, for classes frameworks load by
+ * reflection. A kept class is a root: the classes it depends on are kept as well.
+ *
+ * <p> A rules file has one rule per line, {@code #} starts a comment:
+ * <pre>
+ * com.example.Plugin           # the class
+ * com.example.model.*          # the classes of the package
+ * com.example.api.**           # the classes of the package and its subpackages
+ * com.example.web.Api*         # the classes of the package whose name starts with Api
+ * &#64;com.example.Component       # the classes annotated with the annotation
+ * </pre>
+ * Class names are binary names, nested classes are matched like any other class, e.g. {@code com.example.Plugin$*}.
+ * An annotation rule keeps the classes whose {@code RuntimeVisibleAnnotations} or {@code RuntimeInvisibleAnnotations}
+ * name the annotation type, annotations of their members do not count.
+ *
+ * <p> Class and package rules are compiled into a prefix trie over the class name, so matching a name costs one step
+ * per character whatever the number of rules, and entry names are matched without converting them to class names.
+ *
+ * @author Freeman
+ */
+public final class KeepRules {
+
+    private static final byte EXACT = 1;
+    /**
+     * the rest of the name is in the same package
+     */
+    private static final byte SAME_PACKAGE = 2;
+    /**
+     * the rest of the name may be anything
+     */
+    private static final byte ANY = 4;
+
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * children of a node, sorted by label: {@code labels[first[n]..first[n + 1])} and the matching {@code children}
+     */
+    private final int[] first;
+
+    private final char[] labels;
+    private final int[] children;
+    private final byte[] flags;
+    private final Set<String> annotations;
+    private final int size;
+
+    private KeepRules(int[] first, char[] labels, int[] children, byte[] flags, Set<String> annotations, int size) {
+        this.first = first;
+        this.labels = labels;
+        this.children = children;
+        this.flags = flags;
+        this.annotations = annotations;
+        this.size = size;
+    }
+
+    /**
+     * Read a rules file.
+     *
+     * @param file rules file, UTF-8
+     * @return compiled rules
+     * @throws IllegalArgumentException if a rule is malformed
+     */
+    public static KeepRules read(Path file) throws IOException {
+        try {
+            return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compile rules.
+     *
+     * @param lines lines of a rules file
+     * @return compiled rules
+     * @throws IllegalArgumentException if a rule is malformed
+     */
+    public static KeepRules parse(List<String> lines) {
+        var trie = new TrieBuilder();
+        var annotations = new HashSet<String>();
+        int size = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            var line = lines.get(i);
+            int comment = line.indexOf('#');
+            var rule = (comment >= 0 ? line.substring(0, comment) : line).strip();
+            if (rule.isEmpty()) {
+                continue;
+            }
+            if (rule.chars().anyMatch(Character::isWhitespace)) {
+                throw new IllegalArgumentException("Invalid keep rule on line " + (i + 1) + ": " + rule);
+            }
+            size++;
+            if (rule.startsWith("@")) {
+                var annotation = rule.substring(1);
+                if (annotation.isEmpty() || annotation.indexOf('*') >= 0) {
+                    throw new IllegalArgumentException("Invalid annotation rule on line " + (i + 1) + ": " + rule);
+                }
+                annotations.add(annotation);
+            } else if (rule.endsWith("**")) {
+                trie.add(checked(rule.substring(0, rule.length() - 2), i, rule), ANY);
+            } else if (rule.endsWith("*")) {
+                trie.add(checked(rule.substring(0, rule.length() - 1), i, rule), SAME_PACKAGE);
+            } else {
+                trie.add(checked(rule, i, rule), EXACT);
+            }
+        }
+        return trie.build(Set.copyOf(annotations), size);
+    }
+
+    private static String checked(String prefix, int line, String rule) {
+        if (prefix.indexOf('*') >= 0) {
+            throw new IllegalArgumentException(
+                    "Wildcards are only allowed at the end of a rule, line " + (line + 1) + ": " + rule);
+        }
+        return prefix;
+    }
+
+    /**
+     * @return number of rules
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether there are annotation rules
+     */
+    boolean hasAnnotations() {
+        return !annotations.isEmpty();
+    }
+
+    /**
+     * @param binaryName binary name of an annotation type
+     * @return whether the classes annotated with it are kept
+     */
+    boolean keepsAnnotated(String binaryName) {
+        return annotations.contains(binaryName);
+    }
+
+    /**
+     * @param binaryName binary class name, e.g. {@code com.example.Foo$Bar}
+     * @return whether a class or package rule keeps the class
+     */
+    public boolean keepsClass(String binaryName) {
+        return matches(binaryName, 0, binaryName.length());
+    }
+
+    /**
+     * @param entryName class entry name, possibly versioned, e.g. {@code com/example/Foo$Bar.class}
+     * @return whether a class or package rule keeps the class
+     */
+    public boolean keepsEntry(String entryName) {
+        if (!entryName.endsWith(CLASS_SUFFIX)) {
+            return false;
+        }
+        int start = 0;
+        if (entryName.startsWith(VERSIONS_PREFIX)) {
+            int slash = entryName.indexOf('/', VERSIONS_PREFIX.length());
+            start = slash > 0 ? slash + 1 : 0;
+        }
+        return matches(entryName, start, entryName.length() - CLASS_SUFFIX.length());
+    }
+
+    /**
+     * Walk the trie along {@code name[start, end)}, {@code '/'} is read as {@code '.'}.
+     */
+    private boolean matches(String name, int start, int end) {
+        int lastSeparator = start - 1;
+        for (int i = end - 1; i >= start; i--) {
+            char c = name.charAt(i);
+            if (c == '.' || c == '/') {
+                lastSeparator = i;
+                break;
+            }
+        }
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            byte f = flags[node];
+            if ((f & ANY) != 0 || ((f & SAME_PACKAGE) != 0 && i > lastSeparator)) {
+                return true;
+            }
+            char c = name.charAt(i);
+            node = child(node, c == '/' ? '.' : c);
+            if (node < 0) {
+                return false;
+            }
+        }
+        return flags[node] != 0;
+    }
+
+    private int child(int node, char label) {
+        int from = first[node];
+        int to = first[node + 1];
+        if (to - from <= 8) {
+            for (int i = from; i < to; i++) {
+                if (labels[i] == label) {
+                    return children[i];
+                }
+            }
+            return -1;
+        }
+        int i = Arrays.binarySearch(labels, from, to, label);
+        return i >= 0 ? children[i] : -1;
+    }
+
+    /**
+     * Builds the trie with a map per node, then flattens it into sorted arrays.
+     */
+    private static final class TrieBuilder {
+
+        private final List<TreeMap<Character, Integer>> nodes = new ArrayList<>();
+        private final List<Byte> nodeFlags = new ArrayList<>();
+
+        TrieBuilder() {
+            newNode();
+        }
+
+        private int newNode() {
+            nodes.add(new TreeMap<>());
+            nodeFlags.add((byte) 0);
+            return nodes.size() - 1;
+        }
+
+        void add(String prefix, byte flag) {
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                var next = nodes.get(node).get(prefix.charAt(i));
+                if (next == null) {
+                    next = newNode();
+                    nodes.get(node).put(prefix.charAt(i), next);
+                }
+                node = next;
+            }
+            nodeFlags.set(node, (byte) (nodeFlags.get(node) | flag));
+        }
+
+        KeepRules build(Set<String> annotations, int size) {
+            int count = nodes.size();
+            var first = new int[count + 1];
+            int edges = 0;
+            for (int n = 0; n < count; n++) {
+                first[n] = edges;
+                edges += nodes.get(n).size();
+            }
+            first[count] = edges;
+            var labels = new char[edges];
+            var children = new int[edges];
+            var flags = new byte[count];
+            for (int n = 0; n < count; n++) {
+                int i = first[n];
+                for (var entry : nodes.get(n).entrySet()) {
+                    labels[i] = entry.getKey();
+                    children[i] = entry.getValue();
+                    i++;
+                }
+                flags[n] = nodeFlags.get(n);
+            }
+            return new KeepRules(first, labels, children, flags, annotations, size);
+        }
+    }
+}
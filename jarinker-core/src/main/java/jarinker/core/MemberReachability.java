@@ -0,0 +1,549 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Member-level reachability, the fields and methods of the reachable classes that can be used and the classes that
+ * remain reachable through them.
+ *
+ * <p> The class files of the classes reachable in the class graph are parsed with {@link MemberReferences} and a
+ * worklist marks live classes and members, starting from the classes of the root archives. A live member makes the
+ * classes it references live, and a live class its supertypes. The analysis is conservative where the bytecode does
+ * not tell the target of a call:
+ * <ul>
+ *   <li>virtual dispatch: a reference to a method or field keeps every member with the same name and descriptor in
+ *   every live class, whatever class the reference names</li>
+ *   <li>callbacks from outside: a method with the name and descriptor of a method of a supertype that is not analyzed,
+ *   such as {@code Object.toString()} or {@code Comparator.compare}, is kept in every live class. A class with a
+ *   supertype that can be found neither in the analysis nor in the platform keeps all its members</li>
+ *   <li>reflection: a string constant of live code keeps the members with that name, and all members of the class
+ *   with that name. Members with runtime visible annotations, the static initializer and the no-argument constructor
+ *   of a live class are kept, and so are all members of annotation types, records, classes with native methods and
+ *   classes matching a keep pattern. Enums keep their fields, {@code values()} and {@code valueOf(String)},
+ *   serializable classes their fields and serialization methods</li>
+ *   <li>lambdas: the name a dynamic call site implements keeps the methods with that name</li>
+ * </ul>
+ * Classes that are not rewritten, those of the root archives and of the jars that are not shrunk, keep all their
+ * members: the verifier checks every method of a class it links, removed or not. A class file that can not be parsed
+ * keeps the classes it depends on in the class graph, with all their members.
+ *
+ * @author Freeman
+ */
+final class MemberReachability {
+
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+    private static final String CONSTRUCTOR = "<init>";
+    private static final String STATIC_INITIALIZER = "<clinit>";
+    private static final String NO_ARG_CONSTRUCTOR = MemberReferences.key(CONSTRUCTOR, "()V");
+    private static final Set<String> SERIALIZATION_MEMBERS = Set.of(
+            "serialVersionUID",
+            "serialPersistentFields",
+            "writeObject",
+            "readObject",
+            "readObjectNoData",
+            "writeReplace",
+            "readResolve");
+
+    /**
+     * class name, member key, versions of the member (one per versioned class file)
+     */
+    private final Map<String, Map<String, List<MemberReferences.MemberInfo>>> members = new HashMap<>();
+
+    private final Map<String, List<MemberReferences.ClassInfo>> classes = new HashMap<>();
+    /**
+     * member key, classes declaring it
+     */
+    private final Map<String, List<String>> byKey = new HashMap<>();
+    /**
+     * member name, classes declaring a member with that name
+     */
+    private final Map<String, Set<String>> byName = new HashMap<>();
+    /**
+     * classes that can not be parsed, with their dependencies in the class graph
+     */
+    private final Map<String, List<String>> opaque = new HashMap<>();
+
+    private final Set<String> fixed = new HashSet<>();
+    private final List<Pattern> keepPatterns;
+    private final @Nullable KeepRules keepRules;
+    private final Map<String, MemberReferences.@Nullable ClassInfo> platform = new HashMap<>();
+    private final Set<String> markedPlatformTypes = new HashSet<>();
+
+    private final Set<String> liveClasses = new HashSet<>();
+    private final Set<String> keepAll = new HashSet<>();
+    private final Map<String, Set<String>> liveMembers = new HashMap<>();
+    private final Set<String> liveKeys = new HashSet<>();
+    private final Set<String> liveNames = new HashSet<>();
+    private final ArrayDeque<String> classQueue = new ArrayDeque<>();
+    private final ArrayDeque<MemberReferences.MemberInfo> memberQueue = new ArrayDeque<>();
+
+    private MemberReachability(List<Pattern> keepPatterns, @Nullable KeepRules keepRules) {
+        this.keepPatterns = keepPatterns;
+        this.keepRules = keepRules;
+    }
+
+    /**
+     * Compute the live members of the reachable classes.
+     *
+     * @param graph            class graph
+     * @param reachableClasses classes reachable in the class graph, only those are parsed
+     * @param rewrittenJars    jars whose classes may lose members, absolute and normalized
+     * @param keepPatterns     patterns of binary class names whose members are all kept
+     * @param keepRules        rules of the classes whose members are all kept, null for none
+     * @param parallelism      number of archives parsed concurrently
+     * @return live classes and members
+     */
+    @SneakyThrows
+    static Result analyze(
+            DependencyGraph graph,
+            ReachableClasses reachableClasses,
+            Set<Path> rewrittenJars,
+            List<Pattern> keepPatterns,
+            @Nullable KeepRules keepRules,
+            int parallelism) {
+        var analysis = new MemberReachability(keepPatterns, keepRules);
+        var archives = List.copyOf(graph.getArchives());
+        var executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(parallelism, archives.size())), new NamedThreadFactory("jarinker-members"));
+        try {
+            var tasks = new ArrayList<Future<ParsedArchive>>();
+            for (var archive : archives) {
+                tasks.add(executor.submit(() -> parse(archive, reachableClasses)));
+            }
+            for (int i = 0; i < archives.size(); i++) {
+                ParsedArchive parsed;
+                try {
+                    parsed = tasks.get(i).get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() != null ? e.getCause() : e;
+                }
+                var path = archives.get(i)
+                        .path()
+                        .map(p -> p.toAbsolutePath().normalize())
+                        .orElse(null);
+                analysis.add(parsed, path == null || !rewrittenJars.contains(path));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        analysis.resolveOpaque(graph.getIndexedGraph());
+
+        var indexedGraph = graph.getIndexedGraph();
+        var roots = graph.getRootNodes();
+        for (int node = roots.nextSetBit(0); node >= 0; node = roots.nextSetBit(node + 1)) {
+            analysis.markClass(
+                    ReachableClasses.className(indexedGraph.name(node)).replace('.', '/'));
+        }
+        analysis.run();
+        return analysis.result(graph);
+    }
+
+    private static ParsedArchive parse(Archive archive, ReachableClasses reachableClasses) throws IOException {
+        var parsed = new ParsedArchive(new ArrayList<>(), new HashSet<>());
+        var path = archive.path().orElse(null);
+        if (path == null) {
+            return parsed;
+        }
+        if (Files.isDirectory(path)) {
+            List<Path> classFiles;
+            try (var stream = Files.walk(path)) {
+                classFiles = stream.filter(p -> p.toString().endsWith(".class") && Files.isRegularFile(p))
+                        .sorted()
+                        .toList();
+            }
+            for (var classFile : classFiles) {
+                var entryName = path.relativize(classFile).toString().replace('\\', '/');
+                if (reachableClasses.containsEntry(entryName)) {
+                    parseClass(Files.readAllBytes(classFile), entryName, parsed);
+                }
+            }
+            return parsed;
+        }
+        try (var index = JarIndex.open(path)) {
+            for (var entry : index.entries()) {
+                if (entry.isClass() && reachableClasses.containsEntry(baseName(entry.name()))) {
+                    parseClass(index.read(entry), entry.name(), parsed);
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private static void parseClass(byte[] bytes, String entryName, ParsedArchive parsed) {
+        try {
+            var info = MemberReferences.parse(bytes);
+            if (info != null) {
+                parsed.classes().add(info);
+            }
+        } catch (IllegalArgumentException e) {
+            var name = baseName(entryName);
+            parsed.opaque().add(name.substring(0, name.length() - ".class".length()));
+        }
+    }
+
+    /**
+     * @return entry name without the {@code META-INF/versions/<n>/} prefix of a versioned entry
+     */
+    static String baseName(String entryName) {
+        if (entryName.startsWith(VERSIONS_PREFIX)) {
+            int slash = entryName.indexOf('/', VERSIONS_PREFIX.length());
+            if (slash > 0) {
+                return entryName.substring(slash + 1);
+            }
+        }
+        return entryName;
+    }
+
+    private void add(ParsedArchive parsed, boolean fixedMembers) {
+        for (var info : parsed.classes()) {
+            var name = info.name();
+            classes.computeIfAbsent(name, k -> new ArrayList<>()).add(info);
+            var classMembers = members.computeIfAbsent(name, k -> new HashMap<>());
+            for (var member : info.members()) {
+                var key = member.key();
+                var versions = classMembers.computeIfAbsent(key, k -> new ArrayList<>(1));
+                if (versions.isEmpty()) {
+                    byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(name);
+                    byName.computeIfAbsent(member.name(), k -> new HashSet<>()).add(name);
+                }
+                versions.add(member);
+            }
+            if (fixedMembers) {
+                fixed.add(name);
+            }
+        }
+        for (var name : parsed.opaque()) {
+            opaque.put(name, new ArrayList<>());
+            if (fixedMembers) {
+                fixed.add(name);
+            }
+        }
+    }
+
+    private void resolveOpaque(IndexedGraph graph) {
+        if (opaque.isEmpty()) {
+            return;
+        }
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            var dependencies =
+                    opaque.get(ReachableClasses.className(graph.name(node)).replace('.', '/'));
+            if (dependencies != null) {
+                for (int i = 0; i < graph.outDegree(node); i++) {
+                    dependencies.add(ReachableClasses.className(graph.name(graph.successor(node, i)))
+                            .replace('.', '/'));
+                }
+            }
+        }
+    }
+
+    private void run() {
+        while (!classQueue.isEmpty() || !memberQueue.isEmpty()) {
+            var className = classQueue.poll();
+            if (className != null) {
+                processClass(className);
+                continue;
+            }
+            processMember(Objects.requireNonNull(memberQueue.poll()));
+        }
+    }
+
+    private void markClass(String name) {
+        if (liveClasses.add(name)) {
+            classQueue.add(name);
+        }
+    }
+
+    private void markMember(String owner, String key) {
+        var versions = members.getOrDefault(owner, Map.of()).get(key);
+        if (versions != null
+                && liveMembers.computeIfAbsent(owner, k -> new HashSet<>()).add(key)) {
+            memberQueue.addAll(versions);
+        }
+    }
+
+    private void markAll(String name) {
+        if (keepAll.add(name)) {
+            markClass(name);
+            for (var key : members.getOrDefault(name, Map.of()).keySet()) {
+                markMember(name, key);
+            }
+            for (var dependency : opaque.getOrDefault(name, List.of())) {
+                markAll(dependency);
+            }
+        }
+    }
+
+    private void markKey(String key) {
+        if (liveKeys.add(key)) {
+            for (var owner : byKey.getOrDefault(key, List.of())) {
+                if (liveClasses.contains(owner)) {
+                    markMember(owner, key);
+                }
+            }
+        }
+    }
+
+    private void markName(String name) {
+        if (liveNames.add(name)) {
+            for (var owner : byName.getOrDefault(name, Set.of())) {
+                if (liveClasses.contains(owner)) {
+                    markMembersNamed(owner, name);
+                }
+            }
+        }
+    }
+
+    private void markMembersNamed(String owner, String name) {
+        for (var entry : members.getOrDefault(owner, Map.of()).entrySet()) {
+            if (entry.getValue().get(0).name().equals(name)) {
+                markMember(owner, entry.getKey());
+            }
+        }
+    }
+
+    private void processClass(String name) {
+        var versions = classes.get(name);
+        if (versions == null) {
+            if (opaque.containsKey(name)) {
+                markAll(name);
+            }
+            // Not analyzed, a platform class or a class of a library that is not part of the graph
+            return;
+        }
+        boolean keepMembers = fixed.contains(name) || matchesKeepPattern(name);
+        boolean isEnum = false;
+        for (var info : versions) {
+            info.classes().forEach(this::markClass);
+            keepMembers |= isKept(info)
+                    || info.is(MemberReferences.ACC_ANNOTATION)
+                    || "java/lang/Record".equals(info.superName())
+                    || info.members().stream().anyMatch(m -> m.is(MemberReferences.ACC_NATIVE));
+            isEnum |= info.is(MemberReferences.ACC_ENUM) && "java/lang/Enum".equals(info.superName());
+        }
+        var hierarchy = markPlatformSupertypes(name);
+        if (keepMembers || hierarchy == Hierarchy.INCOMPLETE) {
+            markAll(name);
+            return;
+        }
+
+        for (var entry : members.getOrDefault(name, Map.of()).entrySet()) {
+            var key = entry.getKey();
+            var member = entry.getValue().get(0);
+            if (liveKeys.contains(key)
+                    || liveNames.contains(member.name())
+                    || member.name().equals(STATIC_INITIALIZER)
+                    || key.equals(NO_ARG_CONSTRUCTOR)
+                    || entry.getValue().stream().anyMatch(m -> !m.annotations().isEmpty())
+                    || (isEnum && (!member.method() || isEnumMethod(name, member)))
+                    || (hierarchy == Hierarchy.SERIALIZABLE
+                            && (!member.method() || SERIALIZATION_MEMBERS.contains(member.name())))) {
+                markMember(name, key);
+            }
+        }
+    }
+
+    private void processMember(MemberReferences.MemberInfo member) {
+        member.classes().forEach(this::markClass);
+        for (var reference : member.references()) {
+            var key = MemberReferences.key(reference.name(), reference.descriptor());
+            if (reference.name().equals(CONSTRUCTOR)) {
+                markMember(reference.owner(), key);
+            } else {
+                markKey(key);
+            }
+        }
+        for (var string : member.strings()) {
+            markName(string);
+            var className = string.replace('.', '/');
+            if (classes.containsKey(className)) {
+                // Class.forName(...), the class is used reflectively
+                markAll(className);
+            }
+        }
+        member.dynamicNames().forEach(this::markName);
+    }
+
+    /**
+     * Keep the methods of the supertypes outside the analysis that a live class may override, they may be called by
+     * code that is not analyzed.
+     */
+    private Hierarchy markPlatformSupertypes(String name) {
+        var hierarchy = Hierarchy.PLAIN;
+        var seen = new HashSet<String>();
+        var queue = new ArrayDeque<String>();
+        classes.getOrDefault(name, List.of()).forEach(info -> addSupertypes(info, queue));
+        String type;
+        while ((type = queue.poll()) != null) {
+            if (!seen.add(type)) {
+                continue;
+            }
+            var versions = classes.get(type);
+            if (versions != null) {
+                versions.forEach(info -> addSupertypes(info, queue));
+                continue;
+            }
+            var info = opaque.containsKey(type) ? null : platformClass(type);
+            if (info == null) {
+                return Hierarchy.INCOMPLETE;
+            }
+            if (type.equals("java/io/Serializable")) {
+                hierarchy = Hierarchy.SERIALIZABLE;
+            }
+            if (markedPlatformTypes.add(type)) {
+                for (var member : info.members()) {
+                    if (member.method()
+                            && !member.name().equals(CONSTRUCTOR)
+                            && !member.is(MemberReferences.ACC_STATIC)
+                            && !member.is(MemberReferences.ACC_PRIVATE)) {
+                        markKey(member.key());
+                    }
+                }
+            }
+            addSupertypes(info, queue);
+        }
+        return hierarchy;
+    }
+
+    private static void addSupertypes(MemberReferences.ClassInfo info, ArrayDeque<String> queue) {
+        if (info.superName() != null) {
+            queue.add(info.superName());
+        }
+        queue.addAll(info.interfaces());
+    }
+
+    private MemberReferences.@Nullable ClassInfo platformClass(String name) {
+        if (platform.containsKey(name)) {
+            return platform.get(name);
+        }
+        MemberReferences.@Nullable ClassInfo info = null;
+        try (InputStream in = ClassLoader.getPlatformClassLoader().getResourceAsStream(name + ".class")) {
+            if (in != null) {
+                info = MemberReferences.parse(in.readAllBytes());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Treated as missing, the classes extending it keep all their members
+        }
+        platform.put(name, info);
+        return info;
+    }
+
+    private boolean matchesKeepPattern(String name) {
+        if (keepPatterns.isEmpty()) {
+            return false;
+        }
+        var binaryName = name.replace('/', '.');
+        return keepPatterns.stream().anyMatch(p -> p.matcher(binaryName).matches());
+    }
+
+    /**
+     * @return whether the keep rules keep the class, the framework that loads it may use any of its members
+     */
+    private boolean isKept(MemberReferences.ClassInfo info) {
+        var rules = keepRules;
+        if (rules == null) {
+            return false;
+        }
+        return rules.keepsClass(info.name().replace('/', '.'))
+                || (rules.hasAnnotations()
+                        && info.annotations().stream().anyMatch(a -> rules.keepsAnnotated(a.replace('/', '.'))));
+    }
+
+    private static boolean isEnumMethod(String name, MemberReferences.MemberInfo member) {
+        return (member.name().equals("values") && member.descriptor().equals("()[L" + name + ";"))
+                || (member.name().equals("valueOf")
+                        && member.descriptor().equals("(Ljava/lang/String;)L" + name + ";"));
+    }
+
+    private Result result(DependencyGraph graph) {
+        var indexedGraph = graph.getIndexedGraph();
+        var nodes = new BitSet(indexedGraph.nodeCount());
+        for (int node = 0; node < indexedGraph.nodeCount(); node++) {
+            if (liveClasses.contains(
+                    ReachableClasses.className(indexedGraph.name(node)).replace('.', '/'))) {
+                nodes.set(node);
+            }
+        }
+        return new Result(new ReachableClasses(indexedGraph, nodes), liveMembers, keepAll, members.keySet());
+    }
+
+    private enum Hierarchy {
+        PLAIN,
+        SERIALIZABLE,
+        /**
+         * a supertype can not be found or parsed
+         */
+        INCOMPLETE
+    }
+
+    private record ParsedArchive(List<MemberReferences.ClassInfo> classes, Set<String> opaque) {}
+
+    /**
+     * Live classes and members.
+     */
+    static final class Result {
+
+        private final ReachableClasses reachableClasses;
+        private final Map<String, Set<String>> liveMembers;
+        private final Set<String> keepAll;
+        private final Set<String> analyzed;
+
+        private Result(
+                ReachableClasses reachableClasses,
+                Map<String, Set<String>> liveMembers,
+                Set<String> keepAll,
+                Set<String> analyzed) {
+            this.reachableClasses = reachableClasses;
+            this.liveMembers = liveMembers;
+            this.keepAll = keepAll;
+            this.analyzed = analyzed;
+        }
+
+        /**
+         * @return classes reachable through live members
+         */
+        ReachableClasses reachableClasses() {
+            return reachableClasses;
+        }
+
+        /**
+         * @param className internal name of a class
+         * @return keys of the live members, see {@link MemberReferences#key}, or null if all members are kept
+         */
+        @Nullable
+        Set<String> liveMembers(String className) {
+            if (keepAll.contains(className) || !analyzed.contains(className)) {
+                return null;
+            }
+            return liveMembers.getOrDefault(className, Set.of());
+        }
+
+        /**
+         * @param entryName class entry name, possibly versioned
+         * @return keys of the live members of the class, or null if all members are kept
+         */
+        @Nullable
+        Set<String> liveMembersOfEntry(String entryName) {
+            var name = baseName(entryName);
+            return liveMembers(name.substring(0, name.length() - ".class".length()));
+        }
+    }
+}
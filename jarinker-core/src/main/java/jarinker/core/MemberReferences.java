@@ -0,0 +1,557 @@
+package jarinker.core;
+
+import static jarinker.core.ConstantPool.CONSTANT_CLASS;
+import static jarinker.core.ConstantPool.CONSTANT_DYNAMIC;
+import static jarinker.core.ConstantPool.CONSTANT_FIELDREF;
+import static jarinker.core.ConstantPool.CONSTANT_INTERFACE_METHODREF;
+import static jarinker.core.ConstantPool.CONSTANT_METHODREF;
+import static jarinker.core.ConstantPool.CONSTANT_METHOD_HANDLE;
+import static jarinker.core.ConstantPool.CONSTANT_METHOD_TYPE;
+import static jarinker.core.ConstantPool.CONSTANT_STRING;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Extracts the fields and methods of a class file and what each of them references, without building a class file
+ * model.
+ *
+ * <p> A member references the classes of its descriptor, {@code Signature}, {@code Exceptions} and runtime visible
+ * annotations, and everything its bytecode touches: the classes, fields and methods of its instructions, the catch
+ * types of its exception table, the class types of its {@code StackMapTable} frames, which the verifier may load, the
+ * string constants it loads and the bootstrap methods and arguments of its dynamic call sites. The class itself
+ * references its supertypes, {@code Signature}, annotations, nest host and enclosing class.
+ *
+ * @author Freeman
+ */
+final class MemberReferences {
+
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_NATIVE = 0x0100;
+    static final int ACC_INTERFACE = 0x0200;
+    static final int ACC_ANNOTATION = 0x2000;
+    static final int ACC_ENUM = 0x4000;
+
+    private static final int ACC_MODULE = 0x8000;
+
+    /**
+     * Length of the instructions with a fixed length by opcode, 0 for variable length and undefined opcodes.
+     */
+    private static final int[] INSTRUCTION_LENGTHS = new int[256];
+
+    static {
+        Arrays.fill(INSTRUCTION_LENGTHS, 0, 0xCA, 1);
+        INSTRUCTION_LENGTHS[0x10] = 2; // bipush
+        INSTRUCTION_LENGTHS[0x11] = 3; // sipush
+        INSTRUCTION_LENGTHS[0x12] = 2; // ldc
+        INSTRUCTION_LENGTHS[0x13] = 3; // ldc_w
+        INSTRUCTION_LENGTHS[0x14] = 3; // ldc2_w
+        Arrays.fill(INSTRUCTION_LENGTHS, 0x15, 0x1A, 2); // iload .. aload
+        Arrays.fill(INSTRUCTION_LENGTHS, 0x36, 0x3B, 2); // istore .. astore
+        INSTRUCTION_LENGTHS[0x84] = 3; // iinc
+        Arrays.fill(INSTRUCTION_LENGTHS, 0x99, 0xA9, 3); // ifeq .. jsr
+        INSTRUCTION_LENGTHS[0xA9] = 2; // ret
+        INSTRUCTION_LENGTHS[0xAA] = 0; // tableswitch
+        INSTRUCTION_LENGTHS[0xAB] = 0; // lookupswitch
+        Arrays.fill(INSTRUCTION_LENGTHS, 0xB2, 0xB9, 3); // getstatic .. invokestatic
+        INSTRUCTION_LENGTHS[0xB9] = 5; // invokeinterface
+        INSTRUCTION_LENGTHS[0xBA] = 5; // invokedynamic
+        INSTRUCTION_LENGTHS[0xBB] = 3; // new
+        INSTRUCTION_LENGTHS[0xBC] = 2; // newarray
+        INSTRUCTION_LENGTHS[0xBD] = 3; // anewarray
+        INSTRUCTION_LENGTHS[0xC0] = 3; // checkcast
+        INSTRUCTION_LENGTHS[0xC1] = 3; // instanceof
+        INSTRUCTION_LENGTHS[0xC4] = 0; // wide
+        INSTRUCTION_LENGTHS[0xC5] = 4; // multianewarray
+        INSTRUCTION_LENGTHS[0xC6] = 3; // ifnull
+        INSTRUCTION_LENGTHS[0xC7] = 3; // ifnonnull
+        INSTRUCTION_LENGTHS[0xC8] = 5; // goto_w
+        INSTRUCTION_LENGTHS[0xC9] = 5; // jsr_w
+    }
+
+    private final byte[] b;
+    private final ConstantPool pool;
+    private int[] bootstrapMethods = new int[0];
+    private int pos;
+
+    private MemberReferences(byte[] b) {
+        this.b = b;
+        this.pool = ConstantPool.read(b);
+        this.pos = pool.end();
+    }
+
+    /**
+     * Parse a class file.
+     *
+     * @param classFile class file bytes
+     * @return the class and its members, or null for {@code module-info}
+     * @throws IllegalArgumentException if the class file is malformed
+     */
+    static @Nullable ClassInfo parse(byte[] classFile) {
+        try {
+            return new MemberReferences(classFile).parse();
+        } catch (IndexOutOfBoundsException | IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed class file", e);
+        }
+    }
+
+    /**
+     * @return key of a member within its class, e.g. {@code toString.()Ljava/lang/String;}
+     */
+    static String key(String name, String descriptor) {
+        return name + '.' + descriptor;
+    }
+
+    private @Nullable ClassInfo parse() {
+        int access = readUnsignedShort(pos);
+        if ((access & ACC_MODULE) != 0) {
+            return null;
+        }
+        int thisClass = readUnsignedShort(pos + 2);
+        var name = pool.className(thisClass);
+        int superClass = readUnsignedShort(pos + 4);
+        var superName = superClass != 0 ? pool.className(superClass) : null;
+        int interfaceCount = readUnsignedShort(pos + 6);
+        var interfaces = new ArrayList<String>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(pool.className(readUnsignedShort(pos + 8 + i * 2)));
+        }
+        pos += 8 + interfaceCount * 2;
+
+        // Class attributes come last, but the bootstrap methods are needed to read the code of the methods
+        int membersStart = pos;
+        skipMembers();
+        skipMembers();
+        var classes = new HashSet<String>();
+        var annotations = new HashSet<String>();
+        if (superName != null) {
+            classes.add(superName);
+        }
+        classes.addAll(interfaces);
+        readClassAttributes(thisClass, classes, annotations);
+
+        pos = membersStart;
+        var members = new ArrayList<MemberInfo>();
+        readMembers(false, members);
+        readMembers(true, members);
+        return new ClassInfo(name, access, superName, List.copyOf(interfaces), classes, annotations, members);
+    }
+
+    private void skipMembers() {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int m = 0; m < count; m++) {
+            pos += 6;
+            skipAttributes();
+        }
+    }
+
+    private void skipAttributes() {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int a = 0; a < count; a++) {
+            pos += 6 + readInt(pos + 2);
+        }
+    }
+
+    private void readClassAttributes(int thisClass, Set<String> classes, Set<String> annotations) {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int a = 0; a < count; a++) {
+            var name = pool.utf8(readUnsignedShort(pos));
+            int length = readInt(pos + 2);
+            int start = pos + 6;
+            switch (name) {
+                case "Signature" -> signature(pool.utf8(readUnsignedShort(start)), classes);
+                case "RuntimeVisibleAnnotations" -> {
+                    pos = start;
+                    annotations(classes, annotations);
+                }
+                case "RuntimeInvisibleAnnotations" -> {
+                    // Only for keep rules, nothing loads these types at run time
+                    pos = start;
+                    annotations(new HashSet<>(), annotations);
+                }
+                case "NestHost", "EnclosingMethod" -> classRef(readUnsignedShort(start), classes);
+                case "InnerClasses" -> {
+                    // The outer class of a member class is resolved by Class.getSimpleName()
+                    int entries = readUnsignedShort(start);
+                    for (int i = 0; i < entries; i++) {
+                        int entry = start + 2 + i * 8;
+                        int outer = readUnsignedShort(entry + 2);
+                        if (readUnsignedShort(entry) == thisClass && outer != 0) {
+                            classRef(outer, classes);
+                        }
+                    }
+                }
+                case "BootstrapMethods" -> {
+                    int methods = readUnsignedShort(start);
+                    bootstrapMethods = new int[methods];
+                    int offset = start + 2;
+                    for (int i = 0; i < methods; i++) {
+                        bootstrapMethods[i] = offset;
+                        offset += 4 + readUnsignedShort(offset + 2) * 2;
+                    }
+                }
+                default -> {}
+            }
+            pos = start + length;
+        }
+    }
+
+    private void readMembers(boolean methods, List<MemberInfo> members) {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int m = 0; m < count; m++) {
+            int access = readUnsignedShort(pos);
+            var name = pool.utf8(readUnsignedShort(pos + 2));
+            var descriptor = pool.utf8(readUnsignedShort(pos + 4));
+            pos += 6;
+            var member = new MemberInfo(
+                    methods,
+                    name,
+                    descriptor,
+                    access,
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new HashSet<>());
+            signature(descriptor, member.classes());
+            readMemberAttributes(member);
+            members.add(member);
+        }
+    }
+
+    private void readMemberAttributes(MemberInfo member) {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int a = 0; a < count; a++) {
+            var name = pool.utf8(readUnsignedShort(pos));
+            int length = readInt(pos + 2);
+            int start = pos + 6;
+            switch (name) {
+                case "Signature" -> signature(pool.utf8(readUnsignedShort(start)), member.classes());
+                case "RuntimeVisibleAnnotations" -> {
+                    pos = start;
+                    annotations(member.classes(), member.annotations());
+                }
+                case "RuntimeVisibleParameterAnnotations" -> {
+                    int parameters = b[start] & 0xFF;
+                    pos = start + 1;
+                    for (int p = 0; p < parameters; p++) {
+                        annotations(member.classes(), member.annotations());
+                    }
+                }
+                case "AnnotationDefault" -> {
+                    pos = start;
+                    elementValue(member.classes());
+                }
+                case "Exceptions" -> {
+                    int exceptions = readUnsignedShort(start);
+                    for (int e = 0; e < exceptions; e++) {
+                        classRef(readUnsignedShort(start + 2 + e * 2), member.classes());
+                    }
+                }
+                case "Code" -> readCode(start, member);
+                default -> {}
+            }
+            pos = start + length;
+        }
+    }
+
+    private void readCode(int start, MemberInfo member) {
+        int codeLength = readInt(start + 4);
+        int code = start + 8;
+        int pc = 0;
+        while (pc < codeLength) {
+            int at = code + pc;
+            int opcode = b[at] & 0xFF;
+            switch (opcode) {
+                case 0x12 -> constant(b[at + 1] & 0xFF, member); // ldc
+                case 0x13, 0x14 -> constant(readUnsignedShort(at + 1), member); // ldc_w, ldc2_w
+                case 0xB2, 0xB3, 0xB4, 0xB5, 0xB6, 0xB7, 0xB8, 0xB9 -> memberRef(readUnsignedShort(at + 1), member);
+                case 0xBA -> dynamic(readUnsignedShort(at + 1), member, true); // invokedynamic
+                case 0xBB, 0xBD, 0xC0, 0xC1, 0xC5 -> classRef(readUnsignedShort(at + 1), member.classes());
+                default -> {}
+            }
+            int length = INSTRUCTION_LENGTHS[opcode];
+            if (length == 0) {
+                length = variableInstructionLength(code, pc, opcode);
+            }
+            pc += length;
+        }
+
+        int exceptions = code + codeLength;
+        int exceptionCount = readUnsignedShort(exceptions);
+        for (int e = 0; e < exceptionCount; e++) {
+            int catchType = readUnsignedShort(exceptions + 2 + e * 8 + 6);
+            if (catchType != 0) {
+                classRef(catchType, member.classes());
+            }
+        }
+
+        int attributes = exceptions + 2 + exceptionCount * 8;
+        int count = readUnsignedShort(attributes);
+        int offset = attributes + 2;
+        for (int a = 0; a < count; a++) {
+            if (pool.utf8(readUnsignedShort(offset)).equals("StackMapTable")) {
+                stackMapTable(offset + 6, member.classes());
+            }
+            offset += 6 + readInt(offset + 2);
+        }
+    }
+
+    private int variableInstructionLength(int code, int pc, int opcode) {
+        switch (opcode) {
+            case 0xAA -> { // tableswitch
+                int operands = (pc + 4) & ~3;
+                int low = readInt(code + operands + 4);
+                int high = readInt(code + operands + 8);
+                return operands + 12 + (high - low + 1) * 4 - pc;
+            }
+            case 0xAB -> { // lookupswitch
+                int operands = (pc + 4) & ~3;
+                return operands + 8 + readInt(code + operands + 4) * 8 - pc;
+            }
+            case 0xC4 -> { // wide
+                return (b[code + pc + 1] & 0xFF) == 0x84 ? 6 : 4;
+            }
+            default -> throw new IllegalStateException("Unknown opcode " + opcode);
+        }
+    }
+
+    private void stackMapTable(int start, Set<String> classes) {
+        int frames = readUnsignedShort(start);
+        int p = start + 2;
+        for (int f = 0; f < frames; f++) {
+            int type = b[p++] & 0xFF;
+            if (type < 64) {
+                continue; // same_frame
+            }
+            if (type < 128) {
+                p = verificationType(p, classes); // same_locals_1_stack_item
+            } else if (type == 247) {
+                p = verificationType(p + 2, classes); // same_locals_1_stack_item_extended
+            } else if (type >= 248 && type <= 251) {
+                p += 2; // chop_frame, same_frame_extended
+            } else if (type >= 252 && type <= 254) {
+                p += 2; // append_frame
+                for (int i = 0; i < type - 251; i++) {
+                    p = verificationType(p, classes);
+                }
+            } else if (type == 255) {
+                int locals = readUnsignedShort(p + 2); // full_frame
+                p += 4;
+                for (int i = 0; i < locals; i++) {
+                    p = verificationType(p, classes);
+                }
+                int stack = readUnsignedShort(p);
+                p += 2;
+                for (int i = 0; i < stack; i++) {
+                    p = verificationType(p, classes);
+                }
+            } else {
+                throw new IllegalStateException("Unknown stack map frame type " + type);
+            }
+        }
+    }
+
+    private int verificationType(int p, Set<String> classes) {
+        int tag = b[p] & 0xFF;
+        if (tag == 7) { // Object_variable_info
+            classRef(readUnsignedShort(p + 1), classes);
+            return p + 3;
+        }
+        return tag == 8 ? p + 3 : p + 1; // Uninitialized_variable_info carries an offset
+    }
+
+    private void constant(int index, MemberInfo member) {
+        switch (pool.tag(index)) {
+            case CONSTANT_CLASS -> classRef(index, member.classes());
+            case CONSTANT_STRING -> member.strings().add(pool.utf8(readUnsignedShort(pool.offset(index))));
+            case CONSTANT_METHOD_HANDLE -> memberRef(readUnsignedShort(pool.offset(index) + 1), member);
+            case CONSTANT_METHOD_TYPE -> signature(pool.utf8(readUnsignedShort(pool.offset(index))), member.classes());
+            case CONSTANT_DYNAMIC -> dynamic(index, member, false);
+            default -> {}
+        }
+    }
+
+    private void memberRef(int index, MemberInfo member) {
+        int tag = pool.tag(index);
+        if (tag != CONSTANT_FIELDREF && tag != CONSTANT_METHODREF && tag != CONSTANT_INTERFACE_METHODREF) {
+            throw new IllegalStateException("Not a member reference: " + index);
+        }
+        int classIndex = readUnsignedShort(pool.offset(index));
+        int nameAndType = pool.offset(readUnsignedShort(pool.offset(index) + 2));
+        var name = pool.utf8(readUnsignedShort(nameAndType));
+        var descriptor = pool.utf8(readUnsignedShort(nameAndType + 2));
+        signature(descriptor, member.classes());
+        var owner = pool.className(classIndex);
+        if (owner.startsWith("[")) {
+            // Methods of arrays are those of Object, e.g. clone()
+            signature(owner, member.classes());
+            return;
+        }
+        member.classes().add(owner);
+        member.references().add(new MemberRef(owner, name, descriptor));
+    }
+
+    /**
+     * A dynamic call site or constant, its bootstrap method and static arguments are referenced.
+     */
+    private void dynamic(int index, MemberInfo member, boolean callSite) {
+        int bootstrap = readUnsignedShort(pool.offset(index));
+        int nameAndType = pool.offset(readUnsignedShort(pool.offset(index) + 2));
+        if (callSite) {
+            // The name of the method a lambda or method reference implements
+            member.dynamicNames().add(pool.utf8(readUnsignedShort(nameAndType)));
+        }
+        signature(pool.utf8(readUnsignedShort(nameAndType + 2)), member.classes());
+        int offset = bootstrapMethods[bootstrap];
+        memberRef(readUnsignedShort(pool.offset(readUnsignedShort(offset)) + 1), member);
+        int arguments = readUnsignedShort(offset + 2);
+        for (int i = 0; i < arguments; i++) {
+            int argument = readUnsignedShort(offset + 4 + i * 2);
+            if (pool.tag(argument) != CONSTANT_DYNAMIC || argument != index) {
+                constant(argument, member);
+            }
+        }
+    }
+
+    private void annotations(Set<String> classes, Set<String> types) {
+        int count = readUnsignedShort(pos);
+        pos += 2;
+        for (int i = 0; i < count; i++) {
+            signature(pool.utf8(readUnsignedShort(pos)), types);
+            annotation(classes);
+        }
+    }
+
+    private void annotation(Set<String> classes) {
+        signature(pool.utf8(readUnsignedShort(pos)), classes);
+        int pairs = readUnsignedShort(pos + 2);
+        pos += 4;
+        for (int i = 0; i < pairs; i++) {
+            pos += 2;
+            elementValue(classes);
+        }
+    }
+
+    private void elementValue(Set<String> classes) {
+        int tag = b[pos++];
+        switch (tag) {
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's' -> pos += 2;
+            case 'c' -> {
+                signature(pool.utf8(readUnsignedShort(pos)), classes);
+                pos += 2;
+            }
+            case 'e' -> {
+                signature(pool.utf8(readUnsignedShort(pos)), classes);
+                pos += 4;
+            }
+            case '@' -> annotation(classes);
+            case '[' -> {
+                int count = readUnsignedShort(pos);
+                pos += 2;
+                for (int i = 0; i < count; i++) {
+                    elementValue(classes);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown element value tag " + (char) tag);
+        }
+    }
+
+    private void classRef(int index, Set<String> classes) {
+        var name = pool.className(index);
+        if (name.startsWith("[")) {
+            signature(name, classes);
+        } else {
+            classes.add(name);
+        }
+    }
+
+    private static void signature(String signature, Set<String> classes) {
+        new ClassFileReferences.SignatureParser(signature, classes::add).parse();
+    }
+
+    private int readUnsignedShort(int offset) {
+        return ConstantPool.readUnsignedShort(b, offset);
+    }
+
+    private int readInt(int offset) {
+        return ConstantPool.readInt(b, offset);
+    }
+
+    /**
+     * A class and its members.
+     *
+     * @param name        internal name, e.g. {@code com/example/Foo$Bar}
+     * @param access      access flags
+     * @param superName   internal name of the superclass, null for {@code java/lang/Object}
+     * @param interfaces  internal names of the direct superinterfaces
+     * @param classes     internal names of the classes the class itself references, its supertypes included
+     * @param annotations internal names of the runtime visible and invisible annotations of the class
+     * @param members     fields and methods
+     */
+    record ClassInfo(
+            String name,
+            int access,
+            @Nullable String superName,
+            List<String> interfaces,
+            Set<String> classes,
+            Set<String> annotations,
+            List<MemberInfo> members) {
+
+        boolean is(int flag) {
+            return (access & flag) != 0;
+        }
+    }
+
+    /**
+     * A field or method and what it references.
+     *
+     * @param method       whether the member is a method
+     * @param name         member name
+     * @param descriptor   member descriptor
+     * @param access       access flags
+     * @param classes      internal names of the referenced classes
+     * @param references   referenced fields and methods
+     * @param strings      string constants the code loads
+     * @param dynamicNames names of the methods its dynamic call sites implement
+     * @param annotations  internal names of the runtime visible annotations of the member and its parameters
+     */
+    record MemberInfo(
+            boolean method,
+            String name,
+            String descriptor,
+            int access,
+            Set<String> classes,
+            Set<MemberRef> references,
+            Set<String> strings,
+            Set<String> dynamicNames,
+            Set<String> annotations) {
+
+        String key() {
+            return MemberReferences.key(name, descriptor);
+        }
+
+        boolean is(int flag) {
+            return (access & flag) != 0;
+        }
+    }
+
+    /**
+     * A field or method reference of an instruction or method handle.
+     *
+     * @param owner      internal name of the class the reference names
+     * @param name       member name
+     * @param descriptor member descriptor
+     */
+    record MemberRef(String owner, String name, String descriptor) {}
+}
@@ -0,0 +1,26 @@
+package jarinker.core;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads named {@code <prefix>-<n>}, so worker pools never keep the JVM alive.
+ *
+ * @author Freeman
+ */
+final class NamedThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    NamedThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        var thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,174 @@
+package jarinker.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Content-addressed store of shrunk jars, one file per distinct shrink result.
+ *
+ * <p> Entries are keyed by the SHA-256 of the input JAR content together with the names of the retained entries in
+ * output order, the entries stored uncompressed, the compression level, the stripped attributes, the members kept in
+ * each class and the tool version, so the same input shrunk to the same layout is written once and then reused.
+ * Outputs are hard-linked to the stored file where the file system allows it and copied otherwise, a hard-linked
+ * output must not be modified in place. Reusing an entry refreshes its modification time,
+ * {@link #evict()} removes the least recently used entries once the directory grows beyond the size limit.
+ *
+ * <p> Entries are written to a temporary file and atomically moved into place, concurrent processes may share a
+ * directory.
+ *
+ * @author Freeman
+ */
+public final class OutputStore {
+
+    private static final String SUFFIX = ".jar";
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path directory;
+    private final long maxSize;
+    private final String toolVersion;
+
+    /**
+     * @param directory   store directory, created if absent
+     * @param maxSize     maximum total size of the stored jars in bytes
+     * @param toolVersion jarinker version, part of every key
+     */
+    public OutputStore(Path directory, long maxSize, String toolVersion) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Store size must not be negative: " + maxSize);
+        }
+        this.directory = directory.toAbsolutePath();
+        this.maxSize = maxSize;
+        this.toolVersion = toolVersion;
+    }
+
+    /**
+     * Compute the key of a shrink result.
+     *
+     * @param jar                input JAR
+     * @param entries            entries of the input JAR, in archive order
+     * @param order              indexes of the retained entries in output order
+     * @param stored             indexes of the entries written uncompressed
+     * @param compressionLevel   compression level the output is written with, null for raw copies
+     * @param strippedAttributes names of the class file attributes stripped from the classes
+     * @param members            live members of the classes, null if all members are kept
+     * @return key of the shrunk JAR
+     */
+    String key(
+            Path jar,
+            List<RawJarEntry> entries,
+            int[] order,
+            BitSet stored,
+            @Nullable Integer compressionLevel,
+            Set<String> strippedAttributes,
+            MemberReachability.@Nullable Result members)
+            throws IOException {
+        var digest = CacheFiles.sha256();
+        CacheFiles.digest(digest, jar);
+        for (int i : order) {
+            digest.update(entries.get(i).nameBytes());
+            digest.update((byte) (stored.get(i) ? '\0' : '\n'));
+            if (members != null && entries.get(i).isClass()) {
+                var liveMembers = members.liveMembersOfEntry(entries.get(i).name());
+                var kept = liveMembers != null ? String.join(",", new TreeSet<>(liveMembers)) : "*";
+                digest.update(kept.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\0');
+            }
+        }
+        var salt = String.join(
+                "\0",
+                toolVersion,
+                String.valueOf(compressionLevel),
+                String.join(",", new TreeSet<>(strippedAttributes)),
+                String.valueOf(FORMAT_VERSION));
+        digest.update(salt.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Find a stored jar.
+     *
+     * @param key key from {@link #key(Path, List, int[], BitSet, Integer, Set, MemberReachability.Result)}
+     * @return stored jar, or null if absent
+     */
+    @Nullable
+    Path find(String key) throws IOException {
+        var entry = CacheFiles.entryPath(directory, key, SUFFIX);
+        try {
+            CacheFiles.touch(entry);
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store a shrunk jar, the file itself is left in place.
+     *
+     * @param key key from {@link #key(Path, List, int[], BitSet, Integer, Set, MemberReachability.Result)}
+     * @param jar shrunk jar
+     */
+    void put(String key, Path jar) throws IOException {
+        var entry = CacheFiles.entryPath(directory, key, SUFFIX);
+        Files.createDirectories(Objects.requireNonNull(entry.getParent()));
+        var temp = entry.resolveSibling(entry.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            linkOrCopy(jar, temp);
+            CacheFiles.moveReplacing(temp, entry);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Place a stored jar at the target path, replacing it.
+     *
+     * @param stored stored jar from {@link #find(String)}
+     * @param target output path
+     * @return bytes written, 0 if the target was linked or already is the stored jar
+     */
+    long materialize(Path stored, Path target) throws IOException {
+        if (Files.exists(target) && Files.isSameFile(stored, target)) {
+            return 0;
+        }
+        var temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            long written = linkOrCopy(stored, temp);
+            CacheFiles.moveReplacing(temp, target);
+            return written;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Remove least recently used entries until the store fits into its size limit.
+     */
+    public void evict() throws IOException {
+        CacheFiles.evict(directory, SUFFIX, maxSize);
+    }
+
+    /**
+     * @return bytes copied, 0 if linked
+     */
+    private static long linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+            return 0;
+        } catch (FileSystemException | UnsupportedOperationException e) {
+            // Different file system or no hard link support
+            return CacheFiles.copy(source, target);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package jarinker.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a completed {@link Profiler} phase.
+ *
+ * @author Freeman
+ */
+@Name("jarinker.Phase")
+@Label("Jarinker Phase")
+@Category("Jarinker")
+@Description("A phase of a jarinker analysis or shrink")
+class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase = "";
+
+    @Label("CPU Time")
+    @Timespan
+    long cpuTime;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    @Label("Entries")
+    long entries;
+
+    @Label("Peak Heap")
+    @DataAmount
+    long peakHeap;
+}
@@ -0,0 +1,294 @@
+package jarinker.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records wall time, CPU time, I/O volume and peak heap of the phases of an analysis or a shrink.
+ *
+ * <p> Each phase and each jar processed in a phase is also emitted as a JFR event ({@code jarinker.Phase},
+ * {@code jarinker.Jar}), so a flight recording can be correlated with GC activity.
+ *
+ * <p> {@link #disabled()} returns a shared instance whose phases do nothing, callers don't need to check whether
+ * profiling is on. Phases are expected to run one after the other, peak heap is measured by resetting the peak usage
+ * of the heap memory pools when a phase starts.
+ *
+ * @author Freeman
+ */
+public final class Profiler {
+
+    private static final Profiler DISABLED = new Profiler(false);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final boolean enabled;
+    private final ConcurrentLinkedQueue<PhaseReport> phases = new ConcurrentLinkedQueue<>();
+
+    public Profiler() {
+        this(true);
+    }
+
+    private Profiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return profiler that records nothing
+     */
+    public static Profiler disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start a phase, it is recorded when closed.
+     *
+     * @param name phase name
+     * @return running phase
+     */
+    public Phase start(String name) {
+        return enabled ? new Phase(this, name) : Phase.NOOP;
+    }
+
+    /**
+     * @return completed phases, in completion order
+     */
+    public List<PhaseReport> phases() {
+        return List.copyOf(phases);
+    }
+
+    private static long threadCpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        var result = new ArrayList<MemoryPoolMXBean>();
+        for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                result.add(pool);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A running phase, thread-safe so that workers can report the jars they process.
+     */
+    public static final class Phase implements AutoCloseable {
+
+        private static final Phase NOOP = new Phase();
+
+        private final Profiler profiler;
+        private final String name;
+        private final Thread owner;
+        private final long startNanos;
+        private final long startCpu;
+        private final List<MemoryPoolMXBean> heapPools;
+        private final PhaseEvent event;
+
+        private final LongAdder workerCpu = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LongAdder entries = new LongAdder();
+        private final ConcurrentLinkedQueue<JarReport> jars = new ConcurrentLinkedQueue<>();
+
+        private Phase() {
+            this.profiler = DISABLED;
+            this.name = "";
+            this.owner = Thread.currentThread();
+            this.startNanos = 0;
+            this.startCpu = 0;
+            this.heapPools = List.of();
+            this.event = new PhaseEvent();
+        }
+
+        private Phase(Profiler profiler, String name) {
+            this.profiler = profiler;
+            this.name = name;
+            this.owner = Thread.currentThread();
+            this.heapPools = heapPools();
+            for (var pool : heapPools) {
+                pool.resetPeakUsage();
+            }
+            this.event = new PhaseEvent();
+            this.event.begin();
+            this.startCpu = threadCpuTime();
+            this.startNanos = System.nanoTime();
+        }
+
+        public boolean isEnabled() {
+            return profiler.enabled;
+        }
+
+        public void addBytesRead(long bytes) {
+            if (isEnabled()) {
+                bytesRead.add(bytes);
+            }
+        }
+
+        public void addBytesWritten(long bytes) {
+            if (isEnabled()) {
+                bytesWritten.add(bytes);
+            }
+        }
+
+        public void addEntries(long count) {
+            if (isEnabled()) {
+                entries.add(count);
+            }
+        }
+
+        /**
+         * Start processing a jar, may be called from any thread.
+         *
+         * @param jar jar path
+         * @return running jar, finish it with {@link JarTask#finish(long, long, long)}
+         */
+        public JarTask startJar(Path jar) {
+            return isEnabled() ? new JarTask(this, jar) : JarTask.NOOP;
+        }
+
+        @Override
+        public void close() {
+            if (!isEnabled()) {
+                return;
+            }
+            long wall = System.nanoTime() - startNanos;
+            long cpu = threadCpuTime() - startCpu + workerCpu.sum();
+            long peakHeap = 0;
+            for (var pool : heapPools) {
+                var peak = pool.getPeakUsage();
+                if (peak != null) {
+                    peakHeap += peak.getUsed();
+                }
+            }
+            var report = new PhaseReport(
+                    name, wall, cpu, bytesRead.sum(), bytesWritten.sum(), entries.sum(), peakHeap, List.copyOf(jars));
+            profiler.phases.add(report);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.cpuTime = cpu;
+                event.bytesRead = report.bytesRead();
+                event.bytesWritten = report.bytesWritten();
+                event.entries = report.entries();
+                event.peakHeap = peakHeap;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * A jar being processed within a phase.
+     */
+    public static final class JarTask {
+
+        private static final JarTask NOOP = new JarTask();
+
+        private final Phase phase;
+        private final Path jar;
+        private final long startNanos;
+        private final long startCpu;
+        private final JarEvent event;
+
+        private JarTask() {
+            this.phase = Phase.NOOP;
+            this.jar = Path.of("");
+            this.startNanos = 0;
+            this.startCpu = 0;
+            this.event = new JarEvent();
+        }
+
+        private JarTask(Phase phase, Path jar) {
+            this.phase = phase;
+            this.jar = jar;
+            this.event = new JarEvent();
+            this.event.begin();
+            this.startCpu = threadCpuTime();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Record the jar, its I/O is added to the phase totals.
+         *
+         * @param bytesRead    bytes read from the jar
+         * @param bytesWritten bytes written for the jar
+         * @param entries      entries processed
+         */
+        public void finish(long bytesRead, long bytesWritten, long entries) {
+            if (!phase.isEnabled()) {
+                return;
+            }
+            long wall = System.nanoTime() - startNanos;
+            // Work done on the phase's own thread is already part of the phase CPU time
+            if (Thread.currentThread() != phase.owner) {
+                phase.workerCpu.add(threadCpuTime() - startCpu);
+            }
+            phase.bytesRead.add(bytesRead);
+            phase.bytesWritten.add(bytesWritten);
+            phase.entries.add(entries);
+            phase.jars.add(new JarReport(jar, wall, bytesRead, bytesWritten, entries));
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.name;
+                event.jar = jar.toString();
+                event.bytesRead = bytesRead;
+                event.bytesWritten = bytesWritten;
+                event.entries = entries;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * A completed phase.
+     *
+     * @param name          phase name
+     * @param wallNanos     wall time
+     * @param cpuNanos      CPU time of the phase thread plus the CPU time of workers reporting jars
+     * @param bytesRead     bytes read
+     * @param bytesWritten  bytes written
+     * @param entries       entries (classes or jar entries) processed
+     * @param peakHeapBytes peak heap usage, summed over the heap memory pools
+     * @param jars          jars processed in this phase, in completion order
+     */
+    public record PhaseReport(
+            String name,
+            long wallNanos,
+            long cpuNanos,
+            long bytesRead,
+            long bytesWritten,
+            long entries,
+            long peakHeapBytes,
+            List<JarReport> jars) {}
+
+    /**
+     * A jar processed within a phase.
+     *
+     * @param jar          jar path
+     * @param wallNanos    wall time
+     * @param bytesRead    bytes read
+     * @param bytesWritten bytes written
+     * @param entries      entries processed
+     */
+    public record JarReport(Path jar, long wallNanos, long bytesRead, long bytesWritten, long entries) {
+
+        /**
+         * @return bytes read per second, in MB/s
+         */
+        public double throughput() {
+            return wallNanos > 0 ? bytesRead / (1024.0 * 1024.0) / (wallNanos / 1e9) : 0.0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package jarinker.core;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A JAR entry as described by the central directory of its archive.
+ *
+ * <p> Holds everything needed to copy the entry's compressed bytes to another archive without
+ * inflating them, the zip64 extra field has already been resolved into the size and offset fields.
+ *
+ * @param name              entry name
+ * @param versionMadeBy     "version made by" field of the central directory record
+ * @param flags             general purpose bit flags
+ * @param method            compression method, {@link #STORED} or {@link #DEFLATED}
+ * @param dosTime           last modification time and date in MS-DOS format (time in the low 16 bits)
+ * @param crc               CRC-32 of the uncompressed data
+ * @param compressedSize    size of the compressed data
+ * @param size              size of the uncompressed data
+ * @param localHeaderOffset offset of the local file header, relative to the start of the archive file
+ * @param extra             central directory extra field without the zip64 block
+ * @param comment           entry comment
+ * @param internalAttrs     internal file attributes
+ * @param externalAttrs     external file attributes
+ * @author Freeman
+ */
+record RawJarEntry(
+        String name,
+        int versionMadeBy,
+        int flags,
+        int method,
+        int dosTime,
+        long crc,
+        long compressedSize,
+        long size,
+        long localHeaderOffset,
+        byte[] extra,
+        byte[] comment,
+        int internalAttrs,
+        long externalAttrs) {
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    /**
+     * General purpose flag: sizes and CRC are in a data descriptor after the data.
+     */
+    static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+    /**
+     * General purpose flag: name and comment are UTF-8 encoded.
+     */
+    static final int FLAG_UTF8 = 0x800;
+
+    /**
+     * Version made by: MS-DOS host, zip specification 2.0.
+     */
+    private static final int VERSION_MADE_BY = 20;
+
+    /**
+     * 1980-01-01 00:00 in MS-DOS format, the earliest representable time, keeps generated entries reproducible.
+     */
+    private static final int DOS_EPOCH = (1 << 21) | (1 << 16);
+
+    /**
+     * Create the template of a generated entry, for {@link RawJarWriter#write(RawJarEntry, byte[], int)}.
+     *
+     * @param name entry name
+     * @return entry without content
+     */
+    static RawJarEntry generated(String name) {
+        return new RawJarEntry(
+                name, VERSION_MADE_BY, FLAG_UTF8, DEFLATED, DOS_EPOCH, 0, 0, 0, 0, new byte[0], new byte[0], 0, 0);
+    }
+
+    boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    boolean isClass() {
+        return name.endsWith(".class");
+    }
+
+    byte[] nameBytes() {
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,349 @@
+package jarinker.core;
+
+import static jarinker.core.JarIndex.CEN_HEADER_SIZE;
+import static jarinker.core.JarIndex.CEN_SIG;
+import static jarinker.core.JarIndex.END_SIG;
+import static jarinker.core.JarIndex.LOC_HEADER_SIZE;
+import static jarinker.core.JarIndex.LOC_SIG;
+import static jarinker.core.JarIndex.ZIP64_END_HEADER_SIZE;
+import static jarinker.core.JarIndex.ZIP64_END_SIG;
+import static jarinker.core.JarIndex.ZIP64_EXTRA_ID;
+import static jarinker.core.JarIndex.ZIP64_LOCATOR_SIG;
+import static jarinker.core.JarIndex.ZIP64_LOCATOR_SIZE;
+import static jarinker.core.JarIndex.ZIP64_MAGIC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a JAR, either by copying the compressed bytes of entries from another archive
+ * or by compressing new content.
+ *
+ * <p> Local headers are always written with sizes and CRC up front (no data descriptors),
+ * zip64 records are only emitted when a size, offset or the entry count does not fit into the classic format.
+ *
+ * @author Freeman
+ */
+final class RawJarWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int VERSION_NEEDED = 20;
+    private static final int VERSION_NEEDED_ZIP64 = 45;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<Written> written = new ArrayList<>();
+    private long position;
+
+    RawJarWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(
+                path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Copy an entry as-is, the compressed bytes, CRC and sizes are taken over from the source archive.
+     *
+     * @param source source archive
+     * @param entry  entry of the source archive
+     */
+    void copyRaw(JarIndex source, RawJarEntry entry) throws IOException {
+        beginEntry(entry, entry.method(), entry.crc(), entry.compressedSize(), entry.size());
+        if (entry.compressedSize() <= buffer.capacity()) {
+            if (entry.compressedSize() > buffer.remaining()) {
+                flush();
+            }
+            source.readRaw(entry, buffer);
+        } else {
+            flush();
+            source.transferRaw(entry, channel);
+        }
+        position += entry.compressedSize();
+    }
+
+    /**
+     * Write an entry with new content, metadata other than sizes, CRC and method is taken from the given entry.
+     *
+     * @param entry   template entry
+     * @param content uncompressed content
+     * @param level   deflate level, 0 stores the entry uncompressed
+     */
+    void write(RawJarEntry entry, byte[] content, int level) throws IOException {
+        write(entry, compress(content, entry.isDirectory() ? 0 : level));
+    }
+
+    /**
+     * Write an entry with content compressed by {@link #compress}, metadata other than sizes, CRC and method is taken
+     * from the given entry.
+     *
+     * @param entry      template entry
+     * @param compressed compressed content
+     */
+    void write(RawJarEntry entry, Compressed compressed) throws IOException {
+        beginEntry(entry, compressed.method(), compressed.crc(), compressed.data().length, compressed.size());
+        writeBytes(compressed.data());
+    }
+
+    /**
+     * Compress the content of an entry, independent of any writer so entries can be compressed concurrently.
+     *
+     * @param content uncompressed content
+     * @param level   deflate level, 0 stores the entry uncompressed
+     * @return compressed content
+     */
+    static Compressed compress(byte[] content, int level) {
+        var crc = new CRC32();
+        crc.update(content);
+        if (level == 0) {
+            return new Compressed(RawJarEntry.STORED, crc.getValue(), content, content.length);
+        }
+        return new Compressed(RawJarEntry.DEFLATED, crc.getValue(), deflate(content, level), content.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeCentralDirectory();
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void beginEntry(RawJarEntry entry, int method, long crc, long compressedSize, long size)
+            throws IOException {
+        var name = entry.nameBytes();
+        boolean zip64 = compressedSize >= ZIP64_MAGIC || size >= ZIP64_MAGIC;
+        var extra = localExtra(entry.extra(), zip64, compressedSize, size);
+        int flags = entry.flags() & ~RawJarEntry.FLAG_DATA_DESCRIPTOR;
+
+        written.add(new Written(entry, flags, method, crc, compressedSize, size, position));
+
+        int headerSize = LOC_HEADER_SIZE + name.length + extra.length;
+        ensureCapacity(headerSize);
+        buffer.putInt(LOC_SIG);
+        buffer.putShort((short) (zip64 ? VERSION_NEEDED_ZIP64 : VERSION_NEEDED));
+        buffer.putShort((short) flags);
+        buffer.putShort((short) method);
+        buffer.putInt(entry.dosTime());
+        buffer.putInt((int) crc);
+        buffer.putInt((int) (zip64 ? ZIP64_MAGIC : compressedSize));
+        buffer.putInt((int) (zip64 ? ZIP64_MAGIC : size));
+        buffer.putShort((short) name.length);
+        buffer.putShort((short) extra.length);
+        buffer.put(name);
+        buffer.put(extra);
+        position += headerSize;
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long cenOffset = position;
+        for (var w : written) {
+            var entry = w.entry();
+            var name = entry.nameBytes();
+            boolean zip64Size = w.compressedSize() >= ZIP64_MAGIC || w.size() >= ZIP64_MAGIC;
+            boolean zip64Offset = w.offset() >= ZIP64_MAGIC;
+            var extra = centralExtra(entry.extra(), w, zip64Size, zip64Offset);
+            var comment = entry.comment();
+
+            ensureCapacity(CEN_HEADER_SIZE + name.length + extra.length + comment.length);
+            buffer.putInt(CEN_SIG);
+            buffer.putShort((short) entry.versionMadeBy());
+            buffer.putShort((short) (zip64Size || zip64Offset ? VERSION_NEEDED_ZIP64 : VERSION_NEEDED));
+            buffer.putShort((short) w.flags());
+            buffer.putShort((short) w.method());
+            buffer.putInt(entry.dosTime());
+            buffer.putInt((int) w.crc());
+            buffer.putInt((int) (zip64Size ? ZIP64_MAGIC : w.compressedSize()));
+            buffer.putInt((int) (zip64Size ? ZIP64_MAGIC : w.size()));
+            buffer.putShort((short) name.length);
+            buffer.putShort((short) extra.length);
+            buffer.putShort((short) comment.length);
+            buffer.putShort((short) 0); // disk number
+            buffer.putShort((short) entry.internalAttrs());
+            buffer.putInt((int) entry.externalAttrs());
+            buffer.putInt((int) (zip64Offset ? ZIP64_MAGIC : w.offset()));
+            buffer.put(name);
+            buffer.put(extra);
+            buffer.put(comment);
+            position += CEN_HEADER_SIZE + name.length + extra.length + comment.length;
+        }
+        long cenSize = position - cenOffset;
+
+        boolean zip64 = written.size() >= 0xFFFF || cenOffset >= ZIP64_MAGIC || cenSize >= ZIP64_MAGIC;
+        if (zip64) {
+            long zip64EndOffset = position;
+            ensureCapacity(ZIP64_END_HEADER_SIZE + ZIP64_LOCATOR_SIZE);
+            buffer.putInt(ZIP64_END_SIG);
+            buffer.putLong(ZIP64_END_HEADER_SIZE - 12);
+            buffer.putShort((short) VERSION_NEEDED_ZIP64);
+            buffer.putShort((short) VERSION_NEEDED_ZIP64);
+            buffer.putInt(0); // number of this disk
+            buffer.putInt(0); // disk with the central directory
+            buffer.putLong(written.size());
+            buffer.putLong(written.size());
+            buffer.putLong(cenSize);
+            buffer.putLong(cenOffset);
+
+            buffer.putInt(ZIP64_LOCATOR_SIG);
+            buffer.putInt(0); // disk with the zip64 end record
+            buffer.putLong(zip64EndOffset);
+            buffer.putInt(1); // total number of disks
+            position += ZIP64_END_HEADER_SIZE + ZIP64_LOCATOR_SIZE;
+        }
+
+        ensureCapacity(JarIndex.END_HEADER_SIZE);
+        buffer.putInt(END_SIG);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) (zip64 ? 0xFFFF : written.size()));
+        buffer.putShort((short) (zip64 ? 0xFFFF : written.size()));
+        buffer.putInt((int) (zip64 ? ZIP64_MAGIC : cenSize));
+        buffer.putInt((int) (zip64 ? ZIP64_MAGIC : cenOffset));
+        buffer.putShort((short) 0); // comment length
+        position += JarIndex.END_HEADER_SIZE;
+    }
+
+    /**
+     * Compute the size of a jar this writer would produce from the given entries, without writing it.
+     *
+     * @param entries entries in write order, copied with {@link #copyRaw(JarIndex, RawJarEntry)}
+     * @param stored  positions in {@code entries} of the entries written uncompressed instead
+     * @return jar size in bytes
+     */
+    static long sizeOf(List<RawJarEntry> entries, BitSet stored) {
+        long position = 0;
+        long cenSize = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            var entry = entries.get(i);
+            long compressedSize = stored.get(i) ? entry.size() : entry.compressedSize();
+            cenSize += centralHeaderSize(entry, compressedSize, position);
+            position += localHeaderSize(entry, compressedSize) + compressedSize;
+        }
+        boolean zip64 = entries.size() >= 0xFFFF || position >= ZIP64_MAGIC || cenSize >= ZIP64_MAGIC;
+        return position + cenSize + (zip64 ? ZIP64_END_HEADER_SIZE + ZIP64_LOCATOR_SIZE : 0) + JarIndex.END_HEADER_SIZE;
+    }
+
+    /**
+     * @return bytes an entry copied as-is takes up in a jar, headers included
+     */
+    static long sizeOf(RawJarEntry entry) {
+        return localHeaderSize(entry, entry.compressedSize())
+                + entry.compressedSize()
+                + centralHeaderSize(entry, entry.compressedSize(), 0);
+    }
+
+    private static long localHeaderSize(RawJarEntry entry, long compressedSize) {
+        boolean zip64 = compressedSize >= ZIP64_MAGIC || entry.size() >= ZIP64_MAGIC;
+        return LOC_HEADER_SIZE + entry.nameBytes().length + entry.extra().length + (zip64 ? 20 : 0);
+    }
+
+    private static long centralHeaderSize(RawJarEntry entry, long compressedSize, long offset) {
+        boolean zip64Size = compressedSize >= ZIP64_MAGIC || entry.size() >= ZIP64_MAGIC;
+        boolean zip64Offset = offset >= ZIP64_MAGIC;
+        int zip64Extra = zip64Size || zip64Offset ? 4 + (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0) : 0;
+        return CEN_HEADER_SIZE + entry.nameBytes().length + entry.extra().length + zip64Extra + entry.comment().length;
+    }
+
+    private static byte[] localExtra(byte[] extra, boolean zip64, long compressedSize, long size) {
+        if (!zip64) {
+            return extra;
+        }
+        var result = ByteBuffer.allocate(extra.length + 20).order(ByteOrder.LITTLE_ENDIAN);
+        result.putShort((short) ZIP64_EXTRA_ID);
+        result.putShort((short) 16);
+        result.putLong(size);
+        result.putLong(compressedSize);
+        result.put(extra);
+        return result.array();
+    }
+
+    private static byte[] centralExtra(byte[] extra, Written w, boolean zip64Size, boolean zip64Offset) {
+        if (!zip64Size && !zip64Offset) {
+            return extra;
+        }
+        int dataSize = (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0);
+        var result = ByteBuffer.allocate(extra.length + 4 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        result.putShort((short) ZIP64_EXTRA_ID);
+        result.putShort((short) dataSize);
+        if (zip64Size) {
+            result.putLong(w.size());
+            result.putLong(w.compressedSize());
+        }
+        if (zip64Offset) {
+            result.putLong(w.offset());
+        }
+        result.put(extra);
+        return result.array();
+    }
+
+    private static byte[] deflate(byte[] content, int level) {
+        var deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+            var chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeBytes(byte[] data) throws IOException {
+        if (data.length <= buffer.remaining()) {
+            buffer.put(data);
+        } else {
+            flush();
+            var wrapped = ByteBuffer.wrap(data);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+        }
+        position += data.length;
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+        if (buffer.remaining() < size) {
+            throw new IOException("Zip header too large: " + size + " bytes");
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Content of an entry as it is written.
+     *
+     * @param method compression method
+     * @param crc    CRC-32 of the uncompressed content
+     * @param data   compressed content
+     * @param size   uncompressed size
+     */
+    record Compressed(int method, long crc, byte[] data, long size) {}
+
+    private record Written(
+            RawJarEntry entry, int flags, int method, long crc, long compressedSize, long size, long offset) {}
+}
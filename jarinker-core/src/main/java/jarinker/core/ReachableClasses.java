@@ -0,0 +1,86 @@
+package jarinker.core;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable set of reachable class names, a bitset over the name table of an {@link IndexedGraph}.
+ *
+ * <p> A class read from a versioned entry of a multi-release jar is reachable under its class name as well, every
+ * version of it is kept.
+ *
+ * <p> Safe to share between threads.
+ *
+ * @author Freeman
+ */
+public final class ReachableClasses {
+
+    private final IndexedGraph graph;
+    private final BitSet reachableNodes;
+    private final BitSet reachableNames;
+    /**
+     * Class names of the reachable nodes named {@code <version>/<class name>}.
+     */
+    private final Set<String> reachableVersioned = new HashSet<>();
+
+    ReachableClasses(IndexedGraph graph, BitSet reachableNodes) {
+        this.graph = graph;
+        this.reachableNodes = reachableNodes;
+        this.reachableNames = new BitSet(graph.nameCount());
+        for (int n = reachableNodes.nextSetBit(0); n >= 0; n = reachableNodes.nextSetBit(n + 1)) {
+            reachableNames.set(graph.nameId(n));
+            var name = graph.name(n);
+            if (name.indexOf('/') > 0) {
+                reachableVersioned.add(className(name));
+            }
+        }
+    }
+
+    /**
+     * @param className binary class name, e.g. {@code com.example.Foo$Bar}
+     * @return true if the class is reachable from the roots
+     */
+    public boolean contains(String className) {
+        int id = graph.findName(className);
+        return (id >= 0 && reachableNames.get(id)) || reachableVersioned.contains(className);
+    }
+
+    /**
+     * @param entryName JAR entry name of a class file, e.g. {@code com/example/Foo$Bar.class} or
+     *                  {@code META-INF/versions/11/com/example/Foo$Bar.class}
+     * @return true if the class is reachable from the roots
+     */
+    public boolean containsEntry(String entryName) {
+        return contains(toClassName(entryName));
+    }
+
+    /**
+     * @return number of reachable class names
+     */
+    public int size() {
+        return reachableNames.cardinality();
+    }
+
+    /**
+     * @return reachable node ids of the underlying graph, must not be modified
+     */
+    BitSet nodes() {
+        return reachableNodes;
+    }
+
+    static String toClassName(String entryName) {
+        var name = MemberReachability.baseName(entryName);
+        int end = name.endsWith(".class") ? name.length() - ".class".length() : name.length();
+        return name.substring(0, end).replace('/', '.');
+    }
+
+    /**
+     * @param nodeName name of a class-level node
+     * @return class name of the node, without the {@code <version>/} prefix jdeps gives classes of versioned entries
+     */
+    static String className(String nodeName) {
+        int slash = nodeName.indexOf('/');
+        return slash > 0 ? nodeName.substring(slash + 1) : nodeName;
+    }
+}
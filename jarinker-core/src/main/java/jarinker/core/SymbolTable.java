@@ -0,0 +1,103 @@
+package jarinker.core;
+
+import java.util.Arrays;
+
+/**
+ * Interns strings to dense int ids, backed by an open-addressing table of int slots.
+ *
+ * <p> Every distinct string is stored once, lookups do not box.
+ *
+ * @author Freeman
+ */
+final class SymbolTable {
+
+    private static final int EMPTY = -1;
+
+    private String[] symbols;
+    private int[] slots;
+    private int size;
+
+    SymbolTable() {
+        this(1024);
+    }
+
+    SymbolTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.symbols = new String[Math.max(16, expectedSize)];
+        this.slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * Get the id of a symbol, adding it if absent.
+     *
+     * @param symbol symbol
+     * @return id, ids are assigned in insertion order starting at 0
+     */
+    int intern(String symbol) {
+        int mask = slots.length - 1;
+        int slot = mix(symbol.hashCode()) & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (symbols[id].equals(symbol)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size + (size >> 1) + 1);
+        }
+        id = size++;
+        symbols[id] = symbol;
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of a symbol.
+     *
+     * @param symbol symbol
+     * @return id, or -1 if the symbol is absent
+     */
+    int find(String symbol) {
+        int mask = slots.length - 1;
+        int slot = mix(symbol.hashCode()) & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (symbols[id].equals(symbol)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    String get(int id) {
+        return symbols[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        var newSlots = new int[slots.length << 1];
+        Arrays.fill(newSlots, EMPTY);
+        int mask = newSlots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(symbols[id].hashCode()) & mask;
+            while (newSlots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = id;
+        }
+        slots = newSlots;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
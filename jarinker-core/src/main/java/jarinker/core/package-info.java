@@ -3,9 +3,17 @@
  *
  * <p>This package provides simplified wrappers around jdeps:
  * <ul>
- *   <li>{@link jarinker.core.DependencyGraph} - wrapper around jdeps Graph</li>
+ *   <li>{@link jarinker.core.DependencyGraph} - result of a dependency analysis</li>
+ *   <li>{@link jarinker.core.IndexedGraph} - compact int-indexed graph and reachability</li>
  *   <li>{@link jarinker.core.JdepsAnalyzer} - wrapper around jdeps for dependency analysis</li>
+ *   <li>{@link jarinker.core.ClasspathResolver} - parallel, deduplicating classpath resolution</li>
+ *   <li>{@link jarinker.core.AnalysisCache} - persistent per-jar cache of analysis results</li>
+ *   <li>{@link jarinker.core.InMemoryAnalysisCache} - bounded in-memory per-jar cache for long-running processes</li>
  *   <li>{@link jarinker.core.JarShrinker} - JAR shrinking operations</li>
+ *   <li>{@link jarinker.core.ClassLoadOrder} - class-load trace the shrunk jars are laid out for</li>
+ *   <li>{@link jarinker.core.AppCds} - AppCDS class list and archive of the reachable classes</li>
+ *   <li>{@link jarinker.core.OutputStore} - content-addressed store of shrunk jars</li>
+ *   <li>{@link jarinker.core.Profiler} - phase timings, I/O and heap metrics, also emitted as JFR events</li>
  * </ul>
  *
  * @author Freeman
@@ -0,0 +1,131 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.tools.jdeps.JdepsFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * @author Freeman
+ */
+class AnalysisCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(AnalyzerEngine.class)
+    void cachedAnalysisMatchesUncachedAnalysis(AnalyzerEngine engine) throws IOException {
+        var jar = libJar();
+        var app = app();
+        var cacheDir = tempDir.resolve("cache");
+        var cache = new AnalysisCache(cacheDir, Long.MAX_VALUE, "test");
+
+        // Without a cache the jdeps engine runs jdeps' DepsAnalyzer on the whole classpath
+        var uncached = analyze(app, jar, AnalyzerEngine.JDEPS, null);
+        var first = analyze(app, jar, engine, cache);
+        assertThat(entries(cacheDir, ".jkdc")).hasSize(1);
+        var second = analyze(app, jar, engine, cache);
+
+        assertThat(uncached.getDependenciesMap()).isNotEmpty();
+        assertThat(first.getDependenciesMap()).isEqualTo(uncached.getDependenciesMap());
+        assertThat(second.getDependenciesMap()).isEqualTo(uncached.getDependenciesMap());
+        assertThat(second.getReachableClasses().contains("lib.Impl")).isTrue();
+    }
+
+    @Test
+    void enginesDoNotShareCacheEntries() throws IOException {
+        var jar = libJar();
+        var app = app();
+        var cacheDir = tempDir.resolve("cache");
+        var cache = new AnalysisCache(cacheDir, Long.MAX_VALUE, "test");
+
+        analyze(app, jar, AnalyzerEngine.JDEPS, cache);
+        analyze(app, jar, AnalyzerEngine.CLASSFILE, cache);
+
+        assertThat(entries(cacheDir, ".jkdc")).hasSize(2);
+    }
+
+    @Test
+    void evictRemovesStaleTemporaryFiles() throws IOException {
+        var bucket = Files.createDirectories(tempDir.resolve("ab"));
+        var stale = Files.writeString(bucket.resolve("abc.jkdc123.tmp"), "partial");
+        var fresh = Files.writeString(bucket.resolve("abd.jkdc456.tmp"), "writing");
+        var entry = Files.writeString(bucket.resolve("abe.jkdc"), "entry");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+
+        CacheFiles.evict(tempDir, ".jkdc", Long.MAX_VALUE);
+
+        assertThat(stale).doesNotExist();
+        assertThat(fresh).exists();
+        assertThat(entry).exists();
+    }
+
+    @Test
+    void evictRemovesLeastRecentlyUsedEntries() throws IOException {
+        var bucket = Files.createDirectories(tempDir.resolve("ab"));
+        var old = Files.write(bucket.resolve("abc.jkdc"), new byte[10]);
+        var recent = Files.write(bucket.resolve("abd.jkdc"), new byte[10]);
+        Files.setLastModifiedTime(old, FileTime.from(Instant.now().minus(Duration.ofMinutes(5))));
+
+        CacheFiles.evict(tempDir, ".jkdc", 15);
+
+        assertThat(old).doesNotExist();
+        assertThat(recent).exists();
+    }
+
+    private DependencyGraph analyze(Path app, Path jar, AnalyzerEngine engine, @Nullable AnalysisCache cache)
+            throws IOException {
+        try (var configuration = JdepsAnalyzer.buildJdepsConfiguration(List.of(app), List.of(jar), Runtime.version())) {
+            return JdepsAnalyzer.builder()
+                    .jdepsFilter(new JdepsFilter.Builder().filter(false, false).build())
+                    .jdepsConfiguration(configuration)
+                    .type(AnalyzerType.CLASS)
+                    .engine(engine)
+                    .cache(cache)
+                    .build()
+                    .analyze();
+        }
+    }
+
+    private Path app() throws IOException {
+        var lib = tempDir.resolve("lib");
+        return TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of("app.Main", "package app; public class Main { Object o = new lib.Api(); }"),
+                "-classpath",
+                lib.toString());
+    }
+
+    private Path libJar() throws IOException {
+        var jar = tempDir.resolve("lib.jar");
+        if (Files.notExists(jar)) {
+            var lib = TestJars.compile(
+                    tempDir.resolve("lib"),
+                    Map.of(
+                            "lib.Api", "package lib; public class Api { Impl impl = new Impl(); }",
+                            "lib.Impl", "package lib; class Impl {}"));
+            TestJars.jar(jar, lib, Map.of());
+        }
+        return jar;
+    }
+
+    private static List<Path> entries(Path dir, String suffix) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(p -> p.toString().endsWith(suffix)).toList();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Freeman
+ */
+class AppCdsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path app;
+    private Path lib;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.A", "package lib; public class A { B b = new B(); }",
+                        "lib.B", "package lib; public class B { C c = new C(); }",
+                        "lib.C", "package lib; public class C {}",
+                        "lib.Unused", "package lib; public class Unused {}"));
+        lib = TestJars.jar(tempDir.resolve("lib.jar"), libClasses, Map.of());
+        app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of("app.Main", "package app; public class Main { lib.A a = new lib.A(); }"),
+                "-classpath",
+                libClasses.toString());
+    }
+
+    @Test
+    void listsReachableJarClassesByDepth() {
+        var graph = TestGraphs.analyze(List.of(app), List.of(lib));
+
+        var classes = AppCds.classList(graph).stream()
+                .filter(name -> name.startsWith("lib/") || name.startsWith("app/"))
+                .toList();
+
+        // app.Main comes from a directory, CDS can not archive it
+        assertThat(classes).containsExactly("lib/A", "lib/B", "lib/C");
+    }
+
+    @Test
+    void rejectsPackageLevelGraph() {
+        var graph = TestGraphs.analyze(List.of(app), List.of(lib), builder -> builder.type(AnalyzerType.PACKAGE));
+
+        assertThatThrownBy(() -> AppCds.classList(graph))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("class-level analysis");
+    }
+
+    @Test
+    void writesOneClassPerLine() throws IOException {
+        var file = tempDir.resolve("cds/app.classlist");
+
+        AppCds.writeClassList(List.of("lib/A", "lib/B"), file);
+
+        assertThat(Files.readAllLines(file)).containsExactly("lib/A", "lib/B");
+    }
+
+    @Test
+    void rejectsDirectoryOnDumpClasspath() {
+        assertThatThrownBy(() -> AppCds.dumpArchive(
+                        javaLauncher(),
+                        List.of(lib, app),
+                        tempDir.resolve("app.classlist"),
+                        tempDir.resolve("app.jsa")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(app.toString());
+    }
+
+    @Test
+    void dumpsArchiveForClassList() throws Exception {
+        var graph = TestGraphs.analyze(List.of(app), List.of(lib));
+        var classList = tempDir.resolve("app.classlist");
+        AppCds.writeClassList(AppCds.classList(graph), classList);
+        var archive = tempDir.resolve("cds/app.jsa");
+
+        AppCds.dumpArchive(javaLauncher(), List.of(lib, lib), classList, archive);
+
+        assertThat(archive).isRegularFile();
+        assertThat(Files.size(archive)).isPositive();
+    }
+
+    private static Path javaLauncher() {
+        return Path.of(System.getProperty("java.home"), "bin", "java");
+    }
+}
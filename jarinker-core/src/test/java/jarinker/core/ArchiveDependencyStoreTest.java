@@ -0,0 +1,124 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Freeman
+ */
+class ArchiveDependencyStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path app;
+    private Path lib;
+    private Path util;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var utilClasses = TestJars.compile(
+                tempDir.resolve("util"),
+                Map.of(
+                        "util.Util", "package util; public class Util {}",
+                        "util.Unused", "package util; public class Unused {}"));
+        util = TestJars.jar(tempDir.resolve("jars/util.jar"), utilClasses, Map.of());
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.Api", "package lib; public class Api { Impl impl = new Impl(); }",
+                        "lib.Impl", "package lib; class Impl { util.Util u = new util.Util(); }"),
+                "-classpath",
+                utilClasses.toString());
+        lib = TestJars.jar(tempDir.resolve("jars/lib.jar"), libClasses, Map.of());
+        app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of("app.Main", "package app; public class Main { lib.Api api = new lib.Api(); }"),
+                "-classpath",
+                libClasses + File.pathSeparator + utilClasses);
+    }
+
+    @Test
+    void spillsLeastRecentlyUsedArchivesAndReadsThemBack() throws IOException {
+        var scanner = AnalyzerEngine.CLASSFILE.scanner(Runtime.version());
+        try (var libArchive = Archive.getInstance(lib, Runtime.version());
+                var utilArchive = Archive.getInstance(util, Runtime.version());
+                var store = new ArchiveDependencyStore(0)) {
+            var libDeps = scanner.scan(libArchive);
+            var utilDeps = scanner.scan(utilArchive);
+
+            store.put(libArchive, libDeps);
+            // The archive in use is kept even beyond the budget
+            assertThat(store.bytesSpilled()).isZero();
+            store.put(utilArchive, utilDeps);
+            assertThat(store.bytesSpilled()).isPositive();
+            assertThat(store.contains(libArchive)).isTrue();
+
+            var reloaded = store.get(libArchive);
+            assertThat(store.bytesReloaded()).isPositive();
+            assertThat(reloaded).isNotNull();
+            assertThat(reloaded.classes()).isEqualTo(libDeps.classes());
+            assertThat(reloaded.edgeCount()).isEqualTo(libDeps.edgeCount());
+            int impl = reloaded.indexOf("lib.Impl");
+            var targets = new ArrayList<String>();
+            for (int i = 0; i < reloaded.dependencyCount(impl); i++) {
+                targets.add(reloaded.symbol(reloaded.dependency(impl, i)));
+            }
+            assertThat(targets).contains("util.Util");
+
+            // util.jar was evicted by reading lib.jar back, it is spilled once
+            long spilled = store.bytesSpilled();
+            assertThat(store.get(utilArchive)).isNotNull();
+            store.get(libArchive);
+            assertThat(store.bytesSpilled()).isEqualTo(spilled);
+        }
+    }
+
+    @Test
+    void unknownArchiveIsNotFound() throws IOException {
+        try (var archive = Archive.getInstance(lib, Runtime.version());
+                var store = new ArchiveDependencyStore(Long.MAX_VALUE)) {
+            assertThat(store.contains(archive)).isFalse();
+            assertThat(store.get(archive)).isNull();
+        }
+    }
+
+    @Test
+    void rejectsNegativeBudget() {
+        assertThatThrownBy(() -> new ArchiveDependencyStore(-1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Memory budget must not be negative: -1");
+    }
+
+    @Test
+    void budgetedAnalysisMatchesDefaultAnalysis() {
+        var expected = TestGraphs.analyze(List.of(app), List.of(lib, util)).getReachableClasses();
+
+        for (long budget : new long[] {0, 1024, Long.MAX_VALUE}) {
+            var reachable = TestGraphs.analyze(
+                            List.of(app), List.of(lib, util), builder -> builder.memoryBudget(budget))
+                    .getReachableClasses();
+
+            assertThat(reachable.size()).as("budget %s", budget).isEqualTo(expected.size());
+            for (var name : List.of("app.Main", "lib.Api", "lib.Impl", "util.Util")) {
+                assertThat(reachable.contains(name))
+                        .as("%s, budget %s", name, budget)
+                        .isTrue();
+            }
+            assertThat(reachable.contains("util.Unused"))
+                    .as("budget %s", budget)
+                    .isFalse();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.tools.classfile.ClassFile;
+import com.sun.tools.jdeps.JdepsFilter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Freeman
+ */
+class ArchivePoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path app;
+    private List<Path> classpath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var cClasses = TestJars.compile(
+                tempDir.resolve("c"),
+                Map.of(
+                        "c.C", "package c; public class C {}",
+                        "c.Unused", "package c; public class Unused {}"));
+        var bClasses = TestJars.compile(
+                tempDir.resolve("b"),
+                Map.of(
+                        "b.B", "package b; public class B { c.C c = new c.C(); }",
+                        "b.Other", "package b; public class Other {}"),
+                "-classpath",
+                cClasses.toString());
+        var dirClasses = TestJars.compile(tempDir.resolve("dir"), Map.of("dir.D", "package dir; public class D {}"));
+        app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of("app.Main", "package app; public class Main { b.B b = new b.B(); }"),
+                "-classpath",
+                bClasses.toString());
+        classpath = List.of(
+                TestJars.jar(tempDir.resolve("jars/b.jar"), bClasses, Map.of()),
+                tempDir.resolve("jars/missing.jar"),
+                dirClasses,
+                TestJars.jar(tempDir.resolve("jars/c.jar"), cClasses, Map.of()));
+    }
+
+    @Test
+    void opensJarsOnDemandWithinLimit() throws Exception {
+        ArchivePool pool;
+        try (var p = new ArchivePool(1, Runtime.version())) {
+            pool = p;
+            var archives = pool.archives(classpath);
+
+            assertThat(archives)
+                    .extracting(archive ->
+                            archive.path().orElseThrow().getFileName().toString())
+                    .containsExactly("b.jar", "dir", "c.jar");
+            var b = archives.get(0);
+            var dir = archives.get(1);
+            var c = archives.get(2);
+            // The entry list does not keep a jar open
+            assertThat(b.contains("b/B.class")).isTrue();
+            assertThat(c.contains("c/C.class")).isTrue();
+            assertThat(dir.contains("dir/D.class")).isTrue();
+            assertThat(pool.opened()).isZero();
+
+            assertThat(b.reader().getClassFile("b/B")).isNotNull();
+            assertThat(c.reader().getClassFile("c/C")).isNotNull();
+            assertThat(b.reader().getClassFile("b/Other")).isNotNull();
+            assertThat(pool.opened()).isEqualTo(3);
+
+            var classes = new ArrayList<String>();
+            for (ClassFile cf : b.reader().getClassFiles()) {
+                // Reading another jar while b.jar is iterated exceeds the limit rather than closing b.jar
+                assertThat(c.reader().getClassFile("c/C")).isNotNull();
+                classes.add(cf.getName());
+            }
+            assertThat(classes).containsExactlyInAnyOrder("b/B", "b/Other");
+        }
+
+        var archive = pool.archive(classpath.get(0));
+        assertThatThrownBy(() -> archive.reader().getClassFile("b/B"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("closed");
+    }
+
+    @Test
+    void rejectsLimitBelowOne() {
+        assertThatThrownBy(() -> new ArchivePool(0, Runtime.version()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Maximum number of open archives must be at least 1: 0");
+    }
+
+    @Test
+    void pooledAnalysisMatchesDefaultAnalysis() throws IOException {
+        var expected = TestGraphs.analyze(List.of(app), classpath).getReachableClasses();
+
+        var resolved = ClasspathResolver.resolve(List.of(app), classpath);
+        DependencyGraph graph;
+        try (var configuration = JdepsAnalyzer.buildJdepsConfiguration(List.of(app), resolved, Runtime.version(), 1)) {
+            assertThat(configuration.classPathArchives()).isEmpty();
+            graph = JdepsAnalyzer.builder()
+                    .jdepsFilter(new JdepsFilter.Builder().filter(false, false).build())
+                    .jdepsConfiguration(configuration)
+                    .type(AnalyzerType.CLASS)
+                    .engine(AnalyzerEngine.CLASSFILE)
+                    .maxOpenArchives(1)
+                    .classpath(resolved)
+                    .build()
+                    .analyze();
+        }
+
+        var reachable = graph.getReachableClasses();
+        assertThat(reachable.size()).isEqualTo(expected.size());
+        for (var name : List.of("app.Main", "b.B", "c.C")) {
+            assertThat(reachable.contains(name)).as(name).isTrue();
+        }
+        assertThat(reachable.contains("b.Other")).isFalse();
+        assertThat(reachable.contains("c.Unused")).isFalse();
+    }
+
+    @Test
+    void jdepsEngineCanNotLimitOpenArchives() throws IOException {
+        var resolved = ClasspathResolver.resolve(List.of(app), classpath);
+        try (var configuration = JdepsAnalyzer.buildJdepsConfiguration(List.of(app), resolved, Runtime.version(), 1)) {
+            var analyzer = JdepsAnalyzer.builder()
+                    .jdepsFilter(new JdepsFilter.Builder().filter(false, false).build())
+                    .jdepsConfiguration(configuration)
+                    .type(AnalyzerType.CLASS)
+                    .engine(AnalyzerEngine.JDEPS)
+                    .maxOpenArchives(1)
+                    .classpath(resolved)
+                    .build();
+
+            assertThatThrownBy(analyzer::analyze)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Limiting the open archives requires the classfile engine");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.tools.classfile.Attributes;
+import com.sun.tools.classfile.ClassFile;
+import com.sun.tools.classfile.Code_attribute;
+import com.sun.tools.classfile.ConstantPoolException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Stripping debug attributes from a class compiled with {@code -g}, the stripped class is defined in a fresh class
+ * loader so that it is verified.
+ *
+ * @author Freeman
+ */
+class ClassFileStripperTest {
+
+    private static final String NAME = "fixture.Sample";
+
+    @TempDir
+    Path tempDir;
+
+    private byte[] classFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var classes = TestJars.compile(
+                tempDir,
+                Map.of(
+                        NAME,
+                        "package fixture; import java.util.List; public class Sample {"
+                                + " public static String run(List<String> items) {"
+                                + " String joined = \"\";"
+                                + " for (String item : items) { joined += item; }"
+                                + " try { Integer.parseInt(joined); }"
+                                + " catch (NumberFormatException e) { joined = joined.toUpperCase(); }"
+                                + " return joined; } }"),
+                "-g");
+        classFile = Files.readAllBytes(classes.resolve("fixture/Sample.class"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DebugAttribute.class)
+    void stripsAttributeAndClassStillLoads(DebugAttribute attribute) throws Exception {
+        var before = attributeNames(classFile);
+        assertThat(before).containsAll(present(attribute));
+
+        var stripped = ClassFileStripper.strip(classFile, attribute.attributeNames());
+
+        var after = attributeNames(stripped);
+        assertThat(after).doesNotContainAnyElementsOf(attribute.attributeNames());
+        for (var other : DebugAttribute.values()) {
+            if (other != attribute) {
+                assertThat(after).containsAll(present(other));
+            }
+        }
+        assertThat(after).contains("Code", "StackMapTable");
+        assertThat(stripped.length).isLessThan(classFile.length);
+
+        var type = Class.forName(NAME, true, new BytesClassLoader(stripped));
+        assertThat(type.getMethod("run", List.class).invoke(null, List.of("a", "b")))
+                .isEqualTo("AB");
+    }
+
+    @Test
+    void returnsInputWhenNothingIsStripped() {
+        assertThat(ClassFileStripper.strip(classFile, Set.of("SourceDebugExtension")))
+                .isSameAs(classFile);
+    }
+
+    /**
+     * @return attribute names of {@code attribute} that javac writes, it never writes {@code SourceDebugExtension}
+     */
+    private static Set<String> present(DebugAttribute attribute) {
+        return attribute.attributeNames().stream()
+                .filter(name -> !name.equals("SourceDebugExtension"))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return names of the attributes of the class, its fields, methods and their code
+     */
+    private static Set<String> attributeNames(byte[] bytes) throws IOException, ConstantPoolException {
+        var cf = ClassFile.read(new ByteArrayInputStream(bytes));
+        var names = new HashSet<String>();
+        addNames(cf, cf.attributes, names);
+        for (var field : cf.fields) {
+            addNames(cf, field.attributes, names);
+        }
+        for (var method : cf.methods) {
+            addNames(cf, method.attributes, names);
+            if (method.attributes.get("Code") instanceof Code_attribute code) {
+                addNames(cf, code.attributes, names);
+            }
+        }
+        return names;
+    }
+
+    private static void addNames(ClassFile cf, Attributes attributes, Set<String> names) throws ConstantPoolException {
+        for (var attribute : attributes) {
+            names.add(attribute.getName(cf.constant_pool));
+        }
+    }
+
+    private static final class BytesClassLoader extends ClassLoader {
+
+        private final byte[] bytes;
+
+        BytesClassLoader(byte[] bytes) {
+            super(ClassLoader.getPlatformClassLoader());
+            this.bytes = bytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (!name.equals(NAME)) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
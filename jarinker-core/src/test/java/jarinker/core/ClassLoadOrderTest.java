@@ -0,0 +1,127 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Freeman
+ */
+class ClassLoadOrderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsUnifiedLogIgnoringOtherOutput() throws IOException {
+        var order = read(
+                "Starting application",
+                "[0.010s][info][class,load] java.lang.Object source: shared objects file",
+                "[0.015s][info][class,load] com.example.Foo source: file:/app.jar",
+                "com.example.NotLogged",
+                "[0.016s][info][class,load] com.example.Foo$$Lambda/0x0000000800c03000 source: com.example.Foo",
+                "[0.017s][info][class,load] com.example.Bar$Inner source: file:/app.jar",
+                "[0.018s][info][class,load] com.example.Foo source: file:/other.jar");
+
+        assertThat(order.entries())
+                .containsExactly("java/lang/Object.class", "com/example/Foo.class", "com/example/Bar$Inner.class");
+    }
+
+    @Test
+    void readsVerboseClassOutput() throws IOException {
+        var order = read(
+                "[Opened /jdk/jre/lib/rt.jar]",
+                "[Loaded java.lang.Object from /jdk/jre/lib/rt.jar]",
+                "[Loaded com.example.Foo from file:/app.jar]");
+
+        assertThat(order.entries()).containsExactly("java/lang/Object.class", "com/example/Foo.class");
+    }
+
+    @Test
+    void readsClassListSkippingCommentsDirectivesAndProxies() throws IOException {
+        var order = read(
+                "# NOTE: Do not modify this file.",
+                "java/lang/Object id: 0",
+                "com.example.Foo",
+                "@lambda-proxy com/example/Foo run ()Ljava/lang/Runnable;",
+                "com/example/Foo$$Lambda/0x0000000800c03000",
+                "",
+                "com/example/Bar");
+
+        assertThat(order.entries())
+                .containsExactly("java/lang/Object.class", "com/example/Foo.class", "com/example/Bar.class");
+    }
+
+    @Test
+    void versionedEntriesShareRankOfBaseEntry() throws IOException {
+        var order = read("com.example.Foo", "com.example.Bar");
+
+        assertThat(order.rank("com/example/Bar.class")).isEqualTo(1);
+        assertThat(order.rank("META-INF/versions/11/com/example/Bar.class")).isEqualTo(1);
+        assertThat(order.rank("com/example/Baz.class")).isEqualTo(-1);
+    }
+
+    @Test
+    void rejectsTraceWithoutClasses() throws IOException {
+        var trace = Files.write(tempDir.resolve("empty.log"), List.of("# nothing loaded", "@directive"));
+
+        assertThatThrownBy(() -> ClassLoadOrder.read(trace))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("No loaded classes found");
+    }
+
+    @Test
+    void shrinkLaysOutLoadedClassesFirst() throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.A", "package lib; public class A {}",
+                        "lib.B", "package lib; public class B {}",
+                        "lib.C", "package lib; public class C {}"));
+        var lib = TestJars.jar(tempDir.resolve("lib.jar"), libClasses, Map.of("Implementation-Title", "lib"));
+        var app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main",
+                        "package app; public class Main { Object[] o = {new lib.A(), new lib.B(), new lib.C()}; }"),
+                "-classpath",
+                libClasses.toString());
+        var graph = TestGraphs.analyze(List.of(app), List.of(lib));
+
+        var result = JarShrinker.builder()
+                .outputDir(tempDir.resolve("out"))
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .loadOrder(read("lib.C", "app.Main", "lib.A"))
+                .storeLoadedClasses(true)
+                .build()
+                .shrink(TestGraphs.depJars(graph, List.of(lib)), graph);
+
+        assertThat(result.jars()).singleElement().satisfies(item -> assertThat(item.loadOrdered())
+                .isEqualTo(2));
+        try (var zip = new ZipFile(tempDir.resolve("out/lib.jar").toFile())) {
+            var names = zip.stream()
+                    .map(ZipEntry::getName)
+                    .filter(n -> n.endsWith(".class"))
+                    .toList();
+            assertThat(names).containsExactly("lib/C.class", "lib/A.class", "lib/B.class");
+            assertThat(zip.stream().findFirst().orElseThrow().getName()).isEqualTo("META-INF/MANIFEST.MF");
+            assertThat(zip.getEntry("lib/C.class").getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zip.getEntry("lib/A.class").getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zip.getEntry("lib/B.class").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        }
+    }
+
+    private ClassLoadOrder read(String... lines) throws IOException {
+        return ClassLoadOrder.read(Files.write(Files.createTempFile(tempDir, "trace", ".log"), List.of(lines)));
+    }
+}
@@ -0,0 +1,125 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Freeman
+ */
+class ClasspathResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void expandsDirectoriesInNameOrderAndSkipsMissingEntries() throws IOException {
+        var libs = tempDir.resolve("libs");
+        var b = jar(libs.resolve("b.jar"), "b");
+        var a = jar(libs.resolve("a.jar"), "a");
+        var nested = jar(libs.resolve("nested/c.jar"), "c");
+        Files.writeString(libs.resolve("notes.txt"), "not a jar");
+
+        var result =
+                ClasspathResolver.resolve(List.of(), List.of(Path.of(libs + "/*"), tempDir.resolve("missing.jar")));
+
+        assertThat(result.classpath()).containsExactly(a, b, nested);
+        assertThat(result.duplicates()).isEmpty();
+    }
+
+    @Test
+    void keepsFirstPathOfSameFile() throws IOException {
+        var jar = jar(tempDir.resolve("libs/a.jar"), "a");
+        var link = tempDir.resolve("link.jar");
+        assumeTrue(createSymbolicLink(link, jar));
+
+        var result = ClasspathResolver.resolve(List.of(), List.of(jar, jar, link));
+
+        assertThat(result.classpath()).containsExactly(jar);
+        // Listing the same path twice is not reported
+        assertThat(result.duplicates())
+                .containsExactly(new ClasspathResolver.Duplicate(link, jar, ClasspathResolver.Reason.SAME_FILE));
+    }
+
+    @Test
+    void sourceWinsOverClasspathEntry() throws IOException {
+        var source = jar(tempDir.resolve("app.jar"), "app");
+        var other = jar(tempDir.resolve("libs/b.jar"), "b");
+
+        var result = ClasspathResolver.resolve(List.of(source), List.of(tempDir.resolve("libs"), source));
+
+        assertThat(result.classpath()).containsExactly(other);
+        assertThat(result.duplicates()).isEmpty();
+    }
+
+    @Test
+    void dropsByteIdenticalJars() throws IOException {
+        var first = jar(tempDir.resolve("one/lib-1.0.jar"), "same");
+        var copy = tempDir.resolve("two/lib.jar");
+        Files.createDirectories(copy.getParent());
+        Files.copy(first, copy);
+        var different = jar(tempDir.resolve("three/lib.jar"), "different");
+
+        var result = ClasspathResolver.resolve(List.of(), List.of(first, copy, different));
+
+        assertThat(result.classpath()).containsExactly(first, different);
+        assertThat(result.duplicates())
+                .containsExactly(new ClasspathResolver.Duplicate(copy, first, ClasspathResolver.Reason.SAME_CONTENT));
+    }
+
+    @Test
+    void jarWithSourceContentIsDropped() throws IOException {
+        var source = jar(tempDir.resolve("app.jar"), "app");
+        var copy = tempDir.resolve("libs/app-copy.jar");
+        Files.createDirectories(copy.getParent());
+        Files.copy(source, copy);
+
+        var result = ClasspathResolver.resolve(List.of(source), List.of(copy));
+
+        assertThat(result.classpath()).isEmpty();
+        assertThat(result.duplicates())
+                .containsExactly(new ClasspathResolver.Duplicate(
+                        copy, source.toAbsolutePath(), ClasspathResolver.Reason.SAME_CONTENT));
+    }
+
+    @Test
+    void followsManifestClassPathRightAfterReferencingJar() throws IOException {
+        var dep = jar(tempDir.resolve("lib/dep.jar"), "dep");
+        var transitive = jar(tempDir.resolve("lib/transitive.jar"), "transitive");
+        var shared = jar(tempDir.resolve("shared.jar"), "shared");
+        var withDep = TestJars.jar(
+                tempDir.resolve("with-dep.jar"),
+                Map.of("with-dep.txt", "with-dep".getBytes(StandardCharsets.UTF_8)),
+                Map.of("Class-Path", "lib/dep.jar lib/missing.jar ../outside.jar shared.jar"));
+        TestJars.jar(
+                dep, Map.of("dep.txt", "dep".getBytes(StandardCharsets.UTF_8)), Map.of("Class-Path", "transitive.jar"));
+        var last = jar(tempDir.resolve("last.jar"), "last");
+
+        var result = ClasspathResolver.resolve(List.of(), List.of(shared, withDep, last));
+
+        assertThat(result.classpath()).containsExactly(shared, withDep, dep, transitive, last);
+        // A reference to an archive already on the classpath is not a duplicate
+        assertThat(result.duplicates()).isEmpty();
+    }
+
+    private static Path jar(Path path, String content) throws IOException {
+        return TestJars.jar(path, Map.of(content + ".txt", content.getBytes(StandardCharsets.UTF_8)), Map.of());
+    }
+
+    private static boolean createSymbolicLink(Path link, Path target) {
+        try {
+            Files.createSymbolicLink(link, target);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Shortest paths and predecessors of {@link DependencyPaths}, checked against a plain breadth-first search.
+ *
+ * @author Freeman
+ */
+class DependencyPathsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findsShortestPathFromNearestRoot() {
+        var builder = new IndexedGraph.Builder();
+        int r1 = builder.node("app", "r1");
+        int r2 = builder.node("app", "r2");
+        int a = builder.node("lib", "a");
+        int b = builder.node("lib", "b");
+        int c = builder.node("lib", "c");
+        int d = builder.node("lib", "d");
+        int target = builder.node("lib", "target");
+        int unreachable = builder.node("lib", "unreachable");
+        int copy = builder.node("other", "target");
+        builder.edge(r1, a);
+        builder.edge(a, b);
+        builder.edge(b, c);
+        builder.edge(c, a);
+        builder.edge(c, target);
+        builder.edge(r2, d);
+        builder.edge(d, target);
+        builder.edge(unreachable, target);
+        var graph = builder.build();
+        var roots = new BitSet();
+        roots.set(r1);
+        roots.set(r2);
+
+        var paths = new DependencyPaths(graph, roots);
+        // The roots are copied
+        roots.clear();
+
+        assertThat(paths.shortestPath(target)).containsExactly(r2, d, target);
+        assertThat(paths.shortestPath(c)).containsExactly(r1, a, b, c);
+        assertThat(paths.shortestPath(r1)).containsExactly(r1);
+        assertThat(paths.isRoot(r1)).isTrue();
+        assertThat(paths.isRoot(a)).isFalse();
+        assertThat(paths.isReachable(unreachable)).isFalse();
+        assertThat(paths.shortestPath(unreachable)).isNull();
+        assertThat(paths.isReachable(copy)).isFalse();
+
+        assertThat(paths.inDegree(target)).isEqualTo(3);
+        assertThat(predecessors(paths, target)).containsExactlyInAnyOrder(c, d, unreachable);
+        assertThat(predecessors(paths, a)).containsExactlyInAnyOrder(r1, c);
+        assertThat(paths.inDegree(r1)).isZero();
+        assertThat(paths.nodes("target")).containsExactly(target, copy);
+        assertThat(paths.nodes("missing")).isEmpty();
+    }
+
+    @Test
+    void pathLengthsMatchBreadthFirstDistances() {
+        var random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int nodeCount = 1 + random.nextInt(60);
+            var builder = new IndexedGraph.Builder();
+            for (int n = 0; n < nodeCount; n++) {
+                builder.node("jar", "n" + n);
+            }
+            var edges = new boolean[nodeCount][nodeCount];
+            for (int e = 0; e < nodeCount * 2; e++) {
+                int from = random.nextInt(nodeCount);
+                int to = random.nextInt(nodeCount);
+                edges[from][to] = true;
+                builder.edge(from, to);
+            }
+            var graph = builder.build();
+            var roots = new BitSet();
+            for (int n = 0; n < nodeCount; n++) {
+                if (random.nextInt(10) == 0) {
+                    roots.set(n);
+                }
+            }
+
+            var paths = new DependencyPaths(graph, roots);
+            var distances = distances(edges, roots);
+
+            for (int node = 0; node < nodeCount; node++) {
+                var path = paths.shortestPath(node);
+                if (distances[node] < 0) {
+                    assertThat(path).isNull();
+                    continue;
+                }
+                assertThat(path).isNotNull();
+                assertThat(path).hasSize(distances[node] + 1);
+                assertThat(roots.get(path[0])).isTrue();
+                assertThat(path[path.length - 1]).isEqualTo(node);
+                for (int i = 1; i < path.length; i++) {
+                    assertThat(edges[path[i - 1]][path[i]]).isTrue();
+                }
+                int inDegree = 0;
+                for (int from = 0; from < nodeCount; from++) {
+                    inDegree += edges[from][node] ? 1 : 0;
+                }
+                assertThat(paths.inDegree(node)).isEqualTo(inDegree);
+            }
+        }
+    }
+
+    @Test
+    void explainsReachableClassesOfAnAnalysis() throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.Api", "package lib; public class Api { Impl impl = new Impl(); }",
+                        "lib.Impl", "package lib; class Impl { Util util = new Util(); }",
+                        "lib.Util", "package lib; public class Util {}"));
+        var lib = TestJars.jar(tempDir.resolve("jars/lib.jar"), libClasses, Map.of());
+        var app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main", "package app; public class Main { lib.Api api = new lib.Api(); }",
+                        "app.Tool", "package app; public class Tool { lib.Util util = new lib.Util(); }"),
+                "-classpath",
+                libClasses.toString());
+        var graph = TestGraphs.analyze(List.of(app), List.of(lib));
+
+        var paths = new DependencyPaths(graph);
+
+        var util = paths.nodes("lib.Util");
+        assertThat(util).hasSize(1);
+        var path = paths.shortestPath(util[0]);
+        assertThat(path).isNotNull();
+        assertThat(Arrays.stream(path).mapToObj(graph.getIndexedGraph()::name)).containsExactly("app.Tool", "lib.Util");
+        assertThat(paths.inDegree(util[0])).isEqualTo(2);
+    }
+
+    private static int[] predecessors(DependencyPaths paths, int node) {
+        var result = new int[paths.inDegree(node)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = paths.predecessor(node, i);
+        }
+        return result;
+    }
+
+    /**
+     * @return distance of every node from the nearest root, -1 if none reaches it
+     */
+    private static int[] distances(boolean[][] edges, BitSet roots) {
+        var distances = new int[edges.length];
+        Arrays.fill(distances, -1);
+        var queue = new ArrayDeque<Integer>();
+        roots.stream().forEach(root -> {
+            distances[root] = 0;
+            queue.add(root);
+        });
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int to = 0; to < edges.length; to++) {
+                if (edges[node][to] && distances[to] < 0) {
+                    distances[to] = distances[node] + 1;
+                    queue.add(to);
+                }
+            }
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,120 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Freeman
+ */
+class DuplicateClassesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path one;
+    private Path two;
+    private DependencyGraph graph;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var shared = "package lib; public class Shared {}";
+        var unusedShared = "package lib; public class UnusedShared {}";
+        var oneClasses = TestJars.compile(
+                tempDir.resolve("one"),
+                Map.of(
+                        "lib.A",
+                        "package lib; public class A {}",
+                        "lib.Shared",
+                        shared,
+                        "lib.UnusedShared",
+                        unusedShared,
+                        "lib.Conflict",
+                        "package lib; public class Conflict { int one; }"));
+        var twoClasses = TestJars.compile(
+                tempDir.resolve("two"),
+                Map.of(
+                        "lib.B",
+                        "package lib; public class B {}",
+                        "lib.Shared",
+                        shared,
+                        "lib.UnusedShared",
+                        unusedShared,
+                        "lib.Conflict",
+                        "package lib; public class Conflict { long two; }"));
+        one = TestJars.jar(tempDir.resolve("jars/one.jar"), oneClasses, Map.of());
+        two = TestJars.jar(tempDir.resolve("jars/two.jar"), twoClasses, Map.of());
+        var app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main",
+                        "package app; public class Main {"
+                                + " Object[] o = {new lib.A(), new lib.B(), new lib.Shared(), new lib.Conflict()}; }"),
+                "-classpath",
+                oneClasses + File.pathSeparator + twoClasses);
+        graph = TestGraphs.analyze(List.of(app), List.of(one, two));
+    }
+
+    @Test
+    void findsIdenticalLaterCopiesAndConflicts() throws IOException {
+        var broken = Files.writeString(tempDir.resolve("jars/broken.jar"), "not a jar");
+
+        var duplicates = DuplicateClasses.find(List.of(one, broken, two), graph.getReachableClasses());
+
+        assertThat(duplicates.of(one)).isEmpty();
+        // Unreachable copies are removed anyway, they are not counted
+        assertThat(duplicates.of(two)).containsExactly("lib/Shared.class");
+        assertThat(duplicates.count()).isEqualTo(1);
+        assertThat(duplicates.conflicts())
+                .containsExactly(new JarShrinker.ShrinkResult.Conflict("lib/Conflict.class", one, two));
+    }
+
+    @Test
+    void classpathOrderDecidesWhichCopyIsKept() throws IOException {
+        var duplicates = DuplicateClasses.find(List.of(two, one), graph.getReachableClasses());
+
+        assertThat(duplicates.of(two)).isEmpty();
+        assertThat(duplicates.of(one)).containsExactly("lib/Shared.class");
+        assertThat(duplicates.conflicts())
+                .containsExactly(new JarShrinker.ShrinkResult.Conflict("lib/Conflict.class", two, one));
+    }
+
+    @Test
+    void shrinkRemovesDuplicatesFromLaterJars() throws IOException {
+        var output = tempDir.resolve("out");
+
+        var result = JarShrinker.builder()
+                .outputDir(output)
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .removeDuplicateClasses(true)
+                .build()
+                .shrink(TestGraphs.depJars(graph, List.of(one, two)), graph);
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(result.conflicts()).singleElement().satisfies(conflict -> assertThat(conflict.entry())
+                .isEqualTo("lib/Conflict.class"));
+        assertThat(result.jars())
+                .filteredOn(item -> item.before().getFileName().toString().equals("two.jar"))
+                .singleElement()
+                .satisfies(item -> assertThat(item.duplicates()).isEqualTo(1));
+        try (var zip = new ZipFile(output.resolve("one.jar").toFile())) {
+            assertThat(zip.getEntry("lib/Shared.class")).isNotNull();
+            assertThat(zip.getEntry("lib/Conflict.class")).isNotNull();
+        }
+        try (var zip = new ZipFile(output.resolve("two.jar").toFile())) {
+            assertThat(zip.getEntry("lib/Shared.class")).isNull();
+            assertThat(zip.getEntry("lib/Conflict.class")).isNotNull();
+            assertThat(zip.getEntry("lib/B.class")).isNotNull();
+        }
+    }
+}
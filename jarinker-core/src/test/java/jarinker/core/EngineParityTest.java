@@ -0,0 +1,162 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.tools.jdeps.JdepsFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * The classfile engine must produce the same graph as jdeps.
+ *
+ * @author Freeman
+ */
+class EngineParityTest {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(
+            value = AnalyzerType.class,
+            names = {"CLASS", "PACKAGE"})
+    void quickStartHasSameGraphWithBothEngines(AnalyzerType type) throws IOException {
+        var sources = List.of(Path.of(System.getProperty("jarinker.quickStart.classes")));
+        List<Path> classpath;
+        try (Stream<Path> libs = Files.list(Path.of(System.getProperty("jarinker.quickStart.libs")))) {
+            classpath = libs.filter(p -> p.toString().endsWith(".jar")).sorted().toList();
+        }
+        assertThat(classpath).isNotEmpty();
+
+        var jdeps = analyze(sources, classpath, type, AnalyzerEngine.JDEPS);
+        var classfile = analyze(sources, classpath, type, AnalyzerEngine.CLASSFILE);
+
+        assertThat(jdeps.getDependenciesMap()).isNotEmpty();
+        assertThat(classfile.getDependenciesMap()).isEqualTo(jdeps.getDependenciesMap());
+        assertThat(reachable(classfile))
+                .isEqualTo(reachable(jdeps))
+                .contains(type == AnalyzerType.CLASS ? "com.example.QuickStart" : "com.example");
+    }
+
+    @Test
+    void quickStartHasSameGraphWhenJdepsResultsAreCached() throws IOException {
+        var sources = List.of(Path.of(System.getProperty("jarinker.quickStart.classes")));
+        List<Path> classpath;
+        try (Stream<Path> libs = Files.list(Path.of(System.getProperty("jarinker.quickStart.libs")))) {
+            classpath = libs.filter(p -> p.toString().endsWith(".jar")).sorted().toList();
+        }
+        var cache = new AnalysisCache(tempDir.resolve("cache"), Long.MAX_VALUE, "test");
+        var memoryCache = new InMemoryAnalysisCache(Long.MAX_VALUE);
+
+        var jdeps = analyze(sources, classpath, AnalyzerType.CLASS, AnalyzerEngine.JDEPS);
+        var cold = analyze(sources, classpath, AnalyzerEngine.JDEPS, cache, memoryCache);
+        long analyzed = memoryCache.stats().misses();
+        var fromMemory = analyze(sources, classpath, AnalyzerEngine.JDEPS, cache, memoryCache);
+        var fromDisk = analyze(sources, classpath, AnalyzerEngine.JDEPS, cache, null);
+
+        assertThat(analyzed).isPositive();
+        assertThat(memoryCache.stats().hits()).isEqualTo(analyzed);
+        for (var cached : List.of(cold, fromMemory, fromDisk)) {
+            assertThat(cached.getDependenciesMap()).isEqualTo(jdeps.getDependenciesMap());
+            assertThat(reachable(cached)).isEqualTo(reachable(jdeps));
+        }
+    }
+
+    @Test
+    void multiReleaseJarHasSameGraphWithBothEngines() throws IOException {
+        var lib = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.Api", "package lib; public class Api { public Object get() { return new Old(); } }",
+                        "lib.Old", "package lib; public class Old {}",
+                        "lib.New", "package lib; public class New {}"));
+        var lib10 = TestJars.compile(
+                tempDir.resolve("lib10"),
+                Map.of("lib.Api", "package lib; public class Api { public Object get() { return new New(); } }"),
+                "-classpath",
+                lib.toString());
+        var entries = new LinkedHashMap<String, byte[]>();
+        for (var name : List.of("Api", "Old", "New")) {
+            entries.put("lib/" + name + ".class", Files.readAllBytes(lib.resolve("lib/" + name + ".class")));
+        }
+        entries.put("META-INF/versions/10/lib/Api.class", Files.readAllBytes(lib10.resolve("lib/Api.class")));
+        var jar = TestJars.jar(tempDir.resolve("lib.jar"), entries, Map.of("Multi-Release", "true"));
+
+        var app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of("app.Main", "package app; public class Main { Object o = new lib.Api().get(); }"),
+                "-classpath",
+                lib.toString());
+
+        var jdeps = analyze(List.of(app), List.of(jar), AnalyzerType.CLASS, AnalyzerEngine.JDEPS);
+        var classfile = analyze(List.of(app), List.of(jar), AnalyzerType.CLASS, AnalyzerEngine.CLASSFILE);
+
+        // jdeps names the class read from META-INF/versions/10 "10/lib.Api"
+        assertThat(jdeps.getDependenciesMap()).containsKey("lib.jar/10/lib.Api");
+        assertThat(classfile.getDependenciesMap()).isEqualTo(jdeps.getDependenciesMap());
+        assertThat(reachable(classfile))
+                .isEqualTo(reachable(jdeps))
+                .contains("10/lib.Api", "lib.New")
+                .doesNotContain("lib.Old");
+        assertThat(classfile.getReachableClasses().containsEntry("META-INF/versions/10/lib/Api.class"))
+                .isTrue();
+    }
+
+    private static DependencyGraph analyze(
+            List<Path> sources, List<Path> classpath, AnalyzerType type, AnalyzerEngine engine) {
+        try (var configuration = JdepsAnalyzer.buildJdepsConfiguration(sources, classpath, Runtime.version())) {
+            return JdepsAnalyzer.builder()
+                    .jdepsFilter(new JdepsFilter.Builder().filter(false, false).build())
+                    .jdepsConfiguration(configuration)
+                    .type(type)
+                    .engine(engine)
+                    .build()
+                    .analyze();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DependencyGraph analyze(
+            List<Path> sources,
+            List<Path> classpath,
+            AnalyzerEngine engine,
+            AnalysisCache cache,
+            @Nullable InMemoryAnalysisCache memoryCache)
+            throws IOException {
+        try (var configuration = JdepsAnalyzer.buildJdepsConfiguration(sources, classpath, Runtime.version())) {
+            return JdepsAnalyzer.builder()
+                    .jdepsFilter(new JdepsFilter.Builder().filter(false, false).build())
+                    .jdepsConfiguration(configuration)
+                    .type(AnalyzerType.CLASS)
+                    .engine(engine)
+                    .cache(cache)
+                    .memoryCache(memoryCache)
+                    .build()
+                    .analyze();
+        }
+    }
+
+    private static Set<String> reachable(DependencyGraph graph) {
+        var indexed = graph.getIndexedGraph();
+        var nodes = indexed.reachableFrom(graph.getRootNodes());
+        var result = new HashSet<String>();
+        for (int n = nodes.nextSetBit(0); n >= 0; n = nodes.nextSetBit(n + 1)) {
+            result.add(indexed.name(n));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Rooting reachability at the {@code Main-Class}, the {@code META-INF/services} providers and the classes matching
+ * the entry-point patterns of the sources.
+ *
+ * @author Freeman
+ */
+class EntryPointsTest {
+
+    private static final List<String> REACHED = List.of(
+            "app.Main",
+            "lib.ForMain",
+            "app.Provider",
+            "app.Spi",
+            "lib.ForProvider",
+            "app.MatchedTask",
+            "lib.ForMatched");
+
+    @TempDir
+    Path tempDir;
+
+    private Path appClasses;
+    private Path appJar;
+    private Path lib;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.ForMain", "package lib; public class ForMain {}",
+                        "lib.ForProvider", "package lib; public class ForProvider {}",
+                        "lib.ForMatched", "package lib; public class ForMatched {}",
+                        "lib.ForUnused", "package lib; public class ForUnused {}"));
+        lib = TestJars.jar(tempDir.resolve("jars/lib.jar"), libClasses, Map.of());
+        appClasses = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main",
+                        "package app; public class Main { lib.ForMain m = new lib.ForMain(); }",
+                        "app.Spi",
+                        "package app; public interface Spi {}",
+                        "app.Provider",
+                        "package app; public class Provider implements Spi {"
+                                + " lib.ForProvider p = new lib.ForProvider(); }",
+                        "app.MatchedTask",
+                        "package app; public class MatchedTask { lib.ForMatched m = new lib.ForMatched(); }",
+                        "app.Unused",
+                        "package app; public class Unused { lib.ForUnused u = new lib.ForUnused(); }"),
+                "-classpath",
+                libClasses.toString());
+        var services = Files.createDirectories(appClasses.resolve("META-INF/services"));
+        Files.writeString(services.resolve("app.Spi"), "# providers\napp.Provider\napp.Missing # not a class\n");
+        // Only the files directly in META-INF/services list providers
+        Files.createDirectories(services.resolve("nested"));
+        Files.writeString(services.resolve("nested/app.Spi"), "app.Unused\n");
+        appJar = TestJars.jar(tempDir.resolve("jars/app.jar"), appClasses, Map.of("Main-Class", "app.Main"));
+        Files.write(appClasses.resolve(JarFile.MANIFEST_NAME), TestJars.manifest(Map.of("Main-Class", "app/Main")));
+    }
+
+    @ParameterizedTest
+    @EnumSource(AnalyzerEngine.class)
+    void jarSourceIsTraversedFromItsEntryPoints(AnalyzerEngine engine) {
+        var reachable = analyze(appJar, engine, List.of(Pattern.compile("app\\.Matched.*")));
+
+        for (var name : REACHED) {
+            assertThat(reachable.contains(name)).as(name).isTrue();
+        }
+        assertThat(reachable.contains("app.Unused")).isFalse();
+        assertThat(reachable.contains("lib.ForUnused")).isFalse();
+    }
+
+    @ParameterizedTest
+    @EnumSource(AnalyzerEngine.class)
+    void directorySourceIsTraversedFromItsEntryPoints(AnalyzerEngine engine) {
+        var reachable = analyze(appClasses, engine, List.of(Pattern.compile("app\\.Matched.*")));
+
+        for (var name : REACHED) {
+            assertThat(reachable.contains(name)).as(name).isTrue();
+        }
+        assertThat(reachable.contains("app.Unused")).isFalse();
+        assertThat(reachable.contains("lib.ForUnused")).isFalse();
+    }
+
+    @Test
+    void withoutEntryPointsEveryClassOfTheSourcesIsARoot() {
+        var reachable = TestGraphs.analyze(List.of(appJar), List.of(lib)).getReachableClasses();
+
+        assertThat(reachable.contains("app.Unused")).isTrue();
+        assertThat(reachable.contains("lib.ForUnused")).isTrue();
+    }
+
+    @Test
+    void findsOnlyDeclaredClassesOfTheSource() throws IOException {
+        var classes = Set.of("app.Main", "app.Spi", "app.Provider", "app.MatchedTask", "app.Unused");
+        try (var archive = Archive.getInstance(appJar, Runtime.version())) {
+            assertThat(new EntryPoints(List.of()).find(archive, classes))
+                    .containsExactlyInAnyOrder("app.Main", "app.Provider");
+            assertThat(new EntryPoints(List.of(Pattern.compile("app\\.(Matched.*|Spi)"))).find(archive, classes))
+                    .containsExactlyInAnyOrder("app.Main", "app.Provider", "app.MatchedTask", "app.Spi");
+        }
+    }
+
+    @Test
+    void rejectsSourcesWithoutEntryPoints() throws IOException {
+        var classes =
+                TestJars.compile(tempDir.resolve("bare"), Map.of("bare.Tool", "package bare; public class Tool {}"));
+        var source = TestJars.jar(tempDir.resolve("jars/bare.jar"), classes, Map.of());
+
+        assertThatThrownBy(() -> analyze(source, AnalyzerEngine.CLASSFILE, List.of(Pattern.compile("app\\..*"))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("No entry points found");
+    }
+
+    private ReachableClasses analyze(Path source, AnalyzerEngine engine, List<Pattern> patterns) {
+        return TestGraphs.analyze(List.of(source), List.of(lib), builder -> builder.engine(engine)
+                        .entryPoints(new EntryPoints(patterns)))
+                .getReachableClasses();
+    }
+}
@@ -0,0 +1,177 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.tools.jdeps.DepsAnalyzer;
+import com.sun.tools.jdeps.Graph;
+import com.sun.tools.jdeps.JdepsFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Building and traversing an {@link IndexedGraph}, and {@link DependencyGraph#getDependenciesMap()} built from it.
+ *
+ * @author Freeman
+ */
+class IndexedGraphTest {
+
+    @Test
+    void duplicateEdgesAreRemoved() {
+        var builder = new IndexedGraph.Builder();
+        int a = builder.node("lib.jar", "a");
+        int b = builder.node("lib.jar", "b");
+        int c = builder.node("lib.jar", "c");
+        builder.edge(a, c);
+        builder.edge(a, b);
+        builder.edge(a, c);
+        builder.edge(a, b);
+        builder.edge(b, c);
+
+        var graph = builder.build();
+
+        assertThat(graph.edgeCount()).isEqualTo(3);
+        assertThat(successors(graph, a)).containsExactly(b, c);
+        assertThat(successors(graph, b)).containsExactly(c);
+        assertThat(graph.outDegree(c)).isZero();
+    }
+
+    @Test
+    void nodesWithoutEdgesAreKept() {
+        var builder = new IndexedGraph.Builder();
+        int a = builder.node("lib.jar", "a");
+        int b = builder.node("lib.jar", "b");
+        int isolated = builder.node("lib.jar", "isolated");
+        builder.edge(a, b);
+
+        var graph = builder.build();
+
+        assertThat(graph.nodeCount()).isEqualTo(3);
+        assertThat(graph.outDegree(isolated)).isZero();
+        assertThat(graph.reachableFrom(bits(isolated))).isEqualTo(bits(isolated));
+        assertThat(graph.breadthFirstOrder(bits(isolated))).containsExactly(isolated);
+        assertThat(graph.reachableFrom(bits(a))).isEqualTo(bits(a, b));
+        assertThat(graph.reachableFrom(new BitSet()).isEmpty()).isTrue();
+
+        var dependencyGraph = new DependencyGraph(graph, Set.of(), List.of(), AnalyzerType.CLASS);
+        assertThat(dependencyGraph.getNodeCount()).isEqualTo(3);
+        assertThat(dependencyGraph.getDependenciesMap()).containsExactly(Map.entry("lib.jar/a", Set.of("lib.jar/b")));
+    }
+
+    @Test
+    void cyclesAreTraversedOnce() {
+        var builder = new IndexedGraph.Builder();
+        int a = builder.node("lib.jar", "a");
+        int b = builder.node("lib.jar", "b");
+        int c = builder.node("lib.jar", "c");
+        int d = builder.node("lib.jar", "d");
+        builder.edge(a, b);
+        builder.edge(b, c);
+        builder.edge(c, a);
+        builder.edge(c, c);
+        builder.edge(d, a);
+
+        var graph = builder.build();
+
+        assertThat(graph.reachableFrom(bits(b))).isEqualTo(bits(a, b, c));
+        assertThat(graph.breadthFirstOrder(bits(b))).containsExactly(b, c, a);
+        assertThat(graph.breadthFirstOrder(bits(a, d))).containsExactly(a, d, b, c);
+        assertThat(successors(graph, c)).containsExactly(a, c);
+    }
+
+    @Test
+    void sameNameInDifferentArchivesIsOneNamePerNode() {
+        var builder = new IndexedGraph.Builder();
+        int app = builder.node("app", "app.Main");
+        int first = builder.node("first.jar", "lib.Api");
+        int second = builder.node("second.jar", "lib.Api");
+        builder.edge(app, first);
+        builder.edge(app, builder.node("first.jar", "lib.Api"));
+
+        var graph = builder.build();
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(graph.nodeCount()).isEqualTo(3);
+        assertThat(graph.nameCount()).isEqualTo(2);
+        assertThat(graph.nameId(first)).isEqualTo(graph.nameId(second)).isEqualTo(graph.findName("lib.Api"));
+        assertThat(graph.findName("lib.Missing")).isEqualTo(-1);
+        assertThat(graph.label(first)).isEqualTo("first.jar/lib.Api");
+        assertThat(graph.label(second)).isEqualTo("second.jar/lib.Api");
+        assertThat(graph.archive(second)).isEqualTo("second.jar");
+        assertThat(successors(graph, app)).containsExactly(first);
+    }
+
+    @ParameterizedTest
+    @EnumSource(
+            value = AnalyzerType.class,
+            names = {"CLASS", "PACKAGE"})
+    void dependenciesMapMatchesTheJdepsGraph(AnalyzerType type) throws IOException {
+        var sources = List.of(Path.of(System.getProperty("jarinker.quickStart.classes")));
+        List<Path> classpath;
+        try (Stream<Path> libs = Files.list(Path.of(System.getProperty("jarinker.quickStart.libs")))) {
+            classpath = libs.filter(p -> p.toString().endsWith(".jar")).sorted().toList();
+        }
+
+        try (var configuration = JdepsAnalyzer.buildJdepsConfiguration(sources, classpath, Runtime.version())) {
+            var filter = new JdepsFilter.Builder().filter(false, false).build();
+            var analyzer = new DepsAnalyzer(configuration, filter, null, type.toJdepsAnalysisType(), false);
+            assertThat(analyzer.run(false, Integer.MAX_VALUE)).isTrue();
+            var jdepsGraph = analyzer.dependenceGraph();
+
+            var graph = new DependencyGraph(jdepsGraph, Set.of(), List.of(), type);
+
+            // jdeps has a node per label and access info, the indexed graph one per label
+            var labels = new HashSet<String>();
+            for (int node = 0; node < graph.getIndexedGraph().nodeCount(); node++) {
+                labels.add(graph.getIndexedGraph().label(node));
+            }
+            assertThat(labels)
+                    .hasSize(graph.getNodeCount())
+                    .isEqualTo(jdepsGraph.nodes().stream().map(Object::toString).collect(Collectors.toSet()));
+            assertThat(graph.getDependenciesMap()).isNotEmpty().isEqualTo(dependenciesMap(jdepsGraph));
+        }
+    }
+
+    /**
+     * @return node label to the labels of its dependencies, built from the jdeps graph like the dependencies map was
+     *         before the indexed graph, nodes without dependencies are left out
+     */
+    private static Map<String, Set<String>> dependenciesMap(Graph<DepsAnalyzer.Node> graph) {
+        var result = new HashMap<String, Set<String>>();
+        for (var node : graph.nodes()) {
+            var dependencies =
+                    graph.adjacentNodes(node).stream().map(Object::toString).collect(Collectors.toSet());
+            if (!dependencies.isEmpty()) {
+                result.computeIfAbsent(node.toString(), k -> new HashSet<>()).addAll(dependencies);
+            }
+        }
+        return result;
+    }
+
+    private static int[] successors(IndexedGraph graph, int node) {
+        var result = new int[graph.outDegree(node)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = graph.successor(node, i);
+        }
+        return result;
+    }
+
+    private static BitSet bits(int... nodes) {
+        var result = new BitSet();
+        for (int node : nodes) {
+            result.set(node);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Reading archives with {@link JarIndex}, both memory-mapped and through the file channel.
+ *
+ * @author Freeman
+ */
+class JarIndexTest {
+
+    private static final byte[] TEXT = "hello ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void findsEntriesByName(boolean mapping) throws IOException {
+        var jar = TestJars.jar(
+                tempDir.resolve("lib.jar"),
+                Map.of("lib/Api.class", new byte[] {1, 2, 3}, "lib/text.txt", TEXT),
+                Map.of("Main-Class", "lib.Api"));
+
+        try (var index = JarIndex.open(jar, mapping);
+                var zip = new ZipFile(jar.toFile())) {
+            assertThat(index.entries())
+                    .extracting(RawJarEntry::name)
+                    .containsExactlyElementsOf(
+                            zip.stream().map(ZipEntry::getName).toList());
+            for (var zipEntry : zip.stream().toList()) {
+                var entry = Objects.requireNonNull(index.find(zipEntry.getName()));
+                assertThat(entry.compressedSize()).isEqualTo(zipEntry.getCompressedSize());
+                assertThat(entry.crc()).isEqualTo(zipEntry.getCrc());
+                assertThat(index.read(entry))
+                        .isEqualTo(zip.getInputStream(zipEntry).readAllBytes());
+            }
+            assertThat(index.find("lib/Missing.class")).isNull();
+            assertThat(index.find("LIB/API.CLASS")).isNull();
+            assertThat(Objects.requireNonNull(index.manifest())
+                            .getMainAttributes()
+                            .getValue("Main-Class"))
+                    .isEqualTo("lib.Api");
+
+            var text = Objects.requireNonNull(index.find("lib/text.txt"));
+            assertThat(text.compressedSize()).isLessThan(TEXT.length);
+            assertThat(readRaw(index, text)).isEqualTo(transferRaw(index, text));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void findsManifestWhateverItsCase(boolean mapping) throws IOException {
+        var jar = tempDir.resolve("lower.jar");
+        try (var out = Files.newOutputStream(jar)) {
+            writeZip(out, StandardCharsets.UTF_8, "lib/text.txt", zip -> {
+                zip.putNextEntry(new ZipEntry("meta-inf/Manifest.MF"));
+                zip.write(TestJars.manifest(Map.of("Multi-Release", "true")));
+                zip.closeEntry();
+            });
+        }
+
+        try (var index = JarIndex.open(jar, mapping);
+                var file = new JarFile(jar.toFile())) {
+            assertThat(index.find(JarFile.MANIFEST_NAME)).isNull();
+            assertThat(Objects.requireNonNull(index.manifest())).isEqualTo(file.getManifest());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void readsArchiveWithCommentAndPrependedData(boolean mapping) throws IOException {
+        var jar = tempDir.resolve("launcher.jar");
+        try (var out = Files.newOutputStream(jar)) {
+            // Like an executable jar with a launch script in front of the zip data
+            out.write("#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8));
+            writeZip(out, StandardCharsets.UTF_8, "lib/text.txt", zip -> zip.setComment("built by ".repeat(100)));
+        }
+
+        try (var index = JarIndex.open(jar, mapping)) {
+            assertThat(index.entries()).extracting(RawJarEntry::name).containsExactly("lib/text.txt");
+            assertThat(index.read(Objects.requireNonNull(index.find("lib/text.txt"))))
+                    .isEqualTo(TEXT);
+            assertThat(index.manifest()).isNull();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void readsZip64EndOfCentralDirectory(boolean mapping) throws IOException {
+        // More than 65535 entries, the end record only holds 0xFFFF and the count is in the zip64 end record
+        int count = 0x10000;
+        var jar = tempDir.resolve("many.jar");
+        try (var out = Files.newOutputStream(jar)) {
+            writeZip(out, StandardCharsets.UTF_8, "lib/text.txt", zip -> {
+                for (int i = 0; i < count; i++) {
+                    zip.putNextEntry(new ZipEntry("e/" + i));
+                    zip.closeEntry();
+                }
+            });
+        }
+
+        try (var index = JarIndex.open(jar, mapping)) {
+            assertThat(index.entries()).hasSize(count + 1);
+            assertThat(index.entries().get(count).name()).isEqualTo("e/" + (count - 1));
+            assertThat(index.find("e/65535")).isNotNull();
+            assertThat(index.read(Objects.requireNonNull(index.find("lib/text.txt"))))
+                    .isEqualTo(TEXT);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void rejectsEntryNamesThatAreNotUtf8(boolean mapping) throws IOException {
+        var jar = tempDir.resolve("latin1.jar");
+        try (var out = Files.newOutputStream(jar)) {
+            // Written without the UTF-8 flag, the name is the single byte 0xE9 for é
+            writeZip(out, StandardCharsets.ISO_8859_1, "café.txt", zip -> {});
+        }
+
+        // ZipFile rejects the archive too, copying the entry would otherwise change its name
+        assertThatThrownBy(() -> new ZipFile(jar.toFile()).close()).isInstanceOf(ZipException.class);
+        assertThatThrownBy(() -> JarIndex.open(jar, mapping).close())
+                .isInstanceOf(ZipException.class)
+                .hasMessageContaining(jar.toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void rejectsFilesThatAreNotZipArchives(boolean mapping) throws IOException {
+        var file = Files.writeString(tempDir.resolve("not.jar"), "not a jar ".repeat(10));
+
+        assertThatThrownBy(() -> JarIndex.open(file, mapping).close())
+                .isInstanceOf(ZipException.class)
+                .hasMessageContaining(file.toString());
+    }
+
+    private interface ZipContent {
+        void write(ZipOutputStream zip) throws IOException;
+    }
+
+    /**
+     * Write a zip with a deflated text entry, followed by the given content.
+     */
+    private static void writeZip(OutputStream out, Charset charset, String name, ZipContent content)
+            throws IOException {
+        var zip = new ZipOutputStream(out, charset);
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(TEXT);
+        zip.closeEntry();
+        content.write(zip);
+        zip.finish();
+    }
+
+    private static byte[] readRaw(JarIndex index, RawJarEntry entry) throws IOException {
+        var buffer = ByteBuffer.allocate(Math.toIntExact(entry.compressedSize()));
+        index.readRaw(entry, buffer);
+        assertThat(buffer.hasRemaining()).isFalse();
+        return buffer.array();
+    }
+
+    private static byte[] transferRaw(JarIndex index, RawJarEntry entry) throws IOException {
+        var out = new ByteArrayOutputStream();
+        index.transferRaw(entry, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+}
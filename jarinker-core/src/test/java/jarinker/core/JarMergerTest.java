@@ -0,0 +1,161 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Merging through {@link JarShrinker#merge}.
+ *
+ * @author Freeman
+ */
+class JarMergerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path one;
+    private Path two;
+    private DependencyGraph graph;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var shared = "package lib; public class Shared {}";
+        var oneClasses = TestJars.compile(
+                tempDir.resolve("one"),
+                Map.of(
+                        "lib.A", "package lib; public class A {}",
+                        "lib.Shared", shared,
+                        "lib.Conflict", "package lib; public class Conflict { int one; }",
+                        "lib.Unused", "package lib; public class Unused {}"));
+        var twoClasses = TestJars.compile(
+                tempDir.resolve("two"),
+                Map.of(
+                        "lib.B", "package lib; public class B {}",
+                        "lib.Shared", shared,
+                        "lib.Conflict", "package lib; public class Conflict { long two; }"));
+
+        var oneEntries = entries(oneClasses);
+        oneEntries.put("META-INF/INDEX.LIST", "JarIndex-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+        oneEntries.put("META-INF/services/lib.Api", "lib.A\n".getBytes(StandardCharsets.UTF_8));
+        one = TestJars.jar(tempDir.resolve("jars/one.jar"), oneEntries, Map.of("Implementation-Title", "one"));
+
+        var twoEntries = entries(twoClasses);
+        twoEntries.put(
+                "META-INF/services/lib.Api", "# providers\nlib.B\nlib.A # again\n".getBytes(StandardCharsets.UTF_8));
+        two = TestJars.jar(tempDir.resolve("jars/two.jar"), twoEntries, Map.of("Multi-Release", "true"));
+
+        var app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main",
+                        "package app; public class Main {"
+                                + " Object[] o = {new lib.A(), new lib.B(), new lib.Shared(), new lib.Conflict()}; }"),
+                "-classpath",
+                oneClasses + File.pathSeparator + twoClasses);
+        graph = TestGraphs.analyze(List.of(app), List.of(one, two));
+    }
+
+    @Test
+    void mergesRetainedEntriesFirstJarWinning() throws Exception {
+        var output = tempDir.resolve("out/merged.jar");
+
+        var result = merger().merge(TestGraphs.depJars(graph, List.of(one, two)), graph, output);
+
+        assertThat(result.output()).isEqualTo(output.toAbsolutePath().normalize());
+        assertThat(result.jars()).hasSize(2);
+        assertThat(result.duplicates()).isEqualTo(1);
+        assertThat(result.mergedServices()).isEqualTo(1);
+        assertThat(result.conflicts()).singleElement().satisfies(conflict -> {
+            assertThat(conflict.entry()).isEqualTo("lib/Conflict.class");
+            assertThat(conflict.kept().getFileName()).hasToString("one.jar");
+            assertThat(conflict.ignored().getFileName()).hasToString("two.jar");
+        });
+        assertThat(result.afterSize()).isEqualTo(Files.size(output));
+
+        try (var zip = new ZipFile(output.toFile())) {
+            var names = zip.stream().map(ZipEntry::getName).toList();
+            assertThat(names)
+                    .containsExactlyInAnyOrder(
+                            "META-INF/",
+                            "META-INF/MANIFEST.MF",
+                            "lib/A.class",
+                            "lib/Shared.class",
+                            "lib/Conflict.class",
+                            "lib/B.class",
+                            "META-INF/services/lib.Api");
+            assertThat(result.entries()).isEqualTo(names.size());
+            assertThat(names.subList(0, 2)).containsExactly("META-INF/", "META-INF/MANIFEST.MF");
+            assertThat(new String(
+                            zip.getInputStream(zip.getEntry("META-INF/MANIFEST.MF"))
+                                    .readAllBytes(),
+                            StandardCharsets.UTF_8))
+                    .contains("Multi-Release: true")
+                    .doesNotContain("Implementation-Title");
+            assertThat(new String(
+                            zip.getInputStream(zip.getEntry("META-INF/services/lib.Api"))
+                                    .readAllBytes(),
+                            StandardCharsets.UTF_8))
+                    .isEqualTo("lib.A\nlib.B\n");
+            assertThat(zip.getInputStream(zip.getEntry("lib/Conflict.class")).readAllBytes())
+                    .isEqualTo(Files.readAllBytes(tempDir.resolve("one/lib/Conflict.class")));
+        }
+
+        try (var loader = new URLClassLoader(new URL[] {output.toUri().toURL()}, null)) {
+            assertThat(loader.loadClass("lib.Conflict").getDeclaredField("one")).isNotNull();
+            assertThat(loader.loadClass("lib.B")).isNotNull();
+        }
+    }
+
+    @Test
+    void rejectsInputAsOutput() {
+        assertThatThrownBy(() -> merger().merge(TestGraphs.depJars(graph, List.of(one, two)), graph, one))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("must not be one of its inputs");
+        assertThat(one).isRegularFile();
+    }
+
+    @Test
+    void rejectsPerJarRewrites() throws IOException {
+        var loadOrder = ClassLoadOrder.read(Files.write(tempDir.resolve("trace.log"), List.of("lib.A")));
+        var ordered = JarShrinker.builder()
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .loadOrder(loadOrder)
+                .build();
+
+        assertThatThrownBy(() -> ordered.merge(
+                        TestGraphs.depJars(graph, List.of(one, two)), graph, tempDir.resolve("merged.jar")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("class-load order");
+    }
+
+    private static JarShrinker merger() {
+        return JarShrinker.builder().jarPatterns(List.of(Pattern.compile(".*"))).build();
+    }
+
+    private static Map<String, byte[]> entries(Path dir) throws IOException {
+        var entries = new LinkedHashMap<String, byte[]>();
+        try (var files = Files.walk(dir)) {
+            for (var file : files.filter(Files::isRegularFile).sorted().toList()) {
+                entries.put(dir.relativize(file).toString().replace('\\', '/'), Files.readAllBytes(file));
+            }
+        }
+        return entries;
+    }
+}
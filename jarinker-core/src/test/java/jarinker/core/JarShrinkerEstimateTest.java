@@ -0,0 +1,114 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Dry-run estimates through {@link JarShrinker#estimate}, compared with the jars {@link JarShrinker#shrink} writes.
+ *
+ * @author Freeman
+ */
+class JarShrinkerEstimateTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path lib;
+    private Path util;
+    private DependencyGraph graph;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.Api", "package lib; public class Api { Impl impl = new Impl(); }",
+                        "lib.Impl", "package lib; class Impl {}",
+                        "lib.internal.Unused", "package lib.internal; public class Unused { int[] a = {1, 2, 3}; }",
+                        "lib.internal.Other", "package lib.internal; public class Other {}",
+                        "lib.extra.Unused", "package lib.extra; public class Unused {}"));
+        lib = TestJars.jar(tempDir.resolve("jars/lib.jar"), libClasses, Map.of("Implementation-Title", "lib"));
+        var utilClasses =
+                TestJars.compile(tempDir.resolve("util"), Map.of("util.Util", "package util; public class Util {}"));
+        util = TestJars.jar(tempDir.resolve("jars/util.jar"), utilClasses, Map.of());
+        var app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main",
+                        "package app; public class Main { Object a = new lib.Api(); Object u = new util.Util(); }"),
+                "-classpath",
+                libClasses + File.pathSeparator + utilClasses);
+        graph = TestGraphs.analyze(List.of(app), List.of(lib, util));
+    }
+
+    @Test
+    void estimatesSizeOfShrunkJarsWithoutWriting() throws IOException {
+        var output = tempDir.resolve("out");
+
+        var estimate = shrinker(output, null).estimate(depJars(), graph);
+
+        assertThat(output).doesNotExist();
+        assertThat(estimate.failures()).isEmpty();
+        var libItem = item(estimate, "lib.jar");
+        assertThat(libItem.beforeSize()).isEqualTo(Files.size(lib));
+        assertThat(libItem.removedClasses()).isEqualTo(3);
+        assertThat(libItem.removedPackages())
+                .extracting(JarShrinker.EstimateResult.RemovedPackage::name)
+                .containsExactlyInAnyOrder("lib.internal", "lib.extra");
+        assertThat(libItem.removedPackages().get(0).name()).isEqualTo("lib.internal");
+        assertThat(libItem.removedPackages().get(0).classes()).isEqualTo(2);
+        var utilItem = item(estimate, "util.jar");
+        assertThat(utilItem.afterSize()).isEqualTo(utilItem.beforeSize());
+        assertThat(utilItem.removedPackages()).isEmpty();
+
+        shrinker(output, null).shrink(depJars(), graph);
+
+        assertThat(libItem.afterSize()).isEqualTo(Files.size(output.resolve("lib.jar")));
+        assertThat(estimate.afterSize()).isEqualTo(Files.size(output.resolve("lib.jar")) + Files.size(util));
+    }
+
+    @Test
+    void estimateAccountsForStoredLoadedClasses() throws IOException {
+        var output = tempDir.resolve("out");
+        var loadOrder = ClassLoadOrder.read(Files.write(tempDir.resolve("trace.log"), List.of("lib.Impl", "lib.Api")));
+
+        var estimate = shrinker(output, loadOrder).estimate(depJars(), graph);
+        shrinker(output, loadOrder).shrink(depJars(), graph);
+
+        var libItem = item(estimate, "lib.jar");
+        assertThat(libItem.loadOrdered()).isEqualTo(2);
+        assertThat(libItem.afterSize()).isEqualTo(Files.size(output.resolve("lib.jar")));
+    }
+
+    private JarShrinker shrinker(Path output, @Nullable ClassLoadOrder loadOrder) {
+        return JarShrinker.builder()
+                .outputDir(output)
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .loadOrder(loadOrder)
+                .storeLoadedClasses(loadOrder != null)
+                .build();
+    }
+
+    private List<Archive> depJars() {
+        return TestGraphs.depJars(graph, List.of(lib, util));
+    }
+
+    private static JarShrinker.EstimateResult.Item item(JarShrinker.EstimateResult result, String jar) {
+        return result.jars().stream()
+                .filter(item -> item.jar().getFileName().toString().equals(jar))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,116 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.tools.jdeps.Archive;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Shrinking several jars concurrently, the result must not depend on the order the workers finish in.
+ *
+ * @author Freeman
+ */
+class JarShrinkerParallelTest {
+
+    private static final int JARS = 8;
+
+    @TempDir
+    Path tempDir;
+
+    private List<Path> jars;
+    private DependencyGraph graph;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jars = new ArrayList<>();
+        var classDirs = new ArrayList<String>();
+        var main = new StringBuilder("package app; public class Main {");
+        for (int i = 0; i < JARS; i++) {
+            // The first jar in path order is the largest, so it is the last to finish
+            int classes = i == 0 ? 400 : 2;
+            var sources = new LinkedHashMap<String, String>();
+            for (int c = 0; c < classes; c++) {
+                sources.put("p" + i + ".C" + c, "package p" + i + "; public class C" + c + " {}");
+            }
+            var dir = TestJars.compile(tempDir.resolve("classes/p" + i), sources);
+            jars.add(TestJars.jar(tempDir.resolve("jars/p" + i + ".jar"), dir, Map.of()));
+            classDirs.add(dir.toString());
+            main.append(" Object o").append(i).append(" = new p").append(i).append(".C0();");
+        }
+        var app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of("app.Main", main.append(" }").toString()),
+                "-classpath",
+                String.join(File.pathSeparator, classDirs));
+        graph = TestGraphs.analyze(List.of(app), jars);
+    }
+
+    @Test
+    void itemsAreOrderedByPath() {
+        var reversed = new ArrayList<>(jars);
+        Collections.reverse(reversed);
+
+        var result = shrinker(tempDir.resolve("out")).shrink(depJars(reversed), graph);
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(result.jars())
+                .extracting(JarShrinker.ShrinkResult.Item::before)
+                .hasSize(JARS)
+                .isSortedAccordingTo(Comparator.naturalOrder());
+    }
+
+    @Test
+    void failedJarIsReportedAndOthersAreShrunk() throws IOException {
+        var output = Files.createDirectories(tempDir.resolve("out"));
+        var broken = jars.get(3);
+        var previous = Files.writeString(output.resolve(broken.getFileName()), "previous output");
+        // Analyzed intact, unreadable by the time it is shrunk
+        var depJars = depJars(jars);
+        Files.writeString(broken, "not a jar", StandardCharsets.UTF_8);
+
+        var result = shrinker(output).shrink(depJars, graph);
+
+        assertThat(result.failures())
+                .singleElement()
+                .satisfies(failure -> assertThat(failure.jar().getFileName()).isEqualTo(broken.getFileName()));
+        assertThat(result.jars()).hasSize(JARS - 1).allSatisfy(item -> {
+            assertThat(item.status()).isEqualTo(JarShrinker.ShrinkResult.Status.SHRUNK);
+            try (var zip = new ZipFile(item.after().toFile())) {
+                assertThat(zip.stream().filter(entry -> entry.getName().endsWith(".class")))
+                        .hasSize(1);
+            }
+        });
+        assertThat(previous).hasContent("previous output");
+        try (Stream<Path> files = Files.list(output)) {
+            assertThat(files.map(p -> p.getFileName().toString())).noneMatch(name -> name.endsWith(".tmp"));
+        }
+    }
+
+    private JarShrinker shrinker(Path output) {
+        return JarShrinker.builder()
+                .outputDir(output)
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .parallelism(4)
+                .build();
+    }
+
+    private List<Archive> depJars(List<Path> classpath) {
+        return TestGraphs.depJars(graph, classpath);
+    }
+}
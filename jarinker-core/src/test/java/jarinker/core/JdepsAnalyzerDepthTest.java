@@ -0,0 +1,109 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Restricting the analysis to the shrunk jars with {@code jarPatterns} and {@code depth}.
+ *
+ * <p> The fixture is a chain {@code app -> a.jar -> b.jar -> c.jar}, only {@code c.jar} is shrunk.
+ *
+ * @author Freeman
+ */
+class JdepsAnalyzerDepthTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path app;
+    private List<Path> classpath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var cClasses = TestJars.compile(
+                tempDir.resolve("c"),
+                Map.of(
+                        "c.Direct", "package c; public class Direct {}",
+                        "c.Chained", "package c; public class Chained { Transitive t = new Transitive(); }",
+                        "c.Transitive", "package c; public class Transitive {}",
+                        "c.Unused", "package c; public class Unused {}"));
+        var bClasses = TestJars.compile(
+                tempDir.resolve("b"),
+                Map.of("b.B", "package b; public class B { c.Chained c = new c.Chained(); }"),
+                "-classpath",
+                cClasses.toString());
+        var aClasses = TestJars.compile(
+                tempDir.resolve("a"),
+                Map.of("a.A", "package a; public class A { b.B b = new b.B(); }"),
+                "-classpath",
+                bClasses.toString());
+        app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main",
+                        "package app; public class Main { a.A a = new a.A(); c.Direct d = new c.Direct(); }"),
+                "-classpath",
+                aClasses + File.pathSeparator + cClasses);
+        classpath = List.of(
+                TestJars.jar(tempDir.resolve("jars/a.jar"), aClasses, Map.of()),
+                TestJars.jar(tempDir.resolve("jars/b.jar"), bClasses, Map.of()),
+                TestJars.jar(tempDir.resolve("jars/c.jar"), cClasses, Map.of()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(AnalyzerEngine.class)
+    void depthBoundsLibrariesOnPathToShrunkJar(AnalyzerEngine engine) {
+        for (var depth : new Integer[] {0, 1}) {
+            var reachable = analyze(engine, depth).getReachableClasses();
+            assertThat(reachable.contains("c.Direct")).as("depth %s", depth).isTrue();
+            assertThat(reachable.contains("c.Chained")).as("depth %s", depth).isFalse();
+            assertThat(reachable.contains("c.Transitive")).as("depth %s", depth).isFalse();
+        }
+        for (var depth : new Integer[] {2, null}) {
+            var reachable = analyze(engine, depth).getReachableClasses();
+            assertThat(reachable.contains("c.Direct")).as("depth %s", depth).isTrue();
+            assertThat(reachable.contains("c.Chained")).as("depth %s", depth).isTrue();
+            assertThat(reachable.contains("c.Transitive")).as("depth %s", depth).isTrue();
+            assertThat(reachable.contains("c.Unused")).as("depth %s", depth).isFalse();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(AnalyzerEngine.class)
+    void unlimitedDepthMatchesFullAnalysis(AnalyzerEngine engine) {
+        var restricted = analyze(engine, null).getReachableClasses();
+        var full = TestGraphs.analyze(List.of(app), classpath, builder -> builder.engine(engine))
+                .getReachableClasses();
+
+        assertThat(restricted.size()).isEqualTo(full.size());
+        for (var name : List.of("app.Main", "a.A", "b.B", "c.Direct", "c.Chained", "c.Transitive")) {
+            assertThat(restricted.contains(name)).as(name).isEqualTo(full.contains(name));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(AnalyzerEngine.class)
+    void rejectsNegativeDepth(AnalyzerEngine engine) {
+        assertThatThrownBy(() -> analyze(engine, -1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Depth must not be negative: -1");
+    }
+
+    private DependencyGraph analyze(AnalyzerEngine engine, @Nullable Integer depth) {
+        return TestGraphs.analyze(List.of(app), classpath, builder -> builder.engine(engine)
+                .jarPatterns(List.of(Pattern.compile("c\\.jar")))
+                .depth(depth));
+    }
+}
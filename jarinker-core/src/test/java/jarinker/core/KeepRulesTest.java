@@ -0,0 +1,199 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Matching of compiled keep rules, checked against the regular expressions the rules stand for, and annotation rules
+ * in the analysis.
+ *
+ * @author Freeman
+ */
+class KeepRulesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void trieMatchesLikeRegularExpressions() {
+        var random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            var lines = new ArrayList<String>();
+            var regexes = new ArrayList<Pattern>();
+            for (int i = 0; i < 1 + random.nextInt(30); i++) {
+                var name = randomName(random);
+                switch (random.nextInt(3)) {
+                    case 0 -> {
+                        lines.add(name);
+                        regexes.add(Pattern.compile(Pattern.quote(name)));
+                    }
+                    case 1 -> {
+                        lines.add(name + "*");
+                        regexes.add(Pattern.compile(Pattern.quote(name) + "[^.]*"));
+                    }
+                    default -> {
+                        lines.add(name + "**");
+                        regexes.add(Pattern.compile(Pattern.quote(name) + ".*"));
+                    }
+                }
+            }
+            var rules = KeepRules.parse(lines);
+
+            for (int i = 0; i < 500; i++) {
+                var name = randomName(random);
+                boolean expected =
+                        regexes.stream().anyMatch(p -> p.matcher(name).matches());
+                var entry = name.replace('.', '/') + ".class";
+                assertThat(rules.keepsClass(name)).as("%s %s", lines, name).isEqualTo(expected);
+                assertThat(rules.keepsEntry(entry)).as("%s %s", lines, entry).isEqualTo(expected);
+                assertThat(rules.keepsEntry("META-INF/versions/11/" + entry))
+                        .as("%s %s", lines, entry)
+                        .isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void matchesPackagesAndPrefixes() {
+        var rules = KeepRules.parse(List.of(
+                "com.example.Plugin # the class",
+                "",
+                "# a comment",
+                "com.example.model.*",
+                "com.example.api.**",
+                "com.example.web.Api*",
+                "@com.example.Component"));
+
+        assertThat(rules.size()).isEqualTo(5);
+        assertThat(rules.keepsClass("com.example.Plugin")).isTrue();
+        assertThat(rules.keepsClass("com.example.Plugin$Inner")).isFalse();
+        assertThat(rules.keepsClass("com.example.model.User")).isTrue();
+        assertThat(rules.keepsClass("com.example.model.sub.User")).isFalse();
+        assertThat(rules.keepsClass("com.example.api.v1.Endpoint")).isTrue();
+        assertThat(rules.keepsClass("com.example.web.ApiController")).isTrue();
+        assertThat(rules.keepsClass("com.example.web.Controller")).isFalse();
+        assertThat(rules.keepsClass("com.example.Component")).isFalse();
+        assertThat(rules.keepsEntry("com/example/model/User.class")).isTrue();
+        assertThat(rules.keepsEntry("com/example/model/User.txt")).isFalse();
+        assertThat(rules.hasAnnotations()).isTrue();
+        assertThat(rules.keepsAnnotated("com.example.Component")).isTrue();
+    }
+
+    @Test
+    void rejectsMalformedRules() throws IOException {
+        assertThatThrownBy(() -> KeepRules.parse(List.of("com.example.*.Foo")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Wildcards are only allowed at the end of a rule, line 1: com.example.*.Foo");
+        assertThatThrownBy(() -> KeepRules.parse(List.of("ok.Class", "com.example Foo")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid keep rule on line 2: com.example Foo");
+        assertThatThrownBy(() -> KeepRules.parse(List.of("@com.example.*")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid annotation rule on line 1: @com.example.*");
+
+        var file = Files.writeString(tempDir.resolve("keep.rules"), "@\n");
+        assertThatThrownBy(() -> KeepRules.read(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(file + ": Invalid annotation rule on line 1: @");
+    }
+
+    @ParameterizedTest
+    @EnumSource(AnalyzerEngine.class)
+    void annotationRulesKeepOnlyAnnotatedClasses(AnalyzerEngine engine) throws IOException {
+        var fixture = annotatedFixture();
+        var rules = KeepRules.parse(List.of("@lib.Component", "@lib.Marker"));
+
+        var reachable = TestGraphs.analyze(
+                        List.of(fixture.app()), List.of(fixture.lib()), builder -> builder.engine(engine)
+                                .keepRules(rules))
+                .getReachableClasses();
+
+        assertThat(reachable.contains("lib.Annotated")).isTrue();
+        assertThat(reachable.contains("lib.AnnotatedDep")).isTrue();
+        // CLASS retention, the annotation is no dependency
+        assertThat(reachable.contains("lib.Marked")).isTrue();
+        assertThat(reachable.contains("lib.UsesType")).isFalse();
+        assertThat(reachable.contains("lib.MemberAnnotated")).isFalse();
+    }
+
+    @Test
+    void annotationRulesKeepAllMembers() throws IOException {
+        var fixture = annotatedFixture();
+        var rules = KeepRules.parse(List.of("@lib.Marker"));
+        var graph =
+                TestGraphs.analyze(List.of(fixture.app()), List.of(fixture.lib()), builder -> builder.keepRules(rules));
+        var output = tempDir.resolve("out");
+
+        var result = JarShrinker.builder()
+                .outputDir(output)
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .removeUnusedMembers(true)
+                .keepRules(rules)
+                .build()
+                .shrink(TestGraphs.depJars(graph, List.of(fixture.lib())), graph);
+
+        assertThat(result.failures()).isEmpty();
+        try (var zip = new ZipFile(output.resolve("lib.jar").toFile())) {
+            var entry = zip.getEntry("lib/Marked.class");
+            assertThat(entry).isNotNull();
+            MemberReferences.ClassInfo info;
+            try (var in = zip.getInputStream(entry)) {
+                info = MemberReferences.parse(in.readAllBytes());
+            }
+            assertThat(info).isNotNull();
+            assertThat(info.members())
+                    .extracting(MemberReferences.MemberInfo::name)
+                    .contains("unused");
+            assertThat(zip.getEntry("lib/UsesType.class")).isNull();
+        }
+    }
+
+    private Fixture annotatedFixture() throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.Component",
+                        "package lib; @java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)"
+                                + " public @interface Component {}",
+                        "lib.Marker",
+                        "package lib; public @interface Marker {}",
+                        "lib.Annotated",
+                        "package lib; @Component public class Annotated { AnnotatedDep dep = new AnnotatedDep(); }",
+                        "lib.AnnotatedDep",
+                        "package lib; public class AnnotatedDep {}",
+                        "lib.Marked",
+                        "package lib; @Marker public class Marked { public void unused() {} }",
+                        "lib.UsesType",
+                        "package lib; public class UsesType { Component component; }",
+                        "lib.MemberAnnotated",
+                        "package lib; public class MemberAnnotated { @Component public void run() {} }"));
+        var lib = TestJars.jar(tempDir.resolve("jars/lib.jar"), libClasses, Map.of());
+        var app = TestJars.compile(tempDir.resolve("app"), Map.of("app.Main", "package app; public class Main {}"));
+        return new Fixture(app, lib);
+    }
+
+    private static String randomName(Random random) {
+        var name = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            name.append("ab.$".charAt(random.nextInt(4)));
+        }
+        return name.toString();
+    }
+
+    private record Fixture(Path app, Path lib) {}
+}
@@ -0,0 +1,167 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.ZipFile;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Shrinking with {@code removeUnusedMembers}, the output is loaded in a fresh class loader so that every retained
+ * class is verified.
+ *
+ * @author Freeman
+ */
+class MemberShrinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path app;
+    private Path lib;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.Api",
+                        "package lib; public class Api { public int usedField; public long unusedField;"
+                                + " public static String used() { return Helper.help(); }"
+                                + " public static String unused() { return new Dead().toString(); } }",
+                        "lib.Helper",
+                        "package lib; class Helper { static String help() { return \"help\"; }"
+                                + " static String other() { return \"other\"; } }",
+                        "lib.Dead",
+                        "package lib; public class Dead {}",
+                        "lib.Color",
+                        "package lib; public enum Color { RED, GREEN; public int unused() { return 1; } }",
+                        "lib.Reflected",
+                        "package lib; public class Reflected { public String hidden() { return \"hidden\"; } }",
+                        "lib.Plugin",
+                        "package lib; public class Plugin { public String start() { return new PluginDep().name(); }"
+                                + " public String stop() { return \"stop\"; } }",
+                        "lib.PluginDep",
+                        "package lib; class PluginDep { String name() { return \"dep\"; } }"));
+        lib = TestJars.jar(tempDir.resolve("jars/lib.jar"), libClasses, Map.of());
+        app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main",
+                        "package app; public class Main { public static String run() {"
+                                + " lib.Api api = new lib.Api();"
+                                + " return lib.Api.used() + api.usedField + lib.Color.RED"
+                                + " + lib.Reflected.class.getSimpleName(); } }"),
+                "-classpath",
+                libClasses.toString());
+    }
+
+    @Test
+    void removesUnusedMembersAndClasses() throws Exception {
+        var output = shrink(null, null);
+
+        try (var zip = new ZipFile(output.resolve("lib.jar").toFile())) {
+            assertThat(zip.getEntry("lib/Dead.class")).isNull();
+            assertThat(zip.getEntry("lib/Plugin.class")).isNull();
+        }
+        try (var loader = load(output)) {
+            var main = Class.forName("app.Main", true, loader);
+            assertThat(main.getMethod("run").invoke(null)).isEqualTo("help0REDReflected");
+
+            var api = Class.forName("lib.Api", true, loader);
+            assertThat(methodNames(api)).contains("used").doesNotContain("unused");
+            assertThat(fieldNames(api)).contains("usedField").doesNotContain("unusedField");
+            var helper = Class.forName("lib.Helper", true, loader);
+            assertThat(methodNames(helper)).contains("help").doesNotContain("other");
+            var reflected = Class.forName("lib.Reflected", true, loader);
+            assertThat(methodNames(reflected)).doesNotContain("hidden");
+        }
+    }
+
+    @Test
+    void keepsEnumValuesAndValueOf() throws Exception {
+        var output = shrink(null, null);
+
+        try (var loader = load(output)) {
+            var color = Class.forName("lib.Color", true, loader);
+            assertThat(fieldNames(color)).contains("RED", "GREEN");
+            assertThat(methodNames(color)).doesNotContain("unused");
+
+            var values = (Object[]) color.getMethod("values").invoke(null);
+            assertThat(values).extracting(Object::toString).containsExactly("RED", "GREEN");
+            var green = color.getMethod("valueOf", String.class).invoke(null, "GREEN");
+            assertThat(green).hasToString("GREEN");
+        }
+    }
+
+    @Test
+    void keepMembersKeepsAllMembersOfMatchingClasses() throws Exception {
+        var output = shrink(List.of(Pattern.compile("lib\\.Reflected")), null);
+
+        try (var loader = load(output)) {
+            var reflected = Class.forName("lib.Reflected", true, loader);
+            var instance = reflected.getConstructor().newInstance();
+            assertThat(reflected.getMethod("hidden").invoke(instance)).isEqualTo("hidden");
+            // Classes not matching the patterns are still shrunk
+            assertThat(methodNames(Class.forName("lib.Api", true, loader))).doesNotContain("unused");
+        }
+    }
+
+    @Test
+    void keepRulesKeepReflectionLoadedClassesWithAllMembers() throws Exception {
+        var output = shrink(null, KeepRules.parse(List.of("lib.Plugin")));
+
+        try (var loader = load(output)) {
+            var plugin = Class.forName("lib.Plugin", true, loader);
+            assertThat(methodNames(plugin)).contains("start", "stop");
+            var instance = plugin.getConstructor().newInstance();
+            assertThat(plugin.getMethod("start").invoke(instance)).isEqualTo("dep");
+            assertThat(plugin.getMethod("stop").invoke(instance)).isEqualTo("stop");
+        }
+    }
+
+    private Path shrink(@Nullable List<Pattern> keepMembers, @Nullable KeepRules keepRules) {
+        var graph = TestGraphs.analyze(List.of(app), List.of(lib), builder -> builder.keepRules(keepRules));
+        var output = tempDir.resolve("out");
+        var result = JarShrinker.builder()
+                .outputDir(output)
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .removeUnusedMembers(true)
+                .keepMembers(keepMembers)
+                .keepRules(keepRules)
+                .build()
+                .shrink(TestGraphs.depJars(graph, List.of(lib)), graph);
+        assertThat(result.failures()).isEmpty();
+        assertThat(result.jars()).singleElement().satisfies(item -> assertThat(item.removedMembers())
+                .isPositive());
+        return output;
+    }
+
+    private URLClassLoader load(Path output) throws IOException {
+        return new URLClassLoader(
+                new URL[] {
+                    output.resolve("lib.jar").toUri().toURL(), app.toUri().toURL()
+                },
+                ClassLoader.getPlatformClassLoader());
+    }
+
+    private static List<String> methodNames(Class<?> type) {
+        return Arrays.stream(type.getDeclaredMethods()).map(Method::getName).toList();
+    }
+
+    private static List<String> fieldNames(Class<?> type) {
+        return Arrays.stream(type.getDeclaredFields()).map(Field::getName).toList();
+    }
+}
@@ -0,0 +1,141 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Shrinking through an {@link OutputStore}.
+ *
+ * @author Freeman
+ */
+class OutputStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path app;
+    private Path lib;
+    private Path util;
+    private DependencyGraph graph;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.Api", "package lib; public class Api { Impl impl = new Impl(); }",
+                        "lib.Impl", "package lib; class Impl {}",
+                        "lib.Unused", "package lib; public class Unused {}"));
+        lib = TestJars.jar(tempDir.resolve("jars/lib.jar"), libClasses, Map.of());
+        var utilClasses =
+                TestJars.compile(tempDir.resolve("util"), Map.of("util.Util", "package util; public class Util {}"));
+        util = TestJars.jar(tempDir.resolve("jars/util.jar"), utilClasses, Map.of());
+        app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of(
+                        "app.Main",
+                        "package app; public class Main { Object a = new lib.Api(); Object u = new util.Util(); }"),
+                "-classpath",
+                libClasses + File.pathSeparator + utilClasses);
+        graph = TestGraphs.analyze(List.of(app), List.of(lib, util));
+    }
+
+    @Test
+    void reusesJarShrunkToSameEntries() throws IOException {
+        var store = new OutputStore(tempDir.resolve("store"), Long.MAX_VALUE, "test");
+
+        var first = shrink(tempDir.resolve("out1"), store, null);
+        var second = shrink(tempDir.resolve("out2"), store, null);
+
+        assertThat(status(first, "lib.jar")).isEqualTo(JarShrinker.ShrinkResult.Status.SHRUNK);
+        assertThat(status(second, "lib.jar")).isEqualTo(JarShrinker.ShrinkResult.Status.REUSED);
+        assertThat(Files.readAllBytes(tempDir.resolve("out2/lib.jar")))
+                .isEqualTo(Files.readAllBytes(tempDir.resolve("out1/lib.jar")));
+        try (var zip = new ZipFile(tempDir.resolve("out2/lib.jar").toFile())) {
+            assertThat(zip.getEntry("lib/Api.class")).isNotNull();
+            assertThat(zip.getEntry("lib/Impl.class")).isNotNull();
+            assertThat(zip.getEntry("lib/Unused.class")).isNull();
+        }
+        assertThat(storedJars()).hasSize(1);
+    }
+
+    @Test
+    void differentCompressionLevelIsNotReused() throws IOException {
+        var store = new OutputStore(tempDir.resolve("store"), Long.MAX_VALUE, "test");
+
+        shrink(tempDir.resolve("out1"), store, null);
+        var recompressed = shrink(tempDir.resolve("out2"), store, 9);
+
+        assertThat(status(recompressed, "lib.jar")).isEqualTo(JarShrinker.ShrinkResult.Status.SHRUNK);
+        // Recompressing rewrites util.jar too, it is no longer unchanged
+        assertThat(status(recompressed, "util.jar")).isEqualTo(JarShrinker.ShrinkResult.Status.SHRUNK);
+        assertThat(storedJars()).hasSize(3);
+    }
+
+    @Test
+    void unchangedJarIsCopiedAsIsAndNotStored() throws IOException {
+        var store = new OutputStore(tempDir.resolve("store"), Long.MAX_VALUE, "test");
+
+        var result = shrink(tempDir.resolve("out"), store, null);
+
+        assertThat(status(result, "util.jar")).isEqualTo(JarShrinker.ShrinkResult.Status.UNCHANGED);
+        assertThat(Files.readAllBytes(tempDir.resolve("out/util.jar"))).isEqualTo(Files.readAllBytes(util));
+        assertThat(storedJars()).hasSize(1);
+    }
+
+    @Test
+    void unchangedJarIsLeftAloneInPlace() throws IOException {
+        var modified = FileTime.from(Instant.parse("2020-01-01T00:00:00Z"));
+        Files.setLastModifiedTime(util, modified);
+        var content = Files.readAllBytes(util);
+
+        var result = shrink(null, null, null);
+
+        assertThat(status(result, "util.jar")).isEqualTo(JarShrinker.ShrinkResult.Status.UNCHANGED);
+        assertThat(Files.getLastModifiedTime(util)).isEqualTo(modified);
+        assertThat(Files.readAllBytes(util)).isEqualTo(content);
+        assertThat(status(result, "lib.jar")).isEqualTo(JarShrinker.ShrinkResult.Status.SHRUNK);
+    }
+
+    private JarShrinker.ShrinkResult shrink(
+            @Nullable Path outputDir, @Nullable OutputStore store, @Nullable Integer compressionLevel) {
+        var result = JarShrinker.builder()
+                .outputDir(outputDir)
+                .jarPatterns(List.of(Pattern.compile(".*")))
+                .outputStore(store)
+                .compressionLevel(compressionLevel)
+                .build()
+                .shrink(TestGraphs.depJars(graph, List.of(lib, util)), graph);
+        assertThat(result.failures()).isEmpty();
+        return result;
+    }
+
+    private static JarShrinker.ShrinkResult.Status status(JarShrinker.ShrinkResult result, String jar) {
+        return result.jars().stream()
+                .filter(item -> item.before().getFileName().toString().equals(jar))
+                .findFirst()
+                .orElseThrow()
+                .status();
+    }
+
+    private List<Path> storedJars() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir.resolve("store"))) {
+            return files.filter(p -> p.toString().endsWith(".jar")).toList();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Phase totals, per-jar reports and JFR events of an enabled {@link Profiler}.
+ *
+ * @author Freeman
+ */
+class ProfilerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void phaseTotalsIncludeJarsFinishedByWorkers() throws Exception {
+        var profiler = new Profiler();
+        var executor = Executors.newFixedThreadPool(4);
+        try (var phase = profiler.start("shrink")) {
+            phase.addBytesRead(10);
+            phase.addBytesWritten(5);
+            phase.addEntries(1);
+            var tasks = new ArrayList<Future<?>>();
+            for (int i = 0; i < 4; i++) {
+                var jar = Path.of("lib" + i + ".jar");
+                tasks.add(executor.submit(() -> phase.startJar(jar).finish(100, 50, 3)));
+            }
+            for (var task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        var report = profiler.phases().get(0);
+        assertThat(report.name()).isEqualTo("shrink");
+        assertThat(report.bytesRead()).isEqualTo(410);
+        assertThat(report.bytesWritten()).isEqualTo(205);
+        assertThat(report.entries()).isEqualTo(13);
+        assertThat(report.wallNanos()).isPositive();
+        assertThat(report.jars())
+                .extracting(Profiler.JarReport::jar)
+                .containsExactlyInAnyOrder(
+                        Path.of("lib0.jar"), Path.of("lib1.jar"), Path.of("lib2.jar"), Path.of("lib3.jar"));
+        assertThat(report.jars()).allSatisfy(jar -> {
+            assertThat(jar.bytesRead()).isEqualTo(100);
+            assertThat(jar.entries()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    void phasesAreReportedInCompletionOrder() {
+        var profiler = new Profiler();
+        try (var outer = profiler.start("outer")) {
+            try (var inner = profiler.start("inner")) {
+                inner.addEntries(1);
+            }
+            outer.addEntries(2);
+        }
+
+        assertThat(profiler.phases()).extracting(Profiler.PhaseReport::name).containsExactly("inner", "outer");
+    }
+
+    @Test
+    void disabledProfilerRecordsNothing() {
+        var profiler = Profiler.disabled();
+        try (var phase = profiler.start("analysis")) {
+            assertThat(phase.isEnabled()).isFalse();
+            phase.addEntries(1);
+            phase.startJar(Path.of("lib.jar")).finish(1, 1, 1);
+        }
+
+        assertThat(profiler.isEnabled()).isFalse();
+        assertThat(profiler.phases()).isEmpty();
+    }
+
+    @Test
+    void emitsJfrEvents() throws IOException {
+        var file = tempDir.resolve("profile.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("jarinker.Phase");
+            recording.enable("jarinker.Jar");
+            recording.start();
+            try (var phase = new Profiler().start("shrink")) {
+                phase.addEntries(2);
+                phase.startJar(Path.of("lib.jar")).finish(100, 40, 3);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file);
+        var phase = events.stream()
+                .filter(e -> e.getEventType().getName().equals("jarinker.Phase"))
+                .toList();
+        assertThat(phase).singleElement().satisfies(e -> {
+            assertThat(e.getString("phase")).isEqualTo("shrink");
+            assertThat(e.getLong("bytesRead")).isEqualTo(100);
+            assertThat(e.getLong("bytesWritten")).isEqualTo(40);
+            assertThat(e.getLong("entries")).isEqualTo(5);
+        });
+        var jar = events.stream()
+                .filter(e -> e.getEventType().getName().equals("jarinker.Jar"))
+                .toList();
+        assertThat(jar).singleElement().satisfies(e -> {
+            assertThat(e.getString("phase")).isEqualTo("shrink");
+            assertThat(e.getString("jar")).isEqualTo("lib.jar");
+            assertThat(e.getLong("entries")).isEqualTo(3);
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(AnalyzerEngine.class)
+    void analysisPhaseRecordsTheAnalyzedJars(AnalyzerEngine engine) throws IOException {
+        var libClasses = TestJars.compile(
+                tempDir.resolve("lib"),
+                Map.of(
+                        "lib.Api", "package lib; public class Api { Impl impl = new Impl(); }",
+                        "lib.Impl", "package lib; class Impl {}"));
+        var lib = TestJars.jar(tempDir.resolve("jars/lib.jar"), libClasses, Map.of());
+        var app = TestJars.compile(
+                tempDir.resolve("app"),
+                Map.of("app.Main", "package app; public class Main { lib.Api api = new lib.Api(); }"),
+                "-classpath",
+                libClasses.toString());
+        var profiler = new Profiler();
+
+        TestGraphs.analyze(
+                List.of(app), List.of(lib), builder -> builder.engine(engine).profiler(profiler));
+
+        var analysis = profiler.phases().stream()
+                .filter(phase -> phase.name().equals("analysis"))
+                .findFirst()
+                .orElseThrow();
+        // app.Main, lib.Api and lib.Impl
+        assertThat(analysis.entries()).isGreaterThanOrEqualTo(3);
+        assertThat(analysis.bytesRead()).isEqualTo(Files.size(lib));
+        if (engine == AnalyzerEngine.CLASSFILE) {
+            assertThat(analysis.jars()).anySatisfy(jar -> {
+                assertThat(jar.jar()).isEqualTo(lib);
+                assertThat(jar.bytesRead()).isEqualTo(Files.size(lib));
+                assertThat(jar.entries()).isEqualTo(2);
+            });
+        } else {
+            // jdeps analyzes the whole classpath in one go
+            assertThat(analysis.jars()).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import jdk.security.jarsigner.JarSigner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Jars written by {@link RawJarWriter} must read back with {@link ZipFile} and {@link JarFile}.
+ *
+ * @author Freeman
+ */
+class RawJarWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writesStoredAndDeflatedEntries() throws IOException {
+        var jar = tempDir.resolve("out.jar");
+        var text = "hello ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        try (var writer = new RawJarWriter(jar)) {
+            writer.write(
+                    RawJarEntry.generated(JarFile.MANIFEST_NAME), TestJars.manifest(Map.of("Main-Class", "a.Main")), 6);
+            writer.write(RawJarEntry.generated("a/"), new byte[0], 6);
+            writer.write(RawJarEntry.generated("a/stored.txt"), text, 0);
+            writer.write(RawJarEntry.generated("a/deflated.txt"), text, 6);
+        }
+
+        try (var file = new JarFile(jar.toFile())) {
+            assertThat(Objects.requireNonNull(file.getManifest())
+                            .getMainAttributes()
+                            .getValue("Main-Class"))
+                    .isEqualTo("a.Main");
+            var directory = file.getJarEntry("a/");
+            assertThat(directory.isDirectory()).isTrue();
+            assertThat(directory.getMethod()).isEqualTo(ZipEntry.STORED);
+
+            var stored = file.getJarEntry("a/stored.txt");
+            assertThat(stored.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(stored.getCompressedSize()).isEqualTo(text.length);
+            assertThat(file.getInputStream(stored).readAllBytes()).isEqualTo(text);
+
+            var deflated = file.getJarEntry("a/deflated.txt");
+            assertThat(deflated.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(deflated.getCompressedSize()).isLessThan(text.length);
+            assertThat(file.getInputStream(deflated).readAllBytes()).isEqualTo(text);
+        }
+        try (var index = JarIndex.open(jar)) {
+            assertThat(index.entries())
+                    .extracting(RawJarEntry::name)
+                    .containsExactly(JarFile.MANIFEST_NAME, "a/", "a/stored.txt", "a/deflated.txt");
+            assertThat(index.read(Objects.requireNonNull(index.find("a/deflated.txt"))))
+                    .isEqualTo(text);
+        }
+    }
+
+    @Test
+    void copiesDataDescriptorEntriesWithSizesUpFront() throws IOException {
+        // ZipOutputStream writes deflated entries with a data descriptor after the data
+        var source = tempDir.resolve("source.jar");
+        var content = "data descriptor ".repeat(100).getBytes(StandardCharsets.UTF_8);
+        try (var out = new ZipOutputStream(Files.newOutputStream(source))) {
+            out.putNextEntry(new ZipEntry("a.txt"));
+            out.write(content);
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("b.txt"));
+            out.write("b".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        var copy = tempDir.resolve("copy.jar");
+        try (var index = JarIndex.open(source);
+                var writer = new RawJarWriter(copy)) {
+            for (var entry : index.entries()) {
+                assertThat(entry.flags() & RawJarEntry.FLAG_DATA_DESCRIPTOR).isNotZero();
+                writer.copyRaw(index, entry);
+            }
+        }
+
+        try (var file = new ZipFile(copy.toFile())) {
+            assertThat(file.getInputStream(file.getEntry("a.txt")).readAllBytes())
+                    .isEqualTo(content);
+            assertThat(file.getInputStream(file.getEntry("b.txt")).readAllBytes())
+                    .isEqualTo("b".getBytes(StandardCharsets.UTF_8));
+        }
+        try (var index = JarIndex.open(copy)) {
+            assertThat(index.entries()).allSatisfy(entry -> assertThat(entry.flags() & RawJarEntry.FLAG_DATA_DESCRIPTOR)
+                    .isZero());
+        }
+        // The copy is smaller, a local header with sizes needs no data descriptor
+        assertThat(Files.size(copy)).isLessThan(Files.size(source));
+    }
+
+    @Test
+    void writesZip64ArchiveWhenEntryCountOverflows() throws IOException {
+        int count = 0xFFFF + 10;
+        var jar = tempDir.resolve("zip64.jar");
+        try (var writer = new RawJarWriter(jar)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(RawJarEntry.generated("e/" + i), String.valueOf(i).getBytes(StandardCharsets.UTF_8), 0);
+            }
+        }
+
+        try (var file = new ZipFile(jar.toFile())) {
+            assertThat(file.size()).isEqualTo(count);
+            var last = file.getEntry("e/" + (count - 1));
+            assertThat(new String(file.getInputStream(last).readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo(String.valueOf(count - 1));
+        }
+        try (var index = JarIndex.open(jar)) {
+            assertThat(index.entries()).hasSize(count);
+            assertThat(RawJarWriter.sizeOf(index.entries(), new BitSet())).isEqualTo(Files.size(jar));
+        }
+    }
+
+    @Test
+    void rawCopyKeepsJarSigned() throws Exception {
+        var classes = TestJars.compile(tempDir.resolve("classes"), Map.of("a.Main", "package a; public class Main {}"));
+        var unsigned = TestJars.jar(tempDir.resolve("unsigned.jar"), classes, Map.of("Main-Class", "a.Main"));
+        var signed = sign(unsigned);
+
+        var copy = tempDir.resolve("copy.jar");
+        try (var index = JarIndex.open(signed);
+                var writer = new RawJarWriter(copy)) {
+            var manifest = Objects.requireNonNull(index.manifest());
+            assertThat(manifest.getAttributes("a/Main.class")).isNotNull();
+            for (var entry : index.entries()) {
+                writer.copyRaw(index, entry);
+            }
+        }
+
+        try (var file = new JarFile(copy.toFile(), true)) {
+            var names = new ArrayList<String>();
+            for (var entry : file.stream().toList()) {
+                file.getInputStream(entry).readAllBytes();
+                names.add(entry.getName());
+            }
+            assertThat(names).contains("META-INF/TEST.SF", "META-INF/TEST.EC");
+            JarEntry main = file.getJarEntry("a/Main.class");
+            assertThat(main.getCodeSigners()).isNotEmpty();
+        }
+    }
+
+    private Path sign(Path jar) throws Exception {
+        var keystore = tempDir.resolve("keystore.p12");
+        var keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+        var process = new ProcessBuilder(List.of(
+                        keytool,
+                        "-genkeypair",
+                        "-keystore",
+                        keystore.toString(),
+                        "-storepass",
+                        "changeit",
+                        "-alias",
+                        "test",
+                        "-keyalg",
+                        "EC",
+                        "-dname",
+                        "CN=test",
+                        "-validity",
+                        "1"))
+                .redirectErrorStream(true)
+                .start();
+        var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(process.waitFor()).as(output).isZero();
+
+        var store = KeyStore.getInstance(keystore.toFile(), "changeit".toCharArray());
+        var key = (PrivateKey) store.getKey("test", "changeit".toCharArray());
+        var certPath =
+                CertificateFactory.getInstance("X.509").generateCertPath(List.of(store.getCertificateChain("test")));
+
+        var signed = tempDir.resolve("signed.jar");
+        try (var in = new ZipFile(jar.toFile());
+                var out = Files.newOutputStream(signed)) {
+            new JarSigner.Builder(key, certPath).signerName("test").build().sign(in, out);
+        }
+        return signed;
+    }
+}
@@ -0,0 +1,72 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.BitSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Freeman
+ */
+class ReachableClassesTest {
+
+    @Test
+    void nameIsReachableWhenAnyArchiveReachesIt() {
+        var builder = new IndexedGraph.Builder();
+        int main = builder.node("app", "app.Main");
+        int first = builder.node("first.jar", "lib.Api");
+        builder.node("second.jar", "lib.Api");
+        int unused = builder.node("second.jar", "lib.Unused");
+        builder.edge(main, first);
+        builder.edge(unused, main);
+        var graph = builder.build();
+        var roots = new BitSet();
+        roots.set(main);
+
+        var reachable = new ReachableClasses(graph, graph.reachableFrom(roots));
+
+        assertThat(reachable.size()).isEqualTo(2);
+        assertThat(reachable.contains("app.Main")).isTrue();
+        // By name, whichever archive the node belongs to
+        assertThat(reachable.contains("lib.Api")).isTrue();
+        assertThat(reachable.containsEntry("lib/Api.class")).isTrue();
+        assertThat(reachable.contains("lib.Unused")).isFalse();
+        assertThat(reachable.contains("lib.Missing")).isFalse();
+    }
+
+    @Test
+    void versionedClassIsReachableUnderItsClassName() {
+        var builder = new IndexedGraph.Builder();
+        int main = builder.node("app", "app.Main");
+        int api = builder.node("lib.jar", "11/lib.Api");
+        int impl = builder.node("lib.jar", "lib.Impl");
+        builder.edge(main, api);
+        builder.edge(api, impl);
+        var graph = builder.build();
+        var roots = new BitSet();
+        roots.set(main);
+
+        var reachable = new ReachableClasses(graph, graph.reachableFrom(roots));
+
+        assertThat(reachable.contains("lib.Api")).isTrue();
+        assertThat(reachable.containsEntry("META-INF/versions/11/lib/Api.class"))
+                .isTrue();
+        assertThat(reachable.containsEntry("META-INF/versions/17/lib/Api.class"))
+                .isTrue();
+        assertThat(reachable.containsEntry("lib/Impl.class")).isTrue();
+        assertThat(reachable.nodes().cardinality()).isEqualTo(3);
+    }
+
+    @Test
+    void nothingIsReachableWithoutRoots() {
+        var builder = new IndexedGraph.Builder();
+        int a = builder.node("lib.jar", "lib.A");
+        builder.edge(a, builder.node("lib.jar", "lib.B"));
+        var graph = builder.build();
+
+        var reachable = new ReachableClasses(graph, graph.reachableFrom(new BitSet()));
+
+        assertThat(reachable.size()).isZero();
+        assertThat(reachable.contains("lib.A")).isFalse();
+    }
+}
@@ -0,0 +1,55 @@
+package jarinker.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Freeman
+ */
+class SymbolTableTest {
+
+    @Test
+    void internsInInsertionOrder() {
+        var table = new SymbolTable();
+
+        assertThat(table.intern("b")).isZero();
+        assertThat(table.intern("a")).isEqualTo(1);
+        assertThat(table.intern(new String("b"))).isZero();
+        assertThat(table.find("a")).isEqualTo(1);
+        assertThat(table.find("c")).isEqualTo(-1);
+        assertThat(table.get(1)).isEqualTo("a");
+        assertThat(table.size()).isEqualTo(2);
+    }
+
+    @Test
+    void collidingHashesGetTheirOwnIds() {
+        var table = new SymbolTable(1);
+        // "Aa" and "BB" have the same hash code
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+
+        int aa = table.intern("Aa");
+        int bb = table.intern("BB");
+
+        assertThat(aa).isNotEqualTo(bb);
+        assertThat(table.find("Aa")).isEqualTo(aa);
+        assertThat(table.find("BB")).isEqualTo(bb);
+        assertThat(table.find("AaBB")).isEqualTo(-1);
+    }
+
+    @Test
+    void growsBeyondItsExpectedSize() {
+        var table = new SymbolTable(4);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(table.intern("lib.C" + i)).isEqualTo(i);
+        }
+
+        assertThat(table.size()).isEqualTo(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(table.find("lib.C" + i)).isEqualTo(i);
+            assertThat(table.get(i)).isEqualTo("lib.C" + i);
+        }
+        assertThat(table.find("lib.C10000")).isEqualTo(-1);
+    }
+}
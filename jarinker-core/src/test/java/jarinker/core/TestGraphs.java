@@ -0,0 +1,62 @@
+package jarinker.core;
+
+import com.sun.tools.jdeps.Archive;
+import com.sun.tools.jdeps.JdepsFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Analyzes fixtures the way the shrink command does.
+ *
+ * @author Freeman
+ */
+final class TestGraphs {
+
+    private TestGraphs() {}
+
+    /**
+     * Analyze classes with the classfile engine.
+     *
+     * @param sources   source artifacts
+     * @param classpath classpath jars
+     * @param options   customizes the analyzer, e.g. with keep rules
+     * @return class dependency graph
+     */
+    static DependencyGraph analyze(
+            List<Path> sources, List<Path> classpath, UnaryOperator<JdepsAnalyzer.JdepsAnalyzerBuilder> options) {
+        try (var configuration = JdepsAnalyzer.buildJdepsConfiguration(sources, classpath, Runtime.version())) {
+            var builder = JdepsAnalyzer.builder()
+                    .jdepsFilter(new JdepsFilter.Builder().filter(false, false).build())
+                    .jdepsConfiguration(configuration)
+                    .type(AnalyzerType.CLASS)
+                    .engine(AnalyzerEngine.CLASSFILE);
+            return options.apply(builder).build().analyze();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static DependencyGraph analyze(List<Path> sources, List<Path> classpath) {
+        return analyze(sources, classpath, UnaryOperator.identity());
+    }
+
+    /**
+     * @return archives of the graph that are not sources, in the order of {@code classpath}
+     */
+    static List<Archive> depJars(DependencyGraph graph, List<Path> classpath) {
+        var archives = new HashSet<>(graph.getArchives());
+        graph.getRootArchives().forEach(archives::remove);
+        var positions =
+                classpath.stream().map(p -> p.toAbsolutePath().normalize()).toList();
+        return archives.stream()
+                .sorted(Comparator.comparingInt(archive -> archive.path()
+                        .map(p -> positions.indexOf(p.toAbsolutePath().normalize()))
+                        .orElse(Integer.MAX_VALUE)))
+                .toList();
+    }
+}
@@ -0,0 +1,139 @@
+package jarinker.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles fixture sources and packs them into jars for tests.
+ *
+ * @author Freeman
+ */
+final class TestJars {
+
+    private TestJars() {}
+
+    /**
+     * Compile sources into a directory.
+     *
+     * @param output  output directory
+     * @param sources binary class name of the top-level class to its source
+     * @param options extra javac options
+     * @return output directory
+     */
+    static Path compile(Path output, Map<String, String> sources, String... options) throws IOException {
+        Files.createDirectories(output);
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var units = new ArrayList<JavaFileObject>();
+        sources.forEach((name, source) -> units.add(new Source(name, source)));
+        var args = new ArrayList<>(List.of("-d", output.toString(), "-classpath", output.toString()));
+        args.addAll(List.of(options));
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        boolean ok =
+                compiler.getTask(null, null, diagnostics, args, null, units).call();
+        if (!ok) {
+            throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        return output;
+    }
+
+    /**
+     * Pack a directory into a jar, entries are added in name order.
+     *
+     * @param jar      jar to write
+     * @param dir      directory to pack
+     * @param manifest manifest attributes, written first when not empty
+     * @return jar
+     */
+    static Path jar(Path jar, Path dir, Map<String, String> manifest) throws IOException {
+        var entries = new LinkedHashMap<String, byte[]>();
+        try (Stream<Path> stream = Files.walk(dir)) {
+            for (var file : stream.filter(Files::isRegularFile).sorted().toList()) {
+                entries.put(dir.relativize(file).toString().replace('\\', '/'), Files.readAllBytes(file));
+            }
+        }
+        return jar(jar, entries, manifest);
+    }
+
+    /**
+     * Write a jar with the given entries.
+     *
+     * @param jar      jar to write
+     * @param entries  entry name to content, in order
+     * @param manifest manifest attributes, written first when not empty
+     * @return jar
+     */
+    static Path jar(Path jar, Map<String, byte[]> entries, Map<String, String> manifest) throws IOException {
+        Files.createDirectories(jar.toAbsolutePath().getParent());
+        try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+            if (!manifest.isEmpty()) {
+                var mf = new Manifest();
+                mf.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+                manifest.forEach((key, value) -> mf.getMainAttributes().putValue(key, value));
+                out.putNextEntry(new JarEntry(JarFile.MANIFEST_NAME));
+                mf.write(out);
+                out.closeEntry();
+            }
+            for (var entry : entries.entrySet()) {
+                out.putNextEntry(new JarEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * @return bytes of a manifest with the given main attributes
+     */
+    static byte[] manifest(Map<String, String> attributes) {
+        var mf = new Manifest();
+        mf.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.forEach((key, value) -> mf.getMainAttributes().putValue(key, value));
+        var out = new ByteArrayOutputStream();
+        try {
+            mf.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+
+        private final String source;
+
+        Source(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}